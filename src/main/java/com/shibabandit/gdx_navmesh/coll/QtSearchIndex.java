@@ -34,15 +34,35 @@ public final class QtSearchIndex<T extends QtItem> {
 
     public void itemsInRange(Vector2 targetPt, float range, Array<T> resultsInRange, ArrayItemVisitor.Filter<T> filter) {
 //        final long t0 = System.nanoTime();
+        visitor.setFilter(filter);
+        itemsInRange(targetPt, range, resultsInRange, visitor, qtEnv);
+//        final long t1 = System.nanoTime();
+//        Gdx.app.log("QtSearchIndex", "Elapsed nanos for search: " + (t0 - t1));
+    }
+
+    /**
+     * Query using caller owned visitor and envelope instead of the shared instances of this index. Safe to call
+     * from multiple threads at once as long as each thread uses its own '{@code visitor}', '{@code queryEnv}' and
+     * '{@code resultsInRange}' and the index is not modified.
+     *
+     * @param targetPt query center
+     * @param range query half-width
+     * @param resultsInRange items in range are added to this list
+     * @param visitor caller owned visitor, its filter is kept
+     * @param queryEnv caller owned query envelope
+     */
+    public void itemsInRange(Vector2 targetPt,
+                             float range,
+                             Array<T> resultsInRange,
+                             ArrayItemVisitor<T> visitor,
+                             Envelope queryEnv) {
+
         final float range2 = range * 2f;
         visitor.getQueryBounds().set(targetPt.x - range, targetPt.y - range, range2, range2);
         visitor.setItems(resultsInRange);
-        visitor.setFilter(filter);
         visitor.resetStats();
-        qtEnv.init(targetPt.x - range, targetPt.x + range, targetPt.y - range, targetPt.y + range);
-        qt.query(qtEnv, visitor);
-//        final long t1 = System.nanoTime();
-//        Gdx.app.log("QtSearchIndex", "Elapsed nanos for search: " + (t0 - t1));
+        queryEnv.init(targetPt.x - range, targetPt.x + range, targetPt.y - range, targetPt.y + range);
+        qt.query(queryEnv, visitor);
     }
 
     public void itemsInRange(Vector2 lowerLeft,
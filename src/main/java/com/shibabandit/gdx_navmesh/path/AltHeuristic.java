@@ -0,0 +1,376 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.shibabandit.gdx_navmesh.util.IndexedMinHeap;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * <p>A* heuristic using landmarks and the triangle inequality (ALT). The costs from a few landmark nodes to every
+ * node, and from every node to them, are precomputed with Dijkstra searches. The cost between two nodes is then at
+ * least the difference of their costs from, or to, any landmark. On maze-like meshes this is much closer to the real
+ * cost than the straight line distance, so A* expands fewer nodes. The estimate is never below
+ * {@link PortalMidpointDistHeuristic}.</p>
+ *
+ * <p>Landmarks are chosen by farthest point selection over portal midpoints, which places them on the edges of the
+ * mesh. Tables use 8 bytes per node per landmark and are computed in parallel, one table per task. Connections are
+ * directed, so costs towards a landmark are searched over incoming connections. Distances ignore agent radius, so
+ * estimates stay admissible for any agent.</p>
+ *
+ * <p>If nodes or connections are added or removed after the tables were computed, the heuristic falls back to
+ * midpoint distance until {@link #update()} is called. Tables ignore {@link NavMeshPathNode#isBlocked()}, blocking
+ * nodes only raises path costs so the estimates stay admissible and the tables are kept.</p>
+ */
+public final class AltHeuristic implements Heuristic<NavMeshPathNode> {
+
+    /** Graph the tables were computed for */
+    private final NavMeshGraph graph;
+
+    /** Number of landmarks to select */
+    private final int landmarkCount;
+
+    /** Landmark node indices */
+    private int[] landmarks;
+
+    /** Cost from each landmark to each node index, {@link Float#POSITIVE_INFINITY} if unreachable */
+    private float[][] distances;
+
+    /** Cost from each node index to each landmark, {@link Float#POSITIVE_INFINITY} if unreachable */
+    private float[][] reverseDistances;
+
+    /** Graph structure version the tables were computed for */
+    private volatile int tablesVersion;
+
+    /** Landmark costs of the last dynamic nodes estimated with, per thread */
+    private final ThreadLocal<DynamicCosts> dynamicCosts;
+
+    /**
+     * Select landmarks and compute their tables.
+     *
+     * @param graph graph to search, must not change while the tables are computed
+     * @param landmarkCount number of landmarks, 8 to 16 is usually enough
+     */
+    public AltHeuristic(NavMeshGraph graph, int landmarkCount) {
+        this.graph = graph;
+        this.landmarkCount = landmarkCount;
+        this.dynamicCosts = new ThreadLocal<DynamicCosts>() {
+            @Override
+            protected DynamicCosts initialValue() {
+                return new DynamicCosts(landmarkCount);
+            }
+        };
+        update();
+    }
+
+    /**
+     * Select landmarks again and recompute their tables for the current graph. Must not run at the same time as a
+     * search using this heuristic.
+     */
+    public void update() {
+        final int[] newLandmarks = selectLandmarks(graph, landmarkCount);
+        final int k = newLandmarks.length;
+        final float[][] newDistances = new float[k][];
+        final float[][] newReverseDistances = new float[k][];
+        final NavMeshReverseGraph reverseGraph = new NavMeshReverseGraph(graph);
+
+        IntStream.range(0, k * 2).parallel().forEach(t -> {
+            if(t < k) {
+                newDistances[t] = dijkstra(graph, newLandmarks[t]);
+            } else {
+                newReverseDistances[t - k] = reverseDijkstra(reverseGraph, newLandmarks[t - k]);
+            }
+        });
+
+        landmarks = newLandmarks;
+        distances = newDistances;
+        reverseDistances = newReverseDistances;
+        tablesVersion = graph.getStructureVersion();
+    }
+
+    @Override
+    public float estimate(NavMeshPathNode node, NavMeshPathNode endNode) {
+        final float midpointDist = node.getPortal().getMidpoint().dst(endNode.getPortal().getMidpoint());
+
+        if(tablesVersion != graph.getStructureVersion()) {
+            return midpointDist;
+        }
+
+        final float[][] distances = this.distances;
+        final float[][] reverseDistances = this.reverseDistances;
+        final LandmarkCosts nodeCosts = node.getIndex() < 0
+                ? dynamicCosts.get().get(node, distances, reverseDistances) : null;
+        final LandmarkCosts endCosts = endNode.getIndex() < 0
+                ? dynamicCosts.get().get(endNode, distances, reverseDistances) : null;
+
+        float best = midpointDist;
+        float fromLandmarkToNode, fromLandmarkToEnd, fromNodeToLandmark, fromEndToLandmark;
+        for(int k = 0; k < distances.length; ++k) {
+            fromLandmarkToNode = nodeCosts != null ? nodeCosts.from[k] : landmarkCost(distances[k], node);
+            fromLandmarkToEnd = endCosts != null ? endCosts.from[k] : landmarkCost(distances[k], endNode);
+            fromNodeToLandmark = nodeCosts != null ? nodeCosts.to[k] : landmarkCost(reverseDistances[k], node);
+            fromEndToLandmark = endCosts != null ? endCosts.to[k] : landmarkCost(reverseDistances[k], endNode);
+
+            // Skip landmarks in other walkable areas
+            if(fromLandmarkToNode != Float.POSITIVE_INFINITY && fromLandmarkToEnd != Float.POSITIVE_INFINITY) {
+                best = Math.max(best, fromLandmarkToEnd - fromLandmarkToNode);
+            }
+            if(fromNodeToLandmark != Float.POSITIVE_INFINITY && fromEndToLandmark != Float.POSITIVE_INFINITY) {
+                best = Math.max(best, fromNodeToLandmark - fromEndToLandmark);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return landmark node indices
+     */
+    public int[] getLandmarks() {
+        return landmarks;
+    }
+
+    /**
+     * @return cost from each landmark to each node index, indexed [landmark][node index]
+     */
+    public float[][] getDistances() {
+        return distances;
+    }
+
+    /**
+     * @return cost from each node index to each landmark, indexed [landmark][node index]
+     */
+    public float[][] getReverseDistances() {
+        return reverseDistances;
+    }
+
+    /**
+     * @param landmarkDistances cost from, or to, one landmark for each node index
+     * @param node graph node or dynamic start or end node
+     * @return cost between the landmark and the node. Dynamic nodes use their connections to the nodes of their
+     * triangle, which have the same costs both ways.
+     */
+    private static float landmarkCost(float[] landmarkDistances, NavMeshPathNode node) {
+        final int index = node.getIndex();
+        if(index >= 0) {
+            return index < landmarkDistances.length ? landmarkDistances[index] : Float.POSITIVE_INFINITY;
+        }
+
+        final Array<Connection<NavMeshPathNode>> connections = node.getConnections();
+        Connection<NavMeshPathNode> connection;
+        int toIndex;
+        float cost = Float.POSITIVE_INFINITY;
+        for(int i = 0; i < connections.size; ++i) {
+            connection = connections.get(i);
+            toIndex = connection.getToNode().getIndex();
+            if(toIndex >= 0 && toIndex < landmarkDistances.length) {
+                cost = Math.min(cost, landmarkDistances[toIndex] + connection.getCost());
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Farthest point selection over portal midpoints. The first landmark is the node farthest from the first node,
+     * each next landmark is the node farthest from all landmarks chosen so far.
+     *
+     * @param graph graph to select landmark nodes from
+     * @param count number of landmarks
+     * @return landmark node indices, fewer than '{@code count}' if the graph has fewer nodes
+     */
+    private static int[] selectLandmarks(NavMeshGraph graph, int count) {
+        final Array<NavMeshPathNode> nodes = graph.getNodes();
+        final float[] minDist2 = new float[nodes.size];
+        Arrays.fill(minDist2, Float.POSITIVE_INFINITY);
+
+        int first = -1;
+        for(int i = 0; i < nodes.size && first < 0; ++i) {
+            if(nodes.get(i) != null) {
+                first = i;
+            }
+        }
+        if(first < 0) {
+            return new int[0];
+        }
+
+        final int[] selected = new int[Math.min(count, graph.getNodeCount())];
+        Vector2 from = nodes.get(first).getPortal().getMidpoint();
+        NavMeshPathNode node;
+        int farthest;
+        float farthestDist2, dist2;
+
+        for(int k = 0; k < selected.length; ++k) {
+            farthest = -1;
+            farthestDist2 = -1f;
+            for(int i = 0; i < nodes.size; ++i) {
+                node = nodes.get(i);
+                if(node == null) {
+                    continue;
+                }
+                dist2 = Math.min(minDist2[i], node.getPortal().getMidpoint().dst2(from));
+                minDist2[i] = dist2;
+                if(dist2 > farthestDist2) {
+                    farthest = i;
+                    farthestDist2 = dist2;
+                }
+            }
+
+            selected[k] = farthest;
+            from = nodes.get(farthest).getPortal().getMidpoint();
+
+            // The first node only seeds the first landmark
+            if(k == 0) {
+                Arrays.fill(minDist2, Float.POSITIVE_INFINITY);
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * @param graph graph to search, ignoring agent radius
+     * @param source landmark node index
+     * @return cost from the landmark to each node index
+     */
+    private static float[] dijkstra(NavMeshGraph graph, int source) {
+        final Array<NavMeshPathNode> nodes = graph.getNodes();
+        final float[] dist = new float[nodes.size];
+        Arrays.fill(dist, Float.POSITIVE_INFINITY);
+
+        final IndexedMinHeap open = new IndexedMinHeap(nodes.size);
+        final CompactNavMeshGraph compactGraph =
+                graph instanceof CompactNavMeshGraph ? (CompactNavMeshGraph) graph : null;
+
+        dist[source] = 0f;
+        open.add(source, 0f);
+
+        int current, toIndex;
+        float cost;
+        Array<Connection<NavMeshPathNode>> connections;
+        Connection<NavMeshPathNode> connection;
+
+        while(!open.isEmpty()) {
+            current = open.pop();
+
+            if(compactGraph != null) {
+                final int[] offsets = compactGraph.getOffsets();
+                final int[] targets = compactGraph.getTargets();
+                final float[] costs = compactGraph.getCosts();
+                for(int e = offsets[current]; e < offsets[current + 1]; ++e) {
+                    toIndex = targets[e];
+                    cost = dist[current] + costs[e];
+                    if(cost < dist[toIndex]) {
+                        dist[toIndex] = cost;
+                        open.add(toIndex, cost);
+                    }
+                }
+
+            } else {
+                connections = graph.getConnections(nodes.get(current));
+                for(int i = 0; i < connections.size; ++i) {
+                    connection = connections.get(i);
+                    toIndex = connection.getToNode().getIndex();
+                    cost = dist[current] + connection.getCost();
+                    if(cost < dist[toIndex]) {
+                        dist[toIndex] = cost;
+                        open.add(toIndex, cost);
+                    }
+                }
+            }
+        }
+
+        return dist;
+    }
+
+    /**
+     * @param reverseGraph incoming connections of the graph, ignoring agent radius
+     * @param target landmark node index
+     * @return cost from each node index to the landmark
+     */
+    private static float[] reverseDijkstra(NavMeshReverseGraph reverseGraph, int target) {
+        final int nodeCount = reverseGraph.offsets.length - 1;
+        final float[] dist = new float[nodeCount];
+        Arrays.fill(dist, Float.POSITIVE_INFINITY);
+
+        final IndexedMinHeap open = new IndexedMinHeap(nodeCount);
+        final int[] offsets = reverseGraph.offsets;
+        final int[] sources = reverseGraph.sources;
+        final float[] costs = reverseGraph.costs;
+
+        dist[target] = 0f;
+        open.add(target, 0f);
+
+        int current, fromIndex;
+        float cost;
+        while(!open.isEmpty()) {
+            current = open.pop();
+            for(int e = offsets[current]; e < offsets[current + 1]; ++e) {
+                fromIndex = sources[e];
+                cost = dist[current] + costs[e];
+                if(cost < dist[fromIndex]) {
+                    dist[fromIndex] = cost;
+                    open.add(fromIndex, cost);
+                }
+            }
+        }
+
+        return dist;
+    }
+
+    /**
+     * Landmark costs of one dynamic node, both ways.
+     */
+    private static final class LandmarkCosts {
+        final float[] from, to;
+
+        LandmarkCosts(int landmarkCount) {
+            this.from = new float[landmarkCount];
+            this.to = new float[landmarkCount];
+        }
+    }
+
+    /**
+     * Landmark costs of the last two dynamic nodes estimated with, reused while a node and its position stay the
+     * same. Two entries cover the start and end nodes of a request.
+     */
+    private static final class DynamicCosts {
+        private final LandmarkCosts[] costs;
+        private final NavMeshPathNode[] dynNodes;
+        private final float[][][] distances;
+        private final float[] x, y;
+
+        /** Entry replaced next */
+        private int next;
+
+        DynamicCosts(int landmarkCount) {
+            this.costs = new LandmarkCosts[] {new LandmarkCosts(landmarkCount), new LandmarkCosts(landmarkCount)};
+            this.dynNodes = new NavMeshPathNode[2];
+            this.distances = new float[2][][];
+            this.x = new float[2];
+            this.y = new float[2];
+        }
+
+        LandmarkCosts get(NavMeshPathNode node, float[][] tables, float[][] reverseTables) {
+            final Vector2 pos = node.getPortal().getMidpoint();
+            for(int i = 0; i < 2; ++i) {
+                if(node == dynNodes[i] && tables == distances[i] && pos.x == x[i] && pos.y == y[i]) {
+                    return costs[i];
+                }
+            }
+
+            final int i = next;
+            next ^= 1;
+            for(int k = 0; k < tables.length; ++k) {
+                costs[i].from[k] = landmarkCost(tables[k], node);
+                costs[i].to[k] = landmarkCost(reverseTables[k], node);
+            }
+            dynNodes[i] = node;
+            distances[i] = tables;
+            x[i] = pos.x;
+            y[i] = pos.y;
+            return costs[i];
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import org.poly2tri.geometry.polygon.Polygon;
+
+/**
+ * <p>Navmesh graph that stores portal data and adjacency in flat primitive arrays instead of per-node
+ * connection objects. Portal endpoints, midpoints and half-lengths are kept in {@code float[]} arrays and
+ * adjacency is stored in compressed sparse row (CSR) form: the outgoing edges of node {@code i} are
+ * {@code targets[offsets[i]]} to {@code targets[offsets[i + 1] - 1]} with matching {@code costs}.</p>
+ *
+ * <p>Path nodes are still created so search results can be expressed as {@link NavMeshPathNode} paths, but they
+ * share a single empty connection list. {@link IndexedNavMeshAStarPathFinder} searches the CSR arrays directly.
+ * {@link #getConnections(NavMeshPathNode)} is kept for compatibility and allocates new connections on each call.</p>
+ */
+public class CompactNavMeshGraph extends NavMeshGraph {
+
+    /** Shared by all nodes of a compact graph, connections live in the CSR arrays. Must not be modified. */
+    private static final Array<Connection<NavMeshPathNode>> NO_CONNECTIONS = new Array<>(0);
+
+    /** Portal end points per node: left x, left y, right x, right y */
+    protected float[] portalPoints;
+
+    /** Portal midpoints per node: x, y */
+    protected float[] midpoints;
+
+    /** Portal length / 2 per node */
+    protected float[] halfLengths;
+
+    /** CSR row offsets, length is node count + 1 */
+    protected int[] offsets;
+
+    /** CSR edge destination node indices */
+    protected int[] targets;
+
+    /** CSR edge costs, distance between portal midpoints */
+    protected float[] costs;
+
+    /** CSR edge clearances, largest agent radius that fits along each edge */
+    protected float[] clearances;
+
+    /** Edge sources collected while building, released after compaction */
+    private IntArray buildFrom;
+
+    /** Edge destinations collected while building, released after compaction */
+    private IntArray buildTo;
+
+    /**
+     * Build the navigation graph using walkable triangles from Delaunay triangulation and compact it
+     * into flat arrays.
+     *
+     * @param walkablePolys flat list of walkable polygons
+     */
+    public CompactNavMeshGraph(Array<Polygon> walkablePolys) {
+        super(walkablePolys);
+    }
+
+    /**
+     * Create an empty graph to be filled by a loader, such as {@link NavMeshBake}.
+     */
+    protected CompactNavMeshGraph() {
+        super();
+        initPortalArrays();
+        offsets = new int[1];
+        targets = new int[0];
+        costs = new float[0];
+        clearances = new float[0];
+    }
+
+    @Override
+    protected void buildGraph(Array<Polygon> walkablePolys) {
+        buildFrom = new IntArray();
+        buildTo = new IntArray();
+
+        super.buildGraph(walkablePolys);
+        compact();
+
+        buildFrom = null;
+        buildTo = null;
+    }
+
+    @Override
+    protected NavMeshPathNode createNode(int index, NavMeshPortal portal) {
+        return new NavMeshPathNode(NO_CONNECTIONS, index, portal);
+    }
+
+    @Override
+    protected void addConnection(NavMeshPathNode fromNode, NavMeshPathNode toNode) {
+        buildFrom.add(fromNode.getIndex());
+        buildTo.add(toNode.getIndex());
+    }
+
+    /**
+     * Copy node portal data and the collected edge lists into the flat arrays.
+     */
+    protected void compact() {
+        final int nodeCount = nodes.size;
+        final int edgeCount = buildFrom.size;
+
+        initPortalArrays();
+
+        // Counting sort edges by source node, keeps insertion order per node
+        offsets = new int[nodeCount + 1];
+        for(int e = 0; e < edgeCount; ++e) {
+            ++offsets[buildFrom.get(e) + 1];
+        }
+        for(int i = 0; i < nodeCount; ++i) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        targets = new int[edgeCount];
+        costs = new float[edgeCount];
+        final int[] fill = new int[nodeCount];
+        int from, to, slot;
+        for(int e = 0; e < edgeCount; ++e) {
+            from = buildFrom.get(e);
+            to = buildTo.get(e);
+            slot = offsets[from] + fill[from]++;
+            targets[slot] = to;
+            costs[slot] = edgeCost(from, to);
+        }
+    }
+
+    /**
+     * Copy portal end points, midpoints and half-lengths of all nodes into the flat arrays.
+     */
+    protected void initPortalArrays() {
+        final int nodeCount = nodes.size;
+
+        portalPoints = new float[nodeCount * 4];
+        midpoints = new float[nodeCount * 2];
+        halfLengths = new float[nodeCount];
+
+        NavMeshPortal portal;
+        for(int i = 0; i < nodeCount; ++i) {
+            portal = nodes.get(i).getPortal();
+            portalPoints[i * 4] = portal.getLeft().x;
+            portalPoints[i * 4 + 1] = portal.getLeft().y;
+            portalPoints[i * 4 + 2] = portal.getRight().x;
+            portalPoints[i * 4 + 3] = portal.getRight().y;
+            midpoints[i * 2] = portal.getMidpoint().x;
+            midpoints[i * 2 + 1] = portal.getMidpoint().y;
+            halfLengths[i] = portal.getLengthDiv2();
+        }
+    }
+
+    /**
+     * @param from source node index
+     * @param to destination node index
+     * @return distance between the portal midpoints of the two nodes
+     */
+    protected float edgeCost(int from, int to) {
+        final float dx = midpoints[to * 2] - midpoints[from * 2];
+        final float dy = midpoints[to * 2 + 1] - midpoints[from * 2 + 1];
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    @Override
+    protected void updateClearances() {
+        clearances = new float[targets.length];
+        for(int i = 0; i < nodes.size; ++i) {
+            for(int e = offsets[i]; e < offsets[i + 1]; ++e) {
+                clearances[e] = connectionClearance(nodes.get(i), nodes.get(targets[e]));
+            }
+        }
+        updateTriClearances(triNodes);
+    }
+
+    /**
+     * Edges into a blocked node get a negative clearance, so searches reading {@link #getClearances()} skip them
+     * for any agent radius. Only the incoming edges of the node are updated, found through
+     * {@link #getReverseGraph()}.
+     */
+    @Override
+    protected void updateBlocked(NavMeshPathNode node) {
+        final NavMeshReverseGraph reverseGraph = getReverseGraph();
+        final int index = node.getIndex();
+        for(int e = reverseGraph.offsets[index]; e < reverseGraph.offsets[index + 1]; ++e) {
+            clearances[reverseGraph.edges[e]] = node.isBlocked() ? -1f : reverseGraph.clearances[e];
+        }
+    }
+
+    /**
+     * @param from source node index of the edge
+     * @param edge CSR edge index
+     * @return largest agent radius that fits along the edge, ignoring {@link NavMeshPathNode#isBlocked()}
+     */
+    float unblockedClearance(int from, int edge) {
+        return clearances[edge] < 0f
+                ? connectionClearance(nodes.get(from), nodes.get(targets[edge]))
+                : clearances[edge];
+    }
+
+    @Override
+    protected void unionConnections(int[] parent, float agentRadius) {
+        for(int i = 0; i < nodes.size; ++i) {
+            for(int e = offsets[i]; e < offsets[i + 1]; ++e) {
+                if(agentRadius <= unblockedClearance(i, e)) {
+                    union(parent, i, targets[e]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compatibility view of the CSR adjacency. Allocates a new list and connections on every call, searches
+     * should read {@link #getOffsets()}, {@link #getTargets()} and {@link #getCosts()} instead.
+     *
+     * @param fromNode node to get outgoing connections for
+     * @return newly allocated outgoing connections
+     */
+    @Override
+    public Array<Connection<NavMeshPathNode>> getConnections(NavMeshPathNode fromNode) {
+        final int index = fromNode.getIndex();
+        final Array<Connection<NavMeshPathNode>> result = new Array<>(offsets[index + 1] - offsets[index]);
+        NavMeshPathConn connection;
+        for(int e = offsets[index]; e < offsets[index + 1]; ++e) {
+            connection = new NavMeshPathConn(fromNode, nodes.get(targets[e]));
+            connection.setClearance(clearances[e]);
+            result.add(connection);
+        }
+        return result;
+    }
+
+    /**
+     * @param index node index
+     * @return path node with the given index
+     */
+    public NavMeshPathNode getNode(int index) {
+        return nodes.get(index);
+    }
+
+    /**
+     * @return portal end points per node: left x, left y, right x, right y
+     */
+    public float[] getPortalPoints() {
+        return portalPoints;
+    }
+
+    /**
+     * @return portal midpoints per node: x, y
+     */
+    public float[] getMidpoints() {
+        return midpoints;
+    }
+
+    /**
+     * @return portal length / 2 per node
+     */
+    public float[] getHalfLengths() {
+        return halfLengths;
+    }
+
+    /**
+     * @return CSR row offsets, length is node count + 1
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * @return CSR edge destination node indices
+     */
+    public int[] getTargets() {
+        return targets;
+    }
+
+    /**
+     * @return CSR edge costs
+     */
+    public float[] getCosts() {
+        return costs;
+    }
+
+    /**
+     * @return CSR edge clearances, largest agent radius that fits along each edge
+     */
+    public float[] getClearances() {
+        return clearances;
+    }
+}
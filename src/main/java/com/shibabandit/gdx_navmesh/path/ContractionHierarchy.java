@@ -0,0 +1,688 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.PathFinder;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.shibabandit.gdx_navmesh.util.IndexedMinHeap;
+
+import java.util.Arrays;
+
+import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.END_NODE_INDEX;
+
+/**
+ * <p>Contraction hierarchy over the connections of a static {@link NavMeshGraph}. Nodes are contracted one at a
+ * time, least important first, adding shortcut connections between their neighbors wherever the node lay on the
+ * only shortest path. A query is then a bidirectional Dijkstra search that only climbs to more important nodes,
+ * which settles a small fraction of the nodes a flat search does. Shortcuts are unpacked into graph nodes, so
+ * results are the same node paths {@link NavMeshStringPuller#pathToPortals(com.badlogic.gdx.ai.pfa.DefaultGraphPath)}
+ * takes from the flat search.</p>
+ *
+ * <p>The hierarchy is built for one agent radius, connections the agent does not fit along are left out. Requests
+ * for other radii use a flat time-sliced search. Dynamic start and end nodes of a {@link NavMeshPathRequest} join
+ * the query through their connections to the nodes of their triangle. Searches between graph nodes use the
+ * hierarchy radius too.</p>
+ *
+ * <p>Building takes much longer than a flat search. When the graph version changes, the hierarchy is rebuilt on
+ * the next search, so this suits maps that no longer change after baking.</p>
+ */
+public class ContractionHierarchy implements PathFinder<NavMeshPathNode> {
+
+    /** Nodes a witness search settles before giving up and keeping the shortcut */
+    private static final int WITNESS_SETTLE_LIMIT = 64;
+
+    /** Child value of edges that are graph connections rather than shortcuts */
+    private static final int NO_CHILD = -1;
+
+    /** Graph to search */
+    protected final NavMeshGraph graph;
+
+    /** Agent radius the hierarchy is built for */
+    protected final float agentRadius;
+
+    /** Search for requests with other agent radii */
+    protected final IndexedNavMeshAStarPathFinder flatFinder;
+
+    /** Contraction order per node index, higher is more important */
+    private int[] rank;
+
+    /** Edges to more important nodes per node index in CSR form, node i has [upOffsets[i], upOffsets[i + 1]) */
+    private int[] upOffsets, upTargets, upEdges;
+    private float[] upCosts;
+
+    /** Edges from more important nodes per node index in CSR form */
+    private int[] downOffsets, downSources, downEdges;
+    private float[] downCosts;
+
+    /** All edges, shortcuts list the two edges they replace */
+    private int[] edgeFrom, edgeTo, edgeChildA, edgeChildB;
+    private float[] edgeCosts;
+    private int edgeCount;
+
+    /** Graph version the hierarchy was built for */
+    private int builtVersion;
+
+    /** Query state per direction, forward climbs up edges and backward climbs down edges */
+    private final Query forward, backward;
+
+    /** Cost and meeting node of the best path found by the last query */
+    private float bestCost;
+    private int meetIndex;
+
+    /** Cost of a direct connection from the dynamic start node to the dynamic end node, or infinity */
+    private float directCost;
+
+    /** Edges of the path being unpacked */
+    private final IntArray pathEdges, unpackStack;
+
+    /**
+     * Build the hierarchy.
+     *
+     * @param graph graph to search
+     * @param agentRadius radius of agent in world units the hierarchy is built for
+     */
+    public ContractionHierarchy(NavMeshGraph graph, float agentRadius) {
+        this.graph = graph;
+        this.agentRadius = agentRadius;
+        this.flatFinder = new IndexedNavMeshAStarPathFinder(graph);
+        this.forward = new Query();
+        this.backward = new Query();
+        this.pathEdges = new IntArray();
+        this.unpackStack = new IntArray();
+
+        update();
+    }
+
+    @Override
+    public boolean searchConnectionPath(NavMeshPathNode startNode,
+                                        NavMeshPathNode endNode,
+                                        Heuristic<NavMeshPathNode> heuristic,
+                                        GraphPath<Connection<NavMeshPathNode>> outPath) {
+        if(builtVersion != graph.getVersion()) {
+            update();
+        }
+        if(!query(startNode, endNode)) {
+            return false;
+        }
+
+        final Array<NavMeshPathNode> nodes = graph.getNodes();
+        collectPathEdges();
+        for(int i = 0; i < pathEdges.size; ++i) {
+            unpack(pathEdges.get(i));
+        }
+        for(int i = 0; i < unpackStack.size; ++i) {
+            final int e = unpackStack.get(i);
+            outPath.add(new NavMeshPathConn(nodes.get(edgeFrom[e]), nodes.get(edgeTo[e])));
+        }
+        return true;
+    }
+
+    @Override
+    public boolean searchNodePath(NavMeshPathNode startNode,
+                                  NavMeshPathNode endNode,
+                                  Heuristic<NavMeshPathNode> heuristic,
+                                  GraphPath<NavMeshPathNode> outPath) {
+        if(builtVersion != graph.getVersion()) {
+            update();
+        }
+        if(!query(startNode, endNode)) {
+            return false;
+        }
+
+        generateNodePath(startNode, endNode, outPath);
+        return true;
+    }
+
+    @Override
+    public boolean search(PathFinderRequest<NavMeshPathNode> request, long timeToRun) {
+        if(!(request instanceof NavMeshPathRequest)) {
+            Gdx.app.error(ContractionHierarchy.class.getName(),
+                    "Invalid request class - " + request.getClass().getCanonicalName());
+            request.pathFound = false;
+            return true;
+        }
+
+        final NavMeshPathRequest navMeshPathRequest = (NavMeshPathRequest) request;
+
+        // The hierarchy holds the connections of one radius only
+        if(navMeshPathRequest.getAgentRadius() != agentRadius) {
+            return flatFinder.search(request, timeToRun);
+        }
+
+        if(builtVersion != graph.getVersion()) {
+            update();
+        }
+        request.statusChanged = false;
+
+        request.pathFound = query(request.startNode, request.endNode);
+        if(request.pathFound) {
+            generateNodePath(request.startNode, request.endNode, request.resultPath);
+        }
+        return true;
+    }
+
+    /**
+     * Rebuild the hierarchy from the current graph connections. Called by the searches when the graph version
+     * changes, must not run at the same time as a search.
+     */
+    public void update() {
+        new Builder().build();
+        builtVersion = graph.getVersion();
+    }
+
+    /**
+     * Bidirectional search up the hierarchy from '{@code startNode}' and '{@code endNode}'.
+     *
+     * @param startNode graph node or dynamic start node
+     * @param endNode graph node or dynamic end node
+     * @return true if a path was found
+     */
+    private boolean query(NavMeshPathNode startNode, NavMeshPathNode endNode) {
+        final int nodeCount = rank.length;
+        forward.begin(nodeCount);
+        backward.begin(nodeCount);
+        bestCost = Float.POSITIVE_INFINITY;
+        meetIndex = -1;
+        directCost = Float.POSITIVE_INFINITY;
+
+        // Dynamic nodes start the search at the nodes of their triangle
+        if(startNode.getIndex() >= 0) {
+            forward.visit(startNode.getIndex(), 0f, NO_CHILD);
+        } else {
+            final Array<Connection<NavMeshPathNode>> connections = startNode.getConnections();
+            Connection<NavMeshPathNode> connection;
+            for(int i = 0; i < connections.size; ++i) {
+                connection = connections.get(i);
+                if(!IndexedNavMeshAStarPathFinder.fits(connection, agentRadius)) {
+                    continue;
+                }
+                if(connection.getToNode().getIndex() >= 0) {
+                    forward.visit(connection.getToNode().getIndex(), connection.getCost(), NO_CHILD);
+                } else if(connection.getToNode().getIndex() == END_NODE_INDEX) {
+                    directCost = Math.min(directCost, connection.getCost());
+                }
+            }
+        }
+
+        // Graph nodes reach the dynamic end node through unconditional virtual edges of the same cost
+        if(endNode.getIndex() >= 0) {
+            backward.visit(endNode.getIndex(), 0f, NO_CHILD);
+        } else {
+            final Array<Connection<NavMeshPathNode>> connections = endNode.getConnections();
+            for(int i = 0; i < connections.size; ++i) {
+                if(connections.get(i).getToNode().getIndex() >= 0) {
+                    backward.visit(connections.get(i).getToNode().getIndex(), connections.get(i).getCost(), NO_CHILD);
+                }
+            }
+        }
+
+        // Alternate directions until neither can improve on the best path
+        boolean forwardDone = false, backwardDone = false;
+        while(!forwardDone || !backwardDone) {
+            forwardDone = forwardDone || forward.open.isEmpty() || forward.open.peekKey() >= bestCost;
+            if(!forwardDone) {
+                settle(forward, backward, upOffsets, upTargets, upCosts, upEdges);
+            }
+            backwardDone = backwardDone || backward.open.isEmpty() || backward.open.peekKey() >= bestCost;
+            if(!backwardDone) {
+                settle(backward, forward, downOffsets, downSources, downCosts, downEdges);
+            }
+        }
+
+        if(directCost <= bestCost && directCost != Float.POSITIVE_INFINITY) {
+            bestCost = directCost;
+            meetIndex = -1;
+            return true;
+        }
+        return meetIndex >= 0;
+    }
+
+    /**
+     * Settle the best open node of '{@code dir}' and relax its edges. A node settled by one direction and reached
+     * by the other is a candidate meeting node.
+     */
+    private void settle(Query dir, Query other, int[] offsets, int[] targets, float[] costs, int[] edges) {
+        final int current = dir.open.pop();
+        final float costSoFar = dir.dist[current];
+
+        if(other.isReached(current) && costSoFar + other.dist[current] < bestCost) {
+            bestCost = costSoFar + other.dist[current];
+            meetIndex = current;
+        }
+
+        for(int e = offsets[current]; e < offsets[current + 1]; ++e) {
+            dir.visit(targets[e], costSoFar + costs[e], edges[e]);
+        }
+    }
+
+    /**
+     * Fill {@link #pathEdges} with the hierarchy edges of the last query path, in path order.
+     */
+    private void collectPathEdges() {
+        pathEdges.clear();
+        unpackStack.clear();
+        if(meetIndex < 0) {
+            return;
+        }
+
+        for(int index = meetIndex; forward.parentEdge[index] != NO_CHILD; index = edgeFrom[forward.parentEdge[index]]) {
+            pathEdges.add(forward.parentEdge[index]);
+        }
+        pathEdges.reverse();
+        for(int index = meetIndex; backward.parentEdge[index] != NO_CHILD; index = edgeTo[backward.parentEdge[index]]) {
+            pathEdges.add(backward.parentEdge[index]);
+        }
+    }
+
+    /**
+     * Append the graph connections replaced by edge '{@code e}' to {@link #unpackStack}, in path order. Shortcuts
+     * are unpacked without recursion, their edges are pushed after the connections already unpacked.
+     */
+    private void unpack(int e) {
+        final int base = unpackStack.size;
+        unpackStack.add(e);
+
+        // Replace shortcuts in place until only graph connections are left
+        int i = base;
+        while(i < unpackStack.size) {
+            final int edge = unpackStack.get(i);
+            if(edgeChildA[edge] == NO_CHILD) {
+                ++i;
+            } else {
+                unpackStack.set(i, edgeChildA[edge]);
+                unpackStack.insert(i + 1, edgeChildB[edge]);
+            }
+        }
+    }
+
+    private void generateNodePath(NavMeshPathNode startNode,
+                                  NavMeshPathNode endNode,
+                                  GraphPath<NavMeshPathNode> outPath) {
+        final Array<NavMeshPathNode> nodes = graph.getNodes();
+        collectPathEdges();
+        for(int i = 0; i < pathEdges.size; ++i) {
+            unpack(pathEdges.get(i));
+        }
+
+        if(startNode.getIndex() < 0) {
+            outPath.add(startNode);
+        }
+        if(meetIndex >= 0) {
+            outPath.add(nodes.get(unpackStack.size > 0 ? edgeFrom[unpackStack.get(0)] : meetIndex));
+        }
+        for(int i = 0; i < unpackStack.size; ++i) {
+            outPath.add(nodes.get(edgeTo[unpackStack.get(i)]));
+        }
+        if(endNode.getIndex() < 0) {
+            outPath.add(endNode);
+        }
+    }
+
+    /**
+     * @return number of shortcuts added to the graph connections
+     */
+    public int getShortcutCount() {
+        int count = 0;
+        for(int e = 0; e < edgeCount; ++e) {
+            if(edgeChildA[e] != NO_CHILD) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return agent radius the hierarchy is built for
+     */
+    public float getAgentRadius() {
+        return agentRadius;
+    }
+
+    /**
+     * Dijkstra state of one query direction. Slots are node indices.
+     */
+    private static final class Query {
+        private float[] dist = new float[0];
+        private int[] parentEdge = new int[0];
+        private int[] stamps = new int[0];
+        private IndexedMinHeap open = new IndexedMinHeap(0);
+        private int stamp;
+
+        void begin(int nodeCount) {
+            if(nodeCount > dist.length) {
+                dist = new float[nodeCount];
+                parentEdge = new int[nodeCount];
+                stamps = new int[nodeCount];
+                open = new IndexedMinHeap(nodeCount);
+                stamp = 0;
+            }
+            if(++stamp < 0) {
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+            open.clear();
+        }
+
+        boolean isReached(int index) {
+            return stamps[index] == stamp;
+        }
+
+        void visit(int index, float cost, int edge) {
+            if(stamps[index] == stamp) {
+                if(dist[index] <= cost) {
+                    return;
+                }
+            } else {
+                stamps[index] = stamp;
+            }
+
+            dist[index] = cost;
+            parentEdge[index] = edge;
+            open.add(index, cost);
+        }
+    }
+
+    /**
+     * Contracts the graph and writes the hierarchy arrays. Nodes are ordered by edge difference, the shortcuts a
+     * contraction adds minus the edges it removes, plus the number of neighbors already contracted to spread
+     * contractions over the mesh. Priorities are updated lazily when a node is about to be contracted.
+     */
+    private final class Builder {
+        private final int nodeCount;
+
+        /** Edge ids per node index of the nodes not contracted yet, null for unused indices */
+        private final IntArray[] out, in;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbors;
+
+        /** Witness search state */
+        private final float[] witnessDist;
+        private final int[] witnessStamps;
+        private final IndexedMinHeap witnessOpen;
+        private int witnessStamp;
+
+        Builder() {
+            final Array<NavMeshPathNode> nodes = graph.getNodes();
+            nodeCount = nodes.size;
+            out = new IntArray[nodeCount];
+            in = new IntArray[nodeCount];
+            contracted = new boolean[nodeCount];
+            contractedNeighbors = new int[nodeCount];
+            witnessDist = new float[nodeCount];
+            witnessStamps = new int[nodeCount];
+            witnessOpen = new IndexedMinHeap(nodeCount);
+
+            edgeCount = 0;
+            edgeFrom = new int[nodeCount * 4 + 16];
+            edgeTo = new int[edgeFrom.length];
+            edgeChildA = new int[edgeFrom.length];
+            edgeChildB = new int[edgeFrom.length];
+            edgeCosts = new float[edgeFrom.length];
+
+            for(int i = 0; i < nodeCount; ++i) {
+                if(nodes.get(i) != null) {
+                    out[i] = new IntArray(4);
+                    in[i] = new IntArray(4);
+                } else {
+                    contracted[i] = true;
+                }
+            }
+
+            // Connections the agent fits along
+            final CompactNavMeshGraph compactGraph =
+                    graph instanceof CompactNavMeshGraph ? (CompactNavMeshGraph) graph : null;
+            if(compactGraph != null) {
+                final int[] offsets = compactGraph.getOffsets();
+                final int[] targets = compactGraph.getTargets();
+                final float[] costs = compactGraph.getCosts();
+                final float[] clearances = compactGraph.getClearances();
+                for(int i = 0; i < nodeCount; ++i) {
+                    for(int e = offsets[i]; e < offsets[i + 1]; ++e) {
+                        if(agentRadius <= clearances[e] && targets[e] != i) {
+                            addEdge(i, targets[e], costs[e], NO_CHILD, NO_CHILD);
+                        }
+                    }
+                }
+
+            } else {
+                Array<Connection<NavMeshPathNode>> connections;
+                Connection<NavMeshPathNode> connection;
+                for(int i = 0; i < nodeCount; ++i) {
+                    if(nodes.get(i) == null) {
+                        continue;
+                    }
+                    connections = graph.getConnections(nodes.get(i));
+                    for(int c = 0; c < connections.size; ++c) {
+                        connection = connections.get(c);
+                        if(IndexedNavMeshAStarPathFinder.fits(connection, agentRadius)
+                                && connection.getToNode().getIndex() != i) {
+                            addEdge(i, connection.getToNode().getIndex(), connection.getCost(), NO_CHILD, NO_CHILD);
+                        }
+                    }
+                }
+            }
+        }
+
+        void build() {
+            final IndexedMinHeap queue = new IndexedMinHeap(nodeCount);
+            for(int i = 0; i < nodeCount; ++i) {
+                if(!contracted[i]) {
+                    queue.add(i, priority(i));
+                }
+            }
+
+            rank = new int[nodeCount];
+            int order = 0;
+            int v;
+            float p;
+            while(!queue.isEmpty()) {
+                v = queue.pop();
+
+                // Lazy update, contract only if still the least important
+                p = priority(v);
+                if(!queue.isEmpty() && p > queue.peekKey()) {
+                    queue.add(v, p);
+                    continue;
+                }
+
+                contract(v, false);
+                rank[v] = order++;
+
+                // Neighbors lose an edge and may gain shortcuts
+                updateNeighbors(in[v], true, queue);
+                updateNeighbors(out[v], false, queue);
+                in[v] = null;
+                out[v] = null;
+            }
+
+            writeArrays();
+        }
+
+        private void updateNeighbors(IntArray edges, boolean incoming, IndexedMinHeap queue) {
+            int e, neighbor;
+            for(int i = 0; i < edges.size; ++i) {
+                e = edges.get(i);
+                neighbor = incoming ? edgeFrom[e] : edgeTo[e];
+                if(incoming) {
+                    out[neighbor].removeValue(e);
+                } else {
+                    in[neighbor].removeValue(e);
+                }
+                ++contractedNeighbors[neighbor];
+                queue.add(neighbor, priority(neighbor));
+            }
+        }
+
+        private float priority(int v) {
+            return contract(v, true) - in[v].size - out[v].size + contractedNeighbors[v];
+        }
+
+        /**
+         * Add the shortcuts needed to remove node '{@code v}', or only count them.
+         *
+         * @param v node index to contract
+         * @param simulate true to only count the shortcuts
+         * @return number of shortcuts needed
+         */
+        private int contract(int v, boolean simulate) {
+            final IntArray inEdges = in[v], outEdges = out[v];
+            if(inEdges.size == 0 || outEdges.size == 0) {
+                return 0;
+            }
+
+            float maxOut = 0f;
+            for(int j = 0; j < outEdges.size; ++j) {
+                maxOut = Math.max(maxOut, edgeCosts[outEdges.get(j)]);
+            }
+
+            int shortcuts = 0;
+            int a, b, u, w;
+            float cost;
+            for(int i = 0; i < inEdges.size; ++i) {
+                a = inEdges.get(i);
+                u = edgeFrom[a];
+                witnessSearch(u, v, edgeCosts[a] + maxOut);
+
+                for(int j = 0; j < outEdges.size; ++j) {
+                    b = outEdges.get(j);
+                    w = edgeTo[b];
+                    cost = edgeCosts[a] + edgeCosts[b];
+                    if(w == u || (witnessStamps[w] == witnessStamp && witnessDist[w] <= cost)) {
+                        continue;
+                    }
+
+                    ++shortcuts;
+                    if(!simulate) {
+                        addShortcut(u, w, cost, a, b);
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Dijkstra from '{@code u}' over nodes not contracted yet, skipping '{@code v}', up to '{@code maxCost}'
+         * or {@link #WITNESS_SETTLE_LIMIT} settled nodes. Nodes left unreached get a shortcut.
+         */
+        private void witnessSearch(int u, int v, float maxCost) {
+            if(++witnessStamp < 0) {
+                Arrays.fill(witnessStamps, 0);
+                witnessStamp = 1;
+            }
+            witnessOpen.clear();
+            witnessStamps[u] = witnessStamp;
+            witnessDist[u] = 0f;
+            witnessOpen.add(u, 0f);
+
+            int settled = 0;
+            int current, e, to;
+            float cost;
+            IntArray edges;
+            while(!witnessOpen.isEmpty() && settled++ < WITNESS_SETTLE_LIMIT) {
+                if(witnessOpen.peekKey() > maxCost) {
+                    break;
+                }
+                current = witnessOpen.pop();
+                edges = out[current];
+                for(int i = 0; i < edges.size; ++i) {
+                    e = edges.get(i);
+                    to = edgeTo[e];
+                    if(to == v) {
+                        continue;
+                    }
+                    cost = witnessDist[current] + edgeCosts[e];
+                    if(witnessStamps[to] != witnessStamp || cost < witnessDist[to]) {
+                        witnessStamps[to] = witnessStamp;
+                        witnessDist[to] = cost;
+                        witnessOpen.add(to, cost);
+                    }
+                }
+            }
+        }
+
+        private void addShortcut(int u, int w, float cost, int childA, int childB) {
+
+            // Replace a more costly edge between the same nodes instead of adding a parallel one
+            final IntArray edges = out[u];
+            int e;
+            for(int i = 0; i < edges.size; ++i) {
+                e = edges.get(i);
+                if(edgeTo[e] == w) {
+                    if(cost < edgeCosts[e]) {
+                        edgeCosts[e] = cost;
+                        edgeChildA[e] = childA;
+                        edgeChildB[e] = childB;
+                    }
+                    return;
+                }
+            }
+            addEdge(u, w, cost, childA, childB);
+        }
+
+        private void addEdge(int from, int to, float cost, int childA, int childB) {
+            if(edgeCount == edgeFrom.length) {
+                final int capacity = edgeCount * 2;
+                edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+                edgeTo = Arrays.copyOf(edgeTo, capacity);
+                edgeChildA = Arrays.copyOf(edgeChildA, capacity);
+                edgeChildB = Arrays.copyOf(edgeChildB, capacity);
+                edgeCosts = Arrays.copyOf(edgeCosts, capacity);
+            }
+
+            final int e = edgeCount++;
+            edgeFrom[e] = from;
+            edgeTo[e] = to;
+            edgeCosts[e] = cost;
+            edgeChildA[e] = childA;
+            edgeChildB[e] = childB;
+            out[from].add(e);
+            in[to].add(e);
+        }
+
+        /**
+         * Split the edges into up edges of their less important node and down edges of their less important node.
+         */
+        private void writeArrays() {
+            upOffsets = new int[nodeCount + 1];
+            downOffsets = new int[nodeCount + 1];
+            for(int e = 0; e < edgeCount; ++e) {
+                if(rank[edgeFrom[e]] < rank[edgeTo[e]]) {
+                    ++upOffsets[edgeFrom[e] + 1];
+                } else {
+                    ++downOffsets[edgeTo[e] + 1];
+                }
+            }
+            for(int i = 0; i < nodeCount; ++i) {
+                upOffsets[i + 1] += upOffsets[i];
+                downOffsets[i + 1] += downOffsets[i];
+            }
+
+            upTargets = new int[upOffsets[nodeCount]];
+            upEdges = new int[upTargets.length];
+            upCosts = new float[upTargets.length];
+            downSources = new int[downOffsets[nodeCount]];
+            downEdges = new int[downSources.length];
+            downCosts = new float[downSources.length];
+
+            final int[] upFill = new int[nodeCount], downFill = new int[nodeCount];
+            int slot;
+            for(int e = 0; e < edgeCount; ++e) {
+                if(rank[edgeFrom[e]] < rank[edgeTo[e]]) {
+                    slot = upOffsets[edgeFrom[e]] + upFill[edgeFrom[e]]++;
+                    upTargets[slot] = edgeTo[e];
+                    upEdges[slot] = e;
+                    upCosts[slot] = edgeCosts[e];
+                } else {
+                    slot = downOffsets[edgeTo[e]] + downFill[edgeTo[e]]++;
+                    downSources[slot] = edgeFrom[e];
+                    downEdges[slot] = e;
+                    downCosts[slot] = edgeCosts[e];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.poly2tri.Poly2Tri;
+import org.poly2tri.geometry.polygon.Polygon;
+import org.poly2tri.geometry.polygon.PolygonPoint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * <p>Navmesh graph that supports adding and removing obstacles at runtime. The world is split into square regions
+ * that are clipped and triangulated on their own, then stitched to their neighbors like the tiles of a
+ * {@link TiledNavMeshGraph}. Adding or removing an obstacle clips and triangulates only the regions its buffered
+ * bounds overlap, and patches their nodes, connections, stitches and spatial index entries in place.</p>
+ *
+ * <p>Smaller regions make updates cheaper but add stitch portals along region borders. Walkable pieces smaller than
+ * the clipper minimum area are dropped per region, so a region border may cut off slivers that a whole world clip
+ * would keep. Obstacle changes must not be made while a search is running. {@link #getVersion()} changes with every
+ * update.</p>
+ */
+public class DynamicNavMeshGraph extends TiledNavMeshGraph {
+
+    /** Walkable world area */
+    protected final Rectangle worldBounds;
+
+    /** Clips obstacles from region bounds */
+    protected final NavMeshClipper clipper;
+
+    /** Obstacles by id */
+    protected final IntMap<org.locationtech.jts.geom.Polygon> obstacles;
+
+    /** Obstacles indexed by envelope */
+    protected final Quadtree obstaclesQt;
+
+    /** Distance an obstacle may affect walkable area beyond its envelope, from clipper buffering and simplification */
+    protected final double obstacleMargin;
+
+    /** Region grid size */
+    protected final int regionsX, regionsY;
+
+    /** Next obstacle id */
+    protected int nextObstacleId;
+
+    /**
+     * Build the graph for all regions of the world.
+     *
+     * @param worldBounds walkable world area
+     * @param jtsObs initial obstacles, given ids 0 to size - 1 in order
+     * @param clipper clips obstacles from region bounds
+     * @param regionSize world width and height of a region
+     * @param slotCapacity node indices reserved per region, must fit the nodes of a region plus its stitch nodes
+     */
+    public DynamicNavMeshGraph(Rectangle worldBounds,
+                               Array<org.locationtech.jts.geom.Polygon> jtsObs,
+                               NavMeshClipper clipper,
+                               float regionSize,
+                               int slotCapacity) {
+        super(null, regionSize, regionCount(worldBounds, regionSize), slotCapacity, Long.MAX_VALUE);
+
+        this.worldBounds = new Rectangle(worldBounds);
+        this.clipper = clipper;
+        this.obstacles = new IntMap<>(jtsObs.size);
+        this.obstaclesQt = new Quadtree();
+        this.obstacleMargin = clipper.getBufferDist() + clipper.getDistTolerance();
+        this.regionsX = toTileCoord(worldBounds.x + worldBounds.width) - toTileCoord(worldBounds.x) + 1;
+        this.regionsY = toTileCoord(worldBounds.y + worldBounds.height) - toTileCoord(worldBounds.y) + 1;
+
+        for(int i = 0; i < jtsObs.size; ++i) {
+            putObstacle(jtsObs.get(i));
+        }
+
+        for(int y = toTileCoord(worldBounds.y); y <= toTileCoord(worldBounds.y + worldBounds.height); ++y) {
+            for(int x = toTileCoord(worldBounds.x); x <= toTileCoord(worldBounds.x + worldBounds.width); ++x) {
+                rebuildRegion(x, y);
+            }
+        }
+    }
+
+    private static int regionCount(Rectangle worldBounds, float regionSize) {
+        final int x = (int) Math.floor((worldBounds.x + worldBounds.width) / regionSize)
+                - (int) Math.floor(worldBounds.x / regionSize) + 1;
+        final int y = (int) Math.floor((worldBounds.y + worldBounds.height) / regionSize)
+                - (int) Math.floor(worldBounds.y / regionSize) + 1;
+        return x * y;
+    }
+
+    /**
+     * Add an obstacle and rebuild the regions it affects.
+     *
+     * @param jtsObs obstacle polygon
+     * @return id for {@link #removeObstacle(int)}
+     */
+    public int addObstacle(org.locationtech.jts.geom.Polygon jtsObs) {
+        final int id = putObstacle(jtsObs);
+        rebuildRegions(jtsObs.getEnvelopeInternal());
+        return id;
+    }
+
+    /**
+     * Remove an obstacle and rebuild the regions it affected.
+     *
+     * @param id obstacle id from {@link #addObstacle(org.locationtech.jts.geom.Polygon)}
+     * @return true if the obstacle existed
+     */
+    public boolean removeObstacle(int id) {
+        final org.locationtech.jts.geom.Polygon jtsObs = obstacles.remove(id);
+        if(jtsObs == null) {
+            return false;
+        }
+
+        obstaclesQt.remove(jtsObs.getEnvelopeInternal(), jtsObs);
+        rebuildRegions(jtsObs.getEnvelopeInternal());
+        return true;
+    }
+
+    /**
+     * @param id obstacle id
+     * @return the obstacle polygon, or null if there is no obstacle with the id
+     */
+    public org.locationtech.jts.geom.Polygon getObstacle(int id) {
+        return obstacles.get(id);
+    }
+
+    /**
+     * @return number of obstacles
+     */
+    public int getObstacleCount() {
+        return obstacles.size;
+    }
+
+    private int putObstacle(org.locationtech.jts.geom.Polygon jtsObs) {
+        final int id = nextObstacleId++;
+        obstacles.put(id, jtsObs);
+        obstaclesQt.insert(jtsObs.getEnvelopeInternal(), jtsObs);
+        return id;
+    }
+
+    /**
+     * Rebuild every region that walkable area changes within '{@code env}' may affect.
+     */
+    private void rebuildRegions(Envelope env) {
+        final int minX = Math.max(toTileCoord((float) (env.getMinX() - obstacleMargin)), toTileCoord(worldBounds.x));
+        final int maxX = Math.min(toTileCoord((float) (env.getMaxX() + obstacleMargin)),
+                toTileCoord(worldBounds.x + worldBounds.width));
+        final int minY = Math.max(toTileCoord((float) (env.getMinY() - obstacleMargin)), toTileCoord(worldBounds.y));
+        final int maxY = Math.min(toTileCoord((float) (env.getMaxY() + obstacleMargin)),
+                toTileCoord(worldBounds.y + worldBounds.height));
+
+        for(int y = minY; y <= maxY; ++y) {
+            for(int x = minX; x <= maxX; ++x) {
+                rebuildRegion(x, y);
+            }
+        }
+    }
+
+    /**
+     * Replace the nodes of a region with a new clip and triangulation of its current obstacles.
+     */
+    protected void rebuildRegion(int regionX, int regionY) {
+        unloadTile(regionX, regionY);
+        try {
+            loadTile(regionX, regionY);
+        } catch (IOException e) {
+
+            // Regions are built in memory, readTile does not do I/O
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Clip and triangulate a region.
+     */
+    @Override
+    protected NavMeshGraph readTile(int tileX, int tileY, int indexBase) {
+        final float minX = Math.max(tileX * tileSize, worldBounds.x);
+        final float maxX = Math.min((tileX + 1) * tileSize, worldBounds.x + worldBounds.width);
+        final float minY = Math.max(tileY * tileSize, worldBounds.y);
+        final float maxY = Math.min((tileY + 1) * tileSize, worldBounds.y + worldBounds.height);
+        if(maxX <= minX || maxY <= minY) {
+            return null;
+        }
+
+        // Obstacles that may change walkable area in the region
+        final Envelope queryEnv = new Envelope(minX, maxX, minY, maxY);
+        queryEnv.expandBy(obstacleMargin);
+        final Array<org.locationtech.jts.geom.Polygon> regionObs = new Array<>();
+        final HashSet<org.locationtech.jts.geom.Polygon> seen = new HashSet<>();
+        for(Object item : (List<?>) obstaclesQt.query(queryEnv)) {
+            final org.locationtech.jts.geom.Polygon jtsObs = (org.locationtech.jts.geom.Polygon) item;
+            if(queryEnv.intersects(jtsObs.getEnvelopeInternal()) && seen.add(jtsObs)) {
+                regionObs.add(jtsObs);
+            }
+        }
+
+        final Array<Polygon> walkables;
+        if(regionObs.size > 0) {
+            walkables = clipper.clipToWalkables(regionPolygon(minX, minY, maxX, maxY), regionObs);
+        } else {
+            walkables = new Array<>(1);
+            walkables.add(regionPolygon(minX, minY, maxX, maxY));
+        }
+
+        for(Polygon p : walkables) {
+            Poly2Tri.triangulate(p);
+        }
+
+        return new NavMeshGraph(walkables, indexBase);
+    }
+
+    private static Polygon regionPolygon(float minX, float minY, float maxX, float maxY) {
+        return new Polygon(new PolygonPoint[] {
+                new PolygonPoint(maxX, maxY),
+                new PolygonPoint(maxX, minY),
+                new PolygonPoint(minX, minY),
+                new PolygonPoint(minX, maxY)
+        });
+    }
+
+    /**
+     * @return walkable world area
+     */
+    public Rectangle getWorldBounds() {
+        return worldBounds;
+    }
+
+    /**
+     * @return number of region columns
+     */
+    public int getRegionsX() {
+        return regionsX;
+    }
+
+    /**
+     * @return number of region rows
+     */
+    public int getRegionsY() {
+        return regionsY;
+    }
+}
@@ -0,0 +1,863 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.PathFinder;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+import com.shibabandit.gdx_navmesh.util.IndexedMinHeap;
+
+import java.util.Arrays;
+
+import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.END_NODE_INDEX;
+import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.START_NODE_INDEX;
+
+/**
+ * <p>Hierarchical path finding over a {@link NavMeshGraph}. Nodes are partitioned into square clusters by portal
+ * midpoint. Nodes with a connection into or from another cluster are entrances, and the cost between every pair of
+ * entrances of a cluster is precomputed with searches that stay inside the cluster. A request first searches the
+ * abstract graph of entrances, then refines the path with an A* search limited to the clusters the abstract path
+ * passed through.</p>
+ *
+ * <p>Paths are near optimal, the refined path is the best one inside the corridor of clusters. If the agent does
+ * not fit through the corridor, or no abstract path is found between connected triangles, the request falls back to
+ * a flat time-sliced search. The abstract search itself is not time-sliced. Searches between graph nodes without a
+ * request always use the flat search.</p>
+ *
+ * <p>Intra-cluster costs are kept for agent radius 0 and each of the graph radius classes, see
+ * {@link NavMeshGraph#setRadiusClasses(float...)}. When the graph version changes, only the clusters holding nodes
+ * that were added, removed, re-connected, blocked or unblocked are rebuilt, on the next search.</p>
+ */
+public class HierarchicalNavMeshPathFinder implements PathFinder<NavMeshPathNode> {
+
+    /** Graph to search */
+    protected final NavMeshGraph graph;
+
+    /** Set when {@link #graph} is a {@link CompactNavMeshGraph}, used to read its CSR arrays directly */
+    protected final CompactNavMeshGraph compactGraph;
+
+    /** World width and height of a cluster */
+    protected final float clusterSize;
+
+    /** Flat search for graph node searches and requests the corridor can not satisfy */
+    protected final IndexedNavMeshAStarPathFinder flatFinder;
+
+    /** Clusters by grid cell */
+    protected final LongMap<Cluster> clustersByCell;
+
+    /** Clusters by id */
+    protected final Array<Cluster> clusters;
+
+    /** Cluster id per node index, -1 for unused indices */
+    protected int[] nodeCluster;
+
+    /** Position in the entrances of its cluster per node index, -1 if the node is not an entrance */
+    protected int[] entranceIndex;
+
+    /** Agent radii intra-cluster costs are kept for, 0 then the graph radius classes */
+    protected float[] radii;
+
+    /** Incoming connections of the graph when the clusters were last built */
+    private NavMeshReverseGraph reverseGraph;
+
+    /** Node per index when its cluster was last built */
+    private NavMeshPathNode[] builtNodes;
+
+    /** Outgoing plus incoming connection count per node index when its cluster was last built */
+    private int[] builtDegrees;
+
+    /** {@link NavMeshPathNode#isBlocked()} per node index when its cluster was last built */
+    private boolean[] builtBlocked;
+
+    /** Graph version the clusters were built for */
+    private int builtVersion;
+
+    /** Searches limited to a set of clusters, used for building and refining */
+    private final LocalSearch localSearch;
+
+    /** Abstract search state per slot, graph nodes use their index, dynamic nodes the two slots after */
+    private float[] abstractG;
+    private int[] abstractParent;
+    private int[] abstractStamps;
+    private IndexedMinHeap abstractOpen;
+    private int abstractStamp;
+
+    /** Entrances reached from the dynamic start node and their costs */
+    private final IntArray startEntrances;
+    private final FloatArray startEntranceCosts;
+
+    /** Cost from each entrance to the dynamic end node, valid where {@link #endCostStamps} match */
+    private float[] endCosts;
+    private int[] endCostStamps;
+
+    /** Cost from the start node to the end node without leaving the start clusters, or infinity */
+    private float directCost;
+
+    /** Request currently searched by {@link #flatFinder}, or null */
+    private NavMeshPathRequest fallbackRequest;
+
+    /**
+     * Partition the graph into clusters and precompute their entrance costs.
+     *
+     * @param graph graph to search
+     * @param clusterSize world width and height of a cluster, a few times the typical triangle size
+     */
+    public HierarchicalNavMeshPathFinder(NavMeshGraph graph, float clusterSize) {
+        this.graph = graph;
+        this.compactGraph = graph instanceof CompactNavMeshGraph ? (CompactNavMeshGraph) graph : null;
+        this.clusterSize = clusterSize;
+        this.flatFinder = new IndexedNavMeshAStarPathFinder(graph);
+        this.clustersByCell = new LongMap<>();
+        this.clusters = new Array<>();
+        this.nodeCluster = new int[0];
+        this.entranceIndex = new int[0];
+        this.radii = new float[0];
+        this.builtNodes = new NavMeshPathNode[0];
+        this.builtDegrees = new int[0];
+        this.builtBlocked = new boolean[0];
+        this.localSearch = new LocalSearch();
+        this.abstractG = new float[0];
+        this.abstractParent = new int[0];
+        this.abstractStamps = new int[0];
+        this.abstractOpen = new IndexedMinHeap(0);
+        this.startEntrances = new IntArray();
+        this.startEntranceCosts = new FloatArray();
+        this.endCosts = new float[0];
+        this.endCostStamps = new int[0];
+
+        update();
+    }
+
+    @Override
+    public boolean searchConnectionPath(NavMeshPathNode startNode,
+                                        NavMeshPathNode endNode,
+                                        Heuristic<NavMeshPathNode> heuristic,
+                                        GraphPath<Connection<NavMeshPathNode>> outPath) {
+        return flatFinder.searchConnectionPath(startNode, endNode, heuristic, outPath);
+    }
+
+    @Override
+    public boolean searchNodePath(NavMeshPathNode startNode,
+                                  NavMeshPathNode endNode,
+                                  Heuristic<NavMeshPathNode> heuristic,
+                                  GraphPath<NavMeshPathNode> outPath) {
+        return flatFinder.searchNodePath(startNode, endNode, heuristic, outPath);
+    }
+
+    @Override
+    public boolean search(PathFinderRequest<NavMeshPathNode> request, long timeToRun) {
+        if(!(request instanceof NavMeshPathRequest)) {
+            Gdx.app.error(HierarchicalNavMeshPathFinder.class.getName(),
+                    "Invalid request class - " + request.getClass().getCanonicalName());
+            request.pathFound = false;
+            return true;
+        }
+
+        final NavMeshPathRequest navMeshPathRequest = (NavMeshPathRequest) request;
+
+        // Continue a time-sliced fallback search
+        if(navMeshPathRequest == fallbackRequest && !request.statusChanged) {
+            return finishFallback(navMeshPathRequest, timeToRun);
+        }
+        fallbackRequest = null;
+
+        if(builtVersion != graph.getVersion() || radiiChanged()) {
+            update();
+        }
+        request.statusChanged = false;
+
+        // Without an abstract path there is usually no path, the flat search settles the cases the abstract
+        // graph misses, such as radii between classes
+        if(!searchAbstract(navMeshPathRequest)) {
+            if(!graph.isConnected(navMeshPathRequest.getStartTriNode(), navMeshPathRequest.getEndTriNode(),
+                    navMeshPathRequest.getAgentRadius())) {
+                request.pathFound = false;
+                return true;
+            }
+            fallbackRequest = navMeshPathRequest;
+            request.statusChanged = true;
+            return finishFallback(navMeshPathRequest, timeToRun);
+        }
+
+        if(refine(navMeshPathRequest)) {
+            request.pathFound = true;
+            return true;
+        }
+
+        // The agent does not fit through the corridor, search the whole graph
+        fallbackRequest = navMeshPathRequest;
+        request.statusChanged = true;
+        return finishFallback(navMeshPathRequest, timeToRun);
+    }
+
+    private boolean finishFallback(NavMeshPathRequest request, long timeToRun) {
+        final boolean done = flatFinder.search(request, timeToRun);
+        if(done) {
+            fallbackRequest = null;
+        }
+        return done;
+    }
+
+    /**
+     * Rebuild the clusters holding nodes that changed since the last build, or all clusters if the node index
+     * space or the radius classes changed. Called by {@link #search(PathFinderRequest, long)} when the graph
+     * version changes, must not run at the same time as a search.
+     */
+    public void update() {
+        final Array<NavMeshPathNode> nodes = graph.getNodes();
+        final int nodeCount = nodes.size;
+        final float[] newRadii = radiiForGraph();
+        final boolean rebuildAll = nodeCount != nodeCluster.length || !Arrays.equals(radii, newRadii);
+        reverseGraph = new NavMeshReverseGraph(graph);
+
+        if(rebuildAll) {
+            radii = newRadii;
+            nodeCluster = new int[nodeCount];
+            entranceIndex = new int[nodeCount];
+            builtNodes = new NavMeshPathNode[nodeCount];
+            builtDegrees = new int[nodeCount];
+            builtBlocked = new boolean[nodeCount];
+            Arrays.fill(nodeCluster, -1);
+            Arrays.fill(entranceIndex, -1);
+            for(Cluster cluster : clusters) {
+                cluster.dirty = true;
+            }
+        }
+
+        // Assign changed nodes to clusters, marking their old and new clusters dirty. Blocking a node keeps its
+        // connections but changes the intra-cluster costs through it.
+        NavMeshPathNode node;
+        int degree;
+        boolean blocked;
+        for(int i = 0; i < nodeCount; ++i) {
+            node = nodes.get(i);
+            degree = node == null ? 0 : degree(node);
+            blocked = node != null && node.isBlocked();
+            if(node == builtNodes[i] && degree == builtDegrees[i] && blocked == builtBlocked[i]) {
+                continue;
+            }
+
+            if(nodeCluster[i] >= 0) {
+                clusters.get(nodeCluster[i]).dirty = true;
+            }
+            nodeCluster[i] = node == null ? -1 : clusterOf(node).id;
+            if(nodeCluster[i] >= 0) {
+                clusters.get(nodeCluster[i]).dirty = true;
+            }
+            builtNodes[i] = node;
+            builtDegrees[i] = degree;
+            builtBlocked[i] = blocked;
+        }
+
+        // Regroup members of dirty clusters
+        for(Cluster cluster : clusters) {
+            if(cluster.dirty) {
+                cluster.members.clear();
+            }
+        }
+        for(int i = 0; i < nodeCount; ++i) {
+            if(nodeCluster[i] >= 0 && clusters.get(nodeCluster[i]).dirty) {
+                clusters.get(nodeCluster[i]).members.add(i);
+            }
+        }
+
+        for(Cluster cluster : clusters) {
+            if(cluster.dirty) {
+                buildCluster(cluster);
+                cluster.dirty = false;
+            }
+        }
+
+        ensureAbstractCapacity(nodeCount + 2);
+        builtVersion = graph.getVersion();
+    }
+
+    private boolean radiiChanged() {
+        final float[] radiusClasses = graph.getRadiusClasses();
+        if(radiusClasses.length + 1 != radii.length) {
+            return true;
+        }
+        for(int i = 0; i < radiusClasses.length; ++i) {
+            if(radiusClasses[i] != radii[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private float[] radiiForGraph() {
+        final float[] radiusClasses = graph.getRadiusClasses();
+        final float[] result = new float[radiusClasses.length + 1];
+        System.arraycopy(radiusClasses, 0, result, 1, radiusClasses.length);
+        return result;
+    }
+
+    /**
+     * @return cluster of the node's portal midpoint, created if the cell has no cluster yet
+     */
+    private Cluster clusterOf(NavMeshPathNode node) {
+        final Vector2 midpoint = node.getPortal().getMidpoint();
+        final int cellX = (int) Math.floor(midpoint.x / clusterSize);
+        final int cellY = (int) Math.floor(midpoint.y / clusterSize);
+        final long key = ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+
+        Cluster cluster = clustersByCell.get(key);
+        if(cluster == null) {
+            cluster = new Cluster(clusters.size, cellX, cellY);
+            clustersByCell.put(key, cluster);
+            clusters.add(cluster);
+        }
+        return cluster;
+    }
+
+    /**
+     * Find the entrances of a cluster and the cost between each pair of them for each radius.
+     */
+    private void buildCluster(Cluster cluster) {
+        final IntArray members = cluster.members;
+        final IntArray entrances = cluster.entrances;
+        final Array<NavMeshPathNode> nodes = graph.getNodes();
+        entrances.clear();
+
+        int index;
+        for(int i = 0; i < members.size; ++i) {
+            index = members.get(i);
+            entranceIndex[index] = -1;
+            if(hasCrossClusterConnection(nodes.get(index), cluster.id)) {
+                entranceIndex[index] = entrances.size;
+                entrances.add(index);
+            }
+        }
+
+        final int m = entrances.size;
+        cluster.costs = new float[radii.length][m * m];
+        for(int r = 0; r < radii.length; ++r) {
+            for(int p = 0; p < m; ++p) {
+                localSearch.begin(null);
+                localSearch.addToMask(cluster.id);
+                localSearch.run(nodes.get(entrances.get(p)), null, radii[r]);
+                for(int q = 0; q < m; ++q) {
+                    cluster.costs[r][p * m + q] = localSearch.cost(entrances.get(q));
+                }
+            }
+        }
+    }
+
+    private boolean hasCrossClusterConnection(NavMeshPathNode node, int clusterId) {
+        final int index = node.getIndex();
+
+        // Portal connections are not always mirrored, incoming connections make an entrance too
+        for(int e = reverseGraph.offsets[index]; e < reverseGraph.offsets[index + 1]; ++e) {
+            if(nodeCluster[reverseGraph.sources[e]] != clusterId) {
+                return true;
+            }
+        }
+
+        if(compactGraph != null) {
+            final int[] offsets = compactGraph.getOffsets();
+            final int[] targets = compactGraph.getTargets();
+            for(int e = offsets[index]; e < offsets[index + 1]; ++e) {
+                if(nodeCluster[targets[e]] != clusterId) {
+                    return true;
+                }
+            }
+
+        } else {
+            final Array<Connection<NavMeshPathNode>> connections = graph.getConnections(node);
+            for(int i = 0; i < connections.size; ++i) {
+                if(nodeCluster[connections.get(i).getToNode().getIndex()] != clusterId) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int degree(NavMeshPathNode node) {
+        final int index = node.getIndex();
+        final int inDegree = reverseGraph.offsets[index + 1] - reverseGraph.offsets[index];
+        if(compactGraph != null) {
+            return compactGraph.getOffsets()[index + 1] - compactGraph.getOffsets()[index] + inDegree;
+        }
+        return graph.getConnections(node).size + inDegree;
+    }
+
+    private void ensureAbstractCapacity(int slots) {
+        if(slots > abstractG.length) {
+            abstractG = new float[slots];
+            abstractParent = new int[slots];
+            abstractStamps = new int[slots];
+            abstractOpen = new IndexedMinHeap(slots);
+            endCosts = new float[slots];
+            endCostStamps = new int[slots];
+            abstractStamp = 0;
+        }
+    }
+
+    /**
+     * A* over entrances, from the dynamic start node to the dynamic end node of '{@code request}'.
+     *
+     * @return true if an abstract path was found
+     */
+    private boolean searchAbstract(NavMeshPathRequest request) {
+        final int nodeCount = nodeCluster.length;
+        final int startSlot = nodeCount, endSlot = nodeCount + 1;
+        final float agentRadius = request.getAgentRadius();
+
+        // Largest radius with intra-cluster costs not above the agent radius
+        int radiusClass = 0;
+        while(radiusClass + 1 < radii.length && radii[radiusClass + 1] <= agentRadius) {
+            ++radiusClass;
+        }
+        final float classRadius = radii[radiusClass];
+
+        if(++abstractStamp < 0) {
+            Arrays.fill(abstractStamps, 0);
+            Arrays.fill(endCostStamps, 0);
+            abstractStamp = 1;
+        }
+
+        // Costs from the start node to the entrances of its clusters
+        startEntrances.clear();
+        startEntranceCosts.clear();
+        localSearch.begin(request);
+        addTriangleClusters(request.startNode);
+        localSearch.run(request.startNode, null, agentRadius);
+        directCost = localSearch.cost(endSlot);
+        collectEntrances(startEntrances, startEntranceCosts);
+
+        // Costs from the entrances of the end clusters to the end node
+        localSearch.begin(request);
+        addTriangleClusters(request.endNode);
+        localSearch.runReverse(request.endNode, agentRadius);
+        final IntArray endEntrances = localSearch.reachedEntrances;
+        for(int i = 0; i < endEntrances.size; ++i) {
+            endCosts[endEntrances.get(i)] = localSearch.cost(endEntrances.get(i));
+            endCostStamps[endEntrances.get(i)] = abstractStamp;
+        }
+
+        final Vector2 endPos = request.endNode.getPortal().getMidpoint();
+        abstractOpen.clear();
+        abstractVisit(startSlot, -1, 0f, request.startNode.getPortal().getMidpoint().dst(endPos));
+
+        int current, index, m, to;
+        float costSoFar, cost;
+        Cluster cluster;
+        float[] costs;
+
+        while(!abstractOpen.isEmpty()) {
+            current = abstractOpen.pop();
+            if(current == endSlot) {
+                return true;
+            }
+            costSoFar = abstractG[current];
+
+            if(current == startSlot) {
+                for(int i = 0; i < startEntrances.size; ++i) {
+                    index = startEntrances.get(i);
+                    abstractVisit(index, current, startEntranceCosts.get(i), estimate(index, endPos));
+                }
+                if(directCost != Float.POSITIVE_INFINITY) {
+                    abstractVisit(endSlot, current, directCost, 0f);
+                }
+                continue;
+            }
+
+            // Clusters rebuilt since the node was reached may no longer list it
+            if(entranceIndex[current] < 0) {
+                continue;
+            }
+
+            // Other entrances of the same cluster
+            cluster = clusters.get(nodeCluster[current]);
+            m = cluster.entrances.size;
+            costs = cluster.costs[radiusClass];
+            for(int q = 0, p = entranceIndex[current]; q < m; ++q) {
+                cost = costs[p * m + q];
+                if(q != p && cost != Float.POSITIVE_INFINITY) {
+                    to = cluster.entrances.get(q);
+                    abstractVisit(to, current, costSoFar + cost, estimate(to, endPos));
+                }
+            }
+
+            // Connections into other clusters
+            if(compactGraph != null) {
+                final int[] offsets = compactGraph.getOffsets();
+                final int[] targets = compactGraph.getTargets();
+                final float[] edgeCosts = compactGraph.getCosts();
+                final float[] clearances = compactGraph.getClearances();
+                for(int e = offsets[current]; e < offsets[current + 1]; ++e) {
+                    to = targets[e];
+                    if(nodeCluster[to] != cluster.id && classRadius <= clearances[e]) {
+                        abstractVisit(to, current, costSoFar + edgeCosts[e], estimate(to, endPos));
+                    }
+                }
+
+            } else {
+                final Array<Connection<NavMeshPathNode>> connections =
+                        graph.getConnections(graph.getNodes().get(current));
+                Connection<NavMeshPathNode> connection;
+                for(int i = 0; i < connections.size; ++i) {
+                    connection = connections.get(i);
+                    to = connection.getToNode().getIndex();
+                    if(nodeCluster[to] != cluster.id
+                            && IndexedNavMeshAStarPathFinder.fits(connection, classRadius)) {
+                        abstractVisit(to, current, costSoFar + connection.getCost(), estimate(to, endPos));
+                    }
+                }
+            }
+
+            if(endCostStamps[current] == abstractStamp) {
+                abstractVisit(endSlot, current, costSoFar + endCosts[current], 0f);
+            }
+        }
+
+        return false;
+    }
+
+    private float estimate(int index, Vector2 endPos) {
+        return graph.getNodes().get(index).getPortal().getMidpoint().dst(endPos);
+    }
+
+    private void abstractVisit(int slot, int parent, float cost, float estimate) {
+        if(abstractStamps[slot] == abstractStamp) {
+            if(abstractG[slot] <= cost) {
+                return;
+            }
+        } else {
+            abstractStamps[slot] = abstractStamp;
+        }
+
+        abstractG[slot] = cost;
+        abstractParent[slot] = parent;
+        abstractOpen.add(slot, cost + estimate);
+    }
+
+    /**
+     * Add the clusters of the nodes of the dynamic node's triangle to the local search area.
+     */
+    private void addTriangleClusters(NavMeshPathNode dynNode) {
+        final Array<Connection<NavMeshPathNode>> connections = dynNode.getConnections();
+        int index;
+        for(int i = 0; i < connections.size; ++i) {
+            index = connections.get(i).getToNode().getIndex();
+            if(index >= 0 && nodeCluster[index] >= 0) {
+                localSearch.addToMask(nodeCluster[index]);
+            }
+        }
+    }
+
+    private void collectEntrances(IntArray outEntrances, FloatArray outCosts) {
+        final IntArray reached = localSearch.reachedEntrances;
+        for(int i = 0; i < reached.size; ++i) {
+            outEntrances.add(reached.get(i));
+            outCosts.add(localSearch.cost(reached.get(i)));
+        }
+    }
+
+    /**
+     * A* from the start node to the end node, limited to the clusters of the abstract path.
+     *
+     * @return true if a path was found and written to the request
+     */
+    private boolean refine(NavMeshPathRequest request) {
+        final int nodeCount = nodeCluster.length;
+
+        localSearch.begin(request);
+        addTriangleClusters(request.startNode);
+        addTriangleClusters(request.endNode);
+        for(int slot = abstractParent[nodeCount + 1]; slot >= 0 && slot < nodeCount; slot = abstractParent[slot]) {
+            localSearch.addToMask(nodeCluster[slot]);
+        }
+
+        if(!localSearch.run(request.startNode, request.endNode, request.getAgentRadius())) {
+            return false;
+        }
+
+        localSearch.generateNodePath(request.resultPath);
+        return true;
+    }
+
+    /**
+     * @return number of clusters
+     */
+    public int getClusterCount() {
+        return clusters.size;
+    }
+
+    /**
+     * @return number of entrance nodes over all clusters
+     */
+    public int getEntranceCount() {
+        int count = 0;
+        for(Cluster cluster : clusters) {
+            count += cluster.entrances.size;
+        }
+        return count;
+    }
+
+    /**
+     * Square area of the mesh with its entrance nodes and the costs between them.
+     */
+    protected static final class Cluster {
+
+        /** Position in {@link #clusters} */
+        final int id;
+
+        /** Grid cell */
+        final int cellX, cellY;
+
+        /** Node indices in the cluster */
+        final IntArray members;
+
+        /** Node indices of the entrances */
+        final IntArray entrances;
+
+        /** Cost between entrances per radius, indexed [radius][from * entrances + to], infinity if unreachable */
+        float[][] costs;
+
+        /** Set when the cluster must be rebuilt */
+        boolean dirty;
+
+        Cluster(int id, int cellX, int cellY) {
+            this.id = id;
+            this.cellX = cellX;
+            this.cellY = cellY;
+            this.members = new IntArray();
+            this.entrances = new IntArray();
+            this.costs = new float[0][];
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * A* or Dijkstra search that only enters nodes of marked clusters. Slots are node indices, the dynamic start and
+     * end nodes use the two slots after the last graph node. Dijkstra searches can also run backwards over incoming
+     * connections, giving costs towards the source.
+     */
+    private final class LocalSearch {
+        private float[] g = new float[0];
+        private int[] parent = new int[0];
+        private int[] stamps = new int[0];
+        private NavMeshPathNode[] nodeRefs = new NavMeshPathNode[0];
+        private IndexedMinHeap open = new IndexedMinHeap(0);
+        private int stamp;
+
+        /** Stamp per cluster id, equal to {@link #maskStamp} if the search may enter the cluster */
+        private int[] clusterMarks = new int[0];
+        private int maskStamp;
+
+        /** Entrances reached by the last search */
+        final IntArray reachedEntrances = new IntArray();
+
+        private final IndexedNavMeshAStarPathFinder.EndpointMarks endpointMarks =
+                new IndexedNavMeshAStarPathFinder.EndpointMarks();
+
+        private NavMeshPathRequest request;
+        private NavMeshPathNode source, target;
+        private int nodeCount;
+        private int current;
+        private boolean reverse;
+
+        /**
+         * Clear the cluster mask and prepare for a search.
+         *
+         * @param request request with the dynamic nodes, or null when searching between graph nodes
+         */
+        void begin(NavMeshPathRequest request) {
+            this.request = request;
+            nodeCount = nodeCluster.length;
+
+            if(nodeCount + 2 > g.length) {
+                g = new float[nodeCount + 2];
+                parent = new int[nodeCount + 2];
+                stamps = new int[nodeCount + 2];
+                nodeRefs = new NavMeshPathNode[nodeCount + 2];
+                open = new IndexedMinHeap(nodeCount + 2);
+                stamp = 0;
+            }
+            if(clusters.size > clusterMarks.length) {
+                clusterMarks = new int[Math.max(clusters.size, clusterMarks.length * 2)];
+                maskStamp = 0;
+            }
+            if(++maskStamp < 0) {
+                Arrays.fill(clusterMarks, 0);
+                maskStamp = 1;
+            }
+
+            endpointMarks.mark(request, nodeCount);
+        }
+
+        void addToMask(int clusterId) {
+            clusterMarks[clusterId] = maskStamp;
+        }
+
+        /**
+         * @param source node to search from
+         * @param target node to stop at, or null to reach every node in the marked clusters
+         * @param agentRadius radius of agent in world units
+         * @return true if '{@code target}' was reached
+         */
+        boolean run(NavMeshPathNode source, NavMeshPathNode target, float agentRadius) {
+            reverse = false;
+            return search(source, target, agentRadius);
+        }
+
+        /**
+         * Dijkstra search over incoming connections, {@link #cost(int)} then gives the cost from each node to
+         * '{@code source}'.
+         *
+         * @param source node to search back from
+         * @param agentRadius radius of agent in world units
+         */
+        void runReverse(NavMeshPathNode source, float agentRadius) {
+            reverse = true;
+            search(source, null, agentRadius);
+        }
+
+        private boolean search(NavMeshPathNode source, NavMeshPathNode target, float agentRadius) {
+            this.source = source;
+            this.target = target;
+            if(++stamp < 0) {
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+            open.clear();
+            reachedEntrances.clear();
+
+            final int targetSlot = target != null ? slotOf(target) : -1;
+            current = -1;
+            visit(slotOf(source), source, 0f);
+
+            while(!open.isEmpty()) {
+                current = open.pop();
+                if(current == targetSlot) {
+                    return true;
+                }
+                expand(agentRadius);
+            }
+            return false;
+        }
+
+        private int slotOf(NavMeshPathNode node) {
+            final int index = node.getIndex();
+            if(index == START_NODE_INDEX) {
+                return nodeCount;
+            } else if(index == END_NODE_INDEX) {
+                return nodeCount + 1;
+            }
+            return index;
+        }
+
+        private boolean inMask(int index) {
+            return nodeCluster[index] >= 0 && clusterMarks[nodeCluster[index]] == maskStamp;
+        }
+
+        private void expand(float agentRadius) {
+            final NavMeshPathNode node = nodeRefs[current];
+            final int index = node.getIndex();
+            final float costSoFar = g[current];
+
+            if(index >= 0 && reverse) {
+                final int[] offsets = reverseGraph.offsets;
+                final int[] sources = reverseGraph.sources;
+                final float[] costs = reverseGraph.costs;
+                final float[] clearances = reverseGraph.clearances;
+                final Array<NavMeshPathNode> nodes = graph.getNodes();
+                int fromIndex;
+                for(int e = offsets[index]; e < offsets[index + 1]; ++e) {
+                    fromIndex = sources[e];
+                    if(agentRadius <= clearances[e] && inMask(fromIndex)) {
+                        visit(fromIndex, nodes.get(fromIndex), costSoFar + costs[e]);
+                    }
+                }
+
+            } else if(index >= 0) {
+                if(compactGraph != null) {
+                    final int[] offsets = compactGraph.getOffsets();
+                    final int[] targets = compactGraph.getTargets();
+                    final float[] costs = compactGraph.getCosts();
+                    final float[] clearances = compactGraph.getClearances();
+                    int toIndex;
+                    for(int e = offsets[index]; e < offsets[index + 1]; ++e) {
+                        toIndex = targets[e];
+                        if(agentRadius <= clearances[e] && inMask(toIndex)) {
+                            visit(toIndex, compactGraph.getNode(toIndex), costSoFar + costs[e]);
+                        }
+                    }
+
+                } else {
+                    visitAll(graph.getConnections(node), costSoFar, agentRadius);
+                }
+
+                // Virtual edge to the dynamic end node
+                if(request != null && endpointMarks.isEndAdjacent(index)) {
+                    visitDynamicNode(node, request.endNode, costSoFar);
+                }
+
+            } else if(index == START_NODE_INDEX || index == END_NODE_INDEX) {
+
+                // In reverse these are the virtual edges into the dynamic node, which do not check the agent radius
+                visitAll(node.getConnections(), costSoFar, reverse ? 0f : agentRadius);
+            }
+        }
+
+        private void visitAll(Array<Connection<NavMeshPathNode>> connections, float costSoFar, float agentRadius) {
+            Connection<NavMeshPathNode> connection;
+            NavMeshPathNode toNode;
+            for(int i = 0; i < connections.size; ++i) {
+                connection = connections.get(i);
+                toNode = connection.getToNode();
+                if(IndexedNavMeshAStarPathFinder.fits(connection, agentRadius)
+                        && (toNode.getIndex() < 0 || inMask(toNode.getIndex()))) {
+                    visit(slotOf(toNode), toNode, costSoFar + connection.getCost());
+                }
+            }
+        }
+
+        private void visitDynamicNode(NavMeshPathNode node, NavMeshPathNode dynNode, float costSoFar) {
+            visit(slotOf(dynNode), dynNode,
+                    costSoFar + node.getPortal().getMidpoint().dst(dynNode.getPortal().getMidpoint()));
+        }
+
+        private void visit(int slot, NavMeshPathNode node, float cost) {
+            if(stamps[slot] == stamp) {
+                if(g[slot] <= cost) {
+                    return;
+                }
+            } else {
+                stamps[slot] = stamp;
+                nodeRefs[slot] = node;
+                if(slot < nodeCount && entranceIndex[slot] >= 0) {
+                    reachedEntrances.add(slot);
+                }
+            }
+
+            g[slot] = cost;
+            parent[slot] = current;
+            open.add(slot, target != null
+                    ? cost + node.getPortal().getMidpoint().dst(target.getPortal().getMidpoint()) : cost);
+        }
+
+        /**
+         * @param slot node slot
+         * @return cost from the source of the last search, infinity if not reached
+         */
+        float cost(int slot) {
+            return stamps[slot] == stamp ? g[slot] : Float.POSITIVE_INFINITY;
+        }
+
+        void generateNodePath(GraphPath<NavMeshPathNode> outPath) {
+            for(int slot = current; slot >= 0; slot = parent[slot]) {
+                outPath.add(nodeRefs[slot]);
+            }
+            outPath.reverse();
+        }
+    }
+}
@@ -25,6 +25,8 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.BinaryHeap;
 import com.badlogic.gdx.utils.TimeUtils;
 
+import java.util.Arrays;
+
 import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.END_NODE_INDEX;
 import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.START_NODE_INDEX;
 
@@ -37,6 +39,11 @@ import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.START_NODE_IND
  *         <li>visitChildren() and search() require NavMeshPortalRequest to propagate agent radius.</li>
  *         <li>Different guard checks in search calls and create paths using connections.</li>
  *         <li>Refactored loop in search() to always check the openList size, replaced do/while with while.</li>
+ *         <li>Searches {@link CompactNavMeshGraph} adjacency arrays directly without connection objects.</li>
+ *         <li>Optional primitive open list mode, see {@link #setPrimitiveOpenList(boolean)}.</li>
+ *         <li>Optional bidirectional search mode, see {@link #setBidirectional(boolean)}.</li>
+ *         <li>Expansion limit and partial paths per request, see {@link NavMeshPathRequest#setMaxExpansions(int)}.</li>
+ *         <li>Weighted and anytime search per request, see {@link NavMeshPathRequest#setHeuristicWeight(float)}.</li>
  *     </ul>
  *
  * @author davebaol
@@ -44,7 +51,13 @@ import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.START_NODE_IND
  */
 public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode> {
 
+    /** Heuristic weight decrease after each path of an anytime search */
+    public static final float ANYTIME_WEIGHT_STEP = 0.5f;
+
     protected IndexedGraph<NavMeshPathNode> graph;
+
+    /** Set when {@link #graph} is a {@link CompactNavMeshGraph}, used to search its CSR arrays directly */
+    protected CompactNavMeshGraph compactGraph;
     protected NodeRecord<NavMeshPathNode>[] nodeRecords;
     protected BinaryHeap<NodeRecord<NavMeshPathNode>> openList;
     protected NodeRecord<NavMeshPathNode> current;
@@ -56,8 +69,36 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
     /** The current request context used for start and end node data. */
     private NavMeshPathRequest currReq;
 
-    /** Avoid re-allocating connection arrays for dynamic start and end locations. */
-    private DynamicConnections dynConns;
+    /** Nodes expanded by the current request search */
+    private int expansions;
+
+    /** Expanded node with the lowest heuristic estimate in the current request search, for partial paths */
+    private NodeRecord<NavMeshPathNode> closestRecord;
+    private float closestHeuristic;
+
+    /** Heuristic weight of the current search, 1 for shortest paths */
+    private float weight;
+
+    /** Whether the current request search improves its path over anytime iterations */
+    private boolean anytimeSearch;
+
+    /** Nodes closed in the current anytime iteration */
+    private final Array<NodeRecord<NavMeshPathNode>> closedRecords;
+
+    /** Nodes reached cheaper after they were closed in the current anytime iteration */
+    private final Array<NodeRecord<NavMeshPathNode>> inconsistentRecords;
+
+    /** Open and inconsistent nodes keyed again between anytime iterations */
+    private final Array<NodeRecord<NavMeshPathNode>> rekeyRecords;
+
+    /** Marks graph nodes connected to the dynamic start and end locations of the current request. */
+    final EndpointMarks endpointMarks;
+
+    /** Array based search state, used instead of node records when not null */
+    private NavMeshHeapSearch heapSearch;
+
+    /** Bidirectional search state, used instead of the other search modes when not null */
+    private NavMeshBidirectionalSearch bidirectionalSearch;
 
     public IndexedNavMeshAStarPathFinder(IndexedGraph<NavMeshPathNode> graph) {
         this(graph, false);
@@ -66,10 +107,15 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
     @SuppressWarnings("unchecked")
     public IndexedNavMeshAStarPathFinder(IndexedGraph<NavMeshPathNode> graph, boolean calculateMetrics) {
         this.graph = graph;
+        this.compactGraph = graph instanceof CompactNavMeshGraph ? (CompactNavMeshGraph) graph : null;
         this.nodeRecords = (NodeRecord<NavMeshPathNode>[])new NodeRecord[graph.getNodeCount()];
         this.openList = new BinaryHeap<>();
         if (calculateMetrics) this.metrics = new Metrics();
-        this.dynConns = new DynamicConnections();
+        this.endpointMarks = new EndpointMarks();
+        this.weight = 1f;
+        this.closedRecords = new Array<>(false, 64);
+        this.inconsistentRecords = new Array<>(false, 16);
+        this.rekeyRecords = new Array<>(false, 64);
     }
 
     @Override
@@ -78,6 +124,18 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
                                         Heuristic<NavMeshPathNode> heuristic,
                                         GraphPath<Connection<NavMeshPathNode>> outPath) {
 
+        if (bidirectionalSearch != null) {
+            if (!bidirectionalSearch.search(startNode, endNode, heuristic)) return false;
+            bidirectionalSearch.generateConnectionPath(outPath);
+            return true;
+        }
+
+        if (heapSearch != null) {
+            if (!heapSearch.search(startNode, endNode, heuristic)) return false;
+            heapSearch.generateConnectionPath(outPath);
+            return true;
+        }
+
         // Perform AStar
         search(startNode, endNode, 0f, heuristic);
 
@@ -99,6 +157,18 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
                                   Heuristic<NavMeshPathNode> heuristic,
                                   GraphPath<NavMeshPathNode> outPath) {
 
+        if (bidirectionalSearch != null) {
+            if (!bidirectionalSearch.search(startNode, endNode, heuristic)) return false;
+            bidirectionalSearch.generateNodePath(outPath);
+            return true;
+        }
+
+        if (heapSearch != null) {
+            if (!heapSearch.search(startNode, endNode, heuristic)) return false;
+            heapSearch.generateNodePath(outPath);
+            return true;
+        }
+
         // Perform AStar
         search(startNode, endNode, 0f, heuristic);
 
@@ -118,6 +188,11 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
                           float agentRadius,
                           Heuristic<NavMeshPathNode> heuristic) {
 
+        // Graph node searches have no dynamic start and end connections
+        currReq = null;
+        weight = 1f;
+        anytimeSearch = false;
+
         initSearch(startNode, endNode, heuristic);
 
         // Iterate through processing each node
@@ -142,30 +217,85 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
             final NavMeshPathRequest navMeshPathRequest = (NavMeshPathRequest) request;
             currReq = navMeshPathRequest;
 
+            // A position stopped being walkable after the request was made
+            if (navMeshPathRequest.isStale()) {
+                request.statusChanged = false;
+                request.pathFound = false;
+                return true;
+            }
+
+            // Weighted searches are one-way, anytime searches keep their state in node records
+            if (bidirectionalSearch != null && !navMeshPathRequest.isAnytime()
+                    && navMeshPathRequest.getHeuristicWeight() == 1f) {
+                return bidirectionalSearch.search(navMeshPathRequest, timeToRun);
+            }
+
+            if (heapSearch != null && !navMeshPathRequest.isAnytime()) {
+                return heapSearch.search(navMeshPathRequest, timeToRun);
+            }
+
             long lastTime = TimeUtils.nanoTime();
 
             // We have to initialize the search if the status has just changed
             if (request.statusChanged) {
+                weight = navMeshPathRequest.getHeuristicWeight();
+                anytimeSearch = navMeshPathRequest.isAnytime();
                 initSearch(request.startNode, request.endNode, request.heuristic);
                 request.statusChanged = false;
+                request.pathFound = false;
+                expansions = 0;
+                closestRecord = null;
+                closestHeuristic = Float.MAX_VALUE;
+                closedRecords.clear();
+                inconsistentRecords.clear();
             }
 
-            // Iterate through processing each node
-            while (openList.size > 0) {
+            // Iterate through processing each node, an anytime search may have no open nodes left to re-key
+            while (openList.size > 0 || anytimeSearch && isEndReached()) {
 
                 // Check the available time
                 long currentTime = TimeUtils.nanoTime();
                 timeToRun -= currentTime - lastTime;
                 if (timeToRun <= PathFinderQueue.TIME_TOLERANCE) return false;
 
+                // Stop at the expansion limit
+                if (navMeshPathRequest.getMaxExpansions() > 0 && expansions >= navMeshPathRequest.getMaxExpansions()) {
+                    break;
+                }
+
+                // An anytime iteration ends once no open node can lead to a cheaper path to the end node
+                if (anytimeSearch && isEndReached() && (openList.size == 0
+                        || currReq.getEndNodeRec().costSoFar <= openList.peek().getEstimatedTotalCost())) {
+                    if (finishIteration(navMeshPathRequest)) return true;
+                    lastTime = currentTime;
+                    continue;
+                }
+
                 // Retrieve the node with smallest estimated total cost from the open list
                 current = openList.pop();
                 current.category = CLOSED;
+                ++expansions;
 
-                // Terminate if we reached the goal node; we've found a path.
-                if (current.node == request.endNode) {
+                // Remember the expanded node closest to the goal for a partial path
+                if (current.heuristic < closestHeuristic) {
+                    closestHeuristic = current.heuristic;
+                    closestRecord = current;
+                }
 
+                if (anytimeSearch) {
+                    closedRecords.add(current);
+
+                    // The end node is closed with its own key, the next check finishes the iteration
+                    if (current.node == request.endNode) {
+                        lastTime = currentTime;
+                        continue;
+                    }
+
+                } else if (current.node == request.endNode) {
+
+                    // Terminate if we reached the goal node; we've found a path.
                     request.pathFound = true;
+                    navMeshPathRequest.setCostBound(weight);
                     generateNodePath(request.startNode, request.resultPath);
                     return true;
                 }
@@ -177,6 +307,22 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
                 lastTime = currentTime;
             }
 
+            // An anytime search stopped at the limit keeps the path of its last iteration
+            if (anytimeSearch && request.pathFound) {
+                return true;
+            }
+
+            // Stopped at the limit or out of nodes, the path to the closest node may still be wanted
+            if (navMeshPathRequest.isPartialPathAllowed() && closestRecord != null
+                    && closestRecord.fromIndex != NO_PARENT) {
+                current = closestRecord;
+                request.pathFound = true;
+                navMeshPathRequest.setPartialPath(true);
+                navMeshPathRequest.setCostBound(Float.POSITIVE_INFINITY);
+                generateNodePath(request.startNode, request.resultPath);
+                return true;
+            }
+
         } else {
             Gdx.app.error(IndexedNavMeshAStarPathFinder.class.getName(), "Invalid request class - " + request.getClass().getCanonicalName());
         }
@@ -186,6 +332,115 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
         return true;
     }
 
+    /**
+     * @return true if the dynamic end node of the current request has a cost in this search
+     */
+    private boolean isEndReached() {
+        final NodeRecord<NavMeshPathNode> endRecord = currReq.getEndNodeRec();
+        return endRecord.searchId == searchId && endRecord.category != UNVISITED;
+    }
+
+    /**
+     * Store the path of the current anytime iteration and start the next one with a lower weight. Open and
+     * inconsistent nodes are keyed again, closed nodes keep their cost and may be reached cheaper later.
+     *
+     * @param request request being searched
+     * @return true if the path is final, found with weight 1 or with no node left to improve it
+     */
+    private boolean finishIteration(NavMeshPathRequest request) {
+        current = request.getEndNodeRec();
+        request.resultPath.clear();
+        generateNodePath(request.startNode, request.resultPath);
+        request.pathFound = true;
+        request.setCostBound(weight);
+
+        if (weight <= 1f) return true;
+        weight = Math.max(1f, weight - ANYTIME_WEIGHT_STEP);
+
+        rekeyRecords.clear();
+        while (openList.size > 0) {
+            rekeyRecords.add(openList.pop());
+        }
+        rekeyRecords.addAll(inconsistentRecords);
+        inconsistentRecords.clear();
+
+        for (int i = 0; i < closedRecords.size; i++) {
+            if (closedRecords.get(i).category == CLOSED) closedRecords.get(i).category = VISITED;
+        }
+        closedRecords.clear();
+
+        NodeRecord<NavMeshPathNode> record;
+        for (int i = 0; i < rekeyRecords.size; i++) {
+            record = rekeyRecords.get(i);
+            addToOpenList(record, record.costSoFar + weight * record.heuristic);
+        }
+        rekeyRecords.clear();
+
+        // Every node is consistent, the path is the shortest
+        if (openList.size == 0) {
+            request.setCostBound(1f);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * <p>Switch between node record search state and primitive array search state. When enabled, the open list
+     * is an indexed 4-ary heap over flat arrays and no {@link NodeRecord} objects are used. Searches through
+     * {@link #search(PathFinderRequest, long)} produce the same results in either mode.</p>
+     *
+     * <p>Must not be changed while a time-sliced request is in progress.</p>
+     *
+     * @param primitiveOpenList true to use primitive array search state
+     */
+    public void setPrimitiveOpenList(boolean primitiveOpenList) {
+        if (primitiveOpenList && heapSearch == null) {
+            heapSearch = new NavMeshHeapSearch(this);
+        } else if (!primitiveOpenList) {
+            heapSearch = null;
+        }
+    }
+
+    /**
+     * @return true if primitive array search state is used
+     * @see #setPrimitiveOpenList(boolean)
+     */
+    public boolean isPrimitiveOpenList() {
+        return heapSearch != null;
+    }
+
+    /**
+     * <p>Switch bidirectional search on or off. When enabled, a forward search from the start node and a reverse
+     * search from the end node run in turn until no cheaper path than the best one through a node reached by both
+     * can exist. Expands fewer nodes on long queries, paths have the same cost as with one-way search. Takes
+     * precedence over {@link #setPrimitiveOpenList(boolean)}.</p>
+     *
+     * <p>The heuristic is also used to estimate from the start node and must be consistent, as
+     * {@link PortalMidpointDistHeuristic} and {@link AltHeuristic} are. Must not be changed while a time-sliced
+     * request is in progress.</p>
+     *
+     * @param bidirectional true to use bidirectional search
+     * @throws IllegalStateException if the graph is not a {@link NavMeshGraph}, the reverse search needs its nodes
+     */
+    public void setBidirectional(boolean bidirectional) {
+        if (bidirectional && !(graph instanceof NavMeshGraph)) {
+            throw new IllegalStateException("Bidirectional search needs a NavMeshGraph");
+        }
+        if (bidirectional && bidirectionalSearch == null) {
+            bidirectionalSearch = new NavMeshBidirectionalSearch(this);
+        } else if (!bidirectional) {
+            bidirectionalSearch = null;
+        }
+    }
+
+    /**
+     * @return true if bidirectional search is used
+     * @see #setBidirectional(boolean)
+     */
+    public boolean isBidirectional() {
+        return bidirectionalSearch != null;
+    }
+
     protected void initSearch(NavMeshPathNode startNode,
                               NavMeshPathNode endNode,
                               Heuristic<NavMeshPathNode> heuristic) {
@@ -198,12 +453,17 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
         // Initialize the open list
         openList.clear();
 
+        // Mark nodes that connect to the dynamic start and end nodes
+        endpointMarks.mark(currReq, graph.getNodeCount());
+
         // Initialize the record for the start node and add it to the open list
         NodeRecord<NavMeshPathNode> startRecord = getNodeRecord(startNode);
         startRecord.node = startNode;
         startRecord.connection = null;
+        startRecord.fromIndex = NO_PARENT;
         startRecord.costSoFar = 0;
-        addToOpenList(startRecord, heuristic.estimate(startNode, endNode));
+        startRecord.heuristic = heuristic.estimate(startNode, endNode);
+        addToOpenList(startRecord, weight * startRecord.heuristic);
 
         current = null;
     }
@@ -212,73 +472,207 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
                                  Heuristic<NavMeshPathNode> heuristic,
                                  float agentRadius) {
 
-        // Get current node's outgoing connections
-        dynConns.init(current, graph, currReq);
-        final Array<Connection<NavMeshPathNode>> connections = dynConns.connections;
+        final int currNodeIndex = current.node.getIndex();
 
+        if(currNodeIndex >= 0) {
 
-        // Loop through each connection in turn
-        for (int i = 0; i < connections.size; i++) {
+            if(compactGraph != null) {
 
+                // Loop through each CSR edge in turn, no connection objects are involved
+                final int[] offsets = compactGraph.getOffsets();
+                final int[] targets = compactGraph.getTargets();
+                final float[] costs = compactGraph.getCosts();
+                final float[] clearances = compactGraph.getClearances();
+                int toIndex;
 
-            // Skip connection if agent fits through the portal
-            final NavMeshPathConn connection = (NavMeshPathConn) connections.get(i);
-            if(agentRadius > connection.getToNode().getPortal().getLengthDiv2() && !connection.getToNode().getPortal().isIgnorePortalLength()) {
-                continue;
+                for(int e = offsets[currNodeIndex]; e < offsets[currNodeIndex + 1]; ++e) {
+                    toIndex = targets[e];
+
+                    // Skip edge if agent does not fit along it
+                    if(agentRadius > clearances[e]) {
+                        continue;
+                    }
+
+                    visitNode(compactGraph.getNode(toIndex), null, current.costSoFar + costs[e], endNode, heuristic);
+                }
+
+            } else {
+                visitConnections(graph.getConnections(current.node), endNode, heuristic, agentRadius);
             }
 
+            // At most two virtual edges to the dynamic end and start nodes
+            if(endpointMarks.isEndAdjacent(currNodeIndex)) {
+                visitDynamicNode(currReq.endNode, endNode, heuristic);
+            }
+            if(endpointMarks.isStartAdjacent(currNodeIndex)) {
+                visitDynamicNode(currReq.startNode, endNode, heuristic);
+            }
 
-            if (metrics != null) metrics.visitedNodes++;
+        } else if(currNodeIndex == END_NODE_INDEX || currNodeIndex == START_NODE_INDEX) {
 
-            // Get the cost estimate for the node
-            NavMeshPathNode node = connection.getToNode();
-            float nodeCost = current.costSoFar + connection.getCost();
+            // Dynamic nodes connect to the nodes of their containing triangle
+            visitConnections(current.node.getConnections(), endNode, heuristic, agentRadius);
+        }
+    }
 
-            float nodeHeuristic;
-            NodeRecord<NavMeshPathNode> nodeRecord = getNodeRecord(node);
-            if (nodeRecord.category == CLOSED) { // The node is closed
+    /**
+     * Visit the destination of each connection in turn.
+     *
+     * @param connections outgoing connections of the current node
+     * @param endNode search goal
+     * @param heuristic A* heuristic
+     * @param agentRadius radius of agent in world units
+     */
+    private void visitConnections(Array<Connection<NavMeshPathNode>> connections,
+                                  NavMeshPathNode endNode,
+                                  Heuristic<NavMeshPathNode> heuristic,
+                                  float agentRadius) {
 
-                // If we didn't find a shorter route, skip
-                if (nodeRecord.costSoFar <= nodeCost) continue;
+        Connection<NavMeshPathNode> connection;
 
-                // We can use the node's old cost values to calculate its heuristic
-                // without calling the possibly expensive heuristic function
-                nodeHeuristic = nodeRecord.getEstimatedTotalCost() - nodeRecord.costSoFar;
-            } else if (nodeRecord.category == OPEN) { // The node is open
+        for (int i = 0; i < connections.size; i++) {
+            connection = connections.get(i);
 
-                // If our route is no better, then skip
-                if (nodeRecord.costSoFar <= nodeCost) continue;
+            // Skip connection if agent does not fit along it
+            if(!fits(connection, agentRadius)) {
+                continue;
+            }
 
-                // Remove it from the open list (it will be re-added with the new cost)
-                openList.remove(nodeRecord);
+            visitNode(connection.getToNode(), connection, current.costSoFar + connection.getCost(), endNode, heuristic);
+        }
+    }
 
-                // We can use the node's old cost values to calculate its heuristic
-                // without calling the possibly expensive heuristic function
-                nodeHeuristic = nodeRecord.getEstimatedTotalCost() - nodeRecord.costSoFar;
-            } else { // the node is unvisited
+    /**
+     * @param connection connection to check
+     * @param agentRadius radius of agent in world units
+     * @return true if the agent fits along the connection and its destination is not blocked
+     */
+    static boolean fits(Connection<NavMeshPathNode> connection, float agentRadius) {
+        if(connection.getToNode().isBlocked()) {
+            return false;
+        } else if(connection instanceof NavMeshPathConn) {
+            return agentRadius <= ((NavMeshPathConn) connection).getClearance();
+        }
 
-                // We'll need to calculate the heuristic value using the function,
-                // since we don't have a node record with a previously calculated value
-                nodeHeuristic = heuristic.estimate(node, endNode);
+        final NavMeshPortal toPortal = connection.getToNode().getPortal();
+        return agentRadius <= toPortal.getLengthDiv2() || toPortal.isIgnorePortalLength();
+    }
+
+    /**
+     * @param connection connection to check
+     * @return largest agent radius that fits along the connection, matching {@link #fits(Connection, float)}. Negative
+     * if the destination is blocked.
+     */
+    static float clearance(Connection<NavMeshPathNode> connection) {
+        return connection.getToNode().isBlocked() ? -1f : unblockedClearance(connection);
+    }
+
+    /**
+     * @param connection connection to check
+     * @return largest agent radius that fits along the connection, ignoring {@link NavMeshPathNode#isBlocked()}
+     */
+    static float unblockedClearance(Connection<NavMeshPathNode> connection) {
+        if(connection instanceof NavMeshPathConn) {
+            return ((NavMeshPathConn) connection).getClearance();
+        }
+
+        final NavMeshPortal toPortal = connection.getToNode().getPortal();
+        return toPortal.isIgnorePortalLength() ? Float.MAX_VALUE : toPortal.getLengthDiv2();
+    }
+
+    /**
+     * Visit a dynamic start or end node through a virtual edge from the current node. The edge has no
+     * connection object, its cost is the distance between the portal midpoints.
+     *
+     * @param dynNode dynamic start or end node
+     * @param endNode search goal
+     * @param heuristic A* heuristic
+     */
+    private void visitDynamicNode(NavMeshPathNode dynNode,
+                                  NavMeshPathNode endNode,
+                                  Heuristic<NavMeshPathNode> heuristic) {
+
+        final float edgeCost = current.node.getPortal().getMidpoint().dst(dynNode.getPortal().getMidpoint());
+        visitNode(dynNode, null, current.costSoFar + edgeCost, endNode, heuristic);
+    }
+
+    /**
+     * Relax the edge from {@link #current} to '{@code node}'.
+     *
+     * @param node node reached from the current node
+     * @param connection connection used to reach the node, or null when searching CSR arrays
+     * @param nodeCost cost from the start node to '{@code node}' through the current node
+     * @param endNode search goal
+     * @param heuristic A* heuristic
+     */
+    protected void visitNode(NavMeshPathNode node,
+                             Connection<NavMeshPathNode> connection,
+                             float nodeCost,
+                             NavMeshPathNode endNode,
+                             Heuristic<NavMeshPathNode> heuristic) {
+
+        if (metrics != null) metrics.visitedNodes++;
+
+        NodeRecord<NavMeshPathNode> nodeRecord = getNodeRecord(node);
+        if (nodeRecord.category == CLOSED || nodeRecord.category == INCONSISTENT) { // The node is closed
+
+            // If we didn't find a shorter route, skip
+            if (nodeRecord.costSoFar <= nodeCost) return;
+
+            // Anytime iterations do not reopen closed nodes, they are opened again by the next iteration
+            if (anytimeSearch) {
+                nodeRecord.costSoFar = nodeCost;
+                nodeRecord.connection = connection;
+                nodeRecord.fromIndex = current.node.getIndex();
+                if (nodeRecord.category == CLOSED) {
+                    nodeRecord.category = INCONSISTENT;
+                    inconsistentRecords.add(nodeRecord);
+                }
+                return;
             }
+        } else if (nodeRecord.category == OPEN) { // The node is open
 
-            // Update node record's cost and connection
-            nodeRecord.costSoFar = nodeCost;
-            nodeRecord.connection = connection; // TODO: May need to copy conn contents for dyn links...
+            // If our route is no better, then skip
+            if (nodeRecord.costSoFar <= nodeCost) return;
 
-            // Add it to the open list with the estimated total cost
-            addToOpenList(nodeRecord, nodeCost + nodeHeuristic);
+            // Lower its key in place, BinaryHeap.remove does not restore the heap order above the removed node
+            nodeRecord.costSoFar = nodeCost;
+            nodeRecord.connection = connection;
+            nodeRecord.fromIndex = current.node.getIndex();
+            openList.setValue(nodeRecord, nodeCost + weight * nodeRecord.heuristic);
+            return;
+        } else if (nodeRecord.category == VISITED) { // Closed in an earlier anytime iteration
+
+            // If our route is no better, then skip
+            if (nodeRecord.costSoFar <= nodeCost) return;
+        } else { // the node is unvisited
+
+            // We'll need to calculate the heuristic value using the function,
+            // since we don't have a node record with a previously calculated value
+            nodeRecord.heuristic = heuristic.estimate(node, endNode);
         }
 
+        // Update node record's cost and connection
+        nodeRecord.costSoFar = nodeCost;
+        nodeRecord.connection = connection;
+        nodeRecord.fromIndex = current.node.getIndex();
+
+        // Add it to the open list with the estimated total cost
+        addToOpenList(nodeRecord, nodeCost + weight * nodeRecord.heuristic);
     }
 
     protected void generateConnectionPath(NavMeshPathNode startNode, GraphPath<Connection<NavMeshPathNode>> outPath) {
 
         // Work back along the path, accumulating connections
         // outPath.clear();
+        NodeRecord<NavMeshPathNode> fromRecord;
         while (current.node != startNode) {
-            outPath.add(current.connection);
-            current = nodeRecords[current.connection.getFromNode().getIndex()];
+            fromRecord = getParentRecord(current);
+
+            // CSR and virtual edges do not keep connection objects, create them for the result
+            outPath.add(current.connection != null ? current.connection
+                    : new NavMeshPathConn(fromRecord.node, current.node));
+            current = fromRecord;
         }
 
         // Reverse the path
@@ -289,18 +683,9 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
 
         // Work back along the path, accumulating nodes
         // outPath.clear();
-        while (current.connection != null) {
+        while (current.fromIndex != NO_PARENT) {
             outPath.add(current.node);
-            int index = current.connection.getFromNode().getIndex();
-            if(index == NavMeshPathRequest.START_NODE_INDEX) {
-                current = currReq.getStartNodeRec();
-
-            } else if(index == NavMeshPathRequest.END_NODE_INDEX) {
-                current = currReq.getEndNodeRec();
-
-            } else {
-                current = nodeRecords[index];
-            }
+            current = getParentRecord(current);
         }
         outPath.add(startNode);
 
@@ -308,6 +693,24 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
         outPath.reverse();
     }
 
+    /**
+     * @param nodeRecord record to find the parent for
+     * @return record of the node '{@code nodeRecord}' was reached from
+     */
+    protected NodeRecord<NavMeshPathNode> getParentRecord(NodeRecord<NavMeshPathNode> nodeRecord) {
+        final int index = nodeRecord.fromIndex;
+
+        if(index == NavMeshPathRequest.START_NODE_INDEX) {
+            return currReq.getStartNodeRec();
+
+        } else if(index == NavMeshPathRequest.END_NODE_INDEX) {
+            return currReq.getEndNodeRec();
+
+        } else {
+            return nodeRecords[index];
+        }
+    }
+
     protected void addToOpenList(NodeRecord<NavMeshPathNode> nodeRecord, float estimatedTotalCost) {
         openList.add(nodeRecord, estimatedTotalCost);
         nodeRecord.category = OPEN;
@@ -347,6 +750,9 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
             } else if(nr.searchId != searchId) {
                 nr.category = UNVISITED;
                 nr.searchId = searchId;
+
+                // Graphs such as TiledNavMeshGraph may reuse an index for a different node
+                nr.node = node;
             }
         }
 
@@ -362,6 +768,15 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
     /** Status for {@link NodeRecord} */
     public static final int CLOSED = 2;
 
+    /** Status for {@link NodeRecord}, closed in an earlier iteration of an anytime search */
+    public static final int VISITED = 3;
+
+    /** Status for {@link NodeRecord}, reached cheaper after it was closed in the current anytime iteration */
+    public static final int INCONSISTENT = 4;
+
+    /** {@link NodeRecord#fromIndex} value for the search start node */
+    public static final int NO_PARENT = -1;
+
     /**
      * @param <NavMeshPathNode>
      * @author davebaol
@@ -371,13 +786,20 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
         /** The reference to the node. */
         NavMeshPathNode node;
 
-        /** The incoming connection to the node */
+        /** The incoming connection to the node, null when reached through CSR arrays or a virtual edge */
         Connection<NavMeshPathNode> connection;
 
+        /** Index of the node this node was reached from, or {@link #NO_PARENT} */
+        int fromIndex;
+
         /** The actual cost from the start node. */
         float costSoFar;
 
-        /** The node category: {@link #UNVISITED}, {@link #OPEN} or {@link #CLOSED}. */
+        /** Unweighted heuristic estimate to the end node, kept so the key can be weighted again */
+        float heuristic;
+
+        /** The node category: {@link #UNVISITED}, {@link #OPEN}, {@link #CLOSED}, {@link #VISITED} or
+         * {@link #INCONSISTENT}. */
         int category;
 
         /** ID of the current search. */
@@ -414,68 +836,76 @@ public class IndexedNavMeshAStarPathFinder implements PathFinder<NavMeshPathNode
     }
 
     /**
-     * Provide dynamic connections based on starting and ending graph positions which are different
-     * between searches and do not require constructing an entirely new search graph.
+     * Generation-stamped marks for graph nodes that connect to the dynamic start and end nodes of a request.
+     * Marking runs once per search, checks during expansion are O(1) and do not copy connections.
      */
-    private static class DynamicConnections {
-        private static final int MAX_CONN = 2 + 4; // start, end, up to 4 normal connections
+    static final class EndpointMarks {
 
-        public NavMeshPathConn start, end;
-        public NavMeshPortal startPortal, endPortal;
-        public final Array<Connection<NavMeshPathNode>> connections;
+        /** Stamp per node index, equal to {@link #stamp} if the node connects to the dynamic start node */
+        private int[] startStamps;
 
-        public DynamicConnections() {
-            connections = new Array<>(MAX_CONN);
-            start = new NavMeshPathConn();
-            end = new NavMeshPathConn();
-            startPortal = new NavMeshPortal();
-            endPortal = new NavMeshPortal();
-        }
+        /** Stamp per node index, equal to {@link #stamp} if the node connects to the dynamic end node */
+        private int[] endStamps;
 
-        public DynamicConnections init(NodeRecord<NavMeshPathNode> current, IndexedGraph<NavMeshPathNode> graph, NavMeshPathRequest currReq) {
-            connections.clear();
+        /** Current generation, incremented for each marked search */
+        private int stamp;
 
-            // Get current node's outgoing connections
-            int currNodeIndex = current.node.getIndex();
+        EndpointMarks() {
+            startStamps = new int[0];
+            endStamps = new int[0];
+        }
 
-            if(currNodeIndex == NavMeshPathRequest.END_NODE_INDEX) {
-                connections.addAll(currReq.endNode.connections);
+        /**
+         * Mark the nodes connected to the dynamic start and end nodes of '{@code request}'. All previous
+         * marks are cleared.
+         *
+         * @param request request to mark, or null to only clear marks
+         * @param nodeCount number of graph nodes
+         */
+        void mark(NavMeshPathRequest request, int nodeCount) {
+            if(nodeCount > startStamps.length) {
+                startStamps = new int[nodeCount];
+                endStamps = new int[nodeCount];
+                stamp = 0;
+            }
 
-            } else if(currNodeIndex == NavMeshPathRequest.START_NODE_INDEX) {
-                connections.addAll(currReq.startNode.connections);
+            if(++stamp < 0) {
+                Arrays.fill(startStamps, 0);
+                Arrays.fill(endStamps, 0);
+                stamp = 1;
+            }
 
-            } else {
-                connections.addAll(graph.getConnections(current.node));
-
-                final Array<Connection<NavMeshPathNode>> endNodeConns = currReq.endNode.getConnections();
-                final Array<Connection<NavMeshPathNode>> startNodeConns = currReq.startNode.getConnections();
-                boolean connectEndNode = false;
-                boolean connectStartNode = false;
-                for(Connection<NavMeshPathNode> nextConn : endNodeConns) {
-                    if(nextConn.getToNode().getIndex() == currNodeIndex) {
-                        connectEndNode = true;
-                        break;
-                    }
-                }
-                for(Connection<NavMeshPathNode> nextConn : startNodeConns) {
-                    if(nextConn.getToNode().getIndex() == currNodeIndex) {
-                        connectStartNode = true;
-                        break;
-                    }
-                }
-                if(connectEndNode) {
-                    currReq.endNode.getPortal().setIgnorePortalLength(true);
-                    end.init(current.node, currReq.endNode);
-                    connections.add(end);
-                }
-                if(connectStartNode) {
-                    currReq.startNode.getPortal().setIgnorePortalLength(true);
-                    start.init(current.node, currReq.startNode);
-                    connections.add(start);
+            if(request != null) {
+                markConnected(request.startNode, startStamps);
+                markConnected(request.endNode, endStamps);
+            }
+        }
+
+        private void markConnected(NavMeshPathNode dynNode, int[] stamps) {
+            final Array<Connection<NavMeshPathNode>> connections = dynNode.getConnections();
+            int index;
+            for(int i = 0; i < connections.size; ++i) {
+                index = connections.get(i).getToNode().getIndex();
+                if(index >= 0) {
+                    stamps[index] = stamp;
                 }
             }
+        }
+
+        /**
+         * @param index graph node index
+         * @return true if the node connects to the dynamic start node
+         */
+        boolean isStartAdjacent(int index) {
+            return startStamps[index] == stamp;
+        }
 
-            return this;
+        /**
+         * @param index graph node index
+         * @return true if the node connects to the dynamic end node
+         */
+        boolean isEndAdjacent(int index) {
+            return endStamps[index] == stamp;
         }
     }
 }
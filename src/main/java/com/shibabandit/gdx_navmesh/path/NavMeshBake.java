@@ -0,0 +1,446 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.poly2tri.triangulation.TriangulationPoint;
+import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
+import org.poly2tri.triangulation.point.TPoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * <p>Versioned binary format for a built {@link NavMeshGraph}. A baked file holds the walkable triangles, path node
+ * portals, adjacency and the triangle list of the spatial index, so a graph can be loaded without clipping,
+ * triangulating or building the graph again.</p>
+ *
+ * <p>Files are read with {@link FileChannel#map(FileChannel.MapMode, long, long)}. All values are little-endian.
+ * Layout after the header, each section in order:</p>
+ *
+ * <ul>
+ *     <li>vertices: x, y as doubles</li>
+ *     <li>triangles: 3 vertex indices, 3 neighbor triangle indices (-1 for none), flag byte. The first
+ *     {@code walkableTriCount} triangles are the walkable triangles of the graph, in {@link NavMeshGraph#getTriNodes()}
+ *     order. Non-walkable neighbors follow without neighbors of their own.</li>
+ *     <li>nodes: portal left x, left y, right x, right y as floats, dtA and dtB triangle indices (-1 for none)</li>
+ *     <li>adjacency: CSR offsets (node count + 1) then per edge the destination node index and cost</li>
+ *     <li>triangle nodes: offsets (walkable triangle count + 1) then node indices</li>
+ * </ul>
+ */
+public final class NavMeshBake {
+
+    /** First 4 bytes of every baked file, "NMSH" */
+    public static final int MAGIC = 0x48534D4E;
+
+    /** Incremented when the layout changes, files with other versions are rejected */
+    public static final int FORMAT_VERSION = 1;
+
+    /** Magic, version and the 5 section counts */
+    private static final int HEADER_BYTES = 7 * 4;
+
+    private static final int VERTEX_BYTES = 2 * 8;
+    private static final int TRIANGLE_BYTES = 6 * 4 + 1;
+    private static final int NODE_BYTES = 4 * 4 + 2 * 4;
+    private static final int EDGE_BYTES = 4 + 4;
+
+    /** Triangle flag bits, constrained edge bits start at 1 and delaunay edge bits at 4 */
+    private static final int FLAG_INTERIOR = 1;
+    private static final int FLAG_C_EDGE_SHIFT = 1;
+    private static final int FLAG_D_EDGE_SHIFT = 4;
+
+    private NavMeshBake() {}
+
+    /**
+     * Write '{@code graph}' to '{@code file}', replacing any existing file.
+     *
+     * @param graph built graph to bake
+     * @param file destination file
+     * @throws IOException if the file could not be written
+     */
+    public static void write(NavMeshGraph graph, Path file) throws IOException {
+        final Array<NavMeshGraph.QtTriNode> triNodes = graph.getTriNodes();
+        final Array<NavMeshPathNode> nodes = graph.getNodes();
+        final int walkableTriCount = triNodes.size;
+        final int nodeCount = nodes.size;
+
+        // Index triangles, walkable triangles first
+        final IdentityHashMap<DelaunayTriangle, Integer> triIndices = new IdentityHashMap<>(walkableTriCount * 2);
+        final Array<DelaunayTriangle> triangles = new Array<>(walkableTriCount);
+        for(int i = 0; i < walkableTriCount; ++i) {
+            indexOf(triNodes.get(i).getDt(), triIndices, triangles);
+        }
+        for(int i = 0; i < walkableTriCount; ++i) {
+            for(DelaunayTriangle neighbor : triNodes.get(i).getDt().neighbors) {
+                if(neighbor != null) {
+                    indexOf(neighbor, triIndices, triangles);
+                }
+            }
+        }
+
+        // Index shared vertices
+        final IdentityHashMap<TriangulationPoint, Integer> vertIndices = new IdentityHashMap<>(triangles.size * 2);
+        final Array<TriangulationPoint> vertices = new Array<>(triangles.size);
+        for(int i = 0; i < triangles.size; ++i) {
+            for(TriangulationPoint p : triangles.get(i).points) {
+                if(!vertIndices.containsKey(p)) {
+                    vertIndices.put(p, vertices.size);
+                    vertices.add(p);
+                }
+            }
+        }
+
+        // Gather adjacency in CSR form
+        final int[] offsets;
+        final int[] targets;
+        final float[] costs;
+        if(graph instanceof CompactNavMeshGraph) {
+            final CompactNavMeshGraph compactGraph = (CompactNavMeshGraph) graph;
+            offsets = compactGraph.getOffsets();
+            targets = compactGraph.getTargets();
+            costs = compactGraph.getCosts();
+        } else {
+            offsets = new int[nodeCount + 1];
+            for(int i = 0; i < nodeCount; ++i) {
+                offsets[i + 1] = offsets[i] + nodes.get(i).getConnections().size;
+            }
+            targets = new int[offsets[nodeCount]];
+            costs = new float[offsets[nodeCount]];
+            Array<Connection<NavMeshPathNode>> connections;
+            for(int i = 0; i < nodeCount; ++i) {
+                connections = nodes.get(i).getConnections();
+                for(int c = 0; c < connections.size; ++c) {
+                    targets[offsets[i] + c] = connections.get(c).getToNode().getIndex();
+                    costs[offsets[i] + c] = connections.get(c).getCost();
+                }
+            }
+        }
+        final int edgeCount = offsets[nodeCount];
+
+        int triNodeRefCount = 0;
+        for(int i = 0; i < walkableTriCount; ++i) {
+            triNodeRefCount += triNodes.get(i).getNodes().size;
+        }
+
+        final long size = HEADER_BYTES
+                + (long) vertices.size * VERTEX_BYTES
+                + (long) triangles.size * TRIANGLE_BYTES
+                + (long) nodeCount * NODE_BYTES
+                + (nodeCount + 1) * 4L + (long) edgeCount * EDGE_BYTES
+                + (walkableTriCount + 1) * 4L + triNodeRefCount * 4L;
+        if(size > Integer.MAX_VALUE) {
+            throw new IOException("Navmesh too large to bake: " + size + " bytes");
+        }
+
+        final ByteBuffer buf = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+
+        // Header
+        buf.putInt(MAGIC);
+        buf.putInt(FORMAT_VERSION);
+        buf.putInt(vertices.size);
+        buf.putInt(triangles.size);
+        buf.putInt(walkableTriCount);
+        buf.putInt(nodeCount);
+        buf.putInt(edgeCount);
+
+        // Vertices
+        for(int i = 0; i < vertices.size; ++i) {
+            buf.putDouble(vertices.get(i).getX());
+            buf.putDouble(vertices.get(i).getY());
+        }
+
+        // Triangles
+        DelaunayTriangle dt;
+        Integer neighborIndex;
+        int flags;
+        for(int i = 0; i < triangles.size; ++i) {
+            dt = triangles.get(i);
+            for(int j = 0; j < 3; ++j) {
+                buf.putInt(vertIndices.get(dt.points[j]));
+            }
+            for(int j = 0; j < 3; ++j) {
+                neighborIndex = i < walkableTriCount && dt.neighbors[j] != null ? triIndices.get(dt.neighbors[j]) : null;
+                buf.putInt(neighborIndex != null ? neighborIndex : -1);
+            }
+            flags = dt.isInterior() ? FLAG_INTERIOR : 0;
+            for(int j = 0; j < 3; ++j) {
+                if(dt.cEdge[j]) flags |= 1 << (FLAG_C_EDGE_SHIFT + j);
+                if(dt.dEdge[j]) flags |= 1 << (FLAG_D_EDGE_SHIFT + j);
+            }
+            buf.put((byte) flags);
+        }
+
+        // Nodes
+        NavMeshPathNode node;
+        for(int i = 0; i < nodeCount; ++i) {
+            node = nodes.get(i);
+            buf.putFloat(node.getPortal().getLeft().x);
+            buf.putFloat(node.getPortal().getLeft().y);
+            buf.putFloat(node.getPortal().getRight().x);
+            buf.putFloat(node.getPortal().getRight().y);
+            buf.putInt(triIndexOf(node.getDtA(), triIndices));
+            buf.putInt(triIndexOf(node.getDtB(), triIndices));
+        }
+
+        // Adjacency
+        for(int i = 0; i <= nodeCount; ++i) {
+            buf.putInt(offsets[i]);
+        }
+        for(int e = 0; e < edgeCount; ++e) {
+            buf.putInt(targets[e]);
+            buf.putFloat(costs[e]);
+        }
+
+        // Triangle nodes
+        int triNodeOffset = 0;
+        for(int i = 0; i < walkableTriCount; ++i) {
+            buf.putInt(triNodeOffset);
+            triNodeOffset += triNodes.get(i).getNodes().size;
+        }
+        buf.putInt(triNodeOffset);
+        Array<NavMeshPathNode> triNodeNodes;
+        for(int i = 0; i < walkableTriCount; ++i) {
+            triNodeNodes = triNodes.get(i).getNodes();
+            for(int j = 0; j < triNodeNodes.size; ++j) {
+                buf.putInt(triNodeNodes.get(j).getIndex());
+            }
+        }
+
+        buf.flip();
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+    }
+
+    /**
+     * Load a graph baked with {@link #write(NavMeshGraph, Path)}.
+     *
+     * @param file baked file
+     * @param compact true to load a {@link CompactNavMeshGraph}, false for a {@link NavMeshGraph} with connection objects
+     * @return loaded graph
+     * @throws IOException if the file could not be read, is not a supported baked navmesh or is truncated or corrupt
+     */
+    public static NavMeshGraph read(Path file, boolean compact) throws IOException {
+        return read(file, compact, 0);
+    }
+
+    /**
+     * Load a graph baked with {@link #write(NavMeshGraph, Path)}, numbering its nodes from '{@code indexBase}'.
+     * The returned graph only holds the loaded parts for a containing graph such as {@link TiledNavMeshGraph}, it
+     * can not be searched by itself unless '{@code indexBase}' is 0.
+     *
+     * @param file baked file
+     * @param compact true to load a {@link CompactNavMeshGraph}, false for a {@link NavMeshGraph} with connection objects
+     * @param indexBase index of the first loaded node
+     * @return loaded graph
+     * @throws IOException if the file could not be read, is not a supported baked navmesh or is truncated or corrupt
+     */
+    static NavMeshGraph read(Path file, boolean compact, int indexBase) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            return read(buf, compact, indexBase);
+        }
+    }
+
+    private static NavMeshGraph read(ByteBuffer buf, boolean compact, int indexBase) throws IOException {
+        if(buf.remaining() < HEADER_BYTES || buf.getInt() != MAGIC) {
+            throw new IOException("Not a baked navmesh");
+        }
+        final int version = buf.getInt();
+        if(version != FORMAT_VERSION) {
+            throw new IOException("Unsupported baked navmesh version " + version + ", expected " + FORMAT_VERSION);
+        }
+
+        final int vertexCount = buf.getInt();
+        final int triangleCount = buf.getInt();
+        final int walkableTriCount = buf.getInt();
+        final int nodeCount = buf.getInt();
+        final int edgeCount = buf.getInt();
+        if(vertexCount < 0 || triangleCount < 0 || walkableTriCount < 0 || walkableTriCount > triangleCount
+                || nodeCount < 0 || edgeCount < 0) {
+            throw new IOException("Corrupt baked navmesh header");
+        }
+        checkRemaining(buf, (long) vertexCount * VERTEX_BYTES + (long) triangleCount * TRIANGLE_BYTES
+                + (long) nodeCount * NODE_BYTES + (nodeCount + 1L) * 4 + (long) edgeCount * EDGE_BYTES
+                + (walkableTriCount + 1L) * 4);
+
+        // Vertices
+        final TPoint[] vertices = new TPoint[vertexCount];
+        for(int i = 0; i < vertexCount; ++i) {
+            vertices[i] = new TPoint(buf.getDouble(), buf.getDouble());
+        }
+
+        // Triangles, neighbors are linked once all triangles exist
+        final DelaunayTriangle[] triangles = new DelaunayTriangle[triangleCount];
+        final int[] neighborIndices = new int[triangleCount * 3];
+        int flags;
+        for(int i = 0; i < triangleCount; ++i) {
+            triangles[i] = new DelaunayTriangle(vertices[checkIndex(buf.getInt(), vertexCount)],
+                    vertices[checkIndex(buf.getInt(), vertexCount)], vertices[checkIndex(buf.getInt(), vertexCount)]);
+            for(int j = 0; j < 3; ++j) {
+                neighborIndices[i * 3 + j] = checkIndexOrNone(buf.getInt(), triangleCount);
+            }
+            flags = buf.get();
+            triangles[i].isInterior((flags & FLAG_INTERIOR) != 0);
+            for(int j = 0; j < 3; ++j) {
+                triangles[i].cEdge[j] = (flags & (1 << (FLAG_C_EDGE_SHIFT + j))) != 0;
+                triangles[i].dEdge[j] = (flags & (1 << (FLAG_D_EDGE_SHIFT + j))) != 0;
+            }
+        }
+        for(int i = 0; i < triangleCount; ++i) {
+            for(int j = 0; j < 3; ++j) {
+                if(neighborIndices[i * 3 + j] >= 0) {
+                    triangles[i].neighbors[j] = triangles[neighborIndices[i * 3 + j]];
+                }
+            }
+        }
+
+        final NavMeshGraph graph = compact ? new CompactNavMeshGraph() : new NavMeshGraph();
+        graph.nodes = new Array<>(nodeCount);
+        graph.portalToNode = new HashMap<>(nodeCount);
+        graph.triNodes = new Array<>(walkableTriCount);
+
+        // Nodes
+        final Vector2 left = new Vector2(), right = new Vector2();
+        NavMeshPortal portal;
+        NavMeshPathNode node;
+        int dtIndex;
+        for(int i = 0; i < nodeCount; ++i) {
+            left.set(buf.getFloat(), buf.getFloat());
+            right.set(buf.getFloat(), buf.getFloat());
+            portal = new NavMeshPortal().init(left, right);
+
+            node = graph.createNode(indexBase + i, portal);
+            dtIndex = checkIndexOrNone(buf.getInt(), triangleCount);
+            node.setDtA(dtIndex >= 0 ? triangles[dtIndex] : null);
+            dtIndex = checkIndexOrNone(buf.getInt(), triangleCount);
+            node.setDtB(dtIndex >= 0 ? triangles[dtIndex] : null);
+
+            graph.nodes.add(node);
+            graph.portalToNode.put(portal, node);
+        }
+        graph.nextIndex = indexBase + nodeCount;
+
+        // Adjacency
+        final int[] offsets = new int[nodeCount + 1];
+        for(int i = 0; i <= nodeCount; ++i) {
+            offsets[i] = buf.getInt();
+        }
+        checkOffsets(offsets, edgeCount);
+        final int[] targets = new int[edgeCount];
+        final float[] costs = new float[edgeCount];
+        for(int e = 0; e < edgeCount; ++e) {
+            targets[e] = checkIndex(buf.getInt(), nodeCount);
+            costs[e] = buf.getFloat();
+        }
+
+        if(compact) {
+            final CompactNavMeshGraph compactGraph = (CompactNavMeshGraph) graph;
+            compactGraph.initPortalArrays();
+            compactGraph.offsets = offsets;
+            compactGraph.targets = targets;
+            compactGraph.costs = costs;
+        } else {
+            for(int i = 0; i < nodeCount; ++i) {
+                node = graph.nodes.get(i);
+                for(int e = offsets[i]; e < offsets[i + 1]; ++e) {
+                    node.connections.add(new NavMeshPathConn(node, graph.nodes.get(targets[e])));
+                }
+            }
+        }
+
+        // Triangle nodes and spatial index
+        final int[] triNodeOffsets = new int[walkableTriCount + 1];
+        for(int i = 0; i <= walkableTriCount; ++i) {
+            triNodeOffsets[i] = buf.getInt();
+        }
+        checkOffsets(triNodeOffsets, triNodeOffsets[walkableTriCount]);
+        checkRemaining(buf, (long) triNodeOffsets[walkableTriCount] * 4);
+        final Quadtree qt = graph.getNodesQt().getQt();
+        NavMeshGraph.QtTriNode triNode;
+        Array<NavMeshPathNode> triNodeNodes;
+        for(int i = 0; i < walkableTriCount; ++i) {
+            triNodeNodes = new Array<>(triNodeOffsets[i + 1] - triNodeOffsets[i]);
+            for(int j = triNodeOffsets[i]; j < triNodeOffsets[i + 1]; ++j) {
+                triNodeNodes.add(graph.nodes.get(checkIndex(buf.getInt(), nodeCount)));
+            }
+            triNode = new NavMeshGraph.QtTriNode(i, triangles[i], triNodeNodes);
+            qt.insert(triNode.getEnvelope(), triNode);
+            graph.triNodes.add(triNode);
+        }
+
+        graph.updateClearances();
+        return graph;
+    }
+
+    /**
+     * @throws IOException if fewer than '{@code bytes}' remain in '{@code buf}'
+     */
+    private static void checkRemaining(ByteBuffer buf, long bytes) throws IOException {
+        if(bytes > buf.remaining()) {
+            throw new IOException("Truncated baked navmesh, " + bytes + " bytes needed, " + buf.remaining() + " left");
+        }
+    }
+
+    /**
+     * @return '{@code index}' if it is in [0, count)
+     * @throws IOException if '{@code index}' is out of range
+     */
+    private static int checkIndex(int index, int count) throws IOException {
+        if(index < 0 || index >= count) {
+            throw new IOException("Corrupt baked navmesh, index " + index + " out of range [0, " + count + ")");
+        }
+        return index;
+    }
+
+    /**
+     * @return '{@code index}' if it is -1 or in [0, count)
+     * @throws IOException if '{@code index}' is out of range
+     */
+    private static int checkIndexOrNone(int index, int count) throws IOException {
+        return index == -1 ? index : checkIndex(index, count);
+    }
+
+    /**
+     * @throws IOException if '{@code offsets}' do not start at 0, decrease or do not end at '{@code total}'
+     */
+    private static void checkOffsets(int[] offsets, int total) throws IOException {
+        if(offsets[0] != 0 || offsets[offsets.length - 1] != total) {
+            throw new IOException("Corrupt baked navmesh offsets");
+        }
+        for(int i = 1; i < offsets.length; ++i) {
+            if(offsets[i] < offsets[i - 1]) {
+                throw new IOException("Corrupt baked navmesh offsets");
+            }
+        }
+    }
+
+    private static int indexOf(DelaunayTriangle dt,
+                               IdentityHashMap<DelaunayTriangle, Integer> triIndices,
+                               Array<DelaunayTriangle> triangles) {
+        Integer index = triIndices.get(dt);
+        if(index == null) {
+            index = triangles.size;
+            triIndices.put(dt, index);
+            triangles.add(dt);
+        }
+        return index;
+    }
+
+    private static int triIndexOf(DelaunayTriangle dt, IdentityHashMap<DelaunayTriangle, Integer> triIndices) {
+        final Integer index = dt != null ? triIndices.get(dt) : null;
+        return index != null ? index : -1;
+    }
+}
@@ -0,0 +1,459 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.PathFinderQueue;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.shibabandit.gdx_navmesh.util.IndexedMinHeap;
+
+import java.util.Arrays;
+
+import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.END_NODE_INDEX;
+import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.START_NODE_INDEX;
+
+/**
+ * <p>Bidirectional A* search for {@link IndexedNavMeshAStarPathFinder}. A forward search from the start node and a
+ * reverse search from the end node run in turn, each expanding from the side with the smaller open list. Portal
+ * connections are not always mirrored, so the reverse search follows incoming connections from a
+ * {@link NavMeshReverseGraph}, rebuilt when the graph changes.</p>
+ *
+ * <p>Both searches use the average potential p(n) = (h(n, end) - h(n, start)) / 2, where h(n, start) estimates the
+ * cost from the start node to n, the forward search orders its
+ * open list by g + p and the reverse search by g - p. With a consistent heuristic this is a bidirectional Dijkstra
+ * search on non-negative reduced costs, so the best path through a node reached by both searches is optimal once
+ * the two smallest open keys add up to at least its cost.</p>
+ *
+ * <p>Search state is kept in primitive arrays per direction, as in {@link NavMeshHeapSearch}. Graph nodes use their
+ * own index as slot, the dynamic start and end nodes of a {@link NavMeshPathRequest} use the two slots after the
+ * last graph node.</p>
+ */
+final class NavMeshBidirectionalSearch {
+
+    /** Parent value for the node a direction started from */
+    private static final int NO_PARENT = -1;
+
+    /** Search directions */
+    private static final int FORWARD = 0, REVERSE = 1;
+
+    /** Search that owns this state, provides the graph and metrics */
+    private final IndexedNavMeshAStarPathFinder finder;
+
+    /** Incoming connections of the graph, followed by the reverse search */
+    private NavMeshReverseGraph reverseGraph;
+
+    /** Open list per direction, keys are cost so far plus the direction's potential per slot */
+    private final IndexedMinHeap[] open;
+
+    /** Cost from the direction's origin per direction and slot */
+    private float[][] g;
+
+    /** Slot reached from per direction and slot */
+    private int[][] parent;
+
+    /** Search id that last touched each slot per direction, other values mean unvisited */
+    private int[][] searchIds;
+
+    /** Node per slot, set when a slot is first visited in a search */
+    private NavMeshPathNode[] nodeRefs;
+
+    /** Forward potential per slot, negated for the reverse search */
+    private float[] potentials;
+
+    /** Search id that last computed each potential */
+    private int[] potentialIds;
+
+    /** The unique ID for each search run */
+    private int searchId;
+
+    /** Graph node count when the current search started, dynamic nodes use the slots after it */
+    private int nodeCount;
+
+    /** Slots of the start and end nodes for the current search */
+    private int startSlot, endSlot;
+
+    /** Cost of the best path found so far */
+    private float bestCost;
+
+    /** Slot both searches reached on the best path found so far, {@link #NO_PARENT} if none */
+    private int meetSlot;
+
+    /** Direction and slot of the node being expanded */
+    private int dir, current;
+
+    /** Nodes expanded in both directions by the current request search */
+    private int expansions;
+
+    /** Forward expanded slot with the lowest heuristic estimate in the current request search, for partial paths */
+    private int closestSlot;
+    private float closestHeuristic;
+
+    /** Current search inputs */
+    private NavMeshPathNode startNode, endNode;
+    private Heuristic<NavMeshPathNode> heuristic;
+    private NavMeshPathRequest currReq;
+
+    NavMeshBidirectionalSearch(IndexedNavMeshAStarPathFinder finder) {
+        this.finder = finder;
+        final int slots = finder.graph.getNodeCount() + 2;
+        this.open = new IndexedMinHeap[] {new IndexedMinHeap(slots), new IndexedMinHeap(slots)};
+        this.g = new float[2][slots];
+        this.parent = new int[2][slots];
+        this.searchIds = new int[2][slots];
+        this.nodeRefs = new NavMeshPathNode[slots];
+        this.potentials = new float[slots];
+        this.potentialIds = new int[slots];
+    }
+
+    /**
+     * Search the full path for '{@code request}' or until the time runs out.
+     *
+     * @param request request to search
+     * @param timeToRun time in nanoseconds this call may run
+     * @return true if the search completed, false if it ran out of time
+     */
+    boolean search(NavMeshPathRequest request, long timeToRun) {
+        long lastTime = TimeUtils.nanoTime();
+
+        // We have to initialize the search if the status has just changed
+        if (request.statusChanged) {
+            initSearch(request.startNode, request.endNode, request.heuristic, request);
+            request.statusChanged = false;
+            expansions = 0;
+            closestSlot = NO_PARENT;
+            closestHeuristic = Float.MAX_VALUE;
+        }
+
+        // Iterate through processing each node
+        while (!isDone()) {
+
+            // Check the available time
+            long currentTime = TimeUtils.nanoTime();
+            timeToRun -= currentTime - lastTime;
+            if (timeToRun <= PathFinderQueue.TIME_TOLERANCE) return false;
+
+            // Stop at the expansion limit, a path through a meeting node found so far is kept
+            if (request.getMaxExpansions() > 0 && expansions >= request.getMaxExpansions()) break;
+
+            expandNext(request.getAgentRadius());
+            ++expansions;
+
+            // Remember the forward expanded node closest to the goal for a partial path
+            if (dir == FORWARD && request.isPartialPathAllowed()) {
+                final float h = heuristic.estimate(nodeRefs[current], endNode);
+                if (h < closestHeuristic) {
+                    closestHeuristic = h;
+                    closestSlot = current;
+                }
+            }
+
+            // Store the current time
+            lastTime = currentTime;
+        }
+
+        request.pathFound = meetSlot != NO_PARENT;
+        if (request.pathFound) {
+
+            // Stopped at the expansion limit, the smallest open keys bound the cost of any path not found yet
+            final float lowerBound = isDone() ? bestCost : open[FORWARD].peekKey() + open[REVERSE].peekKey();
+            request.setCostBound(lowerBound > 0f ? Math.max(1f, bestCost / lowerBound)
+                    : bestCost > 0f ? Float.POSITIVE_INFINITY : 1f);
+            generateNodePath(request.resultPath);
+
+        } else if (request.isPartialPathAllowed() && closestSlot != NO_PARENT
+                && parent[FORWARD][closestSlot] != NO_PARENT) {
+            int slot = closestSlot;
+            while (slot != NO_PARENT) {
+                request.resultPath.add(nodeRefs[slot]);
+                slot = parent[FORWARD][slot];
+            }
+            request.resultPath.reverse();
+            request.pathFound = true;
+            request.setPartialPath(true);
+            request.setCostBound(Float.POSITIVE_INFINITY);
+        }
+        return true;
+    }
+
+    /**
+     * Search between two graph nodes without a request or time limit.
+     *
+     * @return true if a path was found
+     */
+    boolean search(NavMeshPathNode startNode, NavMeshPathNode endNode, Heuristic<NavMeshPathNode> heuristic) {
+        initSearch(startNode, endNode, heuristic, null);
+
+        while (!isDone()) {
+            expandNext(0f);
+        }
+
+        return meetSlot != NO_PARENT;
+    }
+
+    private void initSearch(NavMeshPathNode startNode,
+                            NavMeshPathNode endNode,
+                            Heuristic<NavMeshPathNode> heuristic,
+                            NavMeshPathRequest currReq) {
+
+        if (finder.metrics != null) finder.metrics.reset();
+
+        this.startNode = startNode;
+        this.endNode = endNode;
+        this.heuristic = heuristic;
+        this.currReq = currReq;
+
+        nodeCount = finder.graph.getNodeCount();
+        ensureCapacity(nodeCount + 2);
+        final NavMeshGraph graph = (NavMeshGraph) finder.graph;
+        if (reverseGraph == null || !reverseGraph.isCurrent(graph)) {
+            reverseGraph = new NavMeshReverseGraph(graph);
+        }
+        startSlot = slotOf(startNode);
+        endSlot = slotOf(endNode);
+
+        // Increment the search id
+        if (++searchId < 0) searchId = 1;
+
+        open[FORWARD].clear();
+        open[REVERSE].clear();
+
+        // Mark nodes that connect to the dynamic start and end nodes
+        finder.endpointMarks.mark(currReq, nodeCount);
+
+        bestCost = Float.POSITIVE_INFINITY;
+        meetSlot = NO_PARENT;
+
+        nodeRefs[startSlot] = startNode;
+        nodeRefs[endSlot] = endNode;
+        if (startSlot == endSlot) {
+            bestCost = 0f;
+            meetSlot = startSlot;
+        }
+
+        initDirection(FORWARD, startSlot);
+        initDirection(REVERSE, endSlot);
+    }
+
+    private void initDirection(int d, int slot) {
+        searchIds[d][slot] = searchId;
+        g[d][slot] = 0f;
+        parent[d][slot] = NO_PARENT;
+        addToOpenList(d, slot, potential(d, slot, nodeRefs[slot]));
+    }
+
+    /**
+     * @param d search direction
+     * @param slot node slot
+     * @param node node in the slot
+     * @return potential of the node for the direction, computed once per search
+     */
+    private float potential(int d, int slot, NavMeshPathNode node) {
+        if (potentialIds[slot] != searchId) {
+            potentialIds[slot] = searchId;
+            potentials[slot] = 0.5f * (heuristic.estimate(node, endNode) - heuristic.estimate(startNode, node));
+        }
+        return d == FORWARD ? potentials[slot] : -potentials[slot];
+    }
+
+    private void ensureCapacity(int slots) {
+        if (slots > nodeRefs.length) {
+            for (int d = FORWARD; d <= REVERSE; ++d) {
+                open[d].ensureCapacity(slots);
+                g[d] = Arrays.copyOf(g[d], slots);
+                parent[d] = Arrays.copyOf(parent[d], slots);
+                searchIds[d] = Arrays.copyOf(searchIds[d], slots);
+            }
+            nodeRefs = Arrays.copyOf(nodeRefs, slots);
+            potentials = Arrays.copyOf(potentials, slots);
+            potentialIds = Arrays.copyOf(potentialIds, slots);
+        }
+    }
+
+    private int slotOf(NavMeshPathNode node) {
+        final int index = node.getIndex();
+        if (index == START_NODE_INDEX) {
+            return nodeCount;
+        } else if (index == END_NODE_INDEX) {
+            return nodeCount + 1;
+        }
+        return index;
+    }
+
+    /**
+     * @return true if the best path found so far is optimal or there is no path
+     */
+    private boolean isDone() {
+
+        // A direction without open nodes has settled every node it can reach
+        if (open[FORWARD].isEmpty() || open[REVERSE].isEmpty()) {
+            return true;
+        }
+
+        // Potentials cancel along a path, so the smallest keys bound the cost of any path not found yet
+        return open[FORWARD].peekKey() + open[REVERSE].peekKey() >= bestCost;
+    }
+
+    /**
+     * Expand the best open node of the direction with the smaller open list.
+     */
+    private void expandNext(float agentRadius) {
+        dir = open[FORWARD].size() <= open[REVERSE].size() ? FORWARD : REVERSE;
+        current = open[dir].pop();
+
+        final NavMeshPathNode node = nodeRefs[current];
+        final int index = node.getIndex();
+        final float costSoFar = g[dir][current];
+
+        if (index >= 0) {
+            final CompactNavMeshGraph compactGraph = finder.compactGraph;
+
+            if (dir == REVERSE) {
+                final int[] offsets = reverseGraph.offsets;
+                final int[] sources = reverseGraph.sources;
+                final float[] costs = reverseGraph.costs;
+                final float[] clearances = reverseGraph.clearances;
+                final Array<NavMeshPathNode> nodes = ((NavMeshGraph) finder.graph).getNodes();
+                int fromIndex;
+
+                // Connections into a blocked node are never followed, in reverse it has no predecessors
+                final int end = node.isBlocked() ? offsets[index] : offsets[index + 1];
+                for (int e = offsets[index]; e < end; ++e) {
+                    fromIndex = sources[e];
+                    if (agentRadius > clearances[e]) {
+                        continue;
+                    }
+                    visit(fromIndex, compactGraph != null ? compactGraph.getNode(fromIndex) : nodes.get(fromIndex),
+                            costSoFar + costs[e]);
+                }
+
+            } else if (compactGraph != null) {
+                final int[] offsets = compactGraph.getOffsets();
+                final int[] targets = compactGraph.getTargets();
+                final float[] costs = compactGraph.getCosts();
+                final float[] clearances = compactGraph.getClearances();
+                int toIndex;
+
+                for (int e = offsets[index]; e < offsets[index + 1]; ++e) {
+                    toIndex = targets[e];
+                    if (agentRadius > clearances[e]) {
+                        continue;
+                    }
+                    visit(toIndex, compactGraph.getNode(toIndex), costSoFar + costs[e]);
+                }
+
+            } else {
+                visitAll(finder.graph.getConnections(node), costSoFar, agentRadius, true);
+            }
+
+            // Virtual edges to the dynamic nodes. Only edges from the start node check the agent radius and blocked
+            // nodes, in reverse the start node is reached through such an edge.
+            if (finder.endpointMarks.isEndAdjacent(index)) {
+                visitDynamicNode(node, currReq.endNode, costSoFar);
+            }
+            if (finder.endpointMarks.isStartAdjacent(index)
+                    && (dir == FORWARD || !node.isBlocked() && agentRadius <= node.getPortal().getLengthDiv2())) {
+                visitDynamicNode(node, currReq.startNode, costSoFar);
+            }
+
+        } else if (index == START_NODE_INDEX || index == END_NODE_INDEX) {
+
+            // In reverse these are the virtual edges into the dynamic node, which do not check the agent radius
+            visitAll(node.getConnections(), costSoFar, agentRadius, dir == FORWARD);
+        }
+    }
+
+    private void visitAll(Array<Connection<NavMeshPathNode>> connections,
+                          float costSoFar,
+                          float agentRadius,
+                          boolean checkFit) {
+
+        Connection<NavMeshPathNode> connection;
+
+        for (int i = 0; i < connections.size; ++i) {
+            connection = connections.get(i);
+
+            // Skip connection if agent does not fit along it
+            if (checkFit && !IndexedNavMeshAStarPathFinder.fits(connection, agentRadius)) {
+                continue;
+            }
+
+            visit(slotOf(connection.getToNode()), connection.getToNode(), costSoFar + connection.getCost());
+        }
+    }
+
+    /**
+     * Visit the dynamic node '{@code dynNode}' through a virtual edge from '{@code node}'.
+     */
+    private void visitDynamicNode(NavMeshPathNode node, NavMeshPathNode dynNode, float costSoFar) {
+        visit(slotOf(dynNode), dynNode,
+                costSoFar + node.getPortal().getMidpoint().dst(dynNode.getPortal().getMidpoint()));
+    }
+
+    private void visit(int slot, NavMeshPathNode node, float nodeCost) {
+        if (finder.metrics != null) finder.metrics.visitedNodes++;
+
+        final float[] dirG = g[dir];
+        if (searchIds[dir][slot] == searchId) {
+
+            // If we didn't find a shorter route, skip
+            if (dirG[slot] <= nodeCost) return;
+
+        } else {
+            searchIds[dir][slot] = searchId;
+            nodeRefs[slot] = node;
+        }
+
+        dirG[slot] = nodeCost;
+        parent[dir][slot] = current;
+        addToOpenList(dir, slot, nodeCost + potential(dir, slot, node));
+
+        // Keep the best path through a node reached by both directions
+        final int other = dir ^ 1;
+        if (searchIds[other][slot] == searchId && nodeCost + g[other][slot] < bestCost) {
+            bestCost = nodeCost + g[other][slot];
+            meetSlot = slot;
+        }
+    }
+
+    private void addToOpenList(int d, int slot, float estimatedTotalCost) {
+        open[d].add(slot, estimatedTotalCost);
+        if (finder.metrics != null) {
+            finder.metrics.openListAdditions++;
+            finder.metrics.openListPeak = Math.max(finder.metrics.openListPeak, open[d].size());
+        }
+    }
+
+    void generateNodePath(GraphPath<NavMeshPathNode> outPath) {
+
+        // Forward parents lead back to the start node
+        int slot = meetSlot;
+        while (slot != NO_PARENT) {
+            outPath.add(nodeRefs[slot]);
+            slot = parent[FORWARD][slot];
+        }
+        outPath.reverse();
+
+        // Reverse parents lead on to the end node
+        slot = parent[REVERSE][meetSlot];
+        while (slot != NO_PARENT) {
+            outPath.add(nodeRefs[slot]);
+            slot = parent[REVERSE][slot];
+        }
+    }
+
+    void generateConnectionPath(GraphPath<Connection<NavMeshPathNode>> outPath) {
+        int slot = meetSlot;
+        while (parent[FORWARD][slot] != NO_PARENT) {
+            outPath.add(new NavMeshPathConn(nodeRefs[parent[FORWARD][slot]], nodeRefs[slot]));
+            slot = parent[FORWARD][slot];
+        }
+        outPath.reverse();
+
+        slot = meetSlot;
+        while (parent[REVERSE][slot] != NO_PARENT) {
+            outPath.add(new NavMeshPathConn(nodeRefs[slot], nodeRefs[parent[REVERSE][slot]]));
+            slot = parent[REVERSE][slot];
+        }
+    }
+}
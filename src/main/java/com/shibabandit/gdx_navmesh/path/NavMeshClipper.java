@@ -52,6 +52,20 @@ public final class NavMeshClipper {
         this.bufferDist = bufferDist;
     }
 
+    /**
+     * @return distance tolerance for simplification
+     */
+    public double getDistTolerance() {
+        return distTolerance;
+    }
+
+    /**
+     * @return distance to use for buffer operation
+     */
+    public double getBufferDist() {
+        return bufferDist;
+    }
+
     /**
      * Return a list of walkable {@link Polygon}. Unions obstacles together and subtracts their area from the world
      * bounds. Simplifies the resulting walkable polygons.
@@ -0,0 +1,271 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.PathFinder;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
+import com.badlogic.gdx.utils.Array;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Caches the node corridors found by a {@link PathFinder} for {@link NavMeshPathRequest}s, keyed by start
+ * triangle, end triangle and agent radius class (see {@link NavMeshGraph#setRadiusClasses(float...)}). Repeated
+ * moves between the same triangles, such as patrols and rally points, reuse the corridor instead of searching.
+ * Least recently used corridors are evicted once {@link #capacity} is reached.</p>
+ *
+ * <p>A corridor found from other positions in the same triangles is returned as is, so it may be slightly longer
+ * than a fresh search. Each corridor keeps the largest radius that fits along it, requests in the same radius class
+ * with a larger agent search again. All corridors are dropped when the graph version changes.</p>
+ *
+ * <p>Other requests and the node and connection searches are passed to the wrapped finder. Not thread safe.</p>
+ */
+public class NavMeshCorridorCache implements PathFinder<NavMeshPathNode> {
+
+    /** Graph the corridors are found in */
+    protected final NavMeshGraph graph;
+
+    /** Finder used on a miss */
+    protected final PathFinder<NavMeshPathNode> finder;
+
+    /** Maximum number of cached corridors */
+    protected final int capacity;
+
+    /** Corridors in access order, least recently used first */
+    private final LinkedHashMap<Key, Corridor> corridors;
+
+    /** Reused to look up corridors */
+    private final Key lookupKey;
+
+    /** Graph version the corridors were found in */
+    private int cachedVersion;
+
+    /** Requests answered from the cache and requests searched */
+    private int hitCount, missCount;
+
+    /**
+     * @param graph graph the corridors are found in
+     * @param finder finder used on a miss, such as {@link IndexedNavMeshAStarPathFinder}
+     * @param capacity maximum number of cached corridors
+     */
+    public NavMeshCorridorCache(NavMeshGraph graph, PathFinder<NavMeshPathNode> finder, int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+
+        this.graph = graph;
+        this.finder = finder;
+        this.capacity = capacity;
+        this.corridors = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+        this.lookupKey = new Key();
+        this.cachedVersion = graph.getVersion();
+    }
+
+    @Override
+    public boolean searchConnectionPath(NavMeshPathNode startNode,
+                                        NavMeshPathNode endNode,
+                                        Heuristic<NavMeshPathNode> heuristic,
+                                        GraphPath<Connection<NavMeshPathNode>> outPath) {
+        return finder.searchConnectionPath(startNode, endNode, heuristic, outPath);
+    }
+
+    @Override
+    public boolean searchNodePath(NavMeshPathNode startNode,
+                                  NavMeshPathNode endNode,
+                                  Heuristic<NavMeshPathNode> heuristic,
+                                  GraphPath<NavMeshPathNode> outPath) {
+        return finder.searchNodePath(startNode, endNode, heuristic, outPath);
+    }
+
+    @Override
+    public boolean search(PathFinderRequest<NavMeshPathNode> request, long timeToRun) {
+        if(!(request instanceof NavMeshPathRequest)
+                || ((NavMeshPathRequest) request).getStartTriNode() == null
+                || ((NavMeshPathRequest) request).getEndTriNode() == null) {
+            return finder.search(request, timeToRun);
+        }
+
+        final NavMeshPathRequest navMeshPathRequest = (NavMeshPathRequest) request;
+        if(cachedVersion != graph.getVersion()) {
+            corridors.clear();
+            cachedVersion = graph.getVersion();
+        }
+
+        // Only a search that has not started yet can be answered from the cache
+        if(request.statusChanged) {
+            final Corridor corridor = corridors.get(lookupKey.set(navMeshPathRequest, graph));
+            if(corridor != null && navMeshPathRequest.getAgentRadius() <= corridor.clearance) {
+                fillPath(navMeshPathRequest, corridor.nodes);
+                ++hitCount;
+                return true;
+            }
+        }
+
+        if(!finder.search(request, timeToRun)) {
+            return false;
+        }
+
+        ++missCount;
+        if(request.pathFound && !navMeshPathRequest.isPartialPath() && navMeshPathRequest.getCostBound() <= 1f
+                && cachedVersion == graph.getVersion()) {
+            put(navMeshPathRequest);
+        }
+        return true;
+    }
+
+    /**
+     * Drop all cached corridors.
+     */
+    public void clear() {
+        corridors.clear();
+    }
+
+    /**
+     * @return number of cached corridors
+     */
+    public int size() {
+        return corridors.size();
+    }
+
+    /**
+     * @return number of requests answered from the cache
+     */
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of requests searched by the wrapped finder
+     */
+    public int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Set the result path of '{@code request}' to its dynamic start node, the corridor nodes and its dynamic end
+     * node.
+     */
+    private void fillPath(NavMeshPathRequest request, int[] nodeIndices) {
+        final Array<NavMeshPathNode> nodes = graph.getNodes();
+        request.resultPath.clear();
+        request.resultPath.add(request.startNode);
+        for(int i = 0; i < nodeIndices.length; ++i) {
+            request.resultPath.add(nodes.get(nodeIndices[i]));
+        }
+        request.resultPath.add(request.endNode);
+        request.statusChanged = false;
+        request.pathFound = true;
+        request.setPartialPath(false);
+    }
+
+    /**
+     * Store the corridor of a found path, with the largest radius that fits along all of its connections.
+     */
+    private void put(NavMeshPathRequest request) {
+        final GraphPath<NavMeshPathNode> path = request.resultPath;
+        final int[] nodeIndices = new int[Math.max(0, path.getCount() - 2)];
+        float clearance = Float.MAX_VALUE;
+        for(int i = 1; i < path.getCount(); ++i) {
+            clearance = Math.min(clearance, connectionClearance(path.get(i - 1), path.get(i)));
+            if(i < path.getCount() - 1) {
+                nodeIndices[i - 1] = path.get(i).getIndex();
+            }
+        }
+
+        // A corridor too narrow for this agent is replaced
+        Key key = lookupKey.set(request, graph);
+        Corridor corridor = corridors.get(key);
+        if(corridor != null) {
+            corridor.nodes = nodeIndices;
+            corridor.clearance = clearance;
+            return;
+        }
+
+        if(corridors.size() < capacity) {
+            key = new Key();
+            corridor = new Corridor();
+        } else {
+            final Iterator<Map.Entry<Key, Corridor>> eldest = corridors.entrySet().iterator();
+            final Map.Entry<Key, Corridor> entry = eldest.next();
+            key = entry.getKey();
+            corridor = entry.getValue();
+            eldest.remove();
+        }
+        corridor.nodes = nodeIndices;
+        corridor.clearance = clearance;
+        corridors.put(key.set(request, graph), corridor);
+    }
+
+    /**
+     * @return largest agent radius that fits from '{@code from}' to '{@code to}', unlimited for the virtual edges
+     * into the dynamic end node
+     */
+    private float connectionClearance(NavMeshPathNode from, NavMeshPathNode to) {
+        if(to.getIndex() < 0 && from.getIndex() >= 0) {
+            return Float.MAX_VALUE;
+        }
+
+        final Array<Connection<NavMeshPathNode>> connections = from.getIndex() < 0
+                ? from.getConnections() : graph.getConnections(from);
+        float clearance = 0f;
+        for(int i = 0; i < connections.size; ++i) {
+            if(connections.get(i).getToNode() == to) {
+                clearance = Math.max(clearance, IndexedNavMeshAStarPathFinder.clearance(connections.get(i)));
+            }
+        }
+        return clearance;
+    }
+
+    /**
+     * Start triangle, end triangle and agent radius class of a corridor.
+     */
+    private static final class Key {
+        private NavMeshGraph.QtTriNode startTriNode, endTriNode;
+        private int radiusClass;
+
+        Key set(NavMeshPathRequest request, NavMeshGraph graph) {
+            this.startTriNode = request.getStartTriNode();
+            this.endTriNode = request.getEndTriNode();
+
+            // Largest class not above the agent radius, as for NavMeshGraph.isConnected
+            final float[] radiusClasses = graph.getRadiusClasses();
+            final float agentRadius = request.getAgentRadius();
+            radiusClass = -1;
+            while(radiusClass + 1 < radiusClasses.length && radiusClasses[radiusClass + 1] <= agentRadius) {
+                ++radiusClass;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return startTriNode == key.startTriNode && endTriNode == key.endTriNode && radiusClass == key.radiusClass;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(startTriNode);
+            result = 31 * result + System.identityHashCode(endTriNode);
+            result = 31 * result + radiusClass;
+            return result;
+        }
+    }
+
+    /**
+     * Graph node indices between the dynamic start and end nodes, and the largest radius that fits along them.
+     */
+    private static final class Corridor {
+        private int[] nodes;
+        private float clearance;
+    }
+}
@@ -0,0 +1,393 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.shibabandit.gdx_navmesh.util.IndexedMinHeap;
+
+import java.util.Arrays;
+
+import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.END_NODE_INDEX;
+
+/**
+ * <p>D* Lite replanner for one long-lived agent heading for one goal. Costs to the goal are searched backwards from
+ * the goal and kept between calls, so when the agent moves or nodes are blocked and unblocked with
+ * {@link NavMeshGraph#setBlocked(NavMeshPathNode, boolean)}, only the nodes whose cost changed are searched again.
+ * Paths are the same node paths the A* search returns, ready for
+ * {@link NavMeshStringPuller#pathToPortals(com.badlogic.gdx.ai.pfa.DefaultGraphPath)}.</p>
+ *
+ * <p>Blocked nodes are reported by the graph through {@link NavMeshGraphListener}. A new goal, agent radius or
+ * structural change such as a tile rebuild starts a fresh search. Each planner keeps two floats per graph node,
+ * call {@link #dispose()} to stop listening once the agent is done. Not thread safe.</p>
+ *
+ * <p>See "D* Lite" by Sven Koenig and Maxim Likhachev.</p>
+ */
+public class NavMeshDStarLite implements NavMeshGraphListener, Disposable {
+
+    /**
+     * Added to every connection cost. The two nodes of a shared edge are joined by zero cost connections both ways,
+     * which would let each keep a stale cost through the other after the path beyond them is blocked.
+     */
+    static final float MIN_CONNECTION_COST = 1e-3f;
+
+    /** Graph to search */
+    protected final NavMeshGraph graph;
+
+    /** Set when {@link #graph} is a {@link CompactNavMeshGraph}, used to search its CSR arrays directly */
+    protected final CompactNavMeshGraph compactGraph;
+
+    /** Goal position and the start position the keys were last computed from */
+    private final Vector2 goalPos, lastStartPos;
+
+    /** Triangle containing {@link #goalPos} */
+    private NavMeshGraph.QtTriNode goalTriNode;
+
+    /** Radius of agent in world units */
+    private float agentRadius;
+
+    /** Cost to the goal per node index as of the last expansion, and as computed from its successors */
+    private float[] g, rhs;
+
+    /** Nodes of the goal triangle and the cost of their virtual edges to the goal */
+    private final IntArray goalNodes;
+    private final FloatArray goalCosts;
+
+    /** Locally inconsistent nodes, keyed by cost estimate through the node */
+    private final IndexedMinHeap open;
+
+    /** Start position moves added to all keys since the search started */
+    private float keyModifier;
+
+    /** Nodes blocked or unblocked since the last path */
+    private final IntArray changedNodes;
+
+    /** Set when the next path needs a fresh search */
+    private boolean resetNeeded;
+
+    /** Nodes expanded by the last path */
+    private int expandedCount;
+
+    /** Marks nodes on the path being read, against cycles through zero cost connections */
+    private int[] pathMarks;
+    private int pathMark;
+
+    /** Receives the next node while reading a path */
+    private final int[] nextNode;
+
+    /**
+     * Create a planner and register it with the graph.
+     *
+     * @param graph graph to search
+     */
+    public NavMeshDStarLite(NavMeshGraph graph) {
+        this.graph = graph;
+        this.compactGraph = graph instanceof CompactNavMeshGraph ? (CompactNavMeshGraph) graph : null;
+        this.goalPos = new Vector2();
+        this.lastStartPos = new Vector2();
+        this.g = new float[0];
+        this.rhs = new float[0];
+        this.goalNodes = new IntArray();
+        this.goalCosts = new FloatArray();
+        this.open = new IndexedMinHeap(64);
+        this.changedNodes = new IntArray();
+        this.pathMarks = new int[0];
+        this.nextNode = new int[1];
+        this.resetNeeded = true;
+        graph.addListener(this);
+    }
+
+    /**
+     * Find a path for '{@code request}'. The first request, and any request with another goal position, end triangle
+     * or agent radius, searches from scratch. Later requests only repair the costs changed by start moves and
+     * blocked nodes.
+     *
+     * @param request initialized request, its {@link NavMeshPathRequest#pathFound} and result path are set
+     * @return true if a path was found
+     */
+    public boolean findPath(NavMeshPathRequest request) {
+        request.resultPath.clear();
+        request.statusChanged = false;
+        request.pathFound = false;
+        expandedCount = 0;
+
+        if(resetNeeded || goalTriNode != request.getEndTriNode() || !goalPos.equals(request.getEndPos())
+                || agentRadius != request.getAgentRadius() || g.length != graph.getNodeCount()) {
+            reset(request);
+        } else {
+            keyModifier += lastStartPos.dst(request.getStartPos());
+            lastStartPos.set(request.getStartPos());
+            applyChanges();
+        }
+
+        computeCosts(request);
+        return readPath(request);
+    }
+
+    @Override
+    public void nodeChanged(NavMeshGraph graph, NavMeshPathNode node) {
+        changedNodes.add(node.getIndex());
+    }
+
+    @Override
+    public void graphChanged(NavMeshGraph graph) {
+        resetNeeded = true;
+    }
+
+    /**
+     * Stop listening to the graph.
+     */
+    @Override
+    public void dispose() {
+        graph.removeListener(this);
+    }
+
+    /**
+     * @return nodes expanded by the last {@link #findPath(NavMeshPathRequest)}
+     */
+    public int getExpandedCount() {
+        return expandedCount;
+    }
+
+    /**
+     * @param nodeIndex graph node index
+     * @return cost from the node to the goal as of the last path, infinite if unreachable or not searched
+     */
+    public float getCost(int nodeIndex) {
+        return nodeIndex < g.length ? g[nodeIndex] : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Start a fresh search towards the goal of '{@code request}', seeded with the nodes of the goal triangle.
+     */
+    private void reset(NavMeshPathRequest request) {
+        resetNeeded = false;
+        changedNodes.clear();
+        goalTriNode = request.getEndTriNode();
+        goalPos.set(request.getEndPos());
+        agentRadius = request.getAgentRadius();
+        lastStartPos.set(request.getStartPos());
+        keyModifier = 0f;
+
+        final int nodeCount = graph.getNodeCount();
+        if(g.length != nodeCount) {
+            g = new float[nodeCount];
+            rhs = new float[nodeCount];
+            pathMarks = new int[nodeCount];
+        }
+        Arrays.fill(g, Float.POSITIVE_INFINITY);
+        Arrays.fill(rhs, Float.POSITIVE_INFINITY);
+        open.clear();
+        open.ensureCapacity(nodeCount);
+
+        // Nodes of the goal triangle reach the goal through unconditional virtual edges
+        goalNodes.clear();
+        goalCosts.clear();
+        final Array<NavMeshPathNode> nodes = goalTriNode.getNodes();
+        int index;
+        for(int i = 0; i < nodes.size; ++i) {
+            index = nodes.get(i).getIndex();
+            goalNodes.add(index);
+            goalCosts.add(nodes.get(i).getPortal().getMidpoint().dst(goalPos));
+            rhs[index] = Math.min(rhs[index], goalCosts.peek());
+            open.add(index, key(index));
+        }
+    }
+
+    /**
+     * Update the sources of connections into nodes blocked or unblocked since the last path.
+     */
+    private void applyChanges() {
+        final NavMeshReverseGraph reverseGraph = graph.getReverseGraph();
+        int index;
+        for(int i = 0; i < changedNodes.size; ++i) {
+            index = changedNodes.get(i);
+            for(int e = reverseGraph.offsets[index]; e < reverseGraph.offsets[index + 1]; ++e) {
+                updateNode(reverseGraph.sources[e]);
+            }
+        }
+        changedNodes.clear();
+    }
+
+    /**
+     * Expand inconsistent nodes until the cost from the start position is known.
+     */
+    private void computeCosts(NavMeshPathRequest request) {
+        final NavMeshReverseGraph reverseGraph = graph.getReverseGraph();
+        final int[] offsets = reverseGraph.offsets;
+        final int[] sources = reverseGraph.sources;
+        int current;
+        float newKey;
+
+        // The dynamic start node has no incoming connections, it never becomes inconsistent itself
+        while(!open.isEmpty() && open.peekKey() <= startCost(request, null) + keyModifier) {
+            current = open.peek();
+            newKey = key(current);
+
+            if(open.peekKey() < newKey) {
+                open.add(current, newKey);
+
+            } else if(g[current] > rhs[current]) {
+                open.pop();
+                ++expandedCount;
+                g[current] = rhs[current];
+                for(int e = offsets[current]; e < offsets[current + 1]; ++e) {
+                    updateNode(sources[e]);
+                }
+
+            } else {
+                open.pop();
+                ++expandedCount;
+                g[current] = Float.POSITIVE_INFINITY;
+                updateNode(current);
+                for(int e = offsets[current]; e < offsets[current + 1]; ++e) {
+                    updateNode(sources[e]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recompute the cost of a node from its successors and queue it if it became inconsistent.
+     */
+    private void updateNode(int index) {
+        rhs[index] = successorCost(index, null);
+        if(g[index] != rhs[index]) {
+            open.add(index, key(index));
+        } else {
+            open.remove(index);
+        }
+    }
+
+    /**
+     * @param index node index
+     * @param outNext if not null, receives the best next node index at 0, or {@link NavMeshPathRequest#END_NODE_INDEX}
+     * @return lowest cost to the goal through the connections of the node the agent fits along
+     */
+    private float successorCost(int index, int[] outNext) {
+        float best = Float.POSITIVE_INFINITY, cost;
+        int bestNext = -1, to;
+
+        for(int i = 0; i < goalNodes.size; ++i) {
+            if(goalNodes.get(i) == index && goalCosts.get(i) < best) {
+                best = goalCosts.get(i);
+                bestNext = END_NODE_INDEX;
+            }
+        }
+
+        if(compactGraph != null) {
+            final int[] offsets = compactGraph.getOffsets();
+            final int[] targets = compactGraph.getTargets();
+            final float[] costs = compactGraph.getCosts();
+            final float[] clearances = compactGraph.getClearances();
+            for(int e = offsets[index]; e < offsets[index + 1]; ++e) {
+                to = targets[e];
+                cost = costs[e] + MIN_CONNECTION_COST + g[to];
+                if(cost < best && agentRadius <= clearances[e] && !isOnPath(outNext, to)) {
+                    best = cost;
+                    bestNext = to;
+                }
+            }
+        } else {
+            final Array<Connection<NavMeshPathNode>> connections = graph.getNodes().get(index).getConnections();
+            Connection<NavMeshPathNode> connection;
+            for(int c = 0; c < connections.size; ++c) {
+                connection = connections.get(c);
+                to = connection.getToNode().getIndex();
+                cost = connection.getCost() + MIN_CONNECTION_COST + g[to];
+                if(cost < best && IndexedNavMeshAStarPathFinder.fits(connection, agentRadius)
+                        && !isOnPath(outNext, to)) {
+                    best = cost;
+                    bestNext = to;
+                }
+            }
+        }
+
+        if(outNext != null) {
+            outNext[0] = bestNext;
+        }
+        return best;
+    }
+
+    /**
+     * @param request request with the dynamic start node
+     * @param outNext if not null, receives the best first node index at 0, or
+     * {@link NavMeshPathRequest#END_NODE_INDEX}
+     * @return lowest cost to the goal from the dynamic start node of '{@code request}'
+     */
+    private float startCost(NavMeshPathRequest request, int[] outNext) {
+        final Array<Connection<NavMeshPathNode>> connections = request.startNode.getConnections();
+        Connection<NavMeshPathNode> connection;
+        float best = Float.POSITIVE_INFINITY, cost;
+        int bestNext = -1, to;
+
+        for(int i = 0; i < connections.size; ++i) {
+            connection = connections.get(i);
+            to = connection.getToNode().getIndex();
+            if(to == END_NODE_INDEX) {
+                cost = connection.getCost();
+            } else if(to >= 0 && to < g.length) {
+                cost = connection.getCost() + g[to];
+            } else {
+                continue;
+            }
+            if(cost < best && IndexedNavMeshAStarPathFinder.fits(connection, agentRadius)) {
+                best = cost;
+                bestNext = to;
+            }
+        }
+
+        if(outNext != null) {
+            outNext[0] = bestNext;
+        }
+        return best;
+    }
+
+    /**
+     * @return search key of a node: its cost to the goal plus the distance from the start position
+     */
+    private float key(int index) {
+        return Math.min(g[index], rhs[index])
+                + lastStartPos.dst(graph.getNodes().get(index).getPortal().getMidpoint()) + keyModifier;
+    }
+
+    /**
+     * Fill the result path of '{@code request}' by following the lowest cost successors from its start node.
+     */
+    private boolean readPath(NavMeshPathRequest request) {
+        final int[] next = nextNode;
+        if(startCost(request, next) == Float.POSITIVE_INFINITY) {
+            return false;
+        }
+
+        if(++pathMark == 0) {
+            Arrays.fill(pathMarks, 0);
+            pathMark = 1;
+        }
+
+        final Array<NavMeshPathNode> nodes = graph.getNodes();
+        request.resultPath.add(request.startNode);
+        int current = next[0];
+        while(current >= 0) {
+            pathMarks[current] = pathMark;
+            request.resultPath.add(nodes.get(current));
+            if(successorCost(current, next) == Float.POSITIVE_INFINITY) {
+                request.resultPath.clear();
+                return false;
+            }
+            current = next[0];
+        }
+        request.resultPath.add(request.endNode);
+        request.pathFound = true;
+        return true;
+    }
+
+    /**
+     * @return true if '{@code outNext}' is set, so a path is being read, and '{@code index}' is already on it
+     */
+    private boolean isOnPath(int[] outNext, int index) {
+        return outNext != null && pathMarks[index] == pathMark;
+    }
+}
@@ -0,0 +1,242 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.shibabandit.gdx_navmesh.util.IndexedMinHeap;
+
+import java.util.Arrays;
+
+import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.END_NODE_INDEX;
+
+/**
+ * <p>Cost to go and next node towards one goal position for every node of a {@link NavMeshGraph}, from a single
+ * Dijkstra search backwards from the goal. Many agents heading for the same goal each read their path from the
+ * field instead of running their own search. Paths are the same node paths the A* search returns, ready for
+ * {@link NavMeshStringPuller#pathToPortals(com.badlogic.gdx.ai.pfa.DefaultGraphPath)}.</p>
+ *
+ * <p>A field is built for one agent radius, connections the agent does not fit along are left out. Fields are
+ * usually obtained from a {@link NavMeshFlowFieldCache}, which rebuilds them after the graph version changes.</p>
+ */
+public class NavMeshFlowField {
+
+    /** Next node value of nodes that lead straight to the goal position */
+    public static final int GOAL = -1;
+
+    /** Next node value of nodes that can not reach the goal */
+    public static final int UNREACHABLE = -2;
+
+    /** Graph the field was built over */
+    protected final NavMeshGraph graph;
+
+    /** Goal position */
+    private final Vector2 goalPos;
+
+    /** Triangle containing {@link #goalPos} */
+    private NavMeshGraph.QtTriNode goalTriNode;
+
+    /** Radius of agent in world units the field was built for */
+    private float agentRadius;
+
+    /** Cost to the goal per node index, infinite if unreachable */
+    private float[] costs;
+
+    /** Next node index towards the goal per node index, or {@link #GOAL} or {@link #UNREACHABLE} */
+    private int[] next;
+
+    /** Graph version the field was built for */
+    private int builtVersion;
+
+    /**
+     * Create an empty field, see {@link #build(NavMeshGraph.QtTriNode, Vector2, float, NavMeshReverseGraph,
+     * IndexedMinHeap)}.
+     *
+     * @param graph graph the field is built over
+     */
+    NavMeshFlowField(NavMeshGraph graph) {
+        this.graph = graph;
+        this.goalPos = new Vector2();
+        this.costs = new float[0];
+        this.next = new int[0];
+        this.builtVersion = graph.getVersion() - 1;
+    }
+
+    /**
+     * Search backwards from the goal over the incoming connections of every node. Arrays of a previous build are
+     * reused when large enough.
+     *
+     * @param goalTriNode triangle containing '{@code goalPos}'
+     * @param goalPos goal position
+     * @param agentRadius radius of agent in world units
+     * @param reverseGraph current incoming connections of {@link #graph}
+     * @param open heap to search with, cleared first
+     */
+    void build(NavMeshGraph.QtTriNode goalTriNode,
+               Vector2 goalPos,
+               float agentRadius,
+               NavMeshReverseGraph reverseGraph,
+               IndexedMinHeap open) {
+        this.goalTriNode = goalTriNode;
+        this.goalPos.set(goalPos);
+        this.agentRadius = agentRadius;
+        this.builtVersion = graph.getVersion();
+
+        final int nodeCount = reverseGraph.offsets.length - 1;
+        if(costs.length < nodeCount) {
+            costs = new float[nodeCount];
+            next = new int[nodeCount];
+        }
+        Arrays.fill(costs, Float.POSITIVE_INFINITY);
+        Arrays.fill(next, UNREACHABLE);
+        open.clear();
+        open.ensureCapacity(nodeCount);
+
+        // Nodes of the goal triangle reach the goal through unconditional virtual edges
+        final Array<NavMeshPathNode> goalNodes = goalTriNode.getNodes();
+        NavMeshPathNode node;
+        float cost;
+        for(int i = 0; i < goalNodes.size; ++i) {
+            node = goalNodes.get(i);
+            cost = node.getPortal().getMidpoint().dst(goalPos);
+            if(cost < costs[node.getIndex()]) {
+                costs[node.getIndex()] = cost;
+                next[node.getIndex()] = GOAL;
+                open.add(node.getIndex(), cost);
+            }
+        }
+
+        final int[] offsets = reverseGraph.offsets;
+        final int[] sources = reverseGraph.sources;
+        final float[] edgeCosts = reverseGraph.costs;
+        final float[] clearances = reverseGraph.clearances;
+        final Array<NavMeshPathNode> nodes = graph.getNodes();
+        int current, source;
+        while(!open.isEmpty()) {
+            current = open.pop();
+            if(nodes.get(current).isBlocked()) {
+                // Connections into a blocked node are never followed
+                continue;
+            }
+            for(int e = offsets[current]; e < offsets[current + 1]; ++e) {
+                if(agentRadius > clearances[e]) {
+                    continue;
+                }
+                source = sources[e];
+                cost = costs[current] + edgeCosts[e];
+                if(cost < costs[source]) {
+                    costs[source] = cost;
+                    next[source] = current;
+                    open.add(source, cost);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill the result path of '{@code request}' by following the field from its dynamic start node. The request
+     * must be initialized with the goal position of the field as its end position.
+     *
+     * @param request initialized request, its {@link NavMeshPathRequest#pathFound} and result path are set
+     * @return true if a path was found
+     */
+    public boolean findPath(NavMeshPathRequest request) {
+        if(!request.getEndPos().epsilonEquals(goalPos, 0f)) {
+            throw new IllegalArgumentException("Request ends at " + request.getEndPos() + ", field goal is "
+                    + goalPos);
+        }
+
+        request.resultPath.clear();
+        request.statusChanged = false;
+        request.pathFound = false;
+
+        // Enter the field at the start connection with the lowest total cost
+        final Array<Connection<NavMeshPathNode>> connections = request.startNode.getConnections();
+        Connection<NavMeshPathNode> connection;
+        int bestIndex = UNREACHABLE, to;
+        float bestCost = Float.POSITIVE_INFINITY, cost;
+        for(int i = 0; i < connections.size; ++i) {
+            connection = connections.get(i);
+            if(!IndexedNavMeshAStarPathFinder.fits(connection, agentRadius)) {
+                continue;
+            }
+            to = connection.getToNode().getIndex();
+            if(to >= 0 && to < costs.length) {
+                cost = connection.getCost() + costs[to];
+            } else if(to == END_NODE_INDEX) {
+                cost = connection.getCost();
+            } else {
+                continue;
+            }
+            if(cost < bestCost) {
+                bestCost = cost;
+                bestIndex = to >= 0 ? to : GOAL;
+            }
+        }
+
+        if(bestIndex == UNREACHABLE) {
+            return false;
+        }
+
+        final Array<NavMeshPathNode> nodes = graph.getNodes();
+        request.resultPath.add(request.startNode);
+        for(int i = bestIndex; i >= 0; i = next[i]) {
+            request.resultPath.add(nodes.get(i));
+        }
+        request.resultPath.add(request.endNode);
+        request.pathFound = true;
+        return true;
+    }
+
+    /**
+     * @param node graph node
+     * @return next node towards the goal, or null if '{@code node}' leads straight to the goal or can not reach it
+     */
+    public NavMeshPathNode getNextNode(NavMeshPathNode node) {
+        final int nextIndex = getNext(node.getIndex());
+        return nextIndex >= 0 ? graph.getNodes().get(nextIndex) : null;
+    }
+
+    /**
+     * @param nodeIndex graph node index
+     * @return next node index towards the goal, or {@link #GOAL} or {@link #UNREACHABLE}
+     */
+    public int getNext(int nodeIndex) {
+        return nodeIndex < next.length ? next[nodeIndex] : UNREACHABLE;
+    }
+
+    /**
+     * @param nodeIndex graph node index
+     * @return cost from the node to the goal, infinite if unreachable
+     */
+    public float getCost(int nodeIndex) {
+        return nodeIndex < costs.length ? costs[nodeIndex] : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return goal position
+     */
+    public Vector2 getGoalPos() {
+        return goalPos;
+    }
+
+    /**
+     * @return triangle containing the goal position
+     */
+    public NavMeshGraph.QtTriNode getGoalTriNode() {
+        return goalTriNode;
+    }
+
+    /**
+     * @return radius of agent in world units the field was built for
+     */
+    public float getAgentRadius() {
+        return agentRadius;
+    }
+
+    /**
+     * @return true if the graph has not changed since the field was built
+     */
+    public boolean isCurrent() {
+        return builtVersion == graph.getVersion();
+    }
+}
@@ -0,0 +1,176 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.math.Vector2;
+import com.shibabandit.gdx_navmesh.util.IndexedMinHeap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Flow fields of a {@link NavMeshGraph} by goal position and agent radius, least recently used fields are
+ * evicted once {@link #capacity} is reached. The arrays of an evicted field are reused for the next goal, so a full
+ * cache builds new fields without allocating.</p>
+ *
+ * <p>Fields are rebuilt when they are obtained after the graph version changed. Not thread safe.</p>
+ */
+public class NavMeshFlowFieldCache {
+
+    /** Graph the fields are built over */
+    protected final NavMeshGraph graph;
+
+    /** Maximum number of cached fields */
+    protected final int capacity;
+
+    /** Fields in access order, least recently used first */
+    private final LinkedHashMap<Key, NavMeshFlowField> fields;
+
+    /** Reused to look up fields */
+    private final Key lookupKey;
+
+    /** Incoming connections, rebuilt when the graph changes */
+    private NavMeshReverseGraph reverseGraph;
+
+    /** Heap for building fields */
+    private final IndexedMinHeap open;
+
+    /** Fields built and fields found since creation */
+    private int buildCount, hitCount;
+
+    /**
+     * @param graph graph the fields are built over
+     * @param capacity maximum number of cached fields
+     */
+    public NavMeshFlowFieldCache(NavMeshGraph graph, int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+
+        this.graph = graph;
+        this.capacity = capacity;
+        this.fields = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+        this.lookupKey = new Key();
+        this.open = new IndexedMinHeap(64);
+    }
+
+    /**
+     * Get the field for a goal, building it if it is not cached or the graph has changed since it was built.
+     *
+     * @param goalTriNode triangle containing '{@code goalPos}'
+     * @param goalPos goal position
+     * @param agentRadius radius of agent in world units
+     * @return current flow field towards the goal
+     */
+    public NavMeshFlowField obtain(NavMeshGraph.QtTriNode goalTriNode, Vector2 goalPos, float agentRadius) {
+        NavMeshFlowField field = fields.get(lookupKey.set(goalPos, agentRadius));
+
+        if(field == null) {
+            Key key;
+            if(fields.size() < capacity) {
+                key = new Key();
+                field = new NavMeshFlowField(graph);
+            } else {
+                final Iterator<Map.Entry<Key, NavMeshFlowField>> eldest = fields.entrySet().iterator();
+                final Map.Entry<Key, NavMeshFlowField> entry = eldest.next();
+                key = entry.getKey();
+                field = entry.getValue();
+                eldest.remove();
+            }
+            fields.put(key.set(goalPos, agentRadius), field);
+            build(field, goalTriNode, goalPos, agentRadius);
+
+        } else if(!field.isCurrent()) {
+            build(field, goalTriNode, goalPos, agentRadius);
+
+        } else {
+            ++hitCount;
+        }
+
+        return field;
+    }
+
+    /**
+     * Find a path for '{@code request}' through the field towards its end position.
+     *
+     * @param request initialized request
+     * @param endTriNode triangle containing the end position of the request
+     * @return true if a path was found
+     */
+    public boolean findPath(NavMeshPathRequest request, NavMeshGraph.QtTriNode endTriNode) {
+        return obtain(endTriNode, request.getEndPos(), request.getAgentRadius()).findPath(request);
+    }
+
+    /**
+     * Drop all cached fields.
+     */
+    public void clear() {
+        fields.clear();
+    }
+
+    private void build(NavMeshFlowField field,
+                       NavMeshGraph.QtTriNode goalTriNode,
+                       Vector2 goalPos,
+                       float agentRadius) {
+        if(reverseGraph == null || !reverseGraph.isCurrent(graph)) {
+            reverseGraph = new NavMeshReverseGraph(graph);
+        }
+        field.build(goalTriNode, goalPos, agentRadius, reverseGraph, open);
+        ++buildCount;
+    }
+
+    /**
+     * @return number of cached fields
+     */
+    public int size() {
+        return fields.size();
+    }
+
+    /**
+     * @return number of fields built since creation, including rebuilds after graph changes
+     */
+    public int getBuildCount() {
+        return buildCount;
+    }
+
+    /**
+     * @return number of times a cached field was current when obtained
+     */
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Goal position and agent radius of a field.
+     */
+    private static final class Key {
+        private float x, y, agentRadius;
+
+        Key set(Vector2 goalPos, float agentRadius) {
+            this.x = goalPos.x;
+            this.y = goalPos.y;
+            this.agentRadius = agentRadius;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return Float.compare(key.x, x) == 0 && Float.compare(key.y, y) == 0
+                    && Float.compare(key.agentRadius, agentRadius) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.floatToIntBits(x);
+            result = 31 * result + Float.floatToIntBits(y);
+            result = 31 * result + Float.floatToIntBits(agentRadius);
+            return result;
+        }
+    }
+}
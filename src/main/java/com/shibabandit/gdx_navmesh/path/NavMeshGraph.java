@@ -1,6 +1,8 @@
 package com.shibabandit.gdx_navmesh.path;
 
 import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 import com.shibabandit.gdx_navmesh.coll.CollUtil;
@@ -10,9 +12,11 @@ import com.shibabandit.gdx_navmesh.util.Angles;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.index.quadtree.Quadtree;
 import org.poly2tri.geometry.polygon.Polygon;
+import org.poly2tri.triangulation.TriangulationPoint;
 import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -25,6 +29,10 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
 
 
     public static final class QtTriNode implements QtItem {
+
+        /** Index of the triangle in {@link #getTriNodes()}, or -1 if not part of a graph */
+        protected final int index;
+
         protected final DelaunayTriangle dt;
 
         /** Navmesh nodes associated with {@link #dt} */
@@ -33,13 +41,39 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
         /** Bounding envelope for {@link #dt} */
         protected final Envelope envelope;
 
+        /** Connected component of the triangle nodes, set by {@link NavMeshGraph#updateComponents()} */
+        protected int component;
+
+        /**
+         * Largest agent radius that can pass between two portals of the triangle, half the portal length for a
+         * triangle with one portal, 0 for a triangle without portals
+         */
+        protected float clearance;
+
         public QtTriNode(DelaunayTriangle dt, Array<NavMeshPathNode> nodes) {
+            this(-1, dt, nodes);
+        }
+
+        /**
+         * @param index index of the triangle in its graph
+         * @param dt walkable triangle
+         * @param nodes navmesh nodes associated with '{@code dt}'
+         */
+        public QtTriNode(int index, DelaunayTriangle dt, Array<NavMeshPathNode> nodes) {
+            this.index = index;
             this.dt = dt;
             this.nodes = nodes;
             this.envelope = new Envelope();
             CollUtil.setIndexEnvelope(dt, envelope);
         }
 
+        /**
+         * @return index of the triangle in {@link #getTriNodes()}, or -1 if not part of a graph
+         */
+        public int getIndex() {
+            return index;
+        }
+
         public DelaunayTriangle getDt() {
             return dt;
         }
@@ -48,6 +82,13 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
             return nodes;
         }
 
+        /**
+         * @return largest agent radius that can pass between two portals of the triangle
+         */
+        public float getClearance() {
+            return clearance;
+        }
+
         @Override
         public Envelope getEnvelope() {
             return envelope;
@@ -100,6 +141,39 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
     /** Stores navmesh nodes for spatially indexed lookup */
     protected final QtSearchIndex<QtTriNode> nodesQt;
 
+    /** Walkable triangles, indexed by {@link QtTriNode#getIndex()} */
+    protected Array<QtTriNode> triNodes;
+
+    /** Incremented whenever nodes or connections change after construction, including blocked nodes */
+    protected int version;
+
+    /** Incremented whenever nodes or connections are added or removed after construction */
+    protected int structureVersion;
+
+    /** Connected component label per node index, -1 for unused indices */
+    protected int[] components;
+
+    /** Number of connected components */
+    protected int componentCount;
+
+    /** Agent radii to label connected components for, ascending */
+    protected float[] radiusClasses = new float[0];
+
+    /** Component labels per node index for each of {@link #radiusClasses} */
+    protected int[][] classComponents = new int[0][];
+
+    /** {@link #structureVersion} the component labels were computed for */
+    protected int componentsVersion = -1;
+
+    /** Notified of blocked nodes and structural changes */
+    protected final Array<NavMeshGraphListener> listeners = new Array<>(false, 4);
+
+    /** Incoming connections, built on first use and dropped when nodes or connections are added or removed */
+    private NavMeshReverseGraph reverseGraph;
+
+    /** Grid index for locating points, built on first use and dropped when triangles are added or removed */
+    private volatile NavMeshTriGrid triGrid;
+
     /**
      * Build the navigation graph using walkable triangles from Delaunay triangulation. This pre-initializes
      * all navmesh portals and connections. After the graph is built, a quadtree index is created for quickly
@@ -110,6 +184,34 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
     public NavMeshGraph(Array<Polygon> walkablePolys) {
         this.nodesQt = new QtSearchIndex<>();
         buildGraph(walkablePolys);
+        updateClearances();
+        updateComponents();
+    }
+
+    /**
+     * Build the navigation graph with node indices starting at '{@code indexBase}'. The graph only holds the built
+     * parts for a containing graph such as {@link DynamicNavMeshGraph}, it can not be searched by itself unless
+     * '{@code indexBase}' is 0.
+     *
+     * @param walkablePolys flat list of walkable polygons
+     * @param indexBase index of the first node
+     */
+    protected NavMeshGraph(Array<Polygon> walkablePolys, int indexBase) {
+        this.nodesQt = new QtSearchIndex<>();
+        this.nextIndex = indexBase;
+        buildGraph(walkablePolys);
+        updateClearances();
+    }
+
+    /**
+     * Create an empty graph to be filled by a loader, such as {@link NavMeshBake}.
+     */
+    protected NavMeshGraph() {
+        this.nodesQt = new QtSearchIndex<>();
+        this.nodes = new Array<>(0);
+        this.nextIndex = 0;
+        this.portalToNode = new HashMap<>(0);
+        this.triNodes = new Array<>(0);
     }
 
     /**
@@ -147,12 +249,14 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
             nodes = new Array<>(0);
             nextIndex = 0;
             portalToNode = new HashMap<>(0);
+            triNodes = new Array<>(0);
             return;
         }
 
 
         portalToNode = new HashMap<>(triangles.size() * MAX_NODES_PER_TRI);
         nodes = new Array<>(triangles.size() * MAX_NODES_PER_TRI);
+        triNodes = new Array<>(triangles.size());
 
         DelaunayTriangle tNeighborI;
         NavMeshPortal nextPortal, nextNeighborPortal;
@@ -167,8 +271,9 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
         for(DelaunayTriangle t : triangles) {
 
             // Add triangle to spatial index
-            nextQtTriNode = new QtTriNode(t, new Array<>(MAX_CONNS_PER_NODE));
+            nextQtTriNode = new QtTriNode(triNodes.size, t, new Array<>(MAX_CONNS_PER_NODE));
             qt.insert(nextQtTriNode.getEnvelope(), nextQtTriNode);
+            triNodes.add(nextQtTriNode);
 
 
             for(int i = 0; i < t.neighbors.length; ++i) {
@@ -190,7 +295,7 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
                     for(int j = 0; j < tNeighborIndices.length; ++j) {
                         if((nextNeighborPortal = getPortal(t, j)) != null) {
                             nextNeighborNode = getNodeAndCreate(nextNeighborPortal);
-                            nextNode.connections.add(new NavMeshPathConn(nextNode, nextNeighborNode));
+                            addConnection(nextNode, nextNeighborNode);
 
                             // Spatial index reference to neighbor portal
                             nextQtTriNode.getNodes().add(nextNeighborNode);
@@ -202,7 +307,7 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
                         if((nextNeighborPortal = getPortal(tNeighborI, j)) != null
                                 && !nextNeighborPortal.equals(nextPortal)) {
                             nextNeighborNode = getNodeAndCreate(nextNeighborPortal);
-                            nextNode.connections.add(new NavMeshPathConn(nextNode, nextNeighborNode));
+                            addConnection(nextNode, nextNeighborNode);
                         }
                     }
                 }
@@ -232,26 +337,39 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
      */
     private static NavMeshPortal getPortal(DelaunayTriangle dt, int neighborIndex) {
         NavMeshPortal result = null;
-        float v1AngDeg, v2AngDeg;
 
         if(dtGetNeighborEdgeIfDelaunay(dt, neighborIndex, PVEC_1, PVEC_2)) {
+            result = createPortal(dt, PVEC_1, PVEC_2);
+        }
 
-            result = new NavMeshPortal();
+        return result;
+    }
 
-            // Calculate CENTROID of t
-            dtCentroid(dt, CENTROID);
+    /**
+     * Create a navmesh portal for an edge of '{@code dt}', with left and right as seen from the triangle centroid.
+     *
+     * @param dt reference delaunay triangle
+     * @param ptA first edge end point
+     * @param ptB second edge end point
+     * @return new navmesh portal for the edge
+     */
+    protected static NavMeshPortal createPortal(DelaunayTriangle dt, Vector2 ptA, Vector2 ptB) {
+        final NavMeshPortal result = new NavMeshPortal();
+        float v1AngDeg, v2AngDeg;
 
-            // Left and right portals can be determined by looking at the angles relative
-            // to the CENTROID. If the rotation angle from PVEC_1 to PVEC_2 is positive (CCW), PVEC_2
-            // is to the right of PVEC_1 from the standpoint of the CENTROID.
-            v1AngDeg = Angles.between(CENTROID, PVEC_1);
-            v2AngDeg = Angles.between(CENTROID, PVEC_2);
+        // Calculate CENTROID of t
+        dtCentroid(dt, CENTROID);
 
-            if(Angles.isShortRotCCW(v1AngDeg, v2AngDeg)) {
-                result.init(PVEC_2, PVEC_1);
-            } else {
-                result.init(PVEC_1, PVEC_2);
-            }
+        // Left and right portals can be determined by looking at the angles relative
+        // to the CENTROID. If the rotation angle from ptA to ptB is positive (CCW), ptB
+        // is to the right of ptA from the standpoint of the CENTROID.
+        v1AngDeg = Angles.between(CENTROID, ptA);
+        v2AngDeg = Angles.between(CENTROID, ptB);
+
+        if(Angles.isShortRotCCW(v1AngDeg, v2AngDeg)) {
+            result.init(ptB, ptA);
+        } else {
+            result.init(ptA, ptB);
         }
 
         return result;
@@ -305,7 +423,7 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
         NavMeshPathNode node = getNode(portal);
 
         if(node == null) {
-            node = new NavMeshPathNode(nextIndex++, portal);
+            node = createNode(nextIndex++, portal);
             nodes.add(node);
             portalToNode.put(portal, node);
         }
@@ -313,6 +431,28 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
         return node;
     }
 
+    /**
+     * Create a new path node. Subclasses may override to control how node storage is allocated.
+     *
+     * @param index global graph index for the node
+     * @param portal the actual spatial data for the path node
+     * @return new path node
+     */
+    protected NavMeshPathNode createNode(int index, NavMeshPortal portal) {
+        return new NavMeshPathNode(index, portal);
+    }
+
+    /**
+     * Add a directed connection between two path nodes while building the graph. Subclasses may override
+     * to store adjacency in a different layout.
+     *
+     * @param fromNode connection source
+     * @param toNode connection destination
+     */
+    protected void addConnection(NavMeshPathNode fromNode, NavMeshPathNode toNode) {
+        fromNode.connections.add(new NavMeshPathConn(fromNode, toNode));
+    }
+
     /**
      * @return all path nodes in the graph
      */
@@ -320,6 +460,13 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
         return nodes;
     }
 
+    /**
+     * @return all walkable triangles in the graph, indexed by {@link QtTriNode#getIndex()}
+     */
+    public Array<QtTriNode> getTriNodes() {
+        return triNodes;
+    }
+
     /**
      * @return quadtree index for spatially indexed lookup of path nodes based on triangles
      */
@@ -327,5 +474,511 @@ public class NavMeshGraph implements INavMeshGraph<NavMeshPathNode> {
         return nodesQt;
     }
 
+    /**
+     * Grid index of the walkable triangles, faster than {@link #getNodesQt()} for locating points. Built on first
+     * use and again after tiles are added or removed, {@link TiledNavMeshGraph} locates points with a grid per tile
+     * instead and does not use it. Safe to call from several threads as long as the graph itself is not changed
+     * meanwhile.
+     *
+     * @return grid index of the current triangles
+     */
+    public NavMeshTriGrid getTriGrid() {
+        NavMeshTriGrid grid = triGrid;
+        if(grid == null) {
+            @SuppressWarnings("unchecked")
+            final List<QtTriNode> triNodes = nodesQt.getQt().queryAll();
+            grid = new NavMeshTriGrid(triNodes);
+            triGrid = grid;
+        }
+        return grid;
+    }
+
+    /**
+     * @param pos position to locate
+     * @return walkable triangle containing the position, or null if there is none
+     */
+    public QtTriNode getContainingTriNode(Vector2 pos) {
+        return getTriGrid().locate(pos.x, pos.y);
+    }
+
+    /**
+     * @param dt walkable triangle of the graph
+     * @return node of the triangle, or null if it is not in the graph
+     */
+    public QtTriNode findTriNode(DelaunayTriangle dt) {
+        return getTriGrid().find(dt);
+    }
+
+    /**
+     * Build the index used by {@link #getContainingTriNode(Vector2)} and {@link #findTriNode(DelaunayTriangle)}
+     * if it is missing, so later lookups only read it.
+     */
+    protected void ensureTriIndex() {
+        getTriGrid();
+    }
+
+    /**
+     * @return change counter, incremented whenever nodes or connections change after construction
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return change counter, incremented whenever nodes or connections are added or removed after construction.
+     * Unlike {@link #getVersion()}, blocking nodes does not change it.
+     */
+    public int getStructureVersion() {
+        return structureVersion;
+    }
+
+    /**
+     * Block or unblock the connections into a node, such as a door closing or opening. Searches skip connections
+     * into blocked nodes and the graph version is incremented. Tiles rebuilt by a {@link TiledNavMeshGraph} start
+     * with no blocked nodes.
+     *
+     * @param node node of this graph
+     * @param blocked true to block connections into the node
+     */
+    public void setBlocked(NavMeshPathNode node, boolean blocked) {
+        if(node.blocked == blocked) {
+            return;
+        }
+
+        node.blocked = blocked;
+        ++version;
+        updateBlocked(node);
+
+        for(int i = 0; i < listeners.size; ++i) {
+            listeners.get(i).nodeChanged(this, node);
+        }
+    }
+
+    /**
+     * Update derived connection data after {@link NavMeshPathNode#isBlocked()} changed. Connection objects check
+     * the node flag directly, graphs storing connections in other forms override this.
+     *
+     * @param node node whose blocked flag changed
+     */
+    protected void updateBlocked(NavMeshPathNode node) {
+    }
+
+    /**
+     * Notify listeners that nodes or connections were added or removed. Called by graphs that change after
+     * construction, once the change is complete.
+     */
+    protected void notifyGraphChanged() {
+        reverseGraph = null;
+        triGrid = null;
+
+        for(int i = 0; i < listeners.size; ++i) {
+            listeners.get(i).graphChanged(this);
+        }
+    }
+
+    /**
+     * @param listener notified of changes to this graph until removed
+     */
+    public void addListener(NavMeshGraphListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener listener to stop notifying
+     */
+    public void removeListener(NavMeshGraphListener listener) {
+        listeners.removeValue(listener, true);
+    }
+
+    /**
+     * Incoming connections shared by the searches of this graph. Blocking nodes keeps them, see
+     * {@link NavMeshPathNode#isBlocked()} for the edges that may be followed. Must not run at the same time as
+     * other calls on the graph.
+     *
+     * @return incoming connections of the current nodes
+     */
+    NavMeshReverseGraph getReverseGraph() {
+        if(reverseGraph == null) {
+            reverseGraph = new NavMeshReverseGraph(this);
+        }
+        return reverseGraph;
+    }
+
+    /**
+     * Check if a path may exist between two triangles, ignoring agent radius and blocked nodes. Runs in constant
+     * time unless nodes or connections were added or removed since the last check.
+     *
+     * @param a first triangle
+     * @param b second triangle
+     * @return true if both triangles are in the same connected component
+     */
+    public boolean isConnected(QtTriNode a, QtTriNode b) {
+        ensureComponents();
+        return a.component == b.component;
+    }
+
+    /**
+     * Check if a path may exist between two triangles for an agent. Uses the components of the largest radius class
+     * not above '{@code agentRadius}', see {@link #setRadiusClasses(float...)}. A false result means no search can
+     * succeed, a true result may still fail for radii between classes or through blocked nodes.
+     *
+     * @param a first triangle
+     * @param b second triangle
+     * @param agentRadius radius of agent in world units
+     * @return true if the agent may be able to move between the triangles
+     */
+    public boolean isConnected(QtTriNode a, QtTriNode b, float agentRadius) {
+        ensureComponents();
+
+        if(a == b) {
+            return true;
+        }
+
+        int radiusClass = -1;
+        for(int i = 0; i < radiusClasses.length && radiusClasses[i] <= agentRadius; ++i) {
+            radiusClass = i;
+        }
+        if(radiusClass < 0) {
+            return a.component == b.component;
+        }
+
+        // Dynamic start and end nodes reach every triangle node the agent fits through
+        final int[] labels = classComponents[radiusClass];
+        final float radius = radiusClasses[radiusClass];
+        NavMeshPathNode nodeA, nodeB;
+        for(int i = 0; i < a.nodes.size; ++i) {
+            nodeA = a.nodes.get(i);
+            if(radius > nodeA.getPortal().getLengthDiv2()) {
+                continue;
+            }
+            for(int j = 0; j < b.nodes.size; ++j) {
+                nodeB = b.nodes.get(j);
+                if(radius <= nodeB.getPortal().getLengthDiv2()
+                        && labels[nodeA.getIndex()] == labels[nodeB.getIndex()]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Set the agent radii to label connected components for. Each class costs one int per node.
+     *
+     * @param radii agent radii in world units
+     */
+    public void setRadiusClasses(float... radii) {
+        radiusClasses = Arrays.copyOf(radii, radii.length);
+        Arrays.sort(radiusClasses);
+        componentsVersion = -1;
+    }
+
+    /**
+     * @return agent radii connected components are labelled for, ascending
+     */
+    public float[] getRadiusClasses() {
+        return radiusClasses;
+    }
+
+    /**
+     * @param triNode triangle of this graph
+     * @return connected component label of the triangle
+     */
+    public int getComponent(QtTriNode triNode) {
+        ensureComponents();
+        return triNode.component;
+    }
+
+    /**
+     * @param node path node of this graph
+     * @return connected component label of the node
+     */
+    public int getComponent(NavMeshPathNode node) {
+        ensureComponents();
+        return components[node.getIndex()];
+    }
+
+    /**
+     * @return number of connected components
+     */
+    public int getComponentCount() {
+        ensureComponents();
+        return componentCount;
+    }
+
+    /**
+     * Recompute component labels if the graph changed since they were last computed. Must not run at the same
+     * time as other calls on the graph.
+     */
+    protected void ensureComponents() {
+        if(componentsVersion != structureVersion) {
+            updateComponents();
+        }
+    }
+
+    /**
+     * Label connected components of all nodes and triangles with union-find over the connections, then label
+     * each radius class using only the connections an agent of that radius fits along. Blocked nodes are ignored, so
+     * blocking and unblocking nodes keeps the labels.
+     */
+    protected void updateComponents() {
+        final int nodeCount = nodes.size;
+        final int[] parent = new int[nodeCount];
+
+        if(components == null || components.length != nodeCount) {
+            components = new int[nodeCount];
+        }
+        componentCount = labelComponents(parent, 0f, components);
+        labelTriNodes(triNodes);
+
+        if(classComponents.length != radiusClasses.length) {
+            classComponents = new int[radiusClasses.length][];
+        }
+        for(int c = 0; c < radiusClasses.length; ++c) {
+            if(classComponents[c] == null || classComponents[c].length != nodeCount) {
+                classComponents[c] = new int[nodeCount];
+            }
+            labelComponents(parent, radiusClasses[c], classComponents[c]);
+        }
+
+        componentsVersion = structureVersion;
+    }
+
+    /**
+     * @param parent union-find scratch, one per node index
+     * @param agentRadius only connections an agent of this radius fits along are followed
+     * @param labels receives dense component labels in node order, -1 for unused indices
+     * @return number of components
+     */
+    private int labelComponents(int[] parent, float agentRadius, int[] labels) {
+        for(int i = 0; i < parent.length; ++i) {
+            parent[i] = i;
+        }
+
+        unionConnections(parent, agentRadius);
+
+        int labelCount = 0;
+        int root;
+        for(int i = 0; i < parent.length; ++i) {
+            if(nodes.get(i) == null) {
+                labels[i] = -1;
+                continue;
+            }
+            root = find(parent, i);
+            if(root == i) {
+                labels[i] = labelCount++;
+            } else {
+                labels[i] = labels[root];
+            }
+        }
+        return labelCount;
+    }
+
+    /**
+     * Union the end nodes of every connection an agent of '{@code agentRadius}' fits along, ignoring blocked nodes.
+     *
+     * @param parent union-find parent per node index
+     * @param agentRadius radius of agent in world units
+     */
+    protected void unionConnections(int[] parent, float agentRadius) {
+        NavMeshPathNode node;
+        Array<Connection<NavMeshPathNode>> connections;
+
+        for(int i = 0; i < nodes.size; ++i) {
+            node = nodes.get(i);
+            if(node == null) {
+                continue;
+            }
+
+            connections = node.getConnections();
+            for(int c = 0; c < connections.size; ++c) {
+                if(agentRadius <= IndexedNavMeshAStarPathFinder.unblockedClearance(connections.get(c))) {
+                    union(parent, i, connections.get(c).getToNode().getIndex());
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the component of each triangle's nodes to the triangle. Nodes of one triangle are always connected.
+     *
+     * @param triNodesToLabel triangles to label
+     */
+    protected void labelTriNodes(Array<QtTriNode> triNodesToLabel) {
+        QtTriNode triNode;
+        for(int i = 0; i < triNodesToLabel.size; ++i) {
+            triNode = triNodesToLabel.get(i);
+            triNode.component = components[triNode.nodes.get(0).getIndex()];
+        }
+    }
+
+    /**
+     * Narrow the clearance of every connection to the width available inside the triangle it crosses, and compute
+     * triangle clearances.
+     */
+    protected void updateClearances() {
+        NavMeshPathNode node;
+        Array<Connection<NavMeshPathNode>> connections;
+        Connection<NavMeshPathNode> connection;
+
+        for(int i = 0; i < nodes.size; ++i) {
+            node = nodes.get(i);
+            if(node == null) {
+                continue;
+            }
+
+            connections = node.getConnections();
+            for(int c = 0; c < connections.size; ++c) {
+                connection = connections.get(c);
+                if(connection instanceof NavMeshPathConn) {
+                    ((NavMeshPathConn) connection).setClearance(connectionClearance(node, connection.getToNode()));
+                }
+            }
+        }
+
+        updateTriClearances(triNodes);
+    }
+
+    /**
+     * @param triNodesToUpdate triangles to compute {@link QtTriNode#getClearance()} for
+     */
+    protected static void updateTriClearances(Array<QtTriNode> triNodesToUpdate) {
+        for(int t = 0; t < triNodesToUpdate.size; ++t) {
+            updateTriClearance(triNodesToUpdate.get(t));
+        }
+    }
+
+    /**
+     * @param triNode triangle to compute {@link QtTriNode#getClearance()} for
+     */
+    protected static void updateTriClearance(QtTriNode triNode) {
+        NavMeshPortal portalA, portalB;
+        float clearance = 0f;
+        float pairClearance = -1f;
+
+        for(int i = 0; i < triNode.nodes.size; ++i) {
+            portalA = triNode.nodes.get(i).getPortal();
+            clearance = Math.max(clearance, portalA.getLengthDiv2());
+
+            // With two or more portals the width inside the triangle may be smaller than the portals
+            for(int j = i + 1; j < triNode.nodes.size; ++j) {
+                portalB = triNode.nodes.get(j).getPortal();
+                if(!portalA.equals(portalB)) {
+                    pairClearance = Math.max(pairClearance, traversalClearance(triNode.dt, portalA, portalB));
+                }
+            }
+        }
+
+        triNode.clearance = pairClearance >= 0f ? pairClearance : clearance;
+    }
+
+    /**
+     * @param from connection source
+     * @param to connection destination
+     * @return largest agent radius that fits from '{@code from}' to '{@code to}' through the triangle they share
+     */
+    protected static float connectionClearance(NavMeshPathNode from, NavMeshPathNode to) {
+        if(to.getPortal().isIgnorePortalLength()) {
+            return Float.MAX_VALUE;
+        } else if(from.getPortal().isIgnorePortalLength()) {
+            return to.getPortal().getLengthDiv2();
+        }
+
+        final DelaunayTriangle dt;
+        if(from.getDtA() != null && (from.getDtA() == to.getDtA() || from.getDtA() == to.getDtB())) {
+            dt = from.getDtA();
+        } else if(from.getDtB() != null && (from.getDtB() == to.getDtA() || from.getDtB() == to.getDtB())) {
+            dt = from.getDtB();
+        } else {
+            return to.getPortal().getLengthDiv2();
+        }
+
+        return traversalClearance(dt, from.getPortal(), to.getPortal());
+    }
+
+    /**
+     * <p>Largest agent radius that can move between two portals of '{@code dt}'. The width is limited by both portal
+     * lengths, and by the distance from the corner the portals share to the opposite edge when that edge is blocked
+     * (constrained or not walkable).</p>
+     *
+     * <p>Blocked geometry beyond the triangle is not considered.</p>
+     *
+     * @param dt triangle both portals are edges of
+     * @param from entry portal
+     * @param to exit portal
+     * @return largest agent radius that fits between the portals
+     */
+    public static float traversalClearance(DelaunayTriangle dt, NavMeshPortal from, NavMeshPortal to) {
+        float width = Math.min(from.getLength(), to.getLength());
+
+        // Corner shared by both portals
+        final Vector2 corner;
+        if(from.getLeft().equals(to.getLeft()) || from.getLeft().equals(to.getRight())) {
+            corner = from.getLeft();
+        } else if(from.getRight().equals(to.getLeft()) || from.getRight().equals(to.getRight())) {
+            corner = from.getRight();
+        } else {
+            return width * 0.5f;
+        }
+
+        // Edge k is opposite point k
+        for(int k = 0; k < 3; ++k) {
+            if(dt.points[k].getXf() == corner.x && dt.points[k].getYf() == corner.y) {
+                final boolean blocked = dt.cEdge[k] || dt.neighbors[k] == null || !dt.neighbors[k].isInterior();
+                if(blocked) {
+                    width = Math.min(width, distanceSegmentPoint(dt.points[(k + 1) % 3], dt.points[(k + 2) % 3],
+                            corner));
+                }
+                break;
+            }
+        }
+
+        return width * 0.5f;
+    }
+
+    /**
+     * Distance from a point to a segment. Computed without the shared scratch vectors of this class or
+     * {@link Intersector}, so clearances can be computed at query time from any thread.
+     *
+     * @param a segment start
+     * @param b segment end
+     * @param point point to measure from
+     * @return distance from '{@code point}' to the closest point of the segment
+     */
+    private static float distanceSegmentPoint(TriangulationPoint a, TriangulationPoint b, Vector2 point) {
+        final float dx = b.getXf() - a.getXf();
+        final float dy = b.getYf() - a.getYf();
+        final float lengthSq = dx * dx + dy * dy;
+        float t = 0f;
+        if(lengthSq > 0f) {
+            t = MathUtils.clamp(((point.x - a.getXf()) * dx + (point.y - a.getYf()) * dy) / lengthSq, 0f, 1f);
+        }
+        return Vector2.dst(a.getXf() + t * dx, a.getYf() + t * dy, point.x, point.y);
+    }
+
+    /**
+     * Union-find root lookup with path halving.
+     */
+    protected static int find(int[] parent, int i) {
+        while(parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Union-find merge, the smaller root index becomes the root so labels follow node order.
+     */
+    protected static void union(int[] parent, int a, int b) {
+        a = find(parent, a);
+        b = find(parent, b);
+        if(a < b) {
+            parent[b] = a;
+        } else if(b < a) {
+            parent[a] = b;
+        }
+    }
+
 
 }
@@ -0,0 +1,25 @@
+package com.shibabandit.gdx_navmesh.path;
+
+/**
+ * Notified of changes to a {@link NavMeshGraph}, on the thread making the change. Register with
+ * {@link NavMeshGraph#addListener(NavMeshGraphListener)}.
+ */
+public interface NavMeshGraphListener {
+
+    /**
+     * Connections into a node were blocked or unblocked, see {@link NavMeshGraph#setBlocked(NavMeshPathNode,
+     * boolean)}. Other nodes and connections are unchanged.
+     *
+     * @param graph changed graph
+     * @param node node whose incoming connections changed
+     */
+    void nodeChanged(NavMeshGraph graph, NavMeshPathNode node);
+
+    /**
+     * Nodes or connections were added or removed, such as a tile being loaded or rebuilt. Node indices held before
+     * the change may refer to other nodes.
+     *
+     * @param graph changed graph
+     */
+    void graphChanged(NavMeshGraph graph);
+}
@@ -0,0 +1,341 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.PathFinderQueue;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.shibabandit.gdx_navmesh.util.IndexedMinHeap;
+
+import java.util.Arrays;
+
+import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.END_NODE_INDEX;
+import static com.shibabandit.gdx_navmesh.path.NavMeshPathRequest.START_NODE_INDEX;
+
+/**
+ * <p>A* search for {@link IndexedNavMeshAStarPathFinder} that keeps all search state in primitive arrays
+ * indexed by node slot. The open list is an {@link IndexedMinHeap} keyed by estimated total cost, and cost so
+ * far, parent slot and a generation-stamped search id are kept in parallel arrays. No node records are used.</p>
+ *
+ * <p>Graph nodes use their own index as slot. The dynamic start and end nodes of a {@link NavMeshPathRequest}
+ * use the two slots after the last graph node.</p>
+ */
+final class NavMeshHeapSearch {
+
+    /** {@link #parent} value for the search start node */
+    private static final int NO_PARENT = -1;
+
+    /** Search that owns this state, provides the graph and metrics */
+    private final IndexedNavMeshAStarPathFinder finder;
+
+    /** Open list, keys are estimated total cost per slot */
+    private final IndexedMinHeap open;
+
+    /** Cost so far per slot */
+    private float[] g;
+
+    /** Slot reached from per slot */
+    private int[] parent;
+
+    /** Search id that last touched each slot, other values mean unvisited */
+    private int[] searchIds;
+
+    /** Node per slot, set when a slot is first visited in a search */
+    private NavMeshPathNode[] nodeRefs;
+
+    /** The unique ID for each search run */
+    private int searchId;
+
+    /** Graph node count when the current search started, dynamic nodes use the slots after it */
+    private int nodeCount;
+
+    /** Slots of the start and end nodes for the current search */
+    private int startSlot, endSlot;
+
+    /** Slot of the node being expanded */
+    private int current;
+
+    /** Nodes expanded by the current request search */
+    private int expansions;
+
+    /** Expanded slot with the lowest heuristic estimate in the current request search, for partial paths */
+    private int closestSlot;
+    private float closestHeuristic;
+
+    /** Heuristic weight of the current search, 1 for shortest paths */
+    private float weight;
+
+    /** Current search inputs */
+    private NavMeshPathNode startNode, endNode;
+    private Heuristic<NavMeshPathNode> heuristic;
+    private NavMeshPathRequest currReq;
+
+    NavMeshHeapSearch(IndexedNavMeshAStarPathFinder finder) {
+        this.finder = finder;
+        final int slots = finder.graph.getNodeCount() + 2;
+        this.open = new IndexedMinHeap(slots);
+        this.g = new float[slots];
+        this.parent = new int[slots];
+        this.searchIds = new int[slots];
+        this.nodeRefs = new NavMeshPathNode[slots];
+    }
+
+    /**
+     * Search the full path for '{@code request}' or until the time runs out.
+     *
+     * @param request request to search
+     * @param timeToRun time in nanoseconds this call may run
+     * @return true if the search completed, false if it ran out of time
+     */
+    boolean search(NavMeshPathRequest request, long timeToRun) {
+        long lastTime = TimeUtils.nanoTime();
+
+        // We have to initialize the search if the status has just changed
+        if (request.statusChanged) {
+            initSearch(request.startNode, request.endNode, request.heuristic, request);
+            request.statusChanged = false;
+            expansions = 0;
+            closestSlot = NO_PARENT;
+            closestHeuristic = Float.MAX_VALUE;
+        }
+
+        // Iterate through processing each node
+        while (!open.isEmpty()) {
+
+            // Check the available time
+            long currentTime = TimeUtils.nanoTime();
+            timeToRun -= currentTime - lastTime;
+            if (timeToRun <= PathFinderQueue.TIME_TOLERANCE) return false;
+
+            // Stop at the expansion limit
+            if (request.getMaxExpansions() > 0 && expansions >= request.getMaxExpansions()) break;
+
+            // Retrieve the slot with smallest estimated total cost from the open list
+            current = open.pop();
+            ++expansions;
+
+            // Remember the expanded slot closest to the goal for a partial path
+            if ((open.getKey(current) - g[current]) / weight < closestHeuristic) {
+                closestHeuristic = (open.getKey(current) - g[current]) / weight;
+                closestSlot = current;
+            }
+
+            // Terminate if we reached the goal node; we've found a path.
+            if (current == endSlot) {
+                request.pathFound = true;
+                request.setCostBound(weight);
+                generateNodePath(request.resultPath);
+                return true;
+            }
+
+            // Visit current node's children
+            expand(request.getAgentRadius());
+
+            // Store the current time
+            lastTime = currentTime;
+        }
+
+        // Stopped at the limit or out of nodes, the path to the closest node may still be wanted
+        if (request.isPartialPathAllowed() && closestSlot != NO_PARENT && parent[closestSlot] != NO_PARENT) {
+            current = closestSlot;
+            request.pathFound = true;
+            request.setPartialPath(true);
+            request.setCostBound(Float.POSITIVE_INFINITY);
+            generateNodePath(request.resultPath);
+            return true;
+        }
+
+        // The open list is empty or the limit was hit, and we've not found a path.
+        request.pathFound = false;
+        return true;
+    }
+
+    /**
+     * Search between two graph nodes without a request or time limit.
+     *
+     * @return true if a path was found
+     */
+    boolean search(NavMeshPathNode startNode, NavMeshPathNode endNode, Heuristic<NavMeshPathNode> heuristic) {
+        initSearch(startNode, endNode, heuristic, null);
+
+        while (!open.isEmpty()) {
+            current = open.pop();
+            if (current == endSlot) return true;
+            expand(0f);
+        }
+
+        return false;
+    }
+
+    private void initSearch(NavMeshPathNode startNode,
+                            NavMeshPathNode endNode,
+                            Heuristic<NavMeshPathNode> heuristic,
+                            NavMeshPathRequest currReq) {
+
+        if (finder.metrics != null) finder.metrics.reset();
+
+        this.startNode = startNode;
+        this.endNode = endNode;
+        this.heuristic = heuristic;
+        this.currReq = currReq;
+        this.weight = currReq != null ? currReq.getHeuristicWeight() : 1f;
+
+        nodeCount = finder.graph.getNodeCount();
+        ensureCapacity(nodeCount + 2);
+        startSlot = slotOf(startNode);
+        endSlot = slotOf(endNode);
+
+        // Increment the search id
+        if (++searchId < 0) searchId = 1;
+
+        open.clear();
+
+        // Mark nodes that connect to the dynamic start and end nodes
+        finder.endpointMarks.mark(currReq, nodeCount);
+
+        searchIds[startSlot] = searchId;
+        nodeRefs[startSlot] = startNode;
+        g[startSlot] = 0f;
+        parent[startSlot] = NO_PARENT;
+        addToOpenList(startSlot, weight * heuristic.estimate(startNode, endNode));
+
+        current = NO_PARENT;
+    }
+
+    private void ensureCapacity(int slots) {
+        if (slots > g.length) {
+            open.ensureCapacity(slots);
+            g = Arrays.copyOf(g, slots);
+            parent = Arrays.copyOf(parent, slots);
+            searchIds = Arrays.copyOf(searchIds, slots);
+            nodeRefs = Arrays.copyOf(nodeRefs, slots);
+        }
+    }
+
+    private int slotOf(NavMeshPathNode node) {
+        final int index = node.getIndex();
+        if (index == START_NODE_INDEX) {
+            return nodeCount;
+        } else if (index == END_NODE_INDEX) {
+            return nodeCount + 1;
+        }
+        return index;
+    }
+
+    private void expand(float agentRadius) {
+        final NavMeshPathNode node = nodeRefs[current];
+        final int index = node.getIndex();
+        final float costSoFar = g[current];
+
+        if (index >= 0) {
+            final CompactNavMeshGraph compactGraph = finder.compactGraph;
+
+            if (compactGraph != null) {
+                final int[] offsets = compactGraph.getOffsets();
+                final int[] targets = compactGraph.getTargets();
+                final float[] costs = compactGraph.getCosts();
+                final float[] clearances = compactGraph.getClearances();
+                int toIndex;
+
+                for (int e = offsets[index]; e < offsets[index + 1]; ++e) {
+                    toIndex = targets[e];
+                    if (agentRadius > clearances[e]) {
+                        continue;
+                    }
+                    visit(toIndex, compactGraph.getNode(toIndex), costSoFar + costs[e]);
+                }
+
+            } else {
+                visitAll(finder.graph.getConnections(node), costSoFar, agentRadius);
+            }
+
+            // At most two virtual edges to the dynamic end and start nodes
+            if (finder.endpointMarks.isEndAdjacent(index)) {
+                visitDynamicNode(node, currReq.endNode, costSoFar);
+            }
+            if (finder.endpointMarks.isStartAdjacent(index)) {
+                visitDynamicNode(node, currReq.startNode, costSoFar);
+            }
+
+        } else if (index == START_NODE_INDEX || index == END_NODE_INDEX) {
+            visitAll(node.getConnections(), costSoFar, agentRadius);
+        }
+    }
+
+    private void visitAll(Array<Connection<NavMeshPathNode>> connections, float costSoFar, float agentRadius) {
+        Connection<NavMeshPathNode> connection;
+
+        for (int i = 0; i < connections.size; ++i) {
+            connection = connections.get(i);
+
+            // Skip connection if agent does not fit along it
+            if (!IndexedNavMeshAStarPathFinder.fits(connection, agentRadius)) {
+                continue;
+            }
+
+            visit(slotOf(connection.getToNode()), connection.getToNode(), costSoFar + connection.getCost());
+        }
+    }
+
+    /**
+     * Visit the dynamic node '{@code dynNode}' through a virtual edge from '{@code node}'.
+     */
+    private void visitDynamicNode(NavMeshPathNode node, NavMeshPathNode dynNode, float costSoFar) {
+        visit(slotOf(dynNode), dynNode,
+                costSoFar + node.getPortal().getMidpoint().dst(dynNode.getPortal().getMidpoint()));
+    }
+
+    private void visit(int slot, NavMeshPathNode node, float nodeCost) {
+        if (finder.metrics != null) finder.metrics.visitedNodes++;
+
+        final float nodeHeuristic;
+        if (searchIds[slot] == searchId) {
+
+            // If we didn't find a shorter route, skip
+            if (g[slot] <= nodeCost) return;
+
+            // Reuse the previous weighted heuristic value, whether the slot is open or closed
+            nodeHeuristic = open.getKey(slot) - g[slot];
+
+        } else {
+            searchIds[slot] = searchId;
+            nodeRefs[slot] = node;
+            nodeHeuristic = weight * heuristic.estimate(node, endNode);
+        }
+
+        g[slot] = nodeCost;
+        parent[slot] = current;
+        addToOpenList(slot, nodeCost + nodeHeuristic);
+    }
+
+    private void addToOpenList(int slot, float estimatedTotalCost) {
+        open.add(slot, estimatedTotalCost);
+        if (finder.metrics != null) {
+            finder.metrics.openListAdditions++;
+            finder.metrics.openListPeak = Math.max(finder.metrics.openListPeak, open.size());
+        }
+    }
+
+    void generateNodePath(GraphPath<NavMeshPathNode> outPath) {
+        int slot = current;
+        while (slot != NO_PARENT) {
+            outPath.add(nodeRefs[slot]);
+            slot = parent[slot];
+        }
+
+        // Reverse the path
+        outPath.reverse();
+    }
+
+    void generateConnectionPath(GraphPath<Connection<NavMeshPathNode>> outPath) {
+        int slot = current;
+        while (parent[slot] != NO_PARENT) {
+            outPath.add(new NavMeshPathConn(nodeRefs[parent[slot]], nodeRefs[slot]));
+            slot = parent[slot];
+        }
+
+        // Reverse the path
+        outPath.reverse();
+    }
+}
@@ -0,0 +1,15 @@
+package com.shibabandit.gdx_navmesh.path;
+
+/**
+ * Receives path finding results without going through {@link com.badlogic.gdx.ai.msg.MessageManager}.
+ */
+public interface NavMeshPathCallback {
+
+    /**
+     * Called once the search for '{@code request}' has finished. {@link NavMeshPathRequest#pathFound} and
+     * {@link NavMeshPathRequest#resultPath} hold the result.
+     *
+     * @param request the finished request
+     */
+    void pathFinished(NavMeshPathRequest request);
+}
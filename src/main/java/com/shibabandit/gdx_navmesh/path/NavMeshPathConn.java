@@ -11,6 +11,9 @@ public class NavMeshPathConn extends DefaultConnection<NavMeshPathNode> {
     /** Distance between portal midpoints */
     private float cost;
 
+    /** Largest agent radius that fits along this connection */
+    private float clearance;
+
     public NavMeshPathConn() {
         super(null, null);
     }
@@ -24,6 +27,8 @@ public class NavMeshPathConn extends DefaultConnection<NavMeshPathNode> {
         this.fromNode = fromNode;
         this.toNode = toNode;
         this.cost = fromNode.getPortal().getMidpoint().dst(toNode.getPortal().getMidpoint());
+        this.clearance = toNode.getPortal().isIgnorePortalLength()
+                ? Float.MAX_VALUE : toNode.getPortal().getLengthDiv2();
         return this;
     }
 
@@ -31,4 +36,20 @@ public class NavMeshPathConn extends DefaultConnection<NavMeshPathNode> {
     public float getCost() {
         return cost;
     }
+
+    /**
+     * @return largest agent radius that fits along this connection. Defaults to half the destination portal length,
+     * graphs narrow it with {@link NavMeshGraph#traversalClearance(org.poly2tri.triangulation.delaunay.DelaunayTriangle,
+     * NavMeshPortal, NavMeshPortal)}.
+     */
+    public float getClearance() {
+        return clearance;
+    }
+
+    /**
+     * @param clearance largest agent radius that fits along this connection
+     */
+    public void setClearance(float clearance) {
+        this.clearance = clearance;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,486 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
+
+import static com.shibabandit.gdx_navmesh.util.DelaunayTriangleUtil.dtContains;
+
+/**
+ * <p>Triangles a found path passes through, kept up to date while the agent and its goal move. A move into a
+ * triangle a few steps from either end of the corridor is repaired by adding or removing triangles at that end, and
+ * only the waypoints that depend on the changed portals are string pulled again. When the repair fails the move
+ * returns false, the caller searches again and initializes the corridor with the new path.</p>
+ *
+ * <p>Chasing a moving target costs a few triangle tests per move instead of a search, though the corridor may stay
+ * longer than a fresh path when the target circles around. Corridors become invalid when the graph version
+ * changes. Not thread safe.</p>
+ */
+public class NavMeshPathCorridor {
+
+    /** Triangles a repair may step from the corridor end */
+    private static final int MAX_REPAIR_STEPS = 3;
+
+    /** Graph the corridor lies in */
+    protected final NavMeshGraph graph;
+
+    /** Triangles from start to end, one more than {@link #crossings} */
+    private final Array<NavMeshGraph.QtTriNode> tris;
+
+    /** Node crossed from each triangle into the next */
+    private final Array<NavMeshPathNode> crossings;
+
+    /** Portal of each crossing, left and right as seen moving towards the end */
+    private final Array<NavMeshPortal> portals;
+
+    /** Portals for crossings moved through against their orientation, free for reuse */
+    private final Array<NavMeshPortal> freePortals;
+
+    /** Start and end positions */
+    private final Vector2 startPos, endPos;
+
+    /** Radius of agent in world units */
+    private float agentRadius;
+
+    /** Graph version the corridor was built in */
+    private int builtVersion;
+    private boolean initialized;
+
+    /** String pulled path, and the funnel portal index and scan index of each waypoint between start and end */
+    private final Array<Vector2> path;
+    private final IntArray pathPortalIndices, pathScanIndices;
+
+    private final NavMeshStringPuller stringPuller;
+    private final NavMeshPortal apexPortal, endPortal;
+
+    //
+    // Repair state
+    //
+    private final Array<NavMeshGraph.QtTriNode> stepTris;
+    private final Array<NavMeshPathNode> stepCrossings;
+    private final IntArray stepParents;
+
+    /**
+     * @param graph graph the corridor lies in
+     */
+    public NavMeshPathCorridor(NavMeshGraph graph) {
+        this.graph = graph;
+        this.tris = new Array<>();
+        this.crossings = new Array<>();
+        this.portals = new Array<>();
+        this.freePortals = new Array<>();
+        this.startPos = new Vector2();
+        this.endPos = new Vector2();
+        this.path = new Array<>();
+        this.pathPortalIndices = new IntArray();
+        this.pathScanIndices = new IntArray();
+        this.stringPuller = new NavMeshStringPuller();
+        this.apexPortal = new NavMeshPortal();
+        this.endPortal = new NavMeshPortal();
+        this.stepTris = new Array<>();
+        this.stepCrossings = new Array<>();
+        this.stepParents = new IntArray();
+    }
+
+    /**
+     * Take the triangles of a found path and string pull it.
+     *
+     * @param request request with a found path, initialized with its start and end triangles
+     * @return true if the corridor is valid
+     */
+    public boolean init(NavMeshPathRequest request) {
+        clear();
+        if(!request.pathFound || request.getStartTriNode() == null || request.getEndTriNode() == null) {
+            return false;
+        }
+
+        agentRadius = request.getAgentRadius();
+        startPos.set(request.getStartPos());
+        endPos.set(request.getEndPos());
+        builtVersion = graph.getVersion();
+        tris.add(request.getStartTriNode());
+
+        // Path nodes are portals of the triangle they leave, the last node may be any portal of the end triangle
+        final DelaunayTriangle endDt = request.getEndTriNode().getDt();
+        final int lastNode = request.resultPath.getCount() - 2;
+        NavMeshPathNode node;
+        DelaunayTriangle next;
+        NavMeshGraph.QtTriNode nextTri;
+        for(int i = 0; i <= lastNode; ++i) {
+            node = request.resultPath.get(i);
+            if(node.getIndex() < 0) {
+                continue;
+            }
+            next = across(node, tris.peek().getDt());
+
+            // Stitch nodes link to all nodes of both their triangles, a path may touch one without crossing it
+            if(next == null && tris.size > 1 && across(node, tris.get(tris.size - 2).getDt()) != null) {
+                removeLast();
+                next = across(node, tris.peek().getDt());
+            }
+            if(next == null || (tris.size > 1 && next == tris.get(tris.size - 2).getDt())
+                    || (i == lastNode && next != endDt)) {
+                continue;
+            }
+            nextTri = findTriNode(next);
+            if(nextTri == null) {
+                clear();
+                return false;
+            }
+            addLast(node, nextTri);
+        }
+
+        if(tris.peek() != request.getEndTriNode()) {
+            clear();
+            return false;
+        }
+
+        initialized = true;
+        pullFrom(0);
+        return true;
+    }
+
+    /**
+     * Move the end position, repairing the corridor if it left the end triangle.
+     *
+     * @param pos new end position
+     * @return true if the corridor reaches the new end position, false if a new search is needed
+     */
+    public boolean moveEnd(Vector2 pos) {
+        if(!isValid()) {
+            return false;
+        }
+
+        int unchanged = crossings.size;
+        if(!dtContains(tris.peek().getDt(), pos.x, pos.y)) {
+            final int target = findNear(tris.peek(), crossings.size > 0 ? crossings.peek() : null, pos);
+            if(target < 0) {
+                return false;
+            }
+
+            // Steps back into the corridor remove its last triangle, other steps extend it
+            for(int step = firstStep(target); step >= 0; step = nextStep(target, step)) {
+                if(tris.size > 1 && stepTris.get(step) == tris.get(tris.size - 2)) {
+                    removeLast();
+                    unchanged = Math.min(unchanged, crossings.size);
+                } else {
+                    addLast(stepCrossings.get(step), stepTris.get(step));
+                }
+            }
+        }
+
+        endPos.set(pos);
+
+        // Funnel portal i + 1 is crossing i, the end position follows the last crossing
+        pullFrom(unchanged + 1);
+        return true;
+    }
+
+    /**
+     * Move the start position. Triangles the agent has passed are dropped, and a move next to the start triangle is
+     * repaired like {@link #moveEnd(Vector2)}. The whole path is string pulled again.
+     *
+     * @param pos new start position
+     * @return true if the corridor reaches the new start position, false if a new search is needed
+     */
+    public boolean moveStart(Vector2 pos) {
+        if(!isValid()) {
+            return false;
+        }
+
+        int inside = -1;
+        for(int i = 0; i < tris.size && inside < 0; ++i) {
+            if(dtContains(tris.get(i).getDt(), pos.x, pos.y)) {
+                inside = i;
+            }
+        }
+
+        if(inside >= 0) {
+            while(inside-- > 0) {
+                removeFirst();
+            }
+        } else {
+            final int target = findNear(tris.first(), crossings.size > 0 ? crossings.first() : null, pos);
+            if(target < 0) {
+                return false;
+            }
+
+            for(int step = firstStep(target); step >= 0; step = nextStep(target, step)) {
+                if(tris.size > 1 && stepTris.get(step) == tris.get(1)) {
+                    removeFirst();
+                } else {
+                    addFirst(stepCrossings.get(step), stepTris.get(step));
+                }
+            }
+        }
+
+        startPos.set(pos);
+        pullFrom(0);
+        return true;
+    }
+
+    /**
+     * @return string pulled path from the start to the end position
+     */
+    public Array<Vector2> getPath() {
+        return path;
+    }
+
+    /**
+     * @return number of triangles in the corridor
+     */
+    public int getTriangleCount() {
+        return tris.size;
+    }
+
+    /**
+     * @return triangle containing the start position, or null if not initialized
+     */
+    public NavMeshGraph.QtTriNode getStartTriNode() {
+        return tris.size > 0 ? tris.first() : null;
+    }
+
+    /**
+     * @return triangle containing the end position, or null if not initialized
+     */
+    public NavMeshGraph.QtTriNode getEndTriNode() {
+        return tris.size > 0 ? tris.peek() : null;
+    }
+
+    /**
+     * @return start position
+     */
+    public Vector2 getStartPos() {
+        return startPos;
+    }
+
+    /**
+     * @return end position
+     */
+    public Vector2 getEndPos() {
+        return endPos;
+    }
+
+    /**
+     * @return radius of agent in world units
+     */
+    public float getAgentRadius() {
+        return agentRadius;
+    }
+
+    /**
+     * @return true if the corridor was initialized from a found path and the graph has not changed since
+     */
+    public boolean isValid() {
+        return initialized && builtVersion == graph.getVersion();
+    }
+
+    /**
+     * Drop all triangles and the path.
+     */
+    public void clear() {
+        while(tris.size > 1) {
+            removeLast();
+        }
+        tris.clear();
+        path.clear();
+        pathPortalIndices.clear();
+        pathScanIndices.clear();
+        initialized = false;
+    }
+
+    /**
+     * @return triangle on the other side of '{@code crossing}' from '{@code dt}', or null if '{@code crossing}' does
+     * not lead out of '{@code dt}'
+     */
+    private static DelaunayTriangle across(NavMeshPathNode crossing, DelaunayTriangle dt) {
+        if(crossing.getDtB() == null) {
+            return null;
+        }
+        return crossing.getDtA() == dt ? crossing.getDtB() : crossing.getDtB() == dt ? crossing.getDtA() : null;
+    }
+
+    private void addLast(NavMeshPathNode crossing, NavMeshGraph.QtTriNode nextTri) {
+        portals.add(orientedPortal(crossing, tris.peek().getDt()));
+        crossings.add(crossing);
+        tris.add(nextTri);
+    }
+
+    private void addFirst(NavMeshPathNode crossing, NavMeshGraph.QtTriNode prevTri) {
+        portals.insert(0, orientedPortal(crossing, prevTri.getDt()));
+        crossings.insert(0, crossing);
+        tris.insert(0, prevTri);
+    }
+
+    private void removeLast() {
+        freePortal(crossings.pop(), portals.pop());
+        tris.pop();
+    }
+
+    private void removeFirst() {
+        freePortal(crossings.removeIndex(0), portals.removeIndex(0));
+        tris.removeIndex(0);
+    }
+
+    /**
+     * @return portal of '{@code crossing}' oriented for leaving '{@code from}'. Graph portals are oriented for leaving
+     * their own triangle, crossings the other way get a swapped copy.
+     */
+    private NavMeshPortal orientedPortal(NavMeshPathNode crossing, DelaunayTriangle from) {
+        final NavMeshPortal portal = crossing.getPortal();
+        if(crossing.getDtA() == from) {
+            return portal;
+        }
+        final NavMeshPortal reversed = freePortals.size > 0 ? freePortals.pop() : new NavMeshPortal();
+        return reversed.init(portal.getRight(), portal.getLeft(), portal.isIgnorePortalLength());
+    }
+
+    private void freePortal(NavMeshPathNode crossing, NavMeshPortal portal) {
+        if(portal != crossing.getPortal()) {
+            freePortals.add(portal);
+        }
+    }
+
+    /**
+     * Breadth first search up to {@link #MAX_REPAIR_STEPS} triangles out of '{@code from}' for the triangle
+     * containing '{@code pos}', through crossings the agent fits through.
+     *
+     * @param from corridor end triangle
+     * @param entry corridor crossing at '{@code from}', or null for a single triangle corridor
+     * @param pos position to find
+     * @return index of the step into the triangle containing '{@code pos}', or -1 if it was not found
+     */
+    private int findNear(NavMeshGraph.QtTriNode from, NavMeshPathNode entry, Vector2 pos) {
+        stepTris.clear();
+        stepCrossings.clear();
+        stepParents.clear();
+
+        int levelStart = -1, levelEnd;
+        NavMeshGraph.QtTriNode tri, nextTri;
+        NavMeshPathNode crossing;
+        DelaunayTriangle next;
+        for(int depth = 0; depth < MAX_REPAIR_STEPS; ++depth) {
+            levelEnd = stepTris.size;
+            for(int parent = levelStart; parent < levelEnd; ++parent) {
+                tri = parent < 0 ? from : stepTris.get(parent);
+                for(int i = 0; i < tri.getNodes().size; ++i) {
+                    crossing = tri.getNodes().get(i);
+                    next = across(crossing, tri.getDt());
+                    if(next == null || isStepped(next, from)
+                            || !fits(tri.getDt(), parent < 0 ? entry : stepCrossings.get(parent), crossing)) {
+                        continue;
+                    }
+
+                    nextTri = findTriNode(next);
+                    if(nextTri == null) {
+                        continue;
+                    }
+                    stepTris.add(nextTri);
+                    stepCrossings.add(crossing);
+                    stepParents.add(parent);
+                    if(dtContains(next, pos.x, pos.y)) {
+                        return stepTris.size - 1;
+                    }
+                }
+            }
+            levelStart = levelEnd;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the agent fits through '{@code exit}' of '{@code dt}' after entering through '{@code entry}'
+     */
+    private boolean fits(DelaunayTriangle dt, NavMeshPathNode entry, NavMeshPathNode exit) {
+        final NavMeshPortal portal = exit.getPortal();
+        if(agentRadius > portal.getLengthDiv2() && !portal.isIgnorePortalLength()) {
+            return false;
+        }
+        return entry == null || agentRadius <= NavMeshGraph.traversalClearance(dt, entry.getPortal(), portal);
+    }
+
+    /**
+     * @return true if '{@code dt}' is the search origin or was already stepped into
+     */
+    private boolean isStepped(DelaunayTriangle dt, NavMeshGraph.QtTriNode from) {
+        if(dt == from.getDt()) {
+            return true;
+        }
+        for(int i = 0; i < stepTris.size; ++i) {
+            if(stepTris.get(i).getDt() == dt) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return first step on the way to step '{@code target}'
+     */
+    private int firstStep(int target) {
+        int step = target;
+        while(stepParents.get(step) >= 0) {
+            step = stepParents.get(step);
+        }
+        return step;
+    }
+
+    /**
+     * @return step after '{@code step}' on the way to step '{@code target}', or -1 after the target
+     */
+    private int nextStep(int target, int step) {
+        if(step == target) {
+            return -1;
+        }
+        int next = target;
+        while(stepParents.get(next) != step) {
+            next = stepParents.get(next);
+        }
+        return next;
+    }
+
+    /**
+     * @return node of '{@code dt}' from the graph triangle index, or null if it could not be found
+     */
+    private NavMeshGraph.QtTriNode findTriNode(DelaunayTriangle dt) {
+        return graph.findTriNode(dt);
+    }
+
+    /**
+     * String pull again from funnel portal '{@code changed}' on. Funnel portal 0 is the start position, portal i + 1
+     * is crossing i and the last portal is the end position. Waypoints added before the changed portal was scanned
+     * are kept and the funnel restarts from the last of them.
+     */
+    private void pullFrom(int changed) {
+        int kept = 0;
+        while(kept < pathScanIndices.size && pathScanIndices.get(kept) < changed) {
+            ++kept;
+        }
+
+        // Path holds the start position and the kept waypoints
+        final int apexIndex = kept > 0 ? pathPortalIndices.get(kept - 1) : 0;
+        final Vector2 apex = kept > 0 ? path.get(kept) : startPos;
+        path.truncate(kept > 0 ? kept + 1 : 0);
+        pathPortalIndices.truncate(kept);
+        pathScanIndices.truncate(kept);
+
+        // Funnel portal apexIndex + 1 is crossing apexIndex
+        final NavMeshPortal[] funnel = new NavMeshPortal[portals.size - apexIndex + 2];
+        funnel[0] = apexPortal.init(apex, apex, true);
+        for(int i = apexIndex; i < portals.size; ++i) {
+            funnel[i - apexIndex + 1] = portals.get(i);
+        }
+        funnel[funnel.length - 1] = endPortal.init(endPos, endPos, true);
+
+        final Array<Vector2> pulled = stringPuller.stringPull(apex, endPos, funnel, agentRadius,
+                pathPortalIndices, pathScanIndices);
+        for(int i = kept > 0 ? 1 : 0; i < pulled.size; ++i) {
+            path.add(pulled.get(i));
+        }
+        for(int i = kept; i < pathPortalIndices.size; ++i) {
+            pathPortalIndices.incr(i, apexIndex);
+            pathScanIndices.incr(i, apexIndex);
+        }
+    }
+}
@@ -4,23 +4,34 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.ai.msg.MessageManager;
 import com.badlogic.gdx.ai.msg.Telegraph;
 import com.badlogic.gdx.ai.pfa.Heuristic;
-import com.badlogic.gdx.ai.pfa.PathFinderQueue;
 import com.badlogic.gdx.ai.sched.LoadBalancingScheduler;
 import com.badlogic.gdx.math.Intersector;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Pools;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.shibabandit.gdx_navmesh.util.Angles;
 import org.poly2tri.geometry.polygon.Polygon;
 import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
 
-import static com.shibabandit.gdx_navmesh.util.DelaunayTriangleUtil.dtContains;
+import java.util.concurrent.CompletableFuture;
+
 import static com.shibabandit.gdx_navmesh.util.DelaunayTriangleUtil.dtGetEdge;
 
 /**
  * High level path finding interface. Utilizes scheduling and messaging to fulfill path finding requests. Must use the
  * {@link #run(long)} method to satisfy path finding requests. Many fields have been left protected for potential
  * subclassing.
+ *
+ * <p>Requests made with {@code findPathAsync} do not use {@link MessageManager}. They are answered through a
+ * {@link CompletableFuture} or a {@link NavMeshPathCallback}.</p>
+ *
+ * <p>All requests share one {@link NavMeshPathScheduler}, searched by priority and deadline. The overloads taking a
+ * priority and deadline return a handle for {@link #cancel(long)}. Identical waiting requests share one search. The
+ * overloads taking an owner let a new request for an agent cancel its waiting one. A new request from a
+ * {@link Telegraph} can also cancel its waiting one once enabled with
+ * {@link NavMeshPathScheduler#setSupersedeByClient(boolean)}, for telegraphs that each request paths for one
+ * agent.</p>
  */
 public class NavMeshPathFinder {
 
@@ -33,8 +44,8 @@ public class NavMeshPathFinder {
     /** The path finder backend for A* search */
     protected final IndexedNavMeshAStarPathFinder pathFinder;
 
-    /** Path finding request queue */
-    protected final PathFinderQueue<NavMeshPathNode> pathFinderQueue;
+    /** Path finding request queue, ordered by priority and deadline */
+    protected final NavMeshPathScheduler requestScheduler;
 
     /** Scheduler for path finding search */
     protected final LoadBalancingScheduler scheduler;
@@ -48,9 +59,6 @@ public class NavMeshPathFinder {
     /** Distance threshold from a point to search for geometry when locating close path nodes */
     protected final float nearbyWalkableTriMaxDist;
 
-    /** Results from 'contained in triangle' search */
-    protected final Array<NavMeshGraph.QtTriNode> containedResults;
-
     /** Results from 'nearby triangle' search */
     protected final Array<NavMeshGraph.QtTriNode> nearbyResults;
 
@@ -78,21 +86,41 @@ public class NavMeshPathFinder {
             int responseCode,
             float nearbyWalkableTriMaxDist) {
 
+        this(heuristic, new NavMeshGraph(walkablePolys), requestCode, responseCode, nearbyWalkableTriMaxDist);
+    }
+
+    /**
+     * Uses a pre-built navigation mesh, constructs messaging and scheduling. Pass a {@link CompactNavMeshGraph}
+     * for array based graph storage.
+     *
+     * @param heuristic used with A* for distance to goal
+     * @param navMeshGraph graph to search
+     * @param requestCode message code to use for path-finding requests
+     * @param responseCode message code to use for path-finding responses
+     * @param nearbyWalkableTriMaxDist distance threshold from a point to search for geometry when
+     *                                 locating close path nodes
+     */
+    public NavMeshPathFinder(
+            Heuristic<NavMeshPathNode> heuristic,
+            NavMeshGraph navMeshGraph,
+            int requestCode,
+            int responseCode,
+            float nearbyWalkableTriMaxDist) {
+
         this.heuristic = heuristic;
         this.requestCode = requestCode;
         this.responseCode = responseCode;
         this.nearbyWalkableTriMaxDist = nearbyWalkableTriMaxDist;
-        this.navMeshGraph = new NavMeshGraph(walkablePolys);
+        this.navMeshGraph = navMeshGraph;
 
         this.pathFinder = new IndexedNavMeshAStarPathFinder(navMeshGraph, true);
 
-        this.pathFinderQueue = new PathFinderQueue<>(pathFinder);
-        MessageManager.getInstance().addListener(pathFinderQueue, requestCode);
+        this.requestScheduler = new NavMeshPathScheduler(pathFinder);
+        MessageManager.getInstance().addListener(requestScheduler, requestCode);
 
         this.scheduler = new LoadBalancingScheduler(100);
-        this.scheduler.add(pathFinderQueue, 1, 0);
+        this.scheduler.add(requestScheduler, 1, 0);
 
-        this.containedResults = new Array<>(10);
         this.nearbyResults = new Array<>(400);
 
         this.ptA = new Vector2();
@@ -114,10 +142,50 @@ public class NavMeshPathFinder {
      * @param endPos ending world position
      * @param agentRadius radius of agent in world units
      * @param telegraph listener for path finding responses
-     * @return true if the path finding request was accepted, false if an error occurred
+     * @return true if the path finding request was accepted, false if an error occurred or the positions are in
+     * disconnected walkable areas
      */
     public boolean findPath(Vector2 startPos, Vector2 endPos, float agentRadius, Telegraph telegraph) {
-        boolean success = false;
+        return findPath(startPos, endPos, agentRadius, telegraph, 0, NavMeshPathRequest.NO_DEADLINE)
+                != NavMeshPathScheduler.NO_HANDLE;
+    }
+
+    /**
+     * Request a path finding solution to be received by '{@code telegraph}'. Requests with a higher priority are
+     * searched first, then those with the earliest deadline.
+     *
+     * @param startPos starting world position
+     * @param endPos ending world position
+     * @param agentRadius radius of agent in world units
+     * @param telegraph listener for path finding responses
+     * @param priority scheduling order, higher priorities are searched first
+     * @param deadlineNanos nanoseconds from now the result is wanted by, or {@link NavMeshPathRequest#NO_DEADLINE}
+     * @return handle for {@link #cancel(long)}, or {@link NavMeshPathScheduler#NO_HANDLE} if an error occurred or the
+     * positions are in disconnected walkable areas
+     */
+    public long findPath(Vector2 startPos, Vector2 endPos, float agentRadius, Telegraph telegraph,
+                         int priority, long deadlineNanos) {
+        return findPath(startPos, endPos, agentRadius, telegraph, null, priority, deadlineNanos);
+    }
+
+    /**
+     * Request a path finding solution to be received by '{@code telegraph}', see
+     * {@link #findPath(Vector2, Vector2, float, Telegraph, int, long)}. A newer request of the same owner cancels
+     * this one while it waits.
+     *
+     * @param startPos starting world position
+     * @param endPos ending world position
+     * @param agentRadius radius of agent in world units
+     * @param telegraph listener for path finding responses
+     * @param owner agent the request is for, or null, see {@link NavMeshPathRequest#setOwner(Object)}
+     * @param priority scheduling order, higher priorities are searched first
+     * @param deadlineNanos nanoseconds from now the result is wanted by, or {@link NavMeshPathRequest#NO_DEADLINE}
+     * @return handle for {@link #cancel(long)}, or {@link NavMeshPathScheduler#NO_HANDLE} if an error occurred or the
+     * positions are in disconnected walkable areas
+     */
+    public long findPath(Vector2 startPos, Vector2 endPos, float agentRadius, Telegraph telegraph, Object owner,
+                         int priority, long deadlineNanos) {
+        long handle = NavMeshPathScheduler.NO_HANDLE;
 
         final NavMeshGraph.QtTriNode startPosNode = getContainingNode(startPos);
         final NavMeshGraph.QtTriNode endPosNode = getContainingNode(endPos);
@@ -128,18 +196,201 @@ public class NavMeshPathFinder {
         } else if(endPosNode == null) {
             Gdx.app.debug(NavMeshPathFinder.class.getName(),"End pos node null for pos: " + endPos);
 
+        } else if(!navMeshGraph.isConnected(startPosNode, endPosNode, agentRadius)) {
+            Gdx.app.debug(NavMeshPathFinder.class.getName(), "No path between pos: " + startPos + " and " + endPos);
+
         } else {
 
             // Find path
             final NavMeshPathRequest pfRequest = Pools.get(NavMeshPathRequest.class)
-                    .obtain().init(heuristic, startPosNode, endPosNode, agentRadius, startPos, endPos, responseCode);
+                    .obtain().init(navMeshGraph, heuristic, startPosNode, endPosNode, agentRadius, startPos, endPos,
+                        responseCode);
+            pfRequest.setOwner(owner);
+            schedule(pfRequest, priority, deadlineNanos);
 
+            // Handled at once, the handle is set when the request is queued
             MessageManager.getInstance().dispatchMessage(telegraph, requestCode, pfRequest);
 
-            success = true;
+            handle = pfRequest.getHandle();
         }
 
-        return success;
+        return handle;
+    }
+
+    /**
+     * Request a path finding solution without messaging. The returned future completes during {@link #run(long)}
+     * with a request that is not pooled and belongs to the caller. Cancelling the future drops the search.
+     *
+     * @param startPos starting world position
+     * @param endPos ending world position
+     * @param agentRadius radius of agent in world units
+     * @return future for the finished request, completed exceptionally if a position is not walkable. Completed at
+     * once without a path if the positions are in disconnected walkable areas.
+     */
+    public CompletableFuture<NavMeshPathRequest> findPathAsync(Vector2 startPos, Vector2 endPos, float agentRadius) {
+        return findPathAsync(startPos, endPos, agentRadius, 0, NavMeshPathRequest.NO_DEADLINE);
+    }
+
+    /**
+     * Request a path finding solution without messaging, see {@link #findPathAsync(Vector2, Vector2, float)}.
+     * Requests with a higher priority are searched first, then those with the earliest deadline.
+     *
+     * @param startPos starting world position
+     * @param endPos ending world position
+     * @param agentRadius radius of agent in world units
+     * @param priority scheduling order, higher priorities are searched first
+     * @param deadlineNanos nanoseconds from now the result is wanted by, or {@link NavMeshPathRequest#NO_DEADLINE}
+     * @return future for the finished request, completed exceptionally if a position is not walkable. Completed at
+     * once without a path if the positions are in disconnected walkable areas.
+     */
+    public CompletableFuture<NavMeshPathRequest> findPathAsync(Vector2 startPos, Vector2 endPos, float agentRadius,
+                                                               int priority, long deadlineNanos) {
+        return findPathAsync(startPos, endPos, agentRadius, (Object) null, priority, deadlineNanos);
+    }
+
+    /**
+     * Request a path finding solution without messaging, see
+     * {@link #findPathAsync(Vector2, Vector2, float, int, long)}. A newer request of the same owner cancels this one
+     * while it waits, completing the future with a cancelled request.
+     *
+     * @param startPos starting world position
+     * @param endPos ending world position
+     * @param agentRadius radius of agent in world units
+     * @param owner agent the request is for, or null, see {@link NavMeshPathRequest#setOwner(Object)}
+     * @param priority scheduling order, higher priorities are searched first
+     * @param deadlineNanos nanoseconds from now the result is wanted by, or {@link NavMeshPathRequest#NO_DEADLINE}
+     * @return future for the finished request, completed exceptionally if a position is not walkable. Completed at
+     * once without a path if the positions are in disconnected walkable areas.
+     */
+    public CompletableFuture<NavMeshPathRequest> findPathAsync(Vector2 startPos, Vector2 endPos, float agentRadius,
+                                                               Object owner, int priority, long deadlineNanos) {
+        final NavMeshGraph.QtTriNode startPosNode = getContainingNode(startPos);
+        final NavMeshGraph.QtTriNode endPosNode = getContainingNode(endPos);
+
+        if(startPosNode == null || endPosNode == null) {
+            final CompletableFuture<NavMeshPathRequest> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException(
+                    "Position not walkable: " + (startPosNode == null ? startPos : endPos)));
+            return failed;
+        }
+
+        final NavMeshPathRequest pfRequest = new NavMeshPathRequest()
+                .init(navMeshGraph, heuristic, startPosNode, endPosNode, agentRadius, startPos, endPos, responseCode);
+        final PathFuture future = new PathFuture(pfRequest);
+
+        // No search needed if the positions are in disconnected walkable areas
+        if(!navMeshGraph.isConnected(startPosNode, endPosNode, agentRadius)) {
+            pfRequest.pathFound = false;
+            future.complete(pfRequest);
+            return future;
+        }
+
+        pfRequest.setCallback(future::complete);
+        pfRequest.setOwner(owner);
+        schedule(pfRequest, priority, deadlineNanos);
+        requestScheduler.add(pfRequest);
+
+        return future;
+    }
+
+    /**
+     * Request a path finding solution without messaging. '{@code callback}' is called during {@link #run(long)}
+     * with a pooled request that is freed once the callback returns.
+     *
+     * @param startPos starting world position
+     * @param endPos ending world position
+     * @param agentRadius radius of agent in world units
+     * @param callback receives the finished request
+     * @return true if the path finding request was accepted, false if a position is not walkable or the positions
+     * are in disconnected walkable areas
+     */
+    public boolean findPathAsync(Vector2 startPos, Vector2 endPos, float agentRadius, final NavMeshPathCallback callback) {
+        return findPathAsync(startPos, endPos, agentRadius, callback, 0, NavMeshPathRequest.NO_DEADLINE)
+                != NavMeshPathScheduler.NO_HANDLE;
+    }
+
+    /**
+     * Request a path finding solution without messaging, see
+     * {@link #findPathAsync(Vector2, Vector2, float, NavMeshPathCallback)}. Requests with a higher priority are
+     * searched first, then those with the earliest deadline.
+     *
+     * @param startPos starting world position
+     * @param endPos ending world position
+     * @param agentRadius radius of agent in world units
+     * @param callback receives the finished request, also when it is cancelled
+     * @param priority scheduling order, higher priorities are searched first
+     * @param deadlineNanos nanoseconds from now the result is wanted by, or {@link NavMeshPathRequest#NO_DEADLINE}
+     * @return handle for {@link #cancel(long)}, or {@link NavMeshPathScheduler#NO_HANDLE} if a position is not
+     * walkable or the positions are in disconnected walkable areas
+     */
+    public long findPathAsync(Vector2 startPos, Vector2 endPos, float agentRadius, final NavMeshPathCallback callback,
+                              int priority, long deadlineNanos) {
+        return findPathAsync(startPos, endPos, agentRadius, callback, null, priority, deadlineNanos);
+    }
+
+    /**
+     * Request a path finding solution without messaging, see
+     * {@link #findPathAsync(Vector2, Vector2, float, NavMeshPathCallback, int, long)}. A newer request of the same
+     * owner cancels this one while it waits, '{@code callback}' then receives it as cancelled.
+     *
+     * @param startPos starting world position
+     * @param endPos ending world position
+     * @param agentRadius radius of agent in world units
+     * @param callback receives the finished request, also when it is cancelled
+     * @param owner agent the request is for, or null, see {@link NavMeshPathRequest#setOwner(Object)}
+     * @param priority scheduling order, higher priorities are searched first
+     * @param deadlineNanos nanoseconds from now the result is wanted by, or {@link NavMeshPathRequest#NO_DEADLINE}
+     * @return handle for {@link #cancel(long)}, or {@link NavMeshPathScheduler#NO_HANDLE} if a position is not
+     * walkable or the positions are in disconnected walkable areas
+     */
+    public long findPathAsync(Vector2 startPos, Vector2 endPos, float agentRadius, final NavMeshPathCallback callback,
+                              Object owner, int priority, long deadlineNanos) {
+        final NavMeshGraph.QtTriNode startPosNode = getContainingNode(startPos);
+        final NavMeshGraph.QtTriNode endPosNode = getContainingNode(endPos);
+
+        if(startPosNode == null || endPosNode == null || !navMeshGraph.isConnected(startPosNode, endPosNode, agentRadius)) {
+            return NavMeshPathScheduler.NO_HANDLE;
+        }
+
+        final NavMeshPathRequest pfRequest = Pools.get(NavMeshPathRequest.class)
+                .obtain().init(navMeshGraph, heuristic, startPosNode, endPosNode, agentRadius, startPos, endPos,
+                        responseCode);
+        pfRequest.setCallback(new NavMeshPathCallback() {
+            @Override
+            public void pathFinished(NavMeshPathRequest request) {
+                callback.pathFinished(request);
+                Pools.free(request);
+            }
+        });
+        pfRequest.setOwner(owner);
+        schedule(pfRequest, priority, deadlineNanos);
+
+        return requestScheduler.add(pfRequest);
+    }
+
+    /**
+     * Cancel a request by the handle returned when it was made. Cancelled requests are still answered, without a
+     * path and with {@link NavMeshPathRequest#isCancelled()} set, so pooled requests can be freed.
+     *
+     * @param handle handle of the request
+     * @return true if the request was waiting or being searched
+     */
+    public boolean cancel(long handle) {
+        return requestScheduler.cancel(handle);
+    }
+
+    /**
+     * Set the scheduling order of '{@code request}'.
+     *
+     * @param deadlineNanos nanoseconds from now, or {@link NavMeshPathRequest#NO_DEADLINE}
+     */
+    protected void schedule(NavMeshPathRequest request, int priority, long deadlineNanos) {
+        if(deadlineNanos < 0L) {
+            throw new IllegalArgumentException("deadlineNanos must not be negative: " + deadlineNanos);
+        }
+        request.setPriority(priority);
+        request.setDeadline(deadlineNanos == NavMeshPathRequest.NO_DEADLINE
+                ? NavMeshPathRequest.NO_DEADLINE : TimeUtils.nanoTime() + deadlineNanos);
     }
 
     /**
@@ -209,23 +460,11 @@ public class NavMeshPathFinder {
      * @return the containing triangle node for the position, or null if one could not be found
      */
     protected NavMeshGraph.QtTriNode getContainingNode(Vector2 pos) {
-        NavMeshGraph.QtTriNode containingNode = null;
-
-        containedResults.clear();
-        navMeshGraph.getNodesQt().itemsInRange(pos, 10f, containedResults); // TODO: 10f constant should be param...
-
-        for(NavMeshGraph.QtTriNode n : containedResults) {
-            if(dtContains(n.getDt(), pos.x, pos.y)) {
-                containingNode = n;
-                break;
-            }
-        }
-
-        return containingNode;
+        return navMeshGraph.getContainingTriNode(pos);
     }
 
     /**
-     * Query internal navigation mesh quadtree index for the containing triangle. If a containing walkable
+     * Query the navigation mesh grid index for the containing triangle. If a containing walkable
      * triangle is found, true is returned. Otherwise, false is returned when a containing triangle could not
      * be found.
      *
@@ -249,4 +488,28 @@ public class NavMeshPathFinder {
     public IndexedNavMeshAStarPathFinder getPathFinder() {
         return pathFinder;
     }
+
+    /**
+     * @return queue of all path finding requests, with queue wait and search time statistics
+     */
+    public NavMeshPathScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
+    /**
+     * Future that cancels its request when cancelled.
+     */
+    protected static final class PathFuture extends CompletableFuture<NavMeshPathRequest> {
+        private final NavMeshPathRequest request;
+
+        PathFuture(NavMeshPathRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            request.cancel();
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
 }
@@ -31,6 +31,9 @@ public class NavMeshPathNode {
     /** The actual spatial data for the path node. The midpoint should be used as the node location. */
     protected final NavMeshPortal portal;
 
+    /** Set when connections into this node may not be followed, see {@link NavMeshGraph#setBlocked} */
+    protected boolean blocked;
+
     /**
      * @param index global graph index for fast lookup
      * @param portal the actual spatial data for the path node
@@ -105,6 +108,14 @@ public class NavMeshPathNode {
         return portal;
     }
 
+    /**
+     * @return true if connections into this node may not be followed, such as a closed door
+     * @see NavMeshGraph#setBlocked(NavMeshPathNode, boolean)
+     */
+    public boolean isBlocked() {
+        return blocked;
+    }
+
     @Override
     public String toString() {
         return "NavMeshPathNode{" +
@@ -113,6 +124,7 @@ public class NavMeshPathNode {
                 ", dtA=" + dtA +
                 ", dtB=" + dtB +
                 ", portal=" + portal +
+                ", blocked=" + blocked +
                 '}';
     }
 }
@@ -4,18 +4,24 @@ import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
 import com.badlogic.gdx.ai.pfa.Heuristic;
 import com.badlogic.gdx.ai.pfa.PathFinderRequest;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.TimeUtils;
 
 /**
  * Adds agent {@link #agentRadius} to pathfinding request and intended for use
  * with {@link com.badlogic.gdx.utils.Pool.Poolable}. Has request and pathfinding context needed
- * for search.
+ * for search. Connections of the dynamic start and end nodes are pooled per request, so re-initializing a
+ * request does not allocate once its pools have grown to the size needed.
  */
 public class NavMeshPathRequest extends PathFinderRequest<NavMeshPathNode> implements Pool.Poolable {
 
     public static final int START_NODE_INDEX = -998;
     public static final int END_NODE_INDEX = -999;
 
+    /** Deadline of requests that have none */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
     /** Radius of agent in world units */
     private float agentRadius;
 
@@ -25,12 +31,69 @@ public class NavMeshPathRequest extends PathFinderRequest<NavMeshPathNode> imple
     /** Ending position (valid non-node pos) */
     private Vector2 endPos;
 
+    /** Triangles containing {@link #startPos} and {@link #endPos} */
+    private NavMeshGraph.QtTriNode startTriNode, endTriNode;
+
+    /** Graph the triangles were located in, checked for changes before the search, may be null */
+    private NavMeshGraph graph;
+
+    /** {@link NavMeshGraph#getVersion()} when the triangles were located */
+    private int graphVersion;
+
+    /** Set when the graph changed after init and a position is no longer walkable */
+    private boolean stale;
+
     private NavMeshPathNode startDynNode;
     private NavMeshPathNode endDynNode;
 
     private IndexedNavMeshAStarPathFinder.NodeRecord<NavMeshPathNode> startNodeRec;
     private IndexedNavMeshAStarPathFinder.NodeRecord<NavMeshPathNode> endNodeRec;
 
+    /** Receives the result when the request is not answered through messaging, may be null */
+    private NavMeshPathCallback callback;
+
+    /** Set when the requester no longer wants the result, the search is dropped */
+    private volatile boolean cancelled;
+
+    /** Agent the request is for, a newer request of the same owner supersedes a waiting one */
+    private Object owner;
+
+    /** Nodes the search may expand before it stops, 0 for no limit */
+    private int maxExpansions;
+
+    /** Whether a search that stops without reaching the end node returns the path towards the closest node */
+    private boolean partialPathAllowed;
+
+    /** Set when the result path ends at the closest node found instead of the end node */
+    private boolean partialPath;
+
+    /** Factor on the heuristic estimate, 1 for shortest paths */
+    private float heuristicWeight = 1f;
+
+    /** Whether the search keeps improving its path across time slices */
+    private boolean anytime;
+
+    /** Factor the result path cost is at most above the shortest path cost */
+    private float costBound = 1f;
+
+    /** Scheduling order, higher priorities are searched first */
+    private int priority;
+
+    /** {@link TimeUtils#nanoTime()} the result is wanted by, or {@link #NO_DEADLINE} */
+    private long deadline = NO_DEADLINE;
+
+    /** Set by {@link NavMeshPathScheduler}: handle for cancelling, and when the request was queued */
+    long handle, queuedTime;
+
+    /** Set by {@link NavMeshPathScheduler}: time waiting before the search started and time spent searching */
+    long queueWaitNanos, searchNanos;
+
+    /** Reused connections from {@link #startDynNode}, grows to the largest start triangle seen */
+    private final Array<NavMeshPathConn> startConnPool;
+
+    /** Reused connections from {@link #endDynNode}, grows to the largest end triangle seen */
+    private final Array<NavMeshPathConn> endConnPool;
+
     public NavMeshPathRequest() {
         this.resultPath = new DefaultGraphPath<>();
         this.startPos = new Vector2();
@@ -39,10 +102,13 @@ public class NavMeshPathRequest extends PathFinderRequest<NavMeshPathNode> imple
         this.endDynNode = new NavMeshPathNode(END_NODE_INDEX, new NavMeshPortal());
         this.startNodeRec = new IndexedNavMeshAStarPathFinder.NodeRecord<>();
         this.endNodeRec = new IndexedNavMeshAStarPathFinder.NodeRecord<>();
+        this.startConnPool = new Array<>();
+        this.endConnPool = new Array<>();
     }
 
     /**
-     * Initialize pooled object.
+     * Initialize pooled object without checking for graph changes before the search, see
+     * {@link #init(NavMeshGraph, Heuristic, NavMeshGraph.QtTriNode, NavMeshGraph.QtTriNode, float, Vector2, Vector2, int)}.
      *
      * @param heuristic A* heuristic for request
      * @param startTriNode beginning path node
@@ -61,7 +127,38 @@ public class NavMeshPathRequest extends PathFinderRequest<NavMeshPathNode> imple
             Vector2 startPos,
             Vector2 endPos,
             int responseCode) {
+        return init(null, heuristic, startTriNode, endTriNode, agentRadius, startPos, endPos, responseCode);
+    }
 
+    /**
+     * Initialize pooled object. If '{@code graph}' changes before the search starts, such as a tile being evicted
+     * or a region re-triangulated, {@link #initializeSearch(long)} locates the start and end positions again so
+     * the search does not mix released nodes with the nodes now using their indices. If a position is no longer
+     * walkable the request becomes {@link #isStale()} and finishes without a path.
+     *
+     * @param graph graph the triangles belong to, or null to skip the check
+     * @param heuristic A* heuristic for request
+     * @param startTriNode beginning path node
+     * @param endTriNode ending path node
+     * @param agentRadius radius of agent in world units
+     * @param startPos starting position (valid non-node pos)
+     * @param endPos ending position (valid non-node pos)
+     * @param responseCode the message code to use for the path finding response
+     * @return initialized poolable object
+     */
+    public NavMeshPathRequest init(
+            NavMeshGraph graph,
+            Heuristic<NavMeshPathNode> heuristic,
+            NavMeshGraph.QtTriNode startTriNode,
+            NavMeshGraph.QtTriNode endTriNode,
+            float agentRadius,
+            Vector2 startPos,
+            Vector2 endPos,
+            int responseCode) {
+
+        this.graph = graph;
+        this.graphVersion = graph != null ? graph.getVersion() : 0;
+        this.stale = false;
         this.responseMessageCode = responseCode;
         this.startNode = startDynNode;
         this.endNode = endDynNode;
@@ -70,35 +167,89 @@ public class NavMeshPathRequest extends PathFinderRequest<NavMeshPathNode> imple
         this.startPos.set(startPos);
         this.endPos.set(endPos);
 
-
         this.startDynNode.getPortal().init(startPos, startPos, true);
-        this.startDynNode.getConnections().clear();
-        for(NavMeshPathNode n : startTriNode.getNodes()) {
-            this.startDynNode.getConnections().add(new NavMeshPathConn(startDynNode, n));
-        }
-
         this.endDynNode.getPortal().init(endPos, endPos, true);
-        this.endDynNode.getConnections().clear();
-        for(NavMeshPathNode n : endTriNode.getNodes()) {
-            this.endDynNode.getConnections().add(new NavMeshPathConn(endDynNode, n));
-        }
+
+        initDynNodes(startTriNode, endTriNode);
+
+        return this;
+    }
+
+    /**
+     * Connect the dynamic start and end nodes to the path nodes of their containing triangles.
+     *
+     * @param startTriNode triangle containing {@link #startPos}
+     * @param endTriNode triangle containing {@link #endPos}
+     */
+    private void initDynNodes(NavMeshGraph.QtTriNode startTriNode, NavMeshGraph.QtTriNode endTriNode) {
+        this.startTriNode = startTriNode;
+        this.endTriNode = endTriNode;
+
+        int startConnCount = initDynConns(startDynNode, startTriNode, startConnPool);
+        int endConnCount = initDynConns(endDynNode, endTriNode, endConnPool);
 
         if(startTriNode == endTriNode) {
-            this.startDynNode.getConnections().add(new NavMeshPathConn(this.startDynNode, this.endDynNode));
-            this.endDynNode.getConnections().add(new NavMeshPathConn(this.endDynNode, this.startDynNode));
+            this.startDynNode.getConnections().add(obtainConn(startConnPool, startConnCount).init(this.startDynNode, this.endDynNode));
+            this.endDynNode.getConnections().add(obtainConn(endConnPool, endConnCount).init(this.endDynNode, this.startDynNode));
         }
 
         startNodeRec.node = startNode;
         startNodeRec.category = IndexedNavMeshAStarPathFinder.UNVISITED;
         endNodeRec.node = endNode;
         endNodeRec.category = IndexedNavMeshAStarPathFinder.UNVISITED;
+    }
 
-        return this;
+    /**
+     * Connect a dynamic node to each path node of its containing triangle using pooled connections.
+     *
+     * @param dynNode dynamic start or end node
+     * @param triNode triangle containing the dynamic node position
+     * @param connPool connection pool owned by '{@code dynNode}'
+     * @return number of pooled connections used
+     */
+    private static int initDynConns(NavMeshPathNode dynNode,
+                                    NavMeshGraph.QtTriNode triNode,
+                                    Array<NavMeshPathConn> connPool) {
+
+        final Array<NavMeshPathNode> triNodes = triNode.getNodes();
+        dynNode.getConnections().clear();
+        for(int i = 0; i < triNodes.size; ++i) {
+            dynNode.getConnections().add(obtainConn(connPool, i).init(dynNode, triNodes.get(i)));
+        }
+        return triNodes.size;
+    }
+
+    /**
+     * @param connPool pool to take the connection from
+     * @param slot pool slot, at most the current pool size
+     * @return pooled connection for the slot, created if the pool has not grown this large yet
+     */
+    private static NavMeshPathConn obtainConn(Array<NavMeshPathConn> connPool, int slot) {
+        if(slot == connPool.size) {
+            connPool.add(new NavMeshPathConn());
+        }
+        return connPool.get(slot);
     }
 
     @Override
     public boolean initializeSearch(long timeToRun) {
+
+        // Triangles located before the graph changed may have been released and their node indices reused
+        if(graph != null && graph.getVersion() != graphVersion) {
+            graphVersion = graph.getVersion();
+            final NavMeshGraph.QtTriNode start = graph.getContainingTriNode(startPos);
+            final NavMeshGraph.QtTriNode end = graph.getContainingTriNode(endPos);
+            if(start == null || end == null) {
+                stale = true;
+            } else {
+                initDynNodes(start, end);
+            }
+        }
+
         resultPath.clear();
+        pathFound = false;
+        partialPath = false;
+        costBound = 1f;
         return true;
     }
 
@@ -114,6 +265,38 @@ public class NavMeshPathRequest extends PathFinderRequest<NavMeshPathNode> imple
         this.heuristic = null;
         this.client = null;
         this.agentRadius = 0f;
+        this.startTriNode = null;
+        this.endTriNode = null;
+        this.graph = null;
+        this.graphVersion = 0;
+        this.stale = false;
+        this.callback = null;
+        this.cancelled = false;
+        this.owner = null;
+        this.maxExpansions = 0;
+        this.partialPathAllowed = false;
+        this.partialPath = false;
+        this.heuristicWeight = 1f;
+        this.anytime = false;
+        this.costBound = 1f;
+        this.priority = 0;
+        this.deadline = NO_DEADLINE;
+        this.handle = 0L;
+        this.queuedTime = 0L;
+        this.queueWaitNanos = 0L;
+        this.searchNanos = 0L;
+
+        // Pooled connections stay with the request for reuse
+        this.startDynNode.getConnections().clear();
+        this.endDynNode.getConnections().clear();
+    }
+
+    /**
+     * @return true if the graph changed after init and the start or end position is no longer walkable, the search
+     * finishes without a path
+     */
+    public boolean isStale() {
+        return stale;
     }
 
     /**
@@ -137,6 +320,214 @@ public class NavMeshPathRequest extends PathFinderRequest<NavMeshPathNode> imple
         return endPos;
     }
 
+    /**
+     * @return triangle containing the starting position
+     */
+    public NavMeshGraph.QtTriNode getStartTriNode() {
+        return startTriNode;
+    }
+
+    /**
+     * @return triangle containing the ending position
+     */
+    public NavMeshGraph.QtTriNode getEndTriNode() {
+        return endTriNode;
+    }
+
+    /**
+     * @return receives the result when the request is not answered through messaging, may be null
+     */
+    public NavMeshPathCallback getCallback() {
+        return callback;
+    }
+
+    /**
+     * @param callback receives the result when the request is not answered through messaging, may be null
+     */
+    public void setCallback(NavMeshPathCallback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Ask for the search to be dropped. A request that is already being searched stops at the next time slice.
+     * May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if {@link #cancel()} was called since the request was last reset
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return nodes the search may expand before it stops, 0 for no limit
+     */
+    public int getMaxExpansions() {
+        return maxExpansions;
+    }
+
+    /**
+     * @param maxExpansions nodes the search may expand before it stops, 0 for no limit. Defaults to 0. A
+     * bidirectional search that stops early keeps the best path found through nodes reached from both ends, which
+     * may be longer than the shortest.
+     */
+    public void setMaxExpansions(int maxExpansions) {
+        if(maxExpansions < 0) {
+            throw new IllegalArgumentException("maxExpansions must not be negative: " + maxExpansions);
+        }
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * @return true if a search that stops without reaching the end node returns a partial path
+     */
+    public boolean isPartialPathAllowed() {
+        return partialPathAllowed;
+    }
+
+    /**
+     * @param partialPathAllowed true if a search that hits {@link #getMaxExpansions()} or runs out of nodes returns
+     * the path to the expanded node with the lowest heuristic estimate to the end node. Defaults to false.
+     */
+    public void setPartialPathAllowed(boolean partialPathAllowed) {
+        this.partialPathAllowed = partialPathAllowed;
+    }
+
+    /**
+     * @return true if {@link #pathFound} and the result path ends at the closest node found instead of the end node.
+     * String pull towards the portal midpoint of its last node.
+     */
+    public boolean isPartialPath() {
+        return partialPath;
+    }
+
+    /**
+     * Set whether the result path is partial, called by the search.
+     */
+    void setPartialPath(boolean partialPath) {
+        this.partialPath = partialPath;
+    }
+
+    /**
+     * @return factor on the heuristic estimate, 1 for shortest paths
+     */
+    public float getHeuristicWeight() {
+        return heuristicWeight;
+    }
+
+    /**
+     * @param heuristicWeight factor on the heuristic estimate. Weights above 1 expand fewer nodes and find paths at
+     * most that factor longer than the shortest. Defaults to 1.
+     */
+    public void setHeuristicWeight(float heuristicWeight) {
+        if(!(heuristicWeight >= 1f)) {
+            throw new IllegalArgumentException("heuristicWeight must be at least 1: " + heuristicWeight);
+        }
+        this.heuristicWeight = heuristicWeight;
+    }
+
+    /**
+     * @return true if the search keeps improving its path across time slices
+     */
+    public boolean isAnytime() {
+        return anytime;
+    }
+
+    /**
+     * @param anytime true to search with {@link #getHeuristicWeight()} first and keep improving the path with lower
+     * weights across time slices, see {@link IndexedNavMeshAStarPathFinder#ANYTIME_WEIGHT_STEP}. Each improved path
+     * replaces the result path while the search continues. {@link NavMeshPathScheduler} answers with the latest path
+     * once the deadline has passed. Defaults to false.
+     */
+    public void setAnytime(boolean anytime) {
+        this.anytime = anytime;
+    }
+
+    /**
+     * @return factor the result path cost is at most above the shortest path cost, infinite for partial paths
+     */
+    public float getCostBound() {
+        return costBound;
+    }
+
+    /**
+     * Set the cost bound of the result path, called by the search.
+     */
+    void setCostBound(float costBound) {
+        this.costBound = costBound;
+    }
+
+    /**
+     * @return agent the request is for, or null
+     */
+    public Object getOwner() {
+        return owner;
+    }
+
+    /**
+     * @param owner agent the request is for. A newer request of the same owner cancels this one while it waits in
+     * {@link NavMeshPathScheduler}. Requests without an owner are superseded by their client only if
+     * {@link NavMeshPathScheduler#setSupersedeByClient(boolean)} is enabled.
+     */
+    public void setOwner(Object owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * @return scheduling order, higher priorities are searched first
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @param priority scheduling order, higher priorities are searched first. Defaults to 0.
+     */
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * @return {@link TimeUtils#nanoTime()} the result is wanted by, or {@link #NO_DEADLINE}
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @param deadline {@link TimeUtils#nanoTime()} the result is wanted by, or {@link #NO_DEADLINE}. Requests of
+     * equal priority are searched earliest deadline first.
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return handle for cancelling the request through {@link NavMeshPathScheduler#cancel(long)}, 0 before it is
+     * scheduled
+     */
+    public long getHandle() {
+        return handle;
+    }
+
+    /**
+     * @return nanoseconds the request waited in {@link NavMeshPathScheduler} before its search started
+     */
+    public long getQueueWaitNanos() {
+        return queueWaitNanos;
+    }
+
+    /**
+     * @return nanoseconds spent searching, over all time slices
+     */
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
     public IndexedNavMeshAStarPathFinder.NodeRecord<NavMeshPathNode> getStartNodeRec() {
         return startNodeRec;
     }
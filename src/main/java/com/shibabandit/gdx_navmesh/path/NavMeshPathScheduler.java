@@ -0,0 +1,457 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.msg.MessageManager;
+import com.badlogic.gdx.ai.msg.Telegram;
+import com.badlogic.gdx.ai.msg.Telegraph;
+import com.badlogic.gdx.ai.pfa.PathFinder;
+import com.badlogic.gdx.ai.pfa.PathFinderQueue;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
+import com.badlogic.gdx.ai.sched.Schedulable;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * <p>Time-sliced queue of {@link NavMeshPathRequest}s searched in order of {@link NavMeshPathRequest#getPriority()},
+ * then earliest {@link NavMeshPathRequest#getDeadline()}, then arrival. Requests that have waited longer than
+ * {@link #maxWaitNanos} go first, oldest first, so low priorities are not starved under constant load. A search
+ * that has started is finished before the next request is chosen, over as many time slices as it needs. An
+ * {@link NavMeshPathRequest#isAnytime()} search is answered with its latest path once its deadline has passed.</p>
+ *
+ * <p>Requests arrive as {@link Telegram}s like with {@link PathFinderQueue}, or through {@link #add(NavMeshPathRequest)}.
+ * Finished requests are answered through their {@link NavMeshPathRequest#getCallback()} when set, otherwise by a
+ * message to their {@link PathFinderRequest#client}. Requests cancelled through {@link #cancel(long)} or
+ * {@link NavMeshPathRequest#cancel()} are answered without a path so pooled requests still reach their owner.</p>
+ *
+ * <p>A request supersedes the waiting requests of the same {@link NavMeshPathRequest#getOwner()}, which are answered
+ * as cancelled. Requests without an owner are only superseded by requests of the same client once
+ * {@link #setSupersedeByClient(boolean)} is enabled. A search already running is kept so an agent that requests
+ * every frame still gets paths. When a search finishes, waiting requests with the same
+ * start triangle, end triangle and agent radius share its node path instead of searching, with their own start and
+ * end positions. As with {@link NavMeshCorridorCache}, a shared path may be slightly longer than their own search
+ * would find.</p>
+ *
+ * <p>Waiting requests are scanned on each pick, which suits the tens to hundreds of requests a game queues per
+ * frame. Not thread safe.</p>
+ */
+public class NavMeshPathScheduler implements Schedulable, Telegraph {
+
+    /** Handle of requests that were not scheduled */
+    public static final long NO_HANDLE = 0L;
+
+    /** Default for {@link #maxWaitNanos}, half a second */
+    public static final long DEFAULT_MAX_WAIT_NANOS = 500_000_000L;
+
+    /** Searches the requests */
+    protected final PathFinder<NavMeshPathNode> pathFinder;
+
+    /** Wait after which a request is searched before higher priorities */
+    protected final long maxWaitNanos;
+
+    /** Requests not yet searched, unordered */
+    private final Array<NavMeshPathRequest> waiting;
+
+    /** Request being searched */
+    private NavMeshPathRequest current;
+
+    /** Requests answered with the path of a finished search */
+    private final Array<NavMeshPathRequest> sharing;
+
+    /** Whether requests of the same client supersede each other when they have no owner */
+    private boolean supersedeByClient;
+
+    /** Handle of the next scheduled request */
+    private long nextHandle;
+
+    /** Requests answered with a search result, cancelled, and answered after their deadline */
+    private int completedCount, cancelledCount, missedDeadlineCount;
+
+    /** Requests cancelled by a newer request of their owner, and completed with another request's path */
+    private int supersededCount, sharedCount;
+
+    /** Queue wait and search time totals and maximums of completed requests */
+    private long totalQueueWaitNanos, maxQueueWaitNanos, totalSearchNanos, maxSearchNanos;
+
+    /**
+     * @param pathFinder searches the requests
+     */
+    public NavMeshPathScheduler(PathFinder<NavMeshPathNode> pathFinder) {
+        this(pathFinder, DEFAULT_MAX_WAIT_NANOS);
+    }
+
+    /**
+     * @param pathFinder searches the requests
+     * @param maxWaitNanos wait after which a request is searched before higher priorities
+     */
+    public NavMeshPathScheduler(PathFinder<NavMeshPathNode> pathFinder, long maxWaitNanos) {
+        if(maxWaitNanos < 0L) {
+            throw new IllegalArgumentException("maxWaitNanos must not be negative: " + maxWaitNanos);
+        }
+
+        this.pathFinder = pathFinder;
+        this.maxWaitNanos = maxWaitNanos;
+        this.waiting = new Array<>(false, 16);
+        this.sharing = new Array<>(false, 16);
+        this.supersedeByClient = false;
+        this.nextHandle = NO_HANDLE + 1L;
+    }
+
+    /**
+     * Schedule a request carried by a telegram, it is answered with a message to the sender.
+     */
+    @Override
+    public boolean handleMessage(Telegram telegram) {
+        final NavMeshPathRequest request = (NavMeshPathRequest) telegram.extraInfo;
+        request.client = telegram.sender;
+        add(request);
+        return true;
+    }
+
+    /**
+     * Schedule a request, cancelling waiting requests of the same owner. Set its owner, priority and deadline first.
+     *
+     * @param request initialized request with a callback or client
+     * @return handle for {@link #cancel(long)}, also stored in the request
+     */
+    public long add(NavMeshPathRequest request) {
+        final Object owner = ownerOf(request);
+        if(owner != null) {
+            NavMeshPathRequest older;
+            for(int i = 0; i < waiting.size; ++i) {
+                older = waiting.get(i);
+                if(!older.isCancelled() && ownerOf(older) == owner) {
+                    older.cancel();
+                    ++supersededCount;
+                }
+            }
+        }
+
+        request.status = PathFinderRequest.SEARCH_NEW;
+        request.statusChanged = true;
+        request.executionFrames = 0;
+        request.handle = nextHandle++;
+        request.queuedTime = TimeUtils.nanoTime();
+        request.queueWaitNanos = 0L;
+        request.searchNanos = 0L;
+        waiting.add(request);
+        return request.handle;
+    }
+
+    /**
+     * Cancel a waiting or running request. It is answered without a path during the next {@link #run(long)}.
+     *
+     * @param handle handle returned when the request was scheduled
+     * @return true if the request was found
+     */
+    public boolean cancel(long handle) {
+        if(current != null && current.handle == handle) {
+            current.cancel();
+            return true;
+        }
+
+        for(int i = 0; i < waiting.size; ++i) {
+            if(waiting.get(i).handle == handle) {
+                waiting.get(i).cancel();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public void run(long timeToRun) {
+        long lastTime = TimeUtils.nanoTime();
+        long currentTime;
+        boolean done;
+
+        while(timeToRun > PathFinderQueue.TIME_TOLERANCE) {
+
+            if(current == null) {
+                current = next(lastTime);
+                if(current == null) {
+                    break;
+                }
+                current.queueWaitNanos = lastTime - current.queuedTime;
+                current.initializeSearch(timeToRun);
+            }
+
+            if(current.isCancelled()) {
+                final NavMeshPathRequest cancelled = current;
+                current = null;
+                cancelled.pathFound = false;
+                ++cancelledCount;
+                respond(cancelled);
+                continue;
+            }
+
+            // An anytime search past its deadline is answered with its latest path
+            ++current.executionFrames;
+            done = current.isAnytime() && current.pathFound && !current.statusChanged
+                    && lastTime >= current.getDeadline()
+                    || pathFinder.search(current, timeToRun);
+
+            currentTime = TimeUtils.nanoTime();
+            current.searchNanos += currentTime - lastTime;
+            timeToRun -= currentTime - lastTime;
+            lastTime = currentTime;
+
+            if(!done) {
+                break;
+            }
+
+            final NavMeshPathRequest finished = current;
+            current = null;
+            finished.changeStatus(PathFinderRequest.SEARCH_DONE);
+            finished.finalizeSearch(timeToRun);
+            finished.changeStatus(PathFinderRequest.SEARCH_FINALIZED);
+            record(finished, currentTime);
+            share(finished, currentTime);
+
+            respond(finished);
+            for(int i = 0; i < sharing.size; ++i) {
+                respond(sharing.get(i));
+            }
+            sharing.clear();
+
+            currentTime = TimeUtils.nanoTime();
+            timeToRun -= currentTime - lastTime;
+            lastTime = currentTime;
+        }
+    }
+
+    /**
+     * Remove and return the request to search next: cancelled requests at once, then requests waiting longer than
+     * {@link #maxWaitNanos} by age, then by priority, deadline and arrival.
+     *
+     * @param now current {@link TimeUtils#nanoTime()}
+     * @return next request, or null if none are waiting
+     */
+    private NavMeshPathRequest next(long now) {
+        int bestIndex = -1;
+        NavMeshPathRequest best = null, request;
+        boolean bestStarving = false, starving;
+
+        for(int i = 0; i < waiting.size; ++i) {
+            request = waiting.get(i);
+            if(request.isCancelled()) {
+                bestIndex = i;
+                break;
+            }
+
+            starving = now - request.queuedTime > maxWaitNanos;
+            if(best == null || isBefore(request, starving, best, bestStarving)) {
+                bestIndex = i;
+                best = request;
+                bestStarving = starving;
+            }
+        }
+
+        return bestIndex >= 0 ? waiting.removeIndex(bestIndex) : null;
+    }
+
+    /**
+     * @return owner whose newer requests supersede '{@code request}', or null
+     */
+    private Object ownerOf(NavMeshPathRequest request) {
+        if(request.getOwner() != null) {
+            return request.getOwner();
+        }
+        return supersedeByClient ? request.client : null;
+    }
+
+    /**
+     * Move the waiting requests with the same triangles and agent radius as '{@code finished}' to {@link #sharing},
+     * completed with its node path between their own dynamic start and end nodes.
+     */
+    private void share(NavMeshPathRequest finished, long finishedTime) {
+        if(finished.getStartTriNode() == null || finished.getEndTriNode() == null) {
+            return;
+        }
+
+        NavMeshPathRequest request;
+        for(int i = waiting.size - 1; i >= 0; --i) {
+            request = waiting.get(i);
+            if(request.isCancelled()
+                    || request.getStartTriNode() != finished.getStartTriNode()
+                    || request.getEndTriNode() != finished.getEndTriNode()
+                    || request.getAgentRadius() != finished.getAgentRadius()
+                    || request.getMaxExpansions() != finished.getMaxExpansions()
+                    || request.isPartialPathAllowed() != finished.isPartialPathAllowed()
+                    || request.getHeuristicWeight() != finished.getHeuristicWeight()
+                    || request.isAnytime() != finished.isAnytime()) {
+                continue;
+            }
+
+            waiting.removeIndex(i);
+            request.resultPath.clear();
+            if(finished.pathFound) {
+                request.resultPath.add(request.startNode);
+                final int last = finished.isPartialPath()
+                        ? finished.resultPath.getCount() : finished.resultPath.getCount() - 1;
+                for(int n = 1; n < last; ++n) {
+                    request.resultPath.add(finished.resultPath.get(n));
+                }
+                if(!finished.isPartialPath()) {
+                    request.resultPath.add(request.endNode);
+                }
+            }
+            request.pathFound = finished.pathFound;
+            request.setPartialPath(finished.isPartialPath());
+            request.setCostBound(finished.getCostBound());
+            request.statusChanged = false;
+            request.changeStatus(PathFinderRequest.SEARCH_FINALIZED);
+            request.queueWaitNanos = finishedTime - request.queuedTime;
+            record(request, finishedTime);
+            ++sharedCount;
+            sharing.add(request);
+        }
+    }
+
+    /**
+     * @return true if '{@code a}' should be searched before '{@code b}'
+     */
+    private static boolean isBefore(NavMeshPathRequest a, boolean aStarving, NavMeshPathRequest b, boolean bStarving) {
+        if(aStarving != bStarving) {
+            return aStarving;
+        }
+        if(!aStarving && a.getPriority() != b.getPriority()) {
+            return a.getPriority() > b.getPriority();
+        }
+        if(!aStarving && a.getDeadline() != b.getDeadline()) {
+            return a.getDeadline() < b.getDeadline();
+        }
+
+        // Handles increase with arrival
+        return a.handle < b.handle;
+    }
+
+    /**
+     * Add a completed request to the statistics.
+     */
+    private void record(NavMeshPathRequest request, long finishedTime) {
+        ++completedCount;
+        if(finishedTime > request.getDeadline()) {
+            ++missedDeadlineCount;
+        }
+        totalQueueWaitNanos += request.queueWaitNanos;
+        maxQueueWaitNanos = Math.max(maxQueueWaitNanos, request.queueWaitNanos);
+        totalSearchNanos += request.searchNanos;
+        maxSearchNanos = Math.max(maxSearchNanos, request.searchNanos);
+    }
+
+    /**
+     * Answer through the request callback, or by a message to the request client.
+     */
+    private void respond(NavMeshPathRequest request) {
+        if(request.getCallback() != null) {
+            request.getCallback().pathFinished(request);
+
+        } else if(request.client != null) {
+            (request.dispatcher != null ? request.dispatcher : MessageManager.getInstance())
+                    .dispatchMessage(this, request.client, request.responseMessageCode, request);
+        }
+    }
+
+    /**
+     * @return number of requests waiting or being searched
+     */
+    public int size() {
+        return waiting.size + (current != null ? 1 : 0);
+    }
+
+    /**
+     * @return true if requests without an owner supersede waiting requests of the same client
+     */
+    public boolean isSupersedeByClient() {
+        return supersedeByClient;
+    }
+
+    /**
+     * @param supersedeByClient true if requests without an owner supersede waiting requests of the same client.
+     * Only enable when each {@link Telegraph} requests paths for a single agent, a telegraph requesting for several
+     * agents would have all but its latest waiting request cancelled. Defaults to false.
+     */
+    public void setSupersedeByClient(boolean supersedeByClient) {
+        this.supersedeByClient = supersedeByClient;
+    }
+
+    /**
+     * Reset the counts, totals and maximums.
+     */
+    public void resetStats() {
+        completedCount = 0;
+        cancelledCount = 0;
+        supersededCount = 0;
+        sharedCount = 0;
+        missedDeadlineCount = 0;
+        totalQueueWaitNanos = 0L;
+        maxQueueWaitNanos = 0L;
+        totalSearchNanos = 0L;
+        maxSearchNanos = 0L;
+    }
+
+    /**
+     * @return number of requests answered with a search result
+     */
+    public int getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * @return number of requests answered as cancelled
+     */
+    public int getCancelledCount() {
+        return cancelledCount;
+    }
+
+    /**
+     * @return number of requests cancelled by a newer request of their owner, included in
+     * {@link #getCancelledCount()}
+     */
+    public int getSupersededCount() {
+        return supersededCount;
+    }
+
+    /**
+     * @return number of requests completed with the path of another request, included in
+     * {@link #getCompletedCount()}
+     */
+    public int getSharedCount() {
+        return sharedCount;
+    }
+
+    /**
+     * @return number of completed requests answered after their deadline
+     */
+    public int getMissedDeadlineCount() {
+        return missedDeadlineCount;
+    }
+
+    /**
+     * @return total nanoseconds completed requests waited before their search started
+     */
+    public long getTotalQueueWaitNanos() {
+        return totalQueueWaitNanos;
+    }
+
+    /**
+     * @return longest wait of a completed request before its search started
+     */
+    public long getMaxQueueWaitNanos() {
+        return maxQueueWaitNanos;
+    }
+
+    /**
+     * @return total nanoseconds spent searching completed requests
+     */
+    public long getTotalSearchNanos() {
+        return totalSearchNanos;
+    }
+
+    /**
+     * @return longest search time of a completed request, over all its time slices
+     */
+    public long getMaxSearchNanos() {
+        return maxSearchNanos;
+    }
+}
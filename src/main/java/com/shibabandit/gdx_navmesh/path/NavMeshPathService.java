@@ -0,0 +1,247 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Concurrent path finding over one shared {@link NavMeshGraph}. A fixed pool of worker threads takes
+ * requests from a shared queue. Each worker has its own search context, so searches run in parallel without
+ * locking. Results are delivered to a {@link NavMeshPathCallback} on the worker thread.</p>
+ *
+ * <p>The graph is only read during searches and must not be modified while the service is running, including
+ * {@link NavMeshGraph#setBlocked(NavMeshPathNode, boolean)}. The graph version is recorded when the service is
+ * created. Once it changes, {@link #findPath(Vector2, Vector2, float, NavMeshPathCallback)} throws and the workers
+ * answer the requests they take as {@link NavMeshPathRequest#isCancelled()}, without a path. The check is not
+ * synchronized with the thread modifying the graph, so it catches misuse but does not make it safe. The heuristic
+ * is shared by all workers and must be thread-safe, such as {@link PortalMidpointDistHeuristic}.</p>
+ *
+ * <p>{@link #findPath(Vector2, Vector2, float, NavMeshPathCallback)} may be called from any thread.</p>
+ */
+public class NavMeshPathService {
+
+    /** Used with A* for distance to goal, shared by all workers */
+    protected final Heuristic<NavMeshPathNode> heuristic;
+
+    /** Shared graph to search, read-only while the service runs */
+    protected final NavMeshGraph navMeshGraph;
+
+    /** {@link NavMeshGraph#getVersion()} when the service was created */
+    protected final int graphVersion;
+
+    /** Requests waiting for a worker */
+    protected final BlockingQueue<NavMeshPathRequest> pending;
+
+    /** Pooled requests, guarded by synchronizing on the pool */
+    protected final Pool<NavMeshPathRequest> requestPool;
+
+    /** Worker threads */
+    protected final Thread[] workers;
+
+    /** Number of requests submitted and not yet finished */
+    protected final AtomicInteger inFlight;
+
+    /** False once {@link #shutdown()} has been called */
+    protected volatile boolean running;
+
+    /**
+     * Create the service and start its workers.
+     *
+     * @param heuristic thread-safe heuristic used with A* for distance to goal
+     * @param navMeshGraph graph to search, shared by all workers
+     * @param workerCount number of worker threads, each with its own search context
+     */
+    public NavMeshPathService(Heuristic<NavMeshPathNode> heuristic, NavMeshGraph navMeshGraph, int workerCount) {
+        if(workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be at least 1: " + workerCount);
+        }
+
+        this.heuristic = heuristic;
+        this.navMeshGraph = navMeshGraph;
+
+        // Component labels and the triangle index are read from submitting threads, build them before any submit
+        navMeshGraph.ensureComponents();
+        navMeshGraph.ensureTriIndex();
+        this.graphVersion = navMeshGraph.getVersion();
+
+        this.pending = new LinkedBlockingQueue<>();
+        this.requestPool = new Pool<NavMeshPathRequest>() {
+            @Override
+            protected NavMeshPathRequest newObject() {
+                return new NavMeshPathRequest();
+            }
+        };
+        this.inFlight = new AtomicInteger();
+        this.running = true;
+
+        this.workers = new Thread[workerCount];
+        for(int i = 0; i < workerCount; ++i) {
+            workers[i] = new Thread(new Worker(), NavMeshPathService.class.getSimpleName() + "-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Request a path finding solution to be received by '{@code callback}'. The callback runs on a worker thread.
+     * The request is recycled once the callback returns, so copy anything that is needed later.
+     *
+     * @param startPos starting world position
+     * @param endPos ending world position
+     * @param agentRadius radius of agent in world units
+     * @param callback receives the finished request
+     * @return true if the request was accepted, false if a position is not walkable, the positions are in
+     * disconnected walkable areas or the service is shut down
+     * @throws IllegalStateException if the graph changed since the service was created
+     */
+    public boolean findPath(Vector2 startPos, Vector2 endPos, float agentRadius, NavMeshPathCallback callback) {
+        if(!running) {
+            return false;
+        }
+        checkGraphVersion();
+
+        final NavMeshGraph.QtTriNode startPosNode = navMeshGraph.getContainingTriNode(startPos);
+        final NavMeshGraph.QtTriNode endPosNode = navMeshGraph.getContainingTriNode(endPos);
+
+        if(startPosNode == null || endPosNode == null
+                || !navMeshGraph.isConnected(startPosNode, endPosNode, agentRadius)) {
+            return false;
+        }
+
+        final NavMeshPathRequest request;
+        synchronized (requestPool) {
+            request = requestPool.obtain();
+        }
+        request.init(heuristic, startPosNode, endPosNode, agentRadius, startPos, endPos, 0);
+        request.setCallback(callback);
+
+        inFlight.incrementAndGet();
+        pending.add(request);
+
+        // Raced with shutdown, the drain there may have missed this request
+        if(!running) {
+            dropPending();
+        }
+        return true;
+    }
+
+    /**
+     * @return number of requests submitted and not yet finished
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return number of worker threads
+     */
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    /**
+     * Stop accepting requests and stop the workers after their current search. Requests still waiting in the queue
+     * are dropped without calling their callbacks and no longer count towards {@link #getInFlightCount()}.
+     */
+    public void shutdown() {
+        running = false;
+        for(Thread worker : workers) {
+            worker.interrupt();
+        }
+        dropPending();
+    }
+
+    /**
+     * @return the shared graph searched by the workers
+     */
+    public NavMeshGraph getNavMeshGraph() {
+        return navMeshGraph;
+    }
+
+    /**
+     * Return a finished request to the pool.
+     *
+     * @param request finished request
+     */
+    protected void free(NavMeshPathRequest request) {
+        synchronized (requestPool) {
+            requestPool.free(request);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the graph changed since the service was created
+     */
+    protected void checkGraphVersion() {
+        if(navMeshGraph.getVersion() != graphVersion) {
+            throw new IllegalStateException("Graph changed while the service is running, version "
+                    + navMeshGraph.getVersion() + ", expected " + graphVersion);
+        }
+    }
+
+    /**
+     * Remove the requests still waiting for a worker and return them to the pool without calling their callbacks.
+     */
+    private void dropPending() {
+        NavMeshPathRequest request;
+        while((request = pending.poll()) != null) {
+            inFlight.decrementAndGet();
+            free(request);
+        }
+    }
+
+    /**
+     * Takes requests from the shared queue and searches them with its own search context.
+     */
+    private final class Worker implements Runnable {
+
+        /** Search context owned by this worker */
+        private final IndexedNavMeshAStarPathFinder pathFinder;
+
+        Worker() {
+            this.pathFinder = new IndexedNavMeshAStarPathFinder(navMeshGraph);
+            this.pathFinder.setPrimitiveOpenList(true);
+        }
+
+        @Override
+        public void run() {
+            NavMeshPathRequest request;
+
+            while(running) {
+                try {
+                    request = pending.take();
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                try {
+                    request.statusChanged = true;
+                    request.initializeSearch(Long.MAX_VALUE);
+
+                    // The graph must not change while the service runs, answer without searching a changed graph
+                    if(navMeshGraph.getVersion() != graphVersion) {
+                        request.cancel();
+                    } else {
+                        pathFinder.search(request, Long.MAX_VALUE);
+                    }
+                    request.finalizeSearch(Long.MAX_VALUE);
+                    request.getCallback().pathFinished(request);
+
+                } catch (RuntimeException e) {
+
+                    // Keep the worker alive, report the failure like an uncaught exception
+                    final Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+
+                } finally {
+                    inFlight.decrementAndGet();
+                    free(request);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * <p>Incoming connections of every node of a {@link NavMeshGraph} in CSR form. Portals are oriented per triangle
+ * side, so a shared edge has one node per side and connections between nodes are not always mirrored. Searches
+ * that run from the goal backwards, or precompute costs towards a node, follow these instead of the outgoing
+ * connections.</p>
+ *
+ * <p>The arrays are a snapshot, see {@link #isCurrent(NavMeshGraph)}. Clearances ignore blocked nodes, so blocking
+ * keeps the snapshot current. The incoming edges of a blocked node must not be followed.</p>
+ */
+final class NavMeshReverseGraph {
+
+    /** Edge range per node index, the incoming edges of node i are [offsets[i], offsets[i + 1]) */
+    final int[] offsets;
+
+    /** Source node index per edge */
+    final int[] sources;
+
+    /** Cost per edge */
+    final float[] costs;
+
+    /** Largest agent radius that fits along each edge, ignoring blocked nodes */
+    final float[] clearances;
+
+    /** Index of each edge in the CSR arrays of a {@link CompactNavMeshGraph}, null for other graphs */
+    final int[] edges;
+
+    /** Graph structure version and node count of the snapshot */
+    private final int version, nodeCount;
+
+    NavMeshReverseGraph(NavMeshGraph graph) {
+        final Array<NavMeshPathNode> nodes = graph.getNodes();
+        this.version = graph.getStructureVersion();
+        this.nodeCount = nodes.size;
+        this.offsets = new int[nodeCount + 1];
+
+        final CompactNavMeshGraph compactGraph =
+                graph instanceof CompactNavMeshGraph ? (CompactNavMeshGraph) graph : null;
+        Array<Connection<NavMeshPathNode>> connections;
+
+        // Count incoming edges per target
+        if(compactGraph != null) {
+            final int[] targets = compactGraph.getTargets();
+            for(int e = 0; e < targets.length; ++e) {
+                ++offsets[targets[e] + 1];
+            }
+        } else {
+            for(int i = 0; i < nodeCount; ++i) {
+                if(nodes.get(i) != null) {
+                    connections = graph.getConnections(nodes.get(i));
+                    for(int c = 0; c < connections.size; ++c) {
+                        ++offsets[connections.get(c).getToNode().getIndex() + 1];
+                    }
+                }
+            }
+        }
+        for(int i = 0; i < nodeCount; ++i) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        final int edgeCount = offsets[nodeCount];
+        this.sources = new int[edgeCount];
+        this.costs = new float[edgeCount];
+        this.clearances = new float[edgeCount];
+        this.edges = compactGraph != null ? new int[edgeCount] : null;
+        final int[] fill = new int[nodeCount];
+        int slot;
+
+        if(compactGraph != null) {
+            final int[] forwardOffsets = compactGraph.getOffsets();
+            final int[] targets = compactGraph.getTargets();
+            final float[] forwardCosts = compactGraph.getCosts();
+            for(int i = 0; i < nodeCount; ++i) {
+                for(int e = forwardOffsets[i]; e < forwardOffsets[i + 1]; ++e) {
+                    slot = offsets[targets[e]] + fill[targets[e]]++;
+                    sources[slot] = i;
+                    costs[slot] = forwardCosts[e];
+                    clearances[slot] = compactGraph.unblockedClearance(i, e);
+                    edges[slot] = e;
+                }
+            }
+
+        } else {
+            Connection<NavMeshPathNode> connection;
+            int to;
+            for(int i = 0; i < nodeCount; ++i) {
+                if(nodes.get(i) == null) {
+                    continue;
+                }
+                connections = graph.getConnections(nodes.get(i));
+                for(int c = 0; c < connections.size; ++c) {
+                    connection = connections.get(c);
+                    to = connection.getToNode().getIndex();
+                    slot = offsets[to] + fill[to]++;
+                    sources[slot] = i;
+                    costs[slot] = connection.getCost();
+                    clearances[slot] = IndexedNavMeshAStarPathFinder.unblockedClearance(connection);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param graph graph the snapshot was taken from
+     * @return true if no nodes or connections were added or removed since the snapshot
+     */
+    boolean isCurrent(NavMeshGraph graph) {
+        return version == graph.getStructureVersion() && nodeCount == graph.getNodeCount();
+    }
+}
@@ -3,6 +3,7 @@ package com.shibabandit.gdx_navmesh.path;
 import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
 
 /**
  * Adapted from http://digestingduck.blogspot.com/2010/03/simple-stupid-funnel-algorithm.html
@@ -139,6 +140,29 @@ public final class NavMeshStringPuller {
      * @return list of string-pulled waypoints from starting position to ending position
      */
     public Array<Vector2> stringPull(Vector2 startPos, Vector2 endPos, NavMeshPortal[] portals, float agentRadius) {
+        return stringPull(startPos, endPos, portals, agentRadius, null, null);
+    }
+
+    /**
+     * String pull as {@link #stringPull(Vector2, Vector2, NavMeshPortal[], float)}, also reporting where each
+     * waypoint between the start and end positions came from. A waypoint added while scanning portal i only depends
+     * on portals 0 to i, so a scan over portals with a changed tail can restart from the last waypoint added before
+     * the first changed portal, using the waypoint as the first portal.
+     *
+     * @param startPos starting search position
+     * @param endPos ending search position
+     * @param portals calculated using pathToPortals()
+     * @param agentRadius agent collision radius in world units
+     * @param outPortalIndices if not null, receives the index of the portal each waypoint lies on
+     * @param outScanIndices if not null, receives the index of the portal scanned when each waypoint was added
+     * @return list of string-pulled waypoints from starting position to ending position
+     */
+    public Array<Vector2> stringPull(Vector2 startPos,
+                                     Vector2 endPos,
+                                     NavMeshPortal[] portals,
+                                     float agentRadius,
+                                     IntArray outPortalIndices,
+                                     IntArray outScanIndices) {
         final Array<Vector2> pathPts = new Array<>();
 
         // Init scan state
@@ -185,6 +209,7 @@ public final class NavMeshStringPuller {
 
                     // Right over left, insert left to path and restart scan from portal left point
                     pathPts.add(new Vector2(portalLeft)); // TODO: Remove Vector Allocation
+                    addIndices(outPortalIndices, leftIndex, outScanIndices, i);
 
                     // Make current left the new apex
                     portalApex.set(portalLeft);
@@ -212,6 +237,7 @@ public final class NavMeshStringPuller {
 
                     // Left over right, insert right to path and restart scan from portal right point
                     pathPts.add(new Vector2(portalRight)); // TODO: Remove Vector Allocation
+                    addIndices(outPortalIndices, rightIndex, outScanIndices, i);
 
                     // Make current right the new apex
                     portalApex.set(portalRight);
@@ -235,4 +261,13 @@ public final class NavMeshStringPuller {
 
         return pathPts;
     }
+
+    private static void addIndices(IntArray outPortalIndices, int portalIndex, IntArray outScanIndices, int scanIndex) {
+        if(outPortalIndices != null) {
+            outPortalIndices.add(portalIndex);
+        }
+        if(outScanIndices != null) {
+            outScanIndices.add(scanIndex);
+        }
+    }
 }
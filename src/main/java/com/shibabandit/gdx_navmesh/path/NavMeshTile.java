@@ -0,0 +1,196 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.utils.Array;
+import com.shibabandit.gdx_navmesh.coll.QtSearchIndex;
+
+/**
+ * <p>Resident tile of a {@link TiledNavMeshGraph}. Holds the triangles, path nodes and spatial index loaded from
+ * one baked file, plus the stitch nodes that connect it to neighboring resident tiles.</p>
+ *
+ * <p>Node indices of a tile are in the range [{@link #getIndexBase()}, {@link #getIndexBase()} + slot capacity).
+ * Loaded nodes come first, stitch nodes created when this tile was loaded follow.</p>
+ */
+public final class NavMeshTile {
+
+    /** Tile border sides */
+    static final int WEST = 0, EAST = 1, SOUTH = 2, NORTH = 3;
+
+    /** Rough heap cost per loaded path node, including its portal and connection list */
+    private static final int NODE_BYTES_ESTIMATE = 160;
+
+    /** Rough heap cost per connection */
+    private static final int CONN_BYTES_ESTIMATE = 32;
+
+    /** Rough heap cost per triangle, including its points, quadtree and grid entries and node list */
+    private static final int TRI_BYTES_ESTIMATE = 336;
+
+    /** Tile coordinates */
+    final int tileX, tileY;
+
+    /** Graph slot, the first node index of the tile is slot * slot capacity */
+    final int slot;
+
+    /** First node index of the tile */
+    final int indexBase;
+
+    /** Nodes loaded from the baked file, indexed by node index - {@link #indexBase} */
+    final Array<NavMeshPathNode> nodes;
+
+    /** Walkable triangles of the tile */
+    final Array<NavMeshGraph.QtTriNode> triNodes;
+
+    /** Spatial index of the tile triangles */
+    final QtSearchIndex<NavMeshGraph.QtTriNode> nodesQt;
+
+    /** Grid index of the tile triangles for locating points */
+    final NavMeshTriGrid triGrid;
+
+    /** Triangle edges on each tile border side, see {@link #WEST} */
+    final Array<BorderEdge>[] borderEdges;
+
+    /** Stitches to neighboring tiles, shared with the neighbor */
+    final Array<Stitch> stitches;
+
+    /** Next node index for stitch nodes created by this tile */
+    int nextIndex;
+
+    /** Less and more recently used neighbors in the resident tile list of the graph */
+    NavMeshTile lruPrev, lruNext;
+
+    /** Approximate heap bytes used by the tile */
+    final long memoryEstimate;
+
+    NavMeshTile(int tileX, int tileY, int slot, int indexBase, NavMeshGraph loaded) {
+        this.tileX = tileX;
+        this.tileY = tileY;
+        this.slot = slot;
+        this.indexBase = indexBase;
+        this.nodes = loaded.getNodes();
+        this.triNodes = loaded.getTriNodes();
+        this.nodesQt = loaded.getNodesQt();
+        this.triGrid = loaded.getTriGrid();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Array<BorderEdge>[] edges = new Array[4];
+        this.borderEdges = edges;
+        for(int i = 0; i < borderEdges.length; ++i) {
+            borderEdges[i] = new Array<>(false, 16);
+        }
+        this.stitches = new Array<>(false, 16);
+        this.nextIndex = indexBase + nodes.size;
+
+        long connCount = 0;
+        for(int i = 0; i < nodes.size; ++i) {
+            connCount += nodes.get(i).getConnections().size;
+        }
+        this.memoryEstimate = (long) nodes.size * NODE_BYTES_ESTIMATE
+                + connCount * CONN_BYTES_ESTIMATE
+                + (long) triNodes.size * TRI_BYTES_ESTIMATE;
+    }
+
+    /**
+     * @return tile column
+     */
+    public int getTileX() {
+        return tileX;
+    }
+
+    /**
+     * @return tile row
+     */
+    public int getTileY() {
+        return tileY;
+    }
+
+    /**
+     * @return first node index of the tile
+     */
+    public int getIndexBase() {
+        return indexBase;
+    }
+
+    /**
+     * @return nodes loaded from the baked file, excluding stitch nodes
+     */
+    public Array<NavMeshPathNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return walkable triangles of the tile
+     */
+    public Array<NavMeshGraph.QtTriNode> getTriNodes() {
+        return triNodes;
+    }
+
+    /**
+     * @return spatial index of the tile triangles
+     */
+    public QtSearchIndex<NavMeshGraph.QtTriNode> getNodesQt() {
+        return nodesQt;
+    }
+
+    /**
+     * @return grid index of the tile triangles
+     */
+    public NavMeshTriGrid getTriGrid() {
+        return triGrid;
+    }
+
+    /**
+     * @return number of stitch nodes currently connecting this tile to neighbors
+     */
+    public int getStitchCount() {
+        return stitches.size;
+    }
+
+    /**
+     * @return approximate heap bytes used by the tile
+     */
+    public long getMemoryEstimate() {
+        return memoryEstimate;
+    }
+
+    @Override
+    public String toString() {
+        return "NavMeshTile{" +
+                "tileX=" + tileX +
+                ", tileY=" + tileY +
+                ", slot=" + slot +
+                ", nodes=" + nodes.size +
+                ", stitches=" + stitches.size +
+                '}';
+    }
+
+    /**
+     * Triangle edge on a tile border, as an interval along the border.
+     */
+    static final class BorderEdge {
+        final NavMeshGraph.QtTriNode triNode;
+        final float min, max;
+
+        BorderEdge(NavMeshGraph.QtTriNode triNode, float min, float max) {
+            this.triNode = triNode;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    /**
+     * Portal node shared by two triangles in neighboring tiles.
+     */
+    static final class Stitch {
+        final NavMeshPathNode node;
+        final NavMeshTile tileA, tileB;
+        final NavMeshGraph.QtTriNode triNodeA, triNodeB;
+
+        Stitch(NavMeshPathNode node,
+               NavMeshTile tileA, NavMeshGraph.QtTriNode triNodeA,
+               NavMeshTile tileB, NavMeshGraph.QtTriNode triNodeB) {
+            this.node = node;
+            this.tileA = tileA;
+            this.triNodeA = triNodeA;
+            this.tileB = tileB;
+            this.triNodeB = triNodeB;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import java.nio.file.Path;
+
+/**
+ * Locates baked tile files for a {@link TiledNavMeshGraph}.
+ */
+public interface NavMeshTileSource {
+
+    /**
+     * @param tileX tile column
+     * @param tileY tile row
+     * @return file baked with {@link NavMeshBake#write(NavMeshGraph, Path)} for the tile, or null if there is no
+     * walkable area in the tile
+     */
+    Path getTileFile(int tileX, int tileY);
+}
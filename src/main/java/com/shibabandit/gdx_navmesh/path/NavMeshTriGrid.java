@@ -0,0 +1,196 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.math.Vector2;
+import org.locationtech.jts.geom.Envelope;
+import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
+
+import java.util.List;
+
+import static com.shibabandit.gdx_navmesh.util.DelaunayTriangleUtil.dtContains;
+
+/**
+ * <p>Uniform grid over the triangles of a {@link NavMeshGraph} for locating points. Each cell keeps the ids of the
+ * triangles whose bounds overlap it in one flat array, so a lookup is a cell computation and a few
+ * {@code dtContains} tests without allocation or visitor calls. Cells are sized for about
+ * {@link #TRIS_PER_CELL} triangles each on average.</p>
+ *
+ * <p>The grid does not change after it is built, it may be read by several threads. Obtained through
+ * {@link NavMeshGraph#getTriGrid()}, which builds it again after triangles are added or removed.
+ * {@link TiledNavMeshGraph} keeps one grid per tile instead, so loading a tile only builds the grid of that tile.</p>
+ */
+public class NavMeshTriGrid {
+
+    /** Average number of triangles per cell the cell size is chosen for */
+    public static final int TRIS_PER_CELL = 2;
+
+    /** Maximum number of cells along each axis */
+    public static final int MAX_CELLS_PER_AXIS = 2048;
+
+    /** Triangles by id */
+    private final NavMeshGraph.QtTriNode[] triNodes;
+
+    /** Lower left corner of the grid */
+    private final float minX, minY;
+
+    /** Inverse of the cell width and height */
+    private final float invCellWidth, invCellHeight;
+
+    /** Number of cells along x and y */
+    private final int cols, rows;
+
+    /** Start of each cell in {@link #cellTris}, row-major with one extra entry at the end */
+    private final int[] cellStarts;
+
+    /** Triangle ids per cell */
+    private final int[] cellTris;
+
+    /**
+     * @param triNodes triangles to index
+     */
+    public NavMeshTriGrid(List<NavMeshGraph.QtTriNode> triNodes) {
+        this.triNodes = triNodes.toArray(new NavMeshGraph.QtTriNode[triNodes.size()]);
+
+        final Envelope bounds = new Envelope();
+        for(int i = 0; i < this.triNodes.length; ++i) {
+            bounds.expandToInclude(this.triNodes[i].getEnvelope());
+        }
+
+        // Cells of about TRIS_PER_CELL triangles by area, at least one
+        if(this.triNodes.length > 0 && bounds.getArea() > 0d) {
+            final double cellSize = Math.sqrt(bounds.getArea() * TRIS_PER_CELL / this.triNodes.length);
+            this.cols = (int) Math.max(1L, Math.min(MAX_CELLS_PER_AXIS, (long) Math.ceil(bounds.getWidth() / cellSize)));
+            this.rows = (int) Math.max(1L, Math.min(MAX_CELLS_PER_AXIS, (long) Math.ceil(bounds.getHeight() / cellSize)));
+        } else {
+            this.cols = 1;
+            this.rows = 1;
+        }
+        this.minX = this.triNodes.length > 0 ? (float) bounds.getMinX() : 0f;
+        this.minY = this.triNodes.length > 0 ? (float) bounds.getMinY() : 0f;
+        this.invCellWidth = bounds.getWidth() > 0d ? (float) (cols / bounds.getWidth()) : 0f;
+        this.invCellHeight = bounds.getHeight() > 0d ? (float) (rows / bounds.getHeight()) : 0f;
+
+        // Count the triangles per cell, then fill the cells
+        this.cellStarts = new int[cols * rows + 1];
+        Envelope env;
+        for(int i = 0; i < this.triNodes.length; ++i) {
+            env = this.triNodes[i].getEnvelope();
+            for(int y = row((float) env.getMinY()); y <= row((float) env.getMaxY()); ++y) {
+                for(int x = col((float) env.getMinX()); x <= col((float) env.getMaxX()); ++x) {
+                    ++cellStarts[y * cols + x + 1];
+                }
+            }
+        }
+        for(int c = 0; c < cols * rows; ++c) {
+            cellStarts[c + 1] += cellStarts[c];
+        }
+
+        this.cellTris = new int[cellStarts[cols * rows]];
+        final int[] fill = new int[cols * rows];
+        int cell;
+        for(int i = 0; i < this.triNodes.length; ++i) {
+            env = this.triNodes[i].getEnvelope();
+            for(int y = row((float) env.getMinY()); y <= row((float) env.getMaxY()); ++y) {
+                for(int x = col((float) env.getMinX()); x <= col((float) env.getMaxX()); ++x) {
+                    cell = y * cols + x;
+                    cellTris[cellStarts[cell] + fill[cell]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param pos position to locate
+     * @return triangle containing the position, or null if it is not walkable
+     */
+    public NavMeshGraph.QtTriNode locate(Vector2 pos) {
+        return locate(pos.x, pos.y);
+    }
+
+    /**
+     * @param x x position to locate
+     * @param y y position to locate
+     * @return triangle containing the position, or null if it is not walkable
+     */
+    public NavMeshGraph.QtTriNode locate(float x, float y) {
+        final int cell = cellOf(x, y);
+        if(cell < 0) {
+            return null;
+        }
+
+        NavMeshGraph.QtTriNode triNode;
+        for(int i = cellStarts[cell]; i < cellStarts[cell + 1]; ++i) {
+            triNode = triNodes[cellTris[i]];
+            if(dtContains(triNode.getDt(), x, y)) {
+                return triNode;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param dt walkable triangle of the graph
+     * @return node of the triangle, or null if it is not in the grid
+     */
+    public NavMeshGraph.QtTriNode find(DelaunayTriangle dt) {
+        final float x = (dt.points[0].getXf() + dt.points[1].getXf() + dt.points[2].getXf()) / 3f;
+        final float y = (dt.points[0].getYf() + dt.points[1].getYf() + dt.points[2].getYf()) / 3f;
+        final int cell = cellOf(x, y);
+        if(cell < 0) {
+            return null;
+        }
+
+        for(int i = cellStarts[cell]; i < cellStarts[cell + 1]; ++i) {
+            if(triNodes[cellTris[i]].getDt() == dt) {
+                return triNodes[cellTris[i]];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of indexed triangles
+     */
+    public int getTriCount() {
+        return triNodes.length;
+    }
+
+    /**
+     * @return number of cells along x
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return number of cells along y
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return row-major cell index of the position, or -1 outside the grid
+     */
+    private int cellOf(float x, float y) {
+        if(triNodes.length == 0 || x < minX || y < minY) {
+            return -1;
+        }
+
+        final int cx = (int) ((x - minX) * invCellWidth);
+        final int cy = (int) ((y - minY) * invCellHeight);
+        if(cx > cols || cy > rows) {
+            return -1;
+        }
+
+        // The upper bounds belong to the last cells
+        return Math.min(cy, rows - 1) * cols + Math.min(cx, cols - 1);
+    }
+
+    private int col(float x) {
+        return Math.max(0, Math.min(cols - 1, (int) ((x - minX) * invCellWidth)));
+    }
+
+    private int row(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) ((y - minY) * invCellHeight)));
+    }
+}
@@ -0,0 +1,592 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static com.shibabandit.gdx_navmesh.util.DelaunayTriangleUtil.dtGetEdge;
+
+/**
+ * <p>Navmesh graph made of square tiles that are paged in from baked files on demand. Each tile is baked on its own
+ * with {@link NavMeshBake#write(NavMeshGraph, Path)} from walkable polygons clipped to the tile bounds. Tile
+ * (x, y) covers world [x * tileSize, (x + 1) * tileSize) by [y * tileSize, (y + 1) * tileSize).</p>
+ *
+ * <p>When a tile is loaded, triangle edges on its border that overlap border edges of a resident neighbor are
+ * stitched with a new portal node connected to both triangles. Stitches are removed again when either tile is
+ * unloaded.</p>
+ *
+ * <p>Resident tiles are kept under a memory budget with least recently used eviction. Loading a tile or calling
+ * {@link #getTile(int, int)} marks it as used. Tiles live in fixed node index slots, so the node count does not change
+ * and one path finder can search the graph while tiles come and go. Tiles must not be loaded or unloaded while a
+ * search is running, and paths through unloaded tiles should be requested again.</p>
+ *
+ * <p>The graph level spatial index holds the triangles of all resident tiles, each tile also has its own index.
+ * Points are located with the triangle grid of the tile under them, built when the tile is loaded, so tile changes
+ * do not rebuild a grid over all resident tiles.</p>
+ */
+public class TiledNavMeshGraph extends NavMeshGraph {
+
+    /** Finds baked tile files */
+    protected final NavMeshTileSource tileSource;
+
+    /** World width and height of a tile */
+    protected final float tileSize;
+
+    /** Node indices reserved per tile, must fit loaded nodes and stitch nodes */
+    protected final int slotCapacity;
+
+    /** Approximate heap bytes resident tiles may use before the least recently used are evicted */
+    protected final long memoryBudget;
+
+    /** Resident tiles by {@link #tileKey(int, int)} */
+    protected final LongMap<NavMeshTile> tiles;
+
+    /** Least and most recently used resident tiles, the ends of a list linked through the tiles */
+    protected NavMeshTile lruHead, lruTail;
+
+    /** Unused tile slots */
+    protected final IntArray freeSlots;
+
+    /** Sum of {@link NavMeshTile#getMemoryEstimate()} for resident tiles */
+    protected long residentBytes;
+
+    /** Edge end points used while finding border edges */
+    private final Vector2 edgeA = new Vector2(), edgeB = new Vector2();
+
+    /**
+     * @param tileSource finds baked tile files, may be null if {@link #readTile(int, int, int)} is overridden
+     * @param tileSize world width and height of a tile
+     * @param maxResidentTiles maximum number of tiles resident at once
+     * @param slotCapacity node indices reserved per tile, must fit the nodes of any tile plus its stitch nodes
+     * @param memoryBudget approximate heap bytes resident tiles may use
+     */
+    public TiledNavMeshGraph(NavMeshTileSource tileSource,
+                             float tileSize,
+                             int maxResidentTiles,
+                             int slotCapacity,
+                             long memoryBudget) {
+        super();
+
+        if(maxResidentTiles < 1) {
+            throw new IllegalArgumentException("maxResidentTiles must be at least 1: " + maxResidentTiles);
+        }
+        if((long) maxResidentTiles * slotCapacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxResidentTiles * slotCapacity exceeds node index range");
+        }
+
+        this.tileSource = tileSource;
+        this.tileSize = tileSize;
+        this.slotCapacity = slotCapacity;
+        this.memoryBudget = memoryBudget;
+        this.tiles = new LongMap<>(maxResidentTiles * 2);
+        this.freeSlots = new IntArray(maxResidentTiles);
+        for(int slot = maxResidentTiles - 1; slot >= 0; --slot) {
+            freeSlots.add(slot);
+        }
+
+        // Fixed node index space, null for unused indices
+        this.nodes = new Array<>(maxResidentTiles * slotCapacity);
+        this.nodes.setSize(maxResidentTiles * slotCapacity);
+        this.nextIndex = nodes.size;
+    }
+
+    /**
+     * @param x world x or y coordinate
+     * @return tile column or row containing the coordinate
+     */
+    public int toTileCoord(float x) {
+        return (int) Math.floor(x / tileSize);
+    }
+
+    /**
+     * Get a resident tile and mark it as recently used.
+     *
+     * @param tileX tile column
+     * @param tileY tile row
+     * @return the resident tile, or null if it is not loaded
+     */
+    public NavMeshTile getTile(int tileX, int tileY) {
+        final NavMeshTile tile = tiles.get(tileKey(tileX, tileY));
+        if(tile != null) {
+            markUsed(tile);
+        }
+        return tile;
+    }
+
+    /**
+     * Locate a position in the triangle grid of the resident tile under it. Positions within rounding distance of a
+     * tile border also try the neighboring tile. Does not mark tiles as used.
+     *
+     * @param pos position to locate
+     * @return walkable triangle containing the position, or null if there is none or its tile is not loaded
+     */
+    @Override
+    public NavMeshGraph.QtTriNode getContainingTriNode(Vector2 pos) {
+        final float eps = tileSize * 1e-5f;
+        final int minX = toTileCoord(pos.x - eps), maxX = toTileCoord(pos.x + eps);
+        final int minY = toTileCoord(pos.y - eps), maxY = toTileCoord(pos.y + eps);
+
+        NavMeshTile tile;
+        NavMeshGraph.QtTriNode triNode;
+        for(int tileY = minY; tileY <= maxY; ++tileY) {
+            for(int tileX = minX; tileX <= maxX; ++tileX) {
+                tile = tiles.get(tileKey(tileX, tileY));
+                if(tile != null && (triNode = tile.triGrid.locate(pos.x, pos.y)) != null) {
+                    return triNode;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param dt walkable triangle of the graph
+     * @return node of the triangle from the grid of the tile holding it, or null if it is not in a resident tile
+     */
+    @Override
+    public NavMeshGraph.QtTriNode findTriNode(DelaunayTriangle dt) {
+        final float x = (dt.points[0].getXf() + dt.points[1].getXf() + dt.points[2].getXf()) / 3f;
+        final float y = (dt.points[0].getYf() + dt.points[1].getYf() + dt.points[2].getYf()) / 3f;
+        final NavMeshTile tile = tiles.get(tileKey(toTileCoord(x), toTileCoord(y)));
+        return tile != null ? tile.triGrid.find(dt) : null;
+    }
+
+    /**
+     * Tile grids are built when tiles are loaded, nothing to build.
+     */
+    @Override
+    protected void ensureTriIndex() {
+    }
+
+    /**
+     * Load all tiles overlapping the square around '{@code pos}'.
+     *
+     * @param pos world position
+     * @param range half-width of the square
+     * @throws IOException if a tile file could not be read
+     */
+    public void loadTilesInRange(Vector2 pos, float range) throws IOException {
+        final int minX = toTileCoord(pos.x - range), maxX = toTileCoord(pos.x + range);
+        final int minY = toTileCoord(pos.y - range), maxY = toTileCoord(pos.y + range);
+
+        for(int tileY = minY; tileY <= maxY; ++tileY) {
+            for(int tileX = minX; tileX <= maxX; ++tileX) {
+                loadTile(tileX, tileY);
+            }
+        }
+    }
+
+    /**
+     * Load a tile if it is not resident and mark it as recently used. May evict the least recently used tiles to
+     * stay within the memory budget.
+     *
+     * @param tileX tile column
+     * @param tileY tile row
+     * @return the resident tile, or null if the tile source has no file for the tile
+     * @throws IOException if the tile file could not be read
+     */
+    public NavMeshTile loadTile(int tileX, int tileY) throws IOException {
+        final long key = tileKey(tileX, tileY);
+        NavMeshTile tile = tiles.get(key);
+        if(tile != null) {
+            markUsed(tile);
+            return tile;
+        }
+
+        // Without a free slot, read into the slot of the least recently used tile and only evict it once the new
+        // tile was read, so a missing or broken tile file does not unload anything
+        final int slot = freeSlots.size > 0 ? freeSlots.peek() : lruHead.slot;
+        final int indexBase = slot * slotCapacity;
+
+        final NavMeshGraph loaded = readTile(tileX, tileY, indexBase);
+        if(loaded == null) {
+            return null;
+        }
+        if(loaded.getNodeCount() > slotCapacity) {
+            throw new IOException("Tile " + tileX + "," + tileY + " has " + loaded.getNodeCount()
+                    + " nodes, slot capacity is " + slotCapacity);
+        }
+
+        if(freeSlots.size < 1) {
+            evictLeastRecentlyUsed();
+        }
+        freeSlots.removeValue(slot);
+
+        tile = new NavMeshTile(tileX, tileY, slot, indexBase, loaded);
+        addTile(tile);
+        tiles.put(key, tile);
+        linkMostRecent(tile);
+        residentBytes += tile.getMemoryEstimate();
+
+        // Stay within budget, never evicting the tile just loaded
+        while(residentBytes > memoryBudget && tiles.size > 1) {
+            evictLeastRecentlyUsed();
+        }
+
+        return tile;
+    }
+
+    /**
+     * Read the graph parts of a tile with node indices starting at '{@code indexBase}'. Reads the baked file from the
+     * tile source by default.
+     *
+     * @param tileX tile column
+     * @param tileY tile row
+     * @param indexBase index of the first tile node
+     * @return tile graph parts, or null if there is no walkable area in the tile
+     * @throws IOException if the tile could not be read
+     */
+    protected NavMeshGraph readTile(int tileX, int tileY, int indexBase) throws IOException {
+        final Path file = tileSource.getTileFile(tileX, tileY);
+        return file != null ? NavMeshBake.read(file, false, indexBase) : null;
+    }
+
+    /**
+     * Unload a tile and remove its stitches to neighboring tiles.
+     *
+     * @param tileX tile column
+     * @param tileY tile row
+     * @return true if the tile was resident
+     */
+    public boolean unloadTile(int tileX, int tileY) {
+        final NavMeshTile tile = tiles.remove(tileKey(tileX, tileY));
+        if(tile == null) {
+            return false;
+        }
+
+        unlinkLru(tile);
+        removeTile(tile);
+        residentBytes -= tile.getMemoryEstimate();
+        freeSlots.add(tile.slot);
+        return true;
+    }
+
+    /**
+     * Unload the least recently used tile.
+     */
+    protected void evictLeastRecentlyUsed() {
+        if(lruHead != null) {
+            unloadTile(lruHead.tileX, lruHead.tileY);
+        }
+    }
+
+    /**
+     * Move a resident tile to the most recently used end of the list.
+     */
+    private void markUsed(NavMeshTile tile) {
+        if(tile != lruTail) {
+            unlinkLru(tile);
+            linkMostRecent(tile);
+        }
+    }
+
+    private void linkMostRecent(NavMeshTile tile) {
+        tile.lruPrev = lruTail;
+        tile.lruNext = null;
+        if(lruTail != null) {
+            lruTail.lruNext = tile;
+        } else {
+            lruHead = tile;
+        }
+        lruTail = tile;
+    }
+
+    private void unlinkLru(NavMeshTile tile) {
+        if(tile.lruPrev != null) {
+            tile.lruPrev.lruNext = tile.lruNext;
+        } else {
+            lruHead = tile.lruNext;
+        }
+        if(tile.lruNext != null) {
+            tile.lruNext.lruPrev = tile.lruPrev;
+        } else {
+            lruTail = tile.lruPrev;
+        }
+        tile.lruPrev = null;
+        tile.lruNext = null;
+    }
+
+    /**
+     * Publish the nodes and triangles of a loaded tile and stitch it to resident neighbors.
+     *
+     * @param tile loaded tile
+     */
+    protected void addTile(NavMeshTile tile) {
+        ++version;
+        ++structureVersion;
+
+        NavMeshPathNode node;
+        for(int i = 0; i < tile.nodes.size; ++i) {
+            node = tile.nodes.get(i);
+            nodes.set(node.getIndex(), node);
+            portalToNode.put(node.getPortal(), node);
+        }
+
+        final Quadtree qt = nodesQt.getQt();
+        for(int i = 0; i < tile.triNodes.size; ++i) {
+            qt.insert(tile.triNodes.get(i).getEnvelope(), tile.triNodes.get(i));
+        }
+
+        findBorderEdges(tile);
+
+        stitch(tile, tiles.get(tileKey(tile.tileX - 1, tile.tileY)), NavMeshTile.WEST);
+        stitch(tile, tiles.get(tileKey(tile.tileX + 1, tile.tileY)), NavMeshTile.EAST);
+        stitch(tile, tiles.get(tileKey(tile.tileX, tile.tileY - 1)), NavMeshTile.SOUTH);
+        stitch(tile, tiles.get(tileKey(tile.tileX, tile.tileY + 1)), NavMeshTile.NORTH);
+
+        notifyGraphChanged();
+    }
+
+    /**
+     * Remove the nodes, triangles and stitches of a tile from the graph.
+     *
+     * @param tile resident tile
+     */
+    protected void removeTile(NavMeshTile tile) {
+        ++version;
+        ++structureVersion;
+
+        NavMeshTile.Stitch stitch;
+        for(int i = 0; i < tile.stitches.size; ++i) {
+            stitch = tile.stitches.get(i);
+            if(stitch.tileA == tile) {
+                stitch.tileB.stitches.removeValue(stitch, true);
+                unlink(stitch.triNodeB, stitch.node);
+            } else {
+                stitch.tileA.stitches.removeValue(stitch, true);
+                unlink(stitch.triNodeA, stitch.node);
+            }
+            releaseNode(stitch.node);
+        }
+        tile.stitches.clear();
+
+        for(int i = 0; i < tile.nodes.size; ++i) {
+            releaseNode(tile.nodes.get(i));
+        }
+
+        final Quadtree qt = nodesQt.getQt();
+        for(int i = 0; i < tile.triNodes.size; ++i) {
+            qt.remove(tile.triNodes.get(i).getEnvelope(), tile.triNodes.get(i));
+        }
+
+        notifyGraphChanged();
+    }
+
+    /**
+     * Collect triangle edges of '{@code tile}' that lie on its border and are not shared with a walkable triangle.
+     */
+    private void findBorderEdges(NavMeshTile tile) {
+        final float minX = tile.tileX * tileSize, maxX = minX + tileSize;
+        final float minY = tile.tileY * tileSize, maxY = minY + tileSize;
+        final float eps = tileSize * 1e-5f;
+
+        NavMeshGraph.QtTriNode triNode;
+        DelaunayTriangle dt;
+        for(int t = 0; t < tile.triNodes.size; ++t) {
+            triNode = tile.triNodes.get(t);
+            dt = triNode.getDt();
+
+            for(int i = 0; i < 3; ++i) {
+                if((dt.neighbors[i] != null && dt.neighbors[i].isInterior()) || !dtGetEdge(dt, i, edgeA, edgeB)) {
+                    continue;
+                }
+
+                if(Math.abs(edgeA.x - minX) < eps && Math.abs(edgeB.x - minX) < eps) {
+                    addBorderEdge(tile, NavMeshTile.WEST, triNode, edgeA.y, edgeB.y);
+                } else if(Math.abs(edgeA.x - maxX) < eps && Math.abs(edgeB.x - maxX) < eps) {
+                    addBorderEdge(tile, NavMeshTile.EAST, triNode, edgeA.y, edgeB.y);
+                } else if(Math.abs(edgeA.y - minY) < eps && Math.abs(edgeB.y - minY) < eps) {
+                    addBorderEdge(tile, NavMeshTile.SOUTH, triNode, edgeA.x, edgeB.x);
+                } else if(Math.abs(edgeA.y - maxY) < eps && Math.abs(edgeB.y - maxY) < eps) {
+                    addBorderEdge(tile, NavMeshTile.NORTH, triNode, edgeA.x, edgeB.x);
+                }
+            }
+        }
+    }
+
+    private static void addBorderEdge(NavMeshTile tile, int side, NavMeshGraph.QtTriNode triNode, float a, float b) {
+        tile.borderEdges[side].add(new NavMeshTile.BorderEdge(triNode, Math.min(a, b), Math.max(a, b)));
+    }
+
+    /**
+     * Create stitch nodes for overlapping border edges of '{@code tile}' on '{@code side}' and the opposite side of
+     * '{@code neighbor}'.
+     */
+    private void stitch(NavMeshTile tile, NavMeshTile neighbor, int side) {
+        if(neighbor == null) {
+            return;
+        }
+
+        final Array<NavMeshTile.BorderEdge> edges = tile.borderEdges[side];
+        final Array<NavMeshTile.BorderEdge> neighborEdges = neighbor.borderEdges[side ^ 1];
+        final boolean vertical = side == NavMeshTile.WEST || side == NavMeshTile.EAST;
+        final float border = side == NavMeshTile.WEST ? tile.tileX * tileSize
+                : side == NavMeshTile.EAST ? (tile.tileX + 1) * tileSize
+                : side == NavMeshTile.SOUTH ? tile.tileY * tileSize
+                : (tile.tileY + 1) * tileSize;
+        final float eps = tileSize * 1e-5f;
+
+        NavMeshTile.BorderEdge edge, neighborEdge;
+        float min, max;
+        for(int i = 0; i < edges.size; ++i) {
+            edge = edges.get(i);
+            for(int j = 0; j < neighborEdges.size; ++j) {
+                neighborEdge = neighborEdges.get(j);
+
+                min = Math.max(edge.min, neighborEdge.min);
+                max = Math.min(edge.max, neighborEdge.max);
+                if(max - min <= eps) {
+                    continue;
+                }
+
+                if(vertical) {
+                    edgeA.set(border, min);
+                    edgeB.set(border, max);
+                } else {
+                    edgeA.set(min, border);
+                    edgeB.set(max, border);
+                }
+                addStitch(tile, edge.triNode, neighbor, neighborEdge.triNode, edgeA, edgeB);
+            }
+        }
+    }
+
+    private void addStitch(NavMeshTile tile, NavMeshGraph.QtTriNode triNode,
+                           NavMeshTile neighbor, NavMeshGraph.QtTriNode neighborTriNode,
+                           Vector2 ptA, Vector2 ptB) {
+
+        if(tile.nextIndex >= tile.indexBase + slotCapacity) {
+            throw new IllegalStateException("Slot capacity " + slotCapacity + " too small for the stitch nodes of tile "
+                    + tile.tileX + "," + tile.tileY);
+        }
+
+        final NavMeshPortal portal = createPortal(triNode.getDt(), ptA, ptB);
+        final NavMeshPathNode node = createNode(tile.nextIndex++, portal);
+        node.setDtA(triNode.getDt());
+        node.setDtB(neighborTriNode.getDt());
+        nodes.set(node.getIndex(), node);
+        portalToNode.put(portal, node);
+
+        link(triNode, node);
+        link(neighborTriNode, node);
+
+        final NavMeshTile.Stitch stitch = new NavMeshTile.Stitch(node, tile, triNode, neighbor, neighborTriNode);
+        tile.stitches.add(stitch);
+        neighbor.stitches.add(stitch);
+    }
+
+    /**
+     * Connect '{@code node}' both ways with the nodes of '{@code triNode}' and add it to them.
+     */
+    private void link(NavMeshGraph.QtTriNode triNode, NavMeshPathNode node) {
+        final Array<NavMeshPathNode> triNodeNodes = triNode.getNodes();
+        NavMeshPathNode other;
+
+        for(int i = 0; i < triNodeNodes.size; ++i) {
+            other = triNodeNodes.get(i);
+
+            // Triangle node lists may repeat a node
+            if(triNodeNodes.indexOf(other, true) == i) {
+                addConnection(other, node);
+                narrowClearance(other, node);
+                addConnection(node, other);
+                narrowClearance(node, other);
+            }
+        }
+        triNodeNodes.add(node);
+        updateTriClearance(triNode);
+    }
+
+    /**
+     * Narrow the clearance of the connection just added from '{@code from}' to '{@code to}'.
+     */
+    private static void narrowClearance(NavMeshPathNode from, NavMeshPathNode to) {
+        ((NavMeshPathConn) from.getConnections().peek()).setClearance(connectionClearance(from, to));
+    }
+
+    /**
+     * Remove '{@code node}' and all connections to it from the nodes of '{@code triNode}'.
+     */
+    private static void unlink(NavMeshGraph.QtTriNode triNode, NavMeshPathNode node) {
+        final Array<NavMeshPathNode> triNodeNodes = triNode.getNodes();
+        triNodeNodes.removeValue(node, true);
+        updateTriClearance(triNode);
+
+        Array<Connection<NavMeshPathNode>> connections;
+        for(int i = 0; i < triNodeNodes.size; ++i) {
+            connections = triNodeNodes.get(i).getConnections();
+            for(int c = connections.size - 1; c >= 0; --c) {
+                if(connections.get(c).getToNode() == node) {
+                    connections.removeIndex(c);
+                }
+            }
+        }
+    }
+
+    private void releaseNode(NavMeshPathNode node) {
+        nodes.set(node.getIndex(), null);
+        portalToNode.remove(node.getPortal());
+    }
+
+    @Override
+    protected void updateComponents() {
+        super.updateComponents();
+        for(NavMeshTile tile = lruHead; tile != null; tile = tile.lruNext) {
+            labelTriNodes(tile.triNodes);
+        }
+    }
+
+    @Override
+    public Array<Connection<NavMeshPathNode>> getConnections(NavMeshPathNode fromNode) {
+        return fromNode.getConnections();
+    }
+
+    /**
+     * @return number of resident tiles
+     */
+    public int getResidentTileCount() {
+        return tiles.size;
+    }
+
+    /**
+     * @return approximate heap bytes used by resident tiles
+     */
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * @return approximate heap bytes resident tiles may use
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @return world width and height of a tile
+     */
+    public float getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * @return node indices reserved per tile
+     */
+    public int getSlotCapacity() {
+        return slotCapacity;
+    }
+
+    /**
+     * @return map key packing the tile column into the high and the tile row into the low 32 bits
+     */
+    protected static long tileKey(int tileX, int tileY) {
+        return ((long) tileX << 32) | (tileY & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,241 @@
+package com.shibabandit.gdx_navmesh.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>Indexed 4-ary min heap of integer ids ordered by a float key. Ids must be in the range
+ * [0, {@link #capacity()}). Keys and heap positions are stored in flat arrays indexed by id, so no objects
+ * are created when adding, updating or removing entries.</p>
+ *
+ * <p>The key of an id is kept after it is popped and can still be read with {@link #getKey(int)}.</p>
+ */
+public final class IndexedMinHeap {
+
+    /** Heap position for ids that are not in the heap */
+    public static final int NOT_IN_HEAP = -1;
+
+    /** Heap arity */
+    private static final int D = 4;
+
+    /** Heap ordered ids */
+    private int[] heap;
+
+    /** Position in {@link #heap} per id, or {@link #NOT_IN_HEAP} */
+    private int[] heapPos;
+
+    /** Key per id */
+    private float[] keys;
+
+    /** Number of ids in the heap */
+    private int size;
+
+    /**
+     * @param capacity number of distinct ids supported
+     */
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        heapPos = new int[capacity];
+        keys = new float[capacity];
+        Arrays.fill(heapPos, NOT_IN_HEAP);
+        size = 0;
+    }
+
+    /**
+     * Grow storage to support at least '{@code capacity}' distinct ids. Existing entries are kept.
+     *
+     * @param capacity number of distinct ids supported
+     */
+    public void ensureCapacity(int capacity) {
+        if(capacity > heapPos.length) {
+            final int oldCapacity = heapPos.length;
+            heap = Arrays.copyOf(heap, capacity);
+            heapPos = Arrays.copyOf(heapPos, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            Arrays.fill(heapPos, oldCapacity, capacity, NOT_IN_HEAP);
+        }
+    }
+
+    /**
+     * @return number of distinct ids supported
+     */
+    public int capacity() {
+        return heapPos.length;
+    }
+
+    /**
+     * @return number of ids in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the heap has no ids
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all ids. Runs in time proportional to the current size.
+     */
+    public void clear() {
+        for(int i = 0; i < size; ++i) {
+            heapPos[heap[i]] = NOT_IN_HEAP;
+        }
+        size = 0;
+    }
+
+    /**
+     * @param id id to check
+     * @return true if '{@code id}' is in the heap
+     */
+    public boolean contains(int id) {
+        return heapPos[id] != NOT_IN_HEAP;
+    }
+
+    /**
+     * @param id id to get the key for
+     * @return last key set for '{@code id}'
+     */
+    public float getKey(int id) {
+        return keys[id];
+    }
+
+    /**
+     * Add '{@code id}' or update its key if it is already in the heap.
+     *
+     * @param id id to add or update
+     * @param key new key
+     */
+    public void add(int id, float key) {
+        final int pos = heapPos[id];
+
+        if(pos == NOT_IN_HEAP) {
+            keys[id] = key;
+            heap[size] = id;
+            heapPos[id] = size;
+            siftUp(size++);
+
+        } else {
+            final float oldKey = keys[id];
+            keys[id] = key;
+            if(key < oldKey) {
+                siftUp(pos);
+            } else if(key > oldKey) {
+                siftDown(pos);
+            }
+        }
+    }
+
+    /**
+     * @return id with the smallest key, heap must not be empty
+     */
+    public int peek() {
+        return heap[0];
+    }
+
+    /**
+     * @return smallest key in the heap, heap must not be empty
+     */
+    public float peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Remove and return the id with the smallest key. Heap must not be empty.
+     *
+     * @return id with the smallest key
+     */
+    public int pop() {
+        final int top = heap[0];
+        heapPos[top] = NOT_IN_HEAP;
+
+        if(--size > 0) {
+            final int last = heap[size];
+            heap[0] = last;
+            heapPos[last] = 0;
+            siftDown(0);
+        }
+
+        return top;
+    }
+
+    /**
+     * Remove '{@code id}' if it is in the heap.
+     *
+     * @param id id to remove
+     */
+    public void remove(int id) {
+        final int pos = heapPos[id];
+        if(pos == NOT_IN_HEAP) {
+            return;
+        }
+
+        heapPos[id] = NOT_IN_HEAP;
+        if(pos == --size) {
+            return;
+        }
+
+        final int last = heap[size];
+        heap[pos] = last;
+        heapPos[last] = pos;
+        if(pos > 0 && keys[last] < keys[heap[(pos - 1) / D]]) {
+            siftUp(pos);
+        } else {
+            siftDown(pos);
+        }
+    }
+
+    private void siftUp(int pos) {
+        final int id = heap[pos];
+        final float key = keys[id];
+        int parentPos, parentId;
+
+        while(pos > 0) {
+            parentPos = (pos - 1) / D;
+            parentId = heap[parentPos];
+            if(keys[parentId] <= key) {
+                break;
+            }
+            heap[pos] = parentId;
+            heapPos[parentId] = pos;
+            pos = parentPos;
+        }
+
+        heap[pos] = id;
+        heapPos[id] = pos;
+    }
+
+    private void siftDown(int pos) {
+        final int id = heap[pos];
+        final float key = keys[id];
+        int firstChild, lastChild, bestPos, bestId;
+        float bestKey;
+
+        while((firstChild = pos * D + 1) < size) {
+            lastChild = Math.min(firstChild + D, size);
+
+            bestPos = firstChild;
+            bestKey = keys[heap[firstChild]];
+            for(int c = firstChild + 1; c < lastChild; ++c) {
+                if(keys[heap[c]] < bestKey) {
+                    bestPos = c;
+                    bestKey = keys[heap[c]];
+                }
+            }
+
+            if(bestKey >= key) {
+                break;
+            }
+
+            bestId = heap[bestPos];
+            heap[pos] = bestId;
+            heapPos[bestId] = pos;
+            pos = bestPos;
+        }
+
+        heap[pos] = id;
+        heapPos[id] = pos;
+    }
+}
@@ -346,7 +346,7 @@ public class NavMeshTest implements ApplicationListener, Telegraph {
     public boolean handleMessage(Telegram telegram) {
         switch (telegram.message) {
 
-            // PathFinderQueue will call us directly, no need to register for this message
+            // NavMeshPathScheduler will call us directly, no need to register for this message
             case PF_RESPONSE:
                 final NavMeshPathRequest pfr = (NavMeshPathRequest)telegram.extraInfo;
                 latestPath = (DefaultGraphPath<NavMeshPathNode>) pfr.resultPath;
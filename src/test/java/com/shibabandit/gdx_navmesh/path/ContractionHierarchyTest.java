@@ -0,0 +1,225 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Before;
+import org.junit.Test;
+import org.poly2tri.Poly2Tri;
+import org.poly2tri.geometry.polygon.Polygon;
+import org.poly2tri.geometry.polygon.PolygonPoint;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ContractionHierarchyTest {
+
+    private static final int GRID_CELLS = 6;
+    private static final float CELL_SIZE = 40f;
+    private static final int QUERIES = 300;
+    private static final float AGENT_RADIUS = 8f;
+
+    private Array<Polygon> walkables;
+
+    @Before
+    public void setUp() {
+        final float size = GRID_CELLS * CELL_SIZE;
+        final Polygon walkable = new Polygon(new PolygonPoint[] {
+                new PolygonPoint(size, size),
+                new PolygonPoint(size, 0),
+                new PolygonPoint(0, 0),
+                new PolygonPoint(0, size)
+        });
+
+        // One triangle hole per cell, some gaps between holes are too narrow for the agent radius
+        final Random random = new Random(1);
+        float cx, cy, s;
+        for(int y = 0; y < GRID_CELLS; ++y) {
+            for(int x = 0; x < GRID_CELLS; ++x) {
+                cx = (x + 0.5f) * CELL_SIZE + (random.nextFloat() - 0.5f) * 8f;
+                cy = (y + 0.5f) * CELL_SIZE + (random.nextFloat() - 0.5f) * 8f;
+                s = 8f + random.nextFloat() * 7f;
+                walkable.addHole(new Polygon(new PolygonPoint[] {
+                        new PolygonPoint(cx, cy + s),
+                        new PolygonPoint(cx + s, cy - s),
+                        new PolygonPoint(cx - s, cy - s)
+                }));
+            }
+        }
+        Poly2Tri.triangulate(walkable);
+
+        walkables = new Array<>();
+        walkables.add(walkable);
+    }
+
+    @Test
+    public void matchesFlatSearchBetweenNodes() {
+        assertMatchesBetweenNodes(new NavMeshGraph(walkables));
+    }
+
+    @Test
+    public void matchesFlatSearchBetweenNodesOnCompactGraph() {
+        assertMatchesBetweenNodes(new CompactNavMeshGraph(walkables));
+    }
+
+    @Test
+    public void matchesFlatSearchBetweenPositions() {
+        final NavMeshGraph graph = new NavMeshGraph(walkables);
+        assertMatchesBetweenPositions(graph, 0f);
+        assertMatchesBetweenPositions(graph, AGENT_RADIUS);
+    }
+
+    @Test
+    public void matchesFlatSearchBetweenPositionsOnCompactGraph() {
+        final NavMeshGraph graph = new CompactNavMeshGraph(walkables);
+        assertMatchesBetweenPositions(graph, 0f);
+        assertMatchesBetweenPositions(graph, AGENT_RADIUS);
+    }
+
+    /**
+     * Compare node paths between random graph nodes, which the hierarchy searches with its own radius.
+     */
+    private static void assertMatchesBetweenNodes(NavMeshGraph graph) {
+        final ContractionHierarchy hierarchy = new ContractionHierarchy(graph, 0f);
+        assertTrue(hierarchy.getShortcutCount() > 0);
+
+        final IndexedNavMeshAStarPathFinder flat = new IndexedNavMeshAStarPathFinder(graph);
+        final PortalMidpointDistHeuristic heuristic = new PortalMidpointDistHeuristic();
+        final DefaultGraphPath<NavMeshPathNode> flatPath = new DefaultGraphPath<>();
+        final DefaultGraphPath<NavMeshPathNode> hierarchyPath = new DefaultGraphPath<>();
+        final Random random = new Random(7);
+        NavMeshPathNode start, end;
+        boolean flatFound;
+        int found = 0;
+
+        for(int i = 0; i < QUERIES; ++i) {
+            start = graph.getNodes().get(random.nextInt(graph.getNodeCount()));
+            end = graph.getNodes().get(random.nextInt(graph.getNodeCount()));
+            flatPath.clear();
+            hierarchyPath.clear();
+
+            flatFound = flat.searchNodePath(start, end, heuristic, flatPath);
+            assertEquals("path found from node " + start.getIndex() + " to " + end.getIndex(),
+                    flatFound, hierarchy.searchNodePath(start, end, heuristic, hierarchyPath));
+            if(flatFound) {
+                assertSame(start, hierarchyPath.get(0));
+                assertSame(end, hierarchyPath.get(hierarchyPath.getCount() - 1));
+                assertConnected(graph, hierarchyPath);
+                assertEquals("path cost from node " + start.getIndex() + " to " + end.getIndex(),
+                        cost(flatPath), cost(hierarchyPath), 1e-3f * cost(flatPath));
+                ++found;
+            }
+        }
+
+        assertTrue(found > QUERIES / 4);
+    }
+
+    /**
+     * Compare request paths between random positions, which join the hierarchy through dynamic start and end nodes.
+     */
+    private static void assertMatchesBetweenPositions(NavMeshGraph graph, float agentRadius) {
+        final ContractionHierarchy hierarchy = new ContractionHierarchy(graph, agentRadius);
+        final IndexedNavMeshAStarPathFinder flat = new IndexedNavMeshAStarPathFinder(graph);
+        final PortalMidpointDistHeuristic heuristic = new PortalMidpointDistHeuristic();
+        final NavMeshPathRequest flatRequest = new NavMeshPathRequest();
+        final NavMeshPathRequest hierarchyRequest = new NavMeshPathRequest();
+        final float size = GRID_CELLS * CELL_SIZE;
+        final Random random = new Random(7);
+        final Vector2 startPos = new Vector2(), endPos = new Vector2();
+        NavMeshGraph.QtTriNode startTri, endTri;
+        int found = 0, blocked = 0;
+
+        for(int i = 0; i < QUERIES; ++i) {
+            startPos.set(random.nextFloat() * size, random.nextFloat() * size);
+
+            // Some queries start and end in the same triangle
+            if(i % 20 == 0) {
+                endPos.set(startPos).add(0.5f, 0.5f);
+            } else {
+                endPos.set(random.nextFloat() * size, random.nextFloat() * size);
+            }
+            startTri = graph.getContainingTriNode(startPos);
+            endTri = graph.getContainingTriNode(endPos);
+            if(startTri == null || endTri == null) {
+                continue;
+            }
+
+            init(flatRequest, heuristic, startTri, endTri, agentRadius, startPos, endPos);
+            assertTrue(flat.search(flatRequest, Long.MAX_VALUE));
+            init(hierarchyRequest, heuristic, startTri, endTri, agentRadius, startPos, endPos);
+            assertTrue(hierarchy.search(hierarchyRequest, Long.MAX_VALUE));
+
+            assertEquals("path found from " + startPos + " to " + endPos,
+                    flatRequest.pathFound, hierarchyRequest.pathFound);
+            if(flatRequest.pathFound) {
+                assertSame(hierarchyRequest.startNode, hierarchyRequest.resultPath.get(0));
+                assertSame(hierarchyRequest.endNode,
+                        hierarchyRequest.resultPath.get(hierarchyRequest.resultPath.getCount() - 1));
+                assertConnected(graph, hierarchyRequest.resultPath);
+                assertEquals("path cost from " + startPos + " to " + endPos,
+                        cost(flatRequest.resultPath), cost(hierarchyRequest.resultPath),
+                        1e-3f * cost(flatRequest.resultPath));
+                ++found;
+            } else {
+                ++blocked;
+            }
+        }
+
+        // The mesh must exercise both outcomes to be a useful comparison
+        assertTrue(found > QUERIES / 4);
+        if(agentRadius > 0f) {
+            assertTrue(blocked > 0);
+        }
+    }
+
+    /**
+     * Check that each node of an unpacked path is reached from the one before through a connection, virtual edges of
+     * the dynamic start and end nodes included.
+     */
+    private static void assertConnected(NavMeshGraph graph, GraphPath<NavMeshPathNode> path) {
+        NavMeshPathNode from, to;
+        Array<Connection<NavMeshPathNode>> connections;
+        boolean connected;
+        for(int i = 1; i < path.getCount(); ++i) {
+            from = path.get(i - 1);
+            to = path.get(i);
+            if(to.getIndex() == NavMeshPathRequest.END_NODE_INDEX) {
+                continue;
+            }
+
+            connections = from.getIndex() < 0 ? from.getConnections() : graph.getConnections(from);
+            connected = false;
+            for(int c = 0; c < connections.size && !connected; ++c) {
+                connected = connections.get(c).getToNode() == to;
+            }
+            assertTrue("no connection from node " + from.getIndex() + " to " + to.getIndex(), connected);
+        }
+    }
+
+    private static void init(NavMeshPathRequest request,
+                             PortalMidpointDistHeuristic heuristic,
+                             NavMeshGraph.QtTriNode startTri,
+                             NavMeshGraph.QtTriNode endTri,
+                             float agentRadius,
+                             Vector2 startPos,
+                             Vector2 endPos) {
+        request.reset();
+        request.init(heuristic, startTri, endTri, agentRadius, startPos, endPos, 0);
+        request.statusChanged = true;
+        request.initializeSearch(Long.MAX_VALUE);
+    }
+
+    /**
+     * @return sum of the connection costs along the path, connections cost the portal midpoint distance
+     */
+    private static float cost(GraphPath<NavMeshPathNode> path) {
+        float cost = 0f;
+        for(int i = 1; i < path.getCount(); ++i) {
+            cost += path.get(i - 1).getPortal().getMidpoint().dst(path.get(i).getPortal().getMidpoint());
+        }
+        return cost;
+    }
+}
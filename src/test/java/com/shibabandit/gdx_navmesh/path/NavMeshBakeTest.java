@@ -0,0 +1,236 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.poly2tri.Poly2Tri;
+import org.poly2tri.geometry.polygon.Polygon;
+import org.poly2tri.geometry.polygon.PolygonPoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NavMeshBakeTest {
+
+    private static final int GRID_CELLS = 5;
+    private static final float CELL_SIZE = 40f;
+    private static final int QUERIES = 200;
+    private static final float AGENT_RADIUS = 8f;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private NavMeshGraph graph;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        final float size = GRID_CELLS * CELL_SIZE;
+        final Polygon walkable = new Polygon(new PolygonPoint[] {
+                new PolygonPoint(size, size),
+                new PolygonPoint(size, 0),
+                new PolygonPoint(0, 0),
+                new PolygonPoint(0, size)
+        });
+
+        // One triangle hole per cell, some gaps between holes are too narrow for the agent radius
+        final Random random = new Random(1);
+        float cx, cy, s;
+        for(int y = 0; y < GRID_CELLS; ++y) {
+            for(int x = 0; x < GRID_CELLS; ++x) {
+                cx = (x + 0.5f) * CELL_SIZE + (random.nextFloat() - 0.5f) * 8f;
+                cy = (y + 0.5f) * CELL_SIZE + (random.nextFloat() - 0.5f) * 8f;
+                s = 8f + random.nextFloat() * 7f;
+                walkable.addHole(new Polygon(new PolygonPoint[] {
+                        new PolygonPoint(cx, cy + s),
+                        new PolygonPoint(cx + s, cy - s),
+                        new PolygonPoint(cx - s, cy - s)
+                }));
+            }
+        }
+        Poly2Tri.triangulate(walkable);
+
+        final Array<Polygon> walkables = new Array<>();
+        walkables.add(walkable);
+        graph = new NavMeshGraph(walkables);
+
+        file = folder.newFile("graph.nmsh").toPath();
+        NavMeshBake.write(graph, file);
+    }
+
+    @Test
+    public void readsGraphBack() throws IOException {
+        assertSameGraph(NavMeshBake.read(file, false));
+    }
+
+    @Test
+    public void readsCompactGraphBack() throws IOException {
+        final NavMeshGraph read = NavMeshBake.read(file, true);
+        assertTrue(read instanceof CompactNavMeshGraph);
+        assertSameGraph(read);
+    }
+
+    @Test
+    public void searchesFindSamePathCosts() throws IOException {
+        assertSameSearches(NavMeshBake.read(file, false), 0f);
+        assertSameSearches(NavMeshBake.read(file, true), 0f);
+        assertSameSearches(NavMeshBake.read(file, false), AGENT_RADIUS);
+        assertSameSearches(NavMeshBake.read(file, true), AGENT_RADIUS);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedFile() throws IOException {
+        final byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+        NavMeshBake.read(file, false);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedHeader() throws IOException {
+        final byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, 10));
+        NavMeshBake.read(file, true);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsBadMagic() throws IOException {
+        overwriteInt(0, NavMeshBake.MAGIC + 1);
+        NavMeshBake.read(file, false);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherVersion() throws IOException {
+        overwriteInt(4, NavMeshBake.FORMAT_VERSION + 1);
+        NavMeshBake.read(file, false);
+    }
+
+    private void overwriteInt(int offset, int value) throws IOException {
+        final byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        Files.write(file, bytes);
+    }
+
+    private void assertSameGraph(NavMeshGraph read) {
+        assertEquals(graph.getNodeCount(), read.getNodeCount());
+        assertEquals(graph.getTriNodes().size, read.getTriNodes().size);
+
+        NavMeshPathNode node, readNode;
+        for(int i = 0; i < graph.getNodeCount(); ++i) {
+            node = graph.getNodes().get(i);
+            readNode = read.getNodes().get(i);
+            assertEquals(i, readNode.getIndex());
+            assertEquals(node.getPortal().getLeft(), readNode.getPortal().getLeft());
+            assertEquals(node.getPortal().getRight(), readNode.getPortal().getRight());
+
+            final Array<Connection<NavMeshPathNode>> connections = graph.getConnections(node);
+            final Array<Connection<NavMeshPathNode>> readConnections = read.getConnections(readNode);
+            assertEquals(connections.size, readConnections.size);
+            for(int c = 0; c < connections.size; ++c) {
+                assertEquals(connections.get(c).getToNode().getIndex(), readConnections.get(c).getToNode().getIndex());
+                assertEquals(connections.get(c).getCost(), readConnections.get(c).getCost(), 0f);
+                assertEquals(IndexedNavMeshAStarPathFinder.clearance(connections.get(c)),
+                        IndexedNavMeshAStarPathFinder.clearance(readConnections.get(c)), 1e-4f);
+            }
+        }
+
+        NavMeshGraph.QtTriNode triNode, readTriNode;
+        for(int i = 0; i < graph.getTriNodes().size; ++i) {
+            triNode = graph.getTriNodes().get(i);
+            readTriNode = read.getTriNodes().get(i);
+            assertEquals(triNode.getClearance(), readTriNode.getClearance(), 1e-4f);
+            assertEquals(triNode.getNodes().size, readTriNode.getNodes().size);
+            for(int n = 0; n < triNode.getNodes().size; ++n) {
+                assertEquals(triNode.getNodes().get(n).getIndex(), readTriNode.getNodes().get(n).getIndex());
+            }
+        }
+
+        if(read instanceof CompactNavMeshGraph) {
+            int edge = 0;
+            final float[] clearances = ((CompactNavMeshGraph) read).getClearances();
+            for(int i = 0; i < graph.getNodeCount(); ++i) {
+                final Array<Connection<NavMeshPathNode>> connections = graph.getConnections(graph.getNodes().get(i));
+                for(int c = 0; c < connections.size; ++c) {
+                    assertEquals(IndexedNavMeshAStarPathFinder.clearance(connections.get(c)), clearances[edge++],
+                            1e-4f);
+                }
+            }
+            assertEquals(clearances.length, edge);
+        }
+    }
+
+    private void assertSameSearches(NavMeshGraph read, float agentRadius) {
+        final IndexedNavMeshAStarPathFinder pathFinder = new IndexedNavMeshAStarPathFinder(graph);
+        final IndexedNavMeshAStarPathFinder readPathFinder = new IndexedNavMeshAStarPathFinder(read);
+        final NavMeshPathRequest request = new NavMeshPathRequest();
+        final NavMeshPathRequest readRequest = new NavMeshPathRequest();
+        final PortalMidpointDistHeuristic heuristic = new PortalMidpointDistHeuristic();
+        final float size = GRID_CELLS * CELL_SIZE;
+        final Random random = new Random(7);
+        final Vector2 startPos = new Vector2(), endPos = new Vector2();
+        int found = 0;
+
+        for(int i = 0; i < QUERIES; ++i) {
+            startPos.set(random.nextFloat() * size, random.nextFloat() * size);
+            endPos.set(random.nextFloat() * size, random.nextFloat() * size);
+            final NavMeshGraph.QtTriNode startTri = graph.getContainingTriNode(startPos);
+            final NavMeshGraph.QtTriNode endTri = graph.getContainingTriNode(endPos);
+            final NavMeshGraph.QtTriNode readStartTri = read.getContainingTriNode(startPos);
+            final NavMeshGraph.QtTriNode readEndTri = read.getContainingTriNode(endPos);
+            assertEquals(startTri == null, readStartTri == null);
+            assertEquals(endTri == null, readEndTri == null);
+            if(startTri == null || endTri == null) {
+                continue;
+            }
+
+            search(pathFinder, request, heuristic, startTri, endTri, agentRadius, startPos, endPos);
+            search(readPathFinder, readRequest, heuristic, readStartTri, readEndTri, agentRadius, startPos, endPos);
+
+            assertEquals("path found from " + startPos + " to " + endPos, request.pathFound, readRequest.pathFound);
+            if(request.pathFound) {
+                assertEquals("path cost from " + startPos + " to " + endPos,
+                        cost(request), cost(readRequest), 1e-3f * cost(request));
+                ++found;
+            }
+        }
+
+        assertTrue(found > QUERIES / 4);
+    }
+
+    private static void search(IndexedNavMeshAStarPathFinder pathFinder,
+                               NavMeshPathRequest request,
+                               PortalMidpointDistHeuristic heuristic,
+                               NavMeshGraph.QtTriNode startTri,
+                               NavMeshGraph.QtTriNode endTri,
+                               float agentRadius,
+                               Vector2 startPos,
+                               Vector2 endPos) {
+        request.reset();
+        request.init(heuristic, startTri, endTri, agentRadius, startPos, endPos, 0);
+        request.statusChanged = true;
+        request.initializeSearch(Long.MAX_VALUE);
+        assertTrue(pathFinder.search(request, Long.MAX_VALUE));
+    }
+
+    /**
+     * @return sum of the connection costs along the result path, connections cost the portal midpoint distance
+     */
+    private static float cost(NavMeshPathRequest request) {
+        float cost = 0f;
+        for(int i = 1; i < request.resultPath.getCount(); ++i) {
+            cost += request.resultPath.get(i - 1).getPortal().getMidpoint()
+                    .dst(request.resultPath.get(i).getPortal().getMidpoint());
+        }
+        return cost;
+    }
+}
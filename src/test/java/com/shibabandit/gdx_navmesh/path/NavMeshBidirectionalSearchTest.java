@@ -0,0 +1,148 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Before;
+import org.junit.Test;
+import org.poly2tri.Poly2Tri;
+import org.poly2tri.geometry.polygon.Polygon;
+import org.poly2tri.geometry.polygon.PolygonPoint;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NavMeshBidirectionalSearchTest {
+
+    private static final int GRID_CELLS = 6;
+    private static final float CELL_SIZE = 40f;
+    private static final int QUERIES = 300;
+    private static final float AGENT_RADIUS = 8f;
+    private static final int LANDMARKS = 8;
+
+    private NavMeshGraph graph;
+
+    @Before
+    public void setUp() {
+        final float size = GRID_CELLS * CELL_SIZE;
+        final Polygon walkable = new Polygon(new PolygonPoint[] {
+                new PolygonPoint(size, size),
+                new PolygonPoint(size, 0),
+                new PolygonPoint(0, 0),
+                new PolygonPoint(0, size)
+        });
+
+        // One triangle hole per cell, some gaps between holes are too narrow for the agent radius
+        final Random random = new Random(1);
+        float cx, cy, s;
+        for(int y = 0; y < GRID_CELLS; ++y) {
+            for(int x = 0; x < GRID_CELLS; ++x) {
+                cx = (x + 0.5f) * CELL_SIZE + (random.nextFloat() - 0.5f) * 8f;
+                cy = (y + 0.5f) * CELL_SIZE + (random.nextFloat() - 0.5f) * 8f;
+                s = 8f + random.nextFloat() * 7f;
+                walkable.addHole(new Polygon(new PolygonPoint[] {
+                        new PolygonPoint(cx, cy + s),
+                        new PolygonPoint(cx + s, cy - s),
+                        new PolygonPoint(cx - s, cy - s)
+                }));
+            }
+        }
+        Poly2Tri.triangulate(walkable);
+
+        final Array<Polygon> walkables = new Array<>();
+        walkables.add(walkable);
+        graph = new NavMeshGraph(walkables);
+    }
+
+    @Test
+    public void matchesOneWaySearch() {
+        assertMatchesOneWaySearch(new PortalMidpointDistHeuristic(), 0f);
+    }
+
+    @Test
+    public void matchesOneWaySearchWithAgentRadius() {
+        assertMatchesOneWaySearch(new PortalMidpointDistHeuristic(), AGENT_RADIUS);
+    }
+
+    @Test
+    public void matchesOneWaySearchWithAltHeuristic() {
+        final AltHeuristic heuristic = new AltHeuristic(graph, LANDMARKS);
+        assertMatchesOneWaySearch(heuristic, 0f);
+        assertMatchesOneWaySearch(heuristic, AGENT_RADIUS);
+    }
+
+    private void assertMatchesOneWaySearch(Heuristic<NavMeshPathNode> heuristic, float agentRadius) {
+        final IndexedNavMeshAStarPathFinder oneWay = new IndexedNavMeshAStarPathFinder(graph);
+        oneWay.setPrimitiveOpenList(true);
+        final IndexedNavMeshAStarPathFinder bidirectional = new IndexedNavMeshAStarPathFinder(graph);
+        bidirectional.setBidirectional(true);
+
+        final NavMeshPathRequest oneWayRequest = new NavMeshPathRequest();
+        final NavMeshPathRequest bidirectionalRequest = new NavMeshPathRequest();
+        final float size = GRID_CELLS * CELL_SIZE;
+        final Random random = new Random(7);
+        final Vector2 startPos = new Vector2(), endPos = new Vector2();
+        NavMeshGraph.QtTriNode startTri, endTri;
+        int found = 0, blocked = 0;
+
+        for(int i = 0; i < QUERIES; ++i) {
+            startPos.set(random.nextFloat() * size, random.nextFloat() * size);
+            endPos.set(random.nextFloat() * size, random.nextFloat() * size);
+            startTri = graph.getContainingTriNode(startPos);
+            endTri = graph.getContainingTriNode(endPos);
+            if(startTri == null || endTri == null) {
+                continue;
+            }
+
+            search(oneWay, oneWayRequest, heuristic, startTri, endTri, agentRadius, startPos, endPos);
+            search(bidirectional, bidirectionalRequest, heuristic, startTri, endTri, agentRadius, startPos, endPos);
+
+            assertEquals("path found from " + startPos + " to " + endPos,
+                    oneWayRequest.pathFound, bidirectionalRequest.pathFound);
+            if(oneWayRequest.pathFound) {
+                assertEquals("path cost from " + startPos + " to " + endPos,
+                        cost(oneWayRequest), cost(bidirectionalRequest), 1e-3f * cost(oneWayRequest));
+                assertSame(bidirectionalRequest.startNode, bidirectionalRequest.resultPath.get(0));
+                assertSame(bidirectionalRequest.endNode,
+                        bidirectionalRequest.resultPath.get(bidirectionalRequest.resultPath.getCount() - 1));
+                ++found;
+            } else {
+                ++blocked;
+            }
+        }
+
+        // The mesh must exercise both outcomes to be a useful comparison
+        assertTrue(found > QUERIES / 4);
+        if(agentRadius > 0f) {
+            assertTrue(blocked > 0);
+        }
+    }
+
+    private static void search(IndexedNavMeshAStarPathFinder pathFinder,
+                               NavMeshPathRequest request,
+                               Heuristic<NavMeshPathNode> heuristic,
+                               NavMeshGraph.QtTriNode startTri,
+                               NavMeshGraph.QtTriNode endTri,
+                               float agentRadius,
+                               Vector2 startPos,
+                               Vector2 endPos) {
+        request.reset();
+        request.init(heuristic, startTri, endTri, agentRadius, startPos, endPos, 0);
+        request.statusChanged = true;
+        request.initializeSearch(Long.MAX_VALUE);
+        assertTrue(pathFinder.search(request, Long.MAX_VALUE));
+    }
+
+    /**
+     * @return sum of the connection costs along the result path, connections cost the portal midpoint distance
+     */
+    private static float cost(NavMeshPathRequest request) {
+        float cost = 0f;
+        for(int i = 1; i < request.resultPath.getCount(); ++i) {
+            cost += request.resultPath.get(i - 1).getPortal().getMidpoint()
+                    .dst(request.resultPath.get(i).getPortal().getMidpoint());
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,209 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Before;
+import org.junit.Test;
+import org.poly2tri.Poly2Tri;
+import org.poly2tri.geometry.polygon.Polygon;
+import org.poly2tri.geometry.polygon.PolygonPoint;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NavMeshDStarLiteTest {
+
+    private static final int GRID_CELLS = 6;
+    private static final float CELL_SIZE = 40f;
+    private static final int GOALS = 30;
+    private static final int STEPS = 15;
+    private static final int CHANGES_PER_STEP = 4;
+    private static final float AGENT_RADIUS = 8f;
+
+    private Array<Polygon> walkables;
+
+    @Before
+    public void setUp() {
+        final float size = GRID_CELLS * CELL_SIZE;
+        final Polygon walkable = new Polygon(new PolygonPoint[] {
+                new PolygonPoint(size, size),
+                new PolygonPoint(size, 0),
+                new PolygonPoint(0, 0),
+                new PolygonPoint(0, size)
+        });
+
+        // One triangle hole per cell, some gaps between holes are too narrow for the agent radius
+        final Random random = new Random(1);
+        float cx, cy, s;
+        for(int y = 0; y < GRID_CELLS; ++y) {
+            for(int x = 0; x < GRID_CELLS; ++x) {
+                cx = (x + 0.5f) * CELL_SIZE + (random.nextFloat() - 0.5f) * 8f;
+                cy = (y + 0.5f) * CELL_SIZE + (random.nextFloat() - 0.5f) * 8f;
+                s = 8f + random.nextFloat() * 7f;
+                walkable.addHole(new Polygon(new PolygonPoint[] {
+                        new PolygonPoint(cx, cy + s),
+                        new PolygonPoint(cx + s, cy - s),
+                        new PolygonPoint(cx - s, cy - s)
+                }));
+            }
+        }
+        Poly2Tri.triangulate(walkable);
+
+        walkables = new Array<>();
+        walkables.add(walkable);
+    }
+
+    @Test
+    public void matchesFreshSearch() {
+        assertMatchesFreshSearch(new NavMeshGraph(walkables), 0f);
+    }
+
+    @Test
+    public void matchesFreshSearchWithAgentRadius() {
+        assertMatchesFreshSearch(new NavMeshGraph(walkables), AGENT_RADIUS);
+    }
+
+    @Test
+    public void matchesFreshSearchOnCompactGraph() {
+        final NavMeshGraph graph = new CompactNavMeshGraph(walkables);
+        assertMatchesFreshSearch(graph, 0f);
+        assertMatchesFreshSearch(graph, AGENT_RADIUS);
+    }
+
+    /**
+     * Move the start towards the goal along the planned path while random nodes are blocked and unblocked, and
+     * compare each replanned path with a fresh A* search.
+     */
+    private static void assertMatchesFreshSearch(NavMeshGraph graph, float agentRadius) {
+        final IndexedNavMeshAStarPathFinder pathFinder = new IndexedNavMeshAStarPathFinder(graph);
+        final NavMeshDStarLite planner = new NavMeshDStarLite(graph);
+        final PortalMidpointDistHeuristic heuristic = new PortalMidpointDistHeuristic();
+        final NavMeshPathRequest request = new NavMeshPathRequest();
+        final NavMeshPathRequest plannerRequest = new NavMeshPathRequest();
+        final float size = GRID_CELLS * CELL_SIZE;
+        final Random random = new Random(7);
+        final Vector2 startPos = new Vector2(), endPos = new Vector2(), nextPos = new Vector2();
+        final Array<NavMeshPathNode> blocked = new Array<>();
+        NavMeshGraph.QtTriNode startTri, endTri;
+        NavMeshPathNode node;
+        boolean planned;
+        int found = 0, notFound = 0, replanned = 0;
+
+        for(int i = 0; i < GOALS; ++i) {
+            do {
+                startPos.set(random.nextFloat() * size, random.nextFloat() * size);
+            } while(graph.getContainingTriNode(startPos) == null);
+            do {
+                endPos.set(random.nextFloat() * size, random.nextFloat() * size);
+            } while(graph.getContainingTriNode(endPos) == null);
+            endTri = graph.getContainingTriNode(endPos);
+
+            for(int step = 0; step < STEPS; ++step) {
+                startTri = graph.getContainingTriNode(startPos);
+
+                search(pathFinder, request, heuristic, startTri, endTri, agentRadius, startPos, endPos);
+                init(plannerRequest, heuristic, startTri, endTri, agentRadius, startPos, endPos);
+                planned = planner.findPath(plannerRequest);
+                assertEquals(planned, plannerRequest.pathFound);
+
+                assertEquals("path found from " + startPos + " to " + endPos + " at step " + step,
+                        request.pathFound, plannerRequest.pathFound);
+                if(request.pathFound) {
+                    // The planner adds a small cost to every connection, it may prefer a path with fewer nodes
+                    assertEquals("path cost from " + startPos + " to " + endPos + " at step " + step,
+                            cost(request), cost(plannerRequest), 1e-3f * cost(request)
+                                    + NavMeshDStarLite.MIN_CONNECTION_COST * request.resultPath.getCount());
+                    assertSame(plannerRequest.startNode, plannerRequest.resultPath.get(0));
+                    assertSame(plannerRequest.endNode,
+                            plannerRequest.resultPath.get(plannerRequest.resultPath.getCount() - 1));
+                    ++found;
+                } else {
+                    ++notFound;
+                }
+                if(step > 0) {
+                    ++replanned;
+                }
+
+                // Block a node of the planned path so the next plan has to go around it
+                if(plannerRequest.pathFound && plannerRequest.resultPath.getCount() > 3) {
+                    node = plannerRequest.resultPath.get(2 + random.nextInt(plannerRequest.resultPath.getCount() - 3));
+                    if(node.getIndex() >= 0 && !node.isBlocked()) {
+                        graph.setBlocked(node, true);
+                        blocked.add(node);
+                    }
+                }
+
+                // Block and unblock random nodes
+                for(int c = 0; c < CHANGES_PER_STEP; ++c) {
+                    if(blocked.size > 0 && random.nextInt(3) == 0) {
+                        graph.setBlocked(blocked.removeIndex(random.nextInt(blocked.size)), false);
+                    } else {
+                        node = graph.getNodes().get(random.nextInt(graph.getNodeCount()));
+                        if(!node.isBlocked()) {
+                            graph.setBlocked(node, true);
+                            blocked.add(node);
+                        }
+                    }
+                }
+
+                // Move the start part of the way to the first portal of the path
+                if(plannerRequest.pathFound && plannerRequest.resultPath.getCount() > 2) {
+                    nextPos.set(plannerRequest.resultPath.get(1).getPortal().getMidpoint()).lerp(startPos, 0.3f);
+                    if(graph.getContainingTriNode(nextPos) != null) {
+                        startPos.set(nextPos);
+                    }
+                }
+            }
+
+            for(int b = 0; b < blocked.size; ++b) {
+                graph.setBlocked(blocked.get(b), false);
+            }
+            blocked.clear();
+        }
+
+        planner.dispose();
+
+        // The replans must exercise both outcomes to be a useful comparison
+        assertTrue(replanned > GOALS * (STEPS - 2));
+        assertTrue(found > GOALS * STEPS / 4);
+        assertTrue(notFound > 0);
+    }
+
+    private static void init(NavMeshPathRequest request,
+                             PortalMidpointDistHeuristic heuristic,
+                             NavMeshGraph.QtTriNode startTri,
+                             NavMeshGraph.QtTriNode endTri,
+                             float agentRadius,
+                             Vector2 startPos,
+                             Vector2 endPos) {
+        request.reset();
+        request.init(heuristic, startTri, endTri, agentRadius, startPos, endPos, 0);
+        request.statusChanged = true;
+        request.initializeSearch(Long.MAX_VALUE);
+    }
+
+    private static void search(IndexedNavMeshAStarPathFinder pathFinder,
+                               NavMeshPathRequest request,
+                               PortalMidpointDistHeuristic heuristic,
+                               NavMeshGraph.QtTriNode startTri,
+                               NavMeshGraph.QtTriNode endTri,
+                               float agentRadius,
+                               Vector2 startPos,
+                               Vector2 endPos) {
+        init(request, heuristic, startTri, endTri, agentRadius, startPos, endPos);
+        assertTrue(pathFinder.search(request, Long.MAX_VALUE));
+    }
+
+    /**
+     * @return sum of the connection costs along the result path, connections cost the portal midpoint distance
+     */
+    private static float cost(NavMeshPathRequest request) {
+        float cost = 0f;
+        for(int i = 1; i < request.resultPath.getCount(); ++i) {
+            cost += request.resultPath.get(i - 1).getPortal().getMidpoint()
+                    .dst(request.resultPath.get(i).getPortal().getMidpoint());
+        }
+        return cost;
+    }
+}
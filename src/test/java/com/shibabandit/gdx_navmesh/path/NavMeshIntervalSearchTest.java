@@ -0,0 +1,137 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Before;
+import org.junit.Test;
+import org.poly2tri.Poly2Tri;
+import org.poly2tri.geometry.polygon.Polygon;
+import org.poly2tri.geometry.polygon.PolygonPoint;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NavMeshIntervalSearchTest {
+
+    private static final int GRID_CELLS = 6;
+    private static final float CELL_SIZE = 40f;
+    private static final int QUERIES = 300;
+    private static final float AGENT_RADIUS = 8f;
+
+    /** Length difference allowed for rounding, in world units */
+    private static final float LENGTH_TOLERANCE = 1e-2f;
+
+    private NavMeshGraph graph;
+
+    @Before
+    public void setUp() {
+        final float size = GRID_CELLS * CELL_SIZE;
+        final Polygon walkable = new Polygon(new PolygonPoint[] {
+                new PolygonPoint(size, size),
+                new PolygonPoint(size, 0),
+                new PolygonPoint(0, 0),
+                new PolygonPoint(0, size)
+        });
+
+        // One triangle hole per cell, some gaps between holes are too narrow for the agent radius
+        final Random random = new Random(1);
+        float cx, cy, s;
+        for(int y = 0; y < GRID_CELLS; ++y) {
+            for(int x = 0; x < GRID_CELLS; ++x) {
+                cx = (x + 0.5f) * CELL_SIZE + (random.nextFloat() - 0.5f) * 8f;
+                cy = (y + 0.5f) * CELL_SIZE + (random.nextFloat() - 0.5f) * 8f;
+                s = 8f + random.nextFloat() * 7f;
+                walkable.addHole(new Polygon(new PolygonPoint[] {
+                        new PolygonPoint(cx, cy + s),
+                        new PolygonPoint(cx + s, cy - s),
+                        new PolygonPoint(cx - s, cy - s)
+                }));
+            }
+        }
+        Poly2Tri.triangulate(walkable);
+
+        final Array<Polygon> walkables = new Array<>();
+        walkables.add(walkable);
+        graph = new NavMeshGraph(walkables);
+    }
+
+    @Test
+    public void neverLongerThanStringPulledPath() {
+        assertMatchesStringPulledPath(0f);
+    }
+
+    @Test
+    public void neverLongerThanStringPulledPathWithAgentRadius() {
+        assertMatchesStringPulledPath(AGENT_RADIUS);
+    }
+
+    private void assertMatchesStringPulledPath(float agentRadius) {
+        final IndexedNavMeshAStarPathFinder pathFinder = new IndexedNavMeshAStarPathFinder(graph);
+        final NavMeshIntervalSearch intervalSearch = new NavMeshIntervalSearch(graph);
+        final NavMeshStringPuller stringPuller = new NavMeshStringPuller();
+        final NavMeshPathRequest request = new NavMeshPathRequest();
+        final PortalMidpointDistHeuristic heuristic = new PortalMidpointDistHeuristic();
+        final Array<Vector2> intervalPath = new Array<>();
+        final float size = GRID_CELLS * CELL_SIZE;
+        final Random random = new Random(7);
+        final Vector2 startPos = new Vector2(), endPos = new Vector2();
+        NavMeshGraph.QtTriNode startTri, endTri;
+        boolean intervalFound;
+        float pulledLength;
+        int found = 0, blocked = 0;
+
+        for(int i = 0; i < QUERIES; ++i) {
+            startPos.set(random.nextFloat() * size, random.nextFloat() * size);
+            endPos.set(random.nextFloat() * size, random.nextFloat() * size);
+            startTri = graph.getContainingTriNode(startPos);
+            endTri = graph.getContainingTriNode(endPos);
+            if(startTri == null || endTri == null) {
+                continue;
+            }
+
+            request.reset();
+            request.init(heuristic, startTri, endTri, agentRadius, startPos, endPos, 0);
+            request.statusChanged = true;
+            request.initializeSearch(Long.MAX_VALUE);
+            assertTrue(pathFinder.search(request, Long.MAX_VALUE));
+            intervalFound = intervalSearch.findPath(startTri, startPos, endTri, endPos, agentRadius, intervalPath);
+
+            if(!request.pathFound) {
+                assertFalse("interval path from " + startPos + " to " + endPos + " where A* found none",
+                        intervalFound);
+                ++blocked;
+                continue;
+            }
+
+            assertTrue("interval path from " + startPos + " to " + endPos, intervalFound);
+            assertEquals(startPos, intervalPath.first());
+            assertEquals(endPos, intervalPath.peek());
+
+            pulledLength = length(stringPuller.stringPull(startPos, endPos,
+                    stringPuller.pathToPortals((DefaultGraphPath<NavMeshPathNode>) request.resultPath), agentRadius));
+            assertTrue("interval path from " + startPos + " to " + endPos + " is " + length(intervalPath)
+                            + " long, string pulled path " + pulledLength,
+                    length(intervalPath) <= pulledLength + LENGTH_TOLERANCE);
+            ++found;
+        }
+
+        // The mesh must exercise both outcomes to be a useful comparison
+        assertTrue(found > QUERIES / 4);
+        if(agentRadius > 0f) {
+            assertTrue(blocked > 0);
+        }
+    }
+
+    /**
+     * @return sum of the segment lengths of the path
+     */
+    private static float length(Array<Vector2> path) {
+        float length = 0f;
+        for(int i = 1; i < path.size; ++i) {
+            length += path.get(i - 1).dst(path.get(i));
+        }
+        return length;
+    }
+}
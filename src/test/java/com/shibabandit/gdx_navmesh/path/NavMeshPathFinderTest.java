@@ -0,0 +1,111 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Before;
+import org.junit.Test;
+import org.poly2tri.Poly2Tri;
+import org.poly2tri.geometry.polygon.Polygon;
+import org.poly2tri.geometry.polygon.PolygonPoint;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class NavMeshPathFinderTest {
+
+    private static final int REQUEST_CODE = 1000;
+    private static final int RESPONSE_CODE = 1001;
+
+    private NavMeshPathFinder pathFinder;
+
+    private final Array<NavMeshPathRequest> answered = new Array<>();
+    private final Array<Boolean> cancelled = new Array<>();
+    private final Array<Boolean> found = new Array<>();
+
+    private final NavMeshPathCallback callback = new NavMeshPathCallback() {
+        @Override
+        public void pathFinished(NavMeshPathRequest request) {
+            // Pooled requests are freed once the callback returns, keep what is checked
+            answered.add(request);
+            cancelled.add(request.isCancelled());
+            found.add(request.pathFound);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        final Polygon walkable = new Polygon(new PolygonPoint[] {
+                new PolygonPoint(100, 100),
+                new PolygonPoint(100, 0),
+                new PolygonPoint(0, 0),
+                new PolygonPoint(0, 100)
+        });
+        walkable.addHole(new Polygon(new PolygonPoint[] {
+                new PolygonPoint(50, 80),
+                new PolygonPoint(70, 30),
+                new PolygonPoint(30, 30)
+        }));
+        Poly2Tri.triangulate(walkable);
+
+        final Array<Polygon> walkables = new Array<>();
+        walkables.add(walkable);
+        pathFinder = new NavMeshPathFinder(new PortalMidpointDistHeuristic(), walkables, REQUEST_CODE, RESPONSE_CODE,
+                10f);
+    }
+
+    @Test
+    public void newerRequestOfOwnerSupersedesWaitingOne() {
+        final Object owner = new Object();
+        final long older = pathFinder.findPathAsync(new Vector2(5f, 5f), new Vector2(95f, 95f), 0f, callback,
+                owner, 0, NavMeshPathRequest.NO_DEADLINE);
+        final long newer = pathFinder.findPathAsync(new Vector2(5f, 95f), new Vector2(95f, 5f), 0f, callback,
+                owner, 0, NavMeshPathRequest.NO_DEADLINE);
+        assertNotEquals(NavMeshPathScheduler.NO_HANDLE, older);
+        assertNotEquals(NavMeshPathScheduler.NO_HANDLE, newer);
+
+        pathFinder.run(Long.MAX_VALUE);
+
+        assertEquals(2, answered.size);
+        assertTrue("older request cancelled", cancelled.get(0));
+        assertFalse(found.get(0));
+        assertFalse("newer request searched", cancelled.get(1));
+        assertTrue(found.get(1));
+        assertEquals(1, pathFinder.requestScheduler.getSupersededCount());
+    }
+
+    @Test
+    public void requestsOfOtherOwnersAreKept() {
+        pathFinder.findPathAsync(new Vector2(5f, 5f), new Vector2(95f, 95f), 0f, callback,
+                new Object(), 0, NavMeshPathRequest.NO_DEADLINE);
+        pathFinder.findPathAsync(new Vector2(5f, 95f), new Vector2(95f, 5f), 0f, callback,
+                new Object(), 0, NavMeshPathRequest.NO_DEADLINE);
+        pathFinder.findPathAsync(new Vector2(95f, 5f), new Vector2(5f, 95f), 0f, callback);
+
+        pathFinder.run(Long.MAX_VALUE);
+
+        assertEquals(3, answered.size);
+        for(int i = 0; i < answered.size; ++i) {
+            assertFalse(cancelled.get(i));
+            assertTrue(found.get(i));
+        }
+        assertEquals(0, pathFinder.requestScheduler.getSupersededCount());
+    }
+
+    @Test
+    public void newerFutureOfOwnerSupersedesWaitingOne() {
+        final Object owner = new Object();
+        final CompletableFuture<NavMeshPathRequest> older = pathFinder.findPathAsync(new Vector2(5f, 5f),
+                new Vector2(95f, 95f), 0f, owner, 0, NavMeshPathRequest.NO_DEADLINE);
+        final CompletableFuture<NavMeshPathRequest> newer = pathFinder.findPathAsync(new Vector2(5f, 95f),
+                new Vector2(95f, 5f), 0f, owner, 0, NavMeshPathRequest.NO_DEADLINE);
+
+        pathFinder.run(Long.MAX_VALUE);
+
+        assertTrue(older.isDone());
+        assertTrue(older.join().isCancelled());
+        assertTrue(newer.isDone());
+        assertFalse(newer.join().isCancelled());
+        assertTrue(newer.join().pathFound);
+    }
+}
@@ -0,0 +1,124 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.poly2tri.Poly2Tri;
+import org.poly2tri.geometry.polygon.Polygon;
+import org.poly2tri.geometry.polygon.PolygonPoint;
+
+import java.lang.management.ManagementFactory;
+
+import static com.shibabandit.gdx_navmesh.util.DelaunayTriangleUtil.dtContains;
+import static org.junit.Assert.*;
+
+public class NavMeshPathRequestTest {
+
+    private static final int WARM_UP_REQUESTS = 20000;
+    private static final int MEASURED_REQUESTS = 1000;
+
+    private NavMeshGraph graph;
+    private PortalMidpointDistHeuristic heuristic;
+    private Vector2 startPos, endPos;
+    private NavMeshGraph.QtTriNode startTri, endTri;
+
+    @Before
+    public void setUp() {
+        final Polygon walkable = new Polygon(new PolygonPoint[] {
+                new PolygonPoint(100, 100),
+                new PolygonPoint(100, 0),
+                new PolygonPoint(0, 0),
+                new PolygonPoint(0, 100)
+        });
+        walkable.addHole(new Polygon(new PolygonPoint[] {
+                new PolygonPoint(50, 80),
+                new PolygonPoint(70, 30),
+                new PolygonPoint(30, 30)
+        }));
+        Poly2Tri.triangulate(walkable);
+
+        final Array<Polygon> walkables = new Array<>();
+        walkables.add(walkable);
+        graph = new NavMeshGraph(walkables);
+        heuristic = new PortalMidpointDistHeuristic();
+
+        startPos = new Vector2(5f, 5f);
+        endPos = new Vector2(95f, 95f);
+        startTri = containing(startPos);
+        endTri = containing(endPos);
+        assertNotNull(startTri);
+        assertNotNull(endTri);
+    }
+
+    private NavMeshGraph.QtTriNode containing(Vector2 pos) {
+        final Array<NavMeshGraph.QtTriNode> results = new Array<>();
+        graph.getNodesQt().itemsInRange(pos, 1f, results);
+        for(NavMeshGraph.QtTriNode n : results) {
+            if(dtContains(n.getDt(), pos.x, pos.y)) {
+                return n;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void initConnectsDynamicNodesToTriangleNodes() {
+        final NavMeshPathRequest request = new NavMeshPathRequest()
+                .init(heuristic, startTri, endTri, 1f, startPos, endPos, 0);
+
+        assertEquals(startTri.getNodes().size, request.startNode.getConnections().size);
+        assertEquals(endTri.getNodes().size, request.endNode.getConnections().size);
+        assertSame(request.startNode, request.startNode.getConnections().first().getFromNode());
+        assertSame(startTri.getNodes().first(), request.startNode.getConnections().first().getToNode());
+
+        // Same triangle adds the direct start to end connection
+        request.reset();
+        request.init(heuristic, startTri, startTri, 1f, startPos, startPos, 0);
+        assertEquals(startTri.getNodes().size + 1, request.startNode.getConnections().size);
+        assertSame(request.endNode, request.startNode.getConnections().peek().getToNode());
+    }
+
+    @Test
+    public void initDoesNotAllocateAfterWarmUp() {
+        final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeAllocationCounting(threadBean);
+
+        final long threadId = Thread.currentThread().getId();
+        final NavMeshPathRequest request = new NavMeshPathRequest();
+
+        for(int i = 0; i < WARM_UP_REQUESTS; ++i) {
+            initAndReset(request, i);
+        }
+
+        // Calibrate the cost of reading the counter itself
+        final long calibrateStart = threadBean.getThreadAllocatedBytes(threadId);
+        final long calibrateEnd = threadBean.getThreadAllocatedBytes(threadId);
+        final long counterCost = calibrateEnd - calibrateStart;
+
+        final long allocStart = threadBean.getThreadAllocatedBytes(threadId);
+        for(int i = 0; i < MEASURED_REQUESTS; ++i) {
+            initAndReset(request, i);
+        }
+        final long allocEnd = threadBean.getThreadAllocatedBytes(threadId);
+
+        assertEquals(0L, allocEnd - allocStart - counterCost);
+    }
+
+    private void initAndReset(NavMeshPathRequest request, int i) {
+        if((i & 1) == 0) {
+            request.init(heuristic, startTri, endTri, 1f, startPos, endPos, 0);
+        } else {
+            request.init(heuristic, endTri, endTri, 1f, endPos, endPos, 0);
+        }
+        request.initializeSearch(0L);
+        request.reset();
+    }
+
+    private static void assumeAllocationCounting(com.sun.management.ThreadMXBean threadBean) {
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+}
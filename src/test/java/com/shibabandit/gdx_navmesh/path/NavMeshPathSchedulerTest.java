@@ -0,0 +1,210 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.PathFinder;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NavMeshPathSchedulerTest {
+
+    /** Time slice long enough for every stub search */
+    private static final long RUN_NANOS = 1_000_000_000L;
+
+    private static final long MAX_WAIT_NANOS = 100_000_000L;
+
+    private StubPathFinder pathFinder;
+    private NavMeshPathScheduler scheduler;
+
+    /** Requests in the order they were answered */
+    private final Array<NavMeshPathRequest> answered = new Array<>();
+
+    private final NavMeshPathCallback callback = new NavMeshPathCallback() {
+        @Override
+        public void pathFinished(NavMeshPathRequest request) {
+            answered.add(request);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        pathFinder = new StubPathFinder();
+        scheduler = new NavMeshPathScheduler(pathFinder, MAX_WAIT_NANOS);
+    }
+
+    @Test
+    public void searchesByPriorityThenEarliestDeadline() {
+        final long now = TimeUtils.nanoTime();
+        final NavMeshPathRequest low = add(0, NavMeshPathRequest.NO_DEADLINE);
+        final NavMeshPathRequest highLate = add(2, now + 2_000_000_000L);
+        final NavMeshPathRequest medium = add(1, now + 1_000L);
+        final NavMeshPathRequest highEarly = add(2, now + 1_000_000_000L);
+        final NavMeshPathRequest highLateSecond = add(2, now + 2_000_000_000L);
+
+        scheduler.run(RUN_NANOS);
+
+        assertSearchOrder(highEarly, highLate, highLateSecond, medium, low);
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void starvingRequestsGoFirstOldestFirst() {
+        final NavMeshPathRequest high = add(5, NavMeshPathRequest.NO_DEADLINE);
+        final NavMeshPathRequest lowest = add(-1, NavMeshPathRequest.NO_DEADLINE);
+        final NavMeshPathRequest low = add(0, NavMeshPathRequest.NO_DEADLINE);
+        final NavMeshPathRequest fresh = add(1, NavMeshPathRequest.NO_DEADLINE);
+
+        // Both low requests have waited past the limit, priority no longer orders them
+        lowest.queuedTime -= 3 * MAX_WAIT_NANOS;
+        low.queuedTime -= 2 * MAX_WAIT_NANOS;
+
+        scheduler.run(RUN_NANOS);
+
+        assertSearchOrder(lowest, low, high, fresh);
+    }
+
+    @Test
+    public void cancelsWaitingRequestByHandle() {
+        final NavMeshPathRequest first = add(0, NavMeshPathRequest.NO_DEADLINE);
+        final NavMeshPathRequest second = add(0, NavMeshPathRequest.NO_DEADLINE);
+
+        assertTrue(scheduler.cancel(second.getHandle()));
+        assertFalse(scheduler.cancel(second.getHandle() + 100L));
+        scheduler.run(RUN_NANOS);
+
+        assertSearchOrder(first);
+        assertEquals(2, answered.size);
+        assertTrue(answered.contains(second, true));
+        assertTrue(second.isCancelled());
+        assertFalse(second.pathFound);
+        assertEquals(1, scheduler.getCompletedCount());
+        assertEquals(1, scheduler.getCancelledCount());
+    }
+
+    @Test
+    public void cancelsRunningRequestByHandle() {
+        pathFinder.slices = 3;
+        final NavMeshPathRequest running = add(0, NavMeshPathRequest.NO_DEADLINE);
+        final NavMeshPathRequest next = add(0, NavMeshPathRequest.NO_DEADLINE);
+
+        // The first slice starts the search without finishing it
+        scheduler.run(RUN_NANOS);
+        assertEquals(1, pathFinder.searchCalls);
+        assertEquals(0, answered.size);
+        assertEquals(2, scheduler.size());
+
+        assertTrue(scheduler.cancel(running.getHandle()));
+        pathFinder.slices = 1;
+        scheduler.run(RUN_NANOS);
+
+        assertSame(running, answered.get(0));
+        assertTrue(running.isCancelled());
+        assertFalse(running.pathFound);
+        assertSame(next, answered.get(1));
+        assertTrue(next.pathFound);
+        assertEquals(1, scheduler.getCancelledCount());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void recordsQueueWaitAndSearchTime() {
+        pathFinder.searchNanos = 2_000_000L;
+        final NavMeshPathRequest waited = add(0, NavMeshPathRequest.NO_DEADLINE);
+        final NavMeshPathRequest late = add(0, TimeUtils.nanoTime() - 1L);
+        waited.queuedTime -= 50_000_000L;
+
+        scheduler.run(RUN_NANOS);
+
+        assertEquals(2, scheduler.getCompletedCount());
+        assertEquals(1, scheduler.getMissedDeadlineCount());
+        assertTrue(waited.getQueueWaitNanos() >= 50_000_000L);
+        assertTrue(waited.getSearchNanos() >= pathFinder.searchNanos);
+        assertTrue(late.getSearchNanos() >= pathFinder.searchNanos);
+        assertEquals(waited.getQueueWaitNanos() + late.getQueueWaitNanos(), scheduler.getTotalQueueWaitNanos());
+        assertEquals(Math.max(waited.getQueueWaitNanos(), late.getQueueWaitNanos()),
+                scheduler.getMaxQueueWaitNanos());
+        assertEquals(waited.getSearchNanos() + late.getSearchNanos(), scheduler.getTotalSearchNanos());
+        assertEquals(Math.max(waited.getSearchNanos(), late.getSearchNanos()), scheduler.getMaxSearchNanos());
+
+        scheduler.resetStats();
+        assertEquals(0, scheduler.getCompletedCount());
+        assertEquals(0, scheduler.getMissedDeadlineCount());
+        assertEquals(0L, scheduler.getTotalQueueWaitNanos());
+        assertEquals(0L, scheduler.getMaxSearchNanos());
+    }
+
+    private NavMeshPathRequest add(int priority, long deadline) {
+        final NavMeshPathRequest request = new NavMeshPathRequest();
+        request.setCallback(callback);
+        request.setPriority(priority);
+        request.setDeadline(deadline);
+        assertNotEquals(NavMeshPathScheduler.NO_HANDLE, scheduler.add(request));
+        return request;
+    }
+
+    private void assertSearchOrder(NavMeshPathRequest... expected) {
+        assertEquals(expected.length, pathFinder.searched.size);
+        for(int i = 0; i < expected.length; ++i) {
+            assertSame("request " + i, expected[i], pathFinder.searched.get(i));
+        }
+    }
+
+    /**
+     * Finishes each request after a set number of time slices, spinning for a set time per slice.
+     */
+    private static final class StubPathFinder implements PathFinder<NavMeshPathNode> {
+
+        /** Requests in the order their search started */
+        final Array<NavMeshPathRequest> searched = new Array<>();
+
+        /** Slices per search */
+        int slices = 1;
+
+        /** Time spent in each slice */
+        long searchNanos;
+
+        int searchCalls;
+
+        private int slice;
+
+        @Override
+        public boolean searchConnectionPath(NavMeshPathNode startNode, NavMeshPathNode endNode,
+                                            Heuristic<NavMeshPathNode> heuristic,
+                                            GraphPath<Connection<NavMeshPathNode>> outPath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean searchNodePath(NavMeshPathNode startNode, NavMeshPathNode endNode,
+                                      Heuristic<NavMeshPathNode> heuristic, GraphPath<NavMeshPathNode> outPath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean search(PathFinderRequest<NavMeshPathNode> request, long timeToRun) {
+            ++searchCalls;
+            if(request.statusChanged) {
+                request.statusChanged = false;
+                searched.add((NavMeshPathRequest) request);
+                slice = 0;
+            }
+
+            final long end = TimeUtils.nanoTime() + searchNanos;
+            while(TimeUtils.nanoTime() < end) {
+                Thread.yield();
+            }
+
+            if(++slice < slices) {
+                return false;
+            }
+            request.pathFound = true;
+            return true;
+        }
+    }
+}
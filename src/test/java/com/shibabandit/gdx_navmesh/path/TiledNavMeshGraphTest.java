@@ -0,0 +1,188 @@
+package com.shibabandit.gdx_navmesh.path;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.poly2tri.Poly2Tri;
+import org.poly2tri.geometry.polygon.Polygon;
+import org.poly2tri.geometry.polygon.PolygonPoint;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static com.shibabandit.gdx_navmesh.util.DelaunayTriangleUtil.dtContains;
+import static org.junit.Assert.*;
+
+public class TiledNavMeshGraphTest {
+
+    private static final int TILES_X = 3, TILES_Y = 2;
+    private static final float TILE_SIZE = 100f;
+    private static final int HOLES_PER_TILE = 3;
+    private static final int SLOT_CAPACITY = 256;
+    private static final int QUERIES = 2000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private NavMeshTileSource tileSource;
+
+    @Before
+    public void setUp() throws IOException {
+        final Path[] files = new Path[TILES_X * TILES_Y];
+        final Random random = new Random(1);
+        float minX, minY, cx, cy, s;
+
+        for(int tileY = 0; tileY < TILES_Y; ++tileY) {
+            for(int tileX = 0; tileX < TILES_X; ++tileX) {
+                minX = tileX * TILE_SIZE;
+                minY = tileY * TILE_SIZE;
+                final Polygon walkable = new Polygon(new PolygonPoint[] {
+                        new PolygonPoint(minX + TILE_SIZE, minY + TILE_SIZE),
+                        new PolygonPoint(minX + TILE_SIZE, minY),
+                        new PolygonPoint(minX, minY),
+                        new PolygonPoint(minX, minY + TILE_SIZE)
+                });
+
+                // Triangle holes along the tile diagonal, away from the borders
+                for(int i = 0; i < HOLES_PER_TILE; ++i) {
+                    cx = minX + (i + 0.5f) * TILE_SIZE / HOLES_PER_TILE;
+                    cy = minY + (i + 0.5f) * TILE_SIZE / HOLES_PER_TILE;
+                    s = 4f + random.nextFloat() * 6f;
+                    walkable.addHole(new Polygon(new PolygonPoint[] {
+                            new PolygonPoint(cx, cy + s),
+                            new PolygonPoint(cx + s, cy - s),
+                            new PolygonPoint(cx - s, cy - s)
+                    }));
+                }
+                Poly2Tri.triangulate(walkable);
+
+                final Array<Polygon> walkables = new Array<>();
+                walkables.add(walkable);
+                files[tileY * TILES_X + tileX] = folder.newFile("tile_" + tileX + "_" + tileY + ".nmsh").toPath();
+                NavMeshBake.write(new NavMeshGraph(walkables), files[tileY * TILES_X + tileX]);
+            }
+        }
+
+        tileSource = new NavMeshTileSource() {
+            @Override
+            public Path getTileFile(int tileX, int tileY) {
+                return tileX >= 0 && tileY >= 0 && tileX < TILES_X && tileY < TILES_Y
+                        ? files[tileY * TILES_X + tileX] : null;
+            }
+        };
+    }
+
+    @Test
+    public void locatesPointsInResidentTiles() throws IOException {
+        final TiledNavMeshGraph graph = new TiledNavMeshGraph(tileSource, TILE_SIZE, TILES_X * TILES_Y,
+                SLOT_CAPACITY, Long.MAX_VALUE);
+        for(int tileY = 0; tileY < TILES_Y; ++tileY) {
+            for(int tileX = 0; tileX < TILES_X; ++tileX) {
+                assertNotNull(graph.loadTile(tileX, tileY));
+            }
+        }
+        assertLocates(graph, 1);
+
+        assertTrue(graph.unloadTile(1, 0));
+        assertLocates(graph, 2);
+
+        assertNotNull(graph.loadTile(1, 0));
+        assertLocates(graph, 3);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedTile() throws IOException {
+        final TiledNavMeshGraph graph = new TiledNavMeshGraph(tileSource, TILE_SIZE, 2, SLOT_CAPACITY,
+                Long.MAX_VALUE);
+        final NavMeshTile first = graph.loadTile(0, 0);
+        final NavMeshTile second = graph.loadTile(1, 0);
+
+        // Using the first tile makes the second the least recently used
+        assertSame(first, graph.getTile(0, 0));
+        final NavMeshTile third = graph.loadTile(2, 0);
+        assertNotNull(third);
+        assertEquals(2, graph.getResidentTileCount());
+        assertNull(graph.getTile(1, 0));
+        assertEquals(second.getIndexBase(), third.getIndexBase());
+
+        // A tile without a file does not evict anything
+        assertNull(graph.loadTile(TILES_X, 0));
+        assertEquals(2, graph.getResidentTileCount());
+        assertSame(first, graph.getTile(0, 0));
+        assertSame(third, graph.getTile(2, 0));
+
+        // Loading a resident tile marks it as used too
+        assertSame(third, graph.loadTile(2, 0));
+        assertNotNull(graph.loadTile(0, 1));
+        assertNull(graph.getTile(0, 0));
+        assertNotNull(graph.getTile(2, 0));
+        assertEquals(graph.getTile(2, 0).getMemoryEstimate() + graph.getTile(0, 1).getMemoryEstimate(),
+                graph.getResidentBytes());
+    }
+
+    @Test
+    public void evictsToStayWithinMemoryBudget() throws IOException {
+        final TiledNavMeshGraph probe = new TiledNavMeshGraph(tileSource, TILE_SIZE, 1, SLOT_CAPACITY,
+                Long.MAX_VALUE);
+        final long tileBytes = probe.loadTile(0, 0).getMemoryEstimate();
+
+        // Room for about two tiles, tiles differ a little in size
+        final TiledNavMeshGraph graph = new TiledNavMeshGraph(tileSource, TILE_SIZE, TILES_X * TILES_Y,
+                SLOT_CAPACITY, tileBytes * 5 / 2);
+        for(int tileX = 0; tileX < TILES_X; ++tileX) {
+            assertNotNull(graph.loadTile(tileX, 0));
+            assertTrue(graph.getResidentBytes() <= graph.getMemoryBudget() || graph.getResidentTileCount() == 1);
+        }
+        assertNull(graph.getTile(0, 0));
+        assertNotNull(graph.getTile(TILES_X - 1, 0));
+    }
+
+    /**
+     * Check point lookups and triangle lookups against the triangles of the resident tiles.
+     */
+    private static void assertLocates(TiledNavMeshGraph graph, long seed) {
+        final Random random = new Random(seed);
+        final Vector2 pos = new Vector2();
+        NavMeshGraph.QtTriNode located;
+        NavMeshTile tile;
+        boolean walkable, resident;
+
+        for(int i = 0; i < QUERIES; ++i) {
+            pos.set(random.nextFloat() * TILES_X * TILE_SIZE, random.nextFloat() * TILES_Y * TILE_SIZE);
+            located = graph.getContainingTriNode(pos);
+
+            walkable = false;
+            resident = located == null;
+            for(int tileY = 0; tileY < TILES_Y; ++tileY) {
+                for(int tileX = 0; tileX < TILES_X; ++tileX) {
+                    tile = graph.getTile(tileX, tileY);
+                    if(tile == null) {
+                        continue;
+                    }
+                    for(int t = 0; t < tile.getTriNodes().size; ++t) {
+                        walkable |= dtContains(tile.getTriNodes().get(t).getDt(), pos.x, pos.y);
+                    }
+                    if(located != null && tile.getTriNodes().contains(located, true)) {
+                        assertTrue("located triangle contains " + pos, dtContains(located.getDt(), pos.x, pos.y));
+                        resident = true;
+                    }
+                }
+            }
+            assertEquals("walkable at " + pos, walkable, located != null);
+            assertTrue("located triangle of a resident tile at " + pos, resident);
+        }
+
+        for(int tileY = 0; tileY < TILES_Y; ++tileY) {
+            for(int tileX = 0; tileX < TILES_X; ++tileX) {
+                tile = graph.getTile(tileX, tileY);
+                for(int t = 0; tile != null && t < tile.getTriNodes().size; ++t) {
+                    assertSame(tile.getTriNodes().get(t), graph.findTriNode(tile.getTriNodes().get(t).getDt()));
+                }
+            }
+        }
+    }
+}